@@ -0,0 +1,39 @@
+package cn.nukkit;
+
+import cn.nukkit.network.protocol.DataPacket;
+import net.uniloftsky.nukkit.lifesteal.stub.Stubs;
+
+/**
+ * Server stub that encodes and counts the sent packets instead of compressing and sending them. Lives in the {@code cn.nukkit} package because the server constructor is package-private
+ */
+public class StubServer extends Server {
+
+    private long sentBatches;
+
+    private long sentPackets;
+
+    private StubServer() {
+        super(null, null, null, null);
+    }
+
+    public static StubServer create() {
+        return Stubs.allocate(StubServer.class);
+    }
+
+    @Override
+    public void batchPackets(Player[] players, DataPacket[] packets) {
+        for (DataPacket packet : packets) {
+            packet.encode();
+        }
+        sentBatches++;
+        sentPackets += (long) packets.length * players.length;
+    }
+
+    public long getSentBatches() {
+        return sentBatches;
+    }
+
+    public long getSentPackets() {
+        return sentPackets;
+    }
+}
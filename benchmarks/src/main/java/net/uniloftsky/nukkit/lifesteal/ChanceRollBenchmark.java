@@ -0,0 +1,53 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.ChanceMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one lifesteal chance roll per chance mode. Rolls rotate through the attackers, so the PRD roller looks up
+ * the counters of different players like on a busy server
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChanceRollBenchmark {
+
+    private static final long SEED = 42;
+
+    /**
+     * Chance mode from config
+     */
+    @Param({"random", "seeded", "prd"})
+    private String mode;
+
+    /**
+     * Chance of lifesteal in basis points
+     */
+    @Param({"250", "2500"})
+    private int chance;
+
+    /**
+     * Amount of attackers, must be a power of two
+     */
+    @Param({"1", "256"})
+    private int attackers;
+
+    private ChanceRoller roller;
+
+    private long nextAttacker;
+
+    @Setup
+    public void setUp() {
+        roller = ChanceRoller.of(ChanceMode.fromConfigName(mode), SEED);
+    }
+
+    @Benchmark
+    public boolean roll() {
+        return roller.roll(nextAttacker++ & (attackers - 1), chance);
+    }
+}
@@ -0,0 +1,202 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.StubServer;
+import cn.nukkit.event.entity.EntityDamageByEntityEvent;
+import cn.nukkit.event.entity.EntityDamageEvent;
+import cn.nukkit.nbt.NBTIO;
+import cn.nukkit.nbt.tag.CompoundTag;
+import cn.nukkit.nbt.tag.ListTag;
+import net.uniloftsky.nukkit.lifesteal.config.BenchmarkConfigs;
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealConfig;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealWeapon;
+import net.uniloftsky.nukkit.lifesteal.config.WeaponCondition;
+import net.uniloftsky.nukkit.lifesteal.config.WeaponTable;
+import net.uniloftsky.nukkit.lifesteal.listener.EventListener;
+import net.uniloftsky.nukkit.lifesteal.stub.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Per-attack cost of the lifesteal hot path: from {@link EventListener#onAttack(EntityDamageByEntityEvent)} down to every step of
+ * {@link LifestealCore#healPlayer(cn.nukkit.Player, cn.nukkit.item.Item)}. Run with the GC profiler to see the allocation rate
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LifestealBenchmark {
+
+    /**
+     * Chance of lifesteal from config
+     */
+    @Param({"25", "100"})
+    private int chance;
+
+    /**
+     * Particles sending mode from config
+     */
+    @Param({"false", "true"})
+    private boolean batchParticles;
+
+    /**
+     * Amount of registered weapons. Large catalogs go beyond the dense lookup storage
+     */
+    @Param({"2", "10000"})
+    private int weapons;
+
+    private Path dataFolder;
+
+    private LifestealConfig config;
+
+    private LifestealCore core;
+
+    private EventListener listener;
+
+    private EntityDamageByEntityEvent event;
+
+    /**
+     * Attack which is rejected by the damage cause, e.g. a projectile
+     */
+    private EntityDamageByEntityEvent projectileEvent;
+
+    /**
+     * Attack with an item which isn't a lifesteal weapon
+     */
+    private EntityDamageByEntityEvent unarmedEvent;
+
+    private StubPlayer attacker;
+
+    private StubItem itemInHand;
+
+    private int lookupId;
+
+    /**
+     * Table with a custom named, enchantment-scaled weapon entry
+     */
+    private WeaponTable conditionalWeapons;
+
+    private WeaponMatcher weaponMatcher;
+
+    /**
+     * Item matching the conditional entry, with a large NBT tag
+     */
+    private StubItem namedItem;
+
+    private byte[] namedItemTag;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataFolder = Files.createTempDirectory("lifesteal-benchmark");
+        StubLogger logger = StubLogger.create();
+        config = BenchmarkConfigs.load(StubPlugin.create(dataFolder.toFile(), logger), BenchmarkConfigs.contents(chance, batchParticles, weapons));
+        core = new LifestealCore(config);
+        listener = new EventListener(logger, core);
+
+        StubServer server = StubServer.create();
+        StubLevel level = StubLevel.create();
+        itemInHand = StubItem.weapon(weapons, "Weapon " + weapons, 7);
+        attacker = StubPlayer.create(server, level).at(100.5, 64, -20.5).holding(StubInventory.holding(itemInHand));
+        StubPlayer victim = StubPlayer.create(server, level).at(101.5, 64, -20.5);
+        for (int i = 0; i < 10; i++) {
+            level.addViewer(i, StubPlayer.create(server, level).at(100 + i, 64, -20));
+        }
+        event = new EntityDamageByEntityEvent(attacker, victim, EntityDamageEvent.DamageCause.ENTITY_ATTACK, 7);
+        projectileEvent = new EntityDamageByEntityEvent(attacker, victim, EntityDamageEvent.DamageCause.PROJECTILE, 7);
+        StubPlayer unarmed = StubPlayer.create(server, level).at(100.5, 64, -21.5).holding(StubInventory.holding(StubItem.other(weapons + 1, "Stick")));
+        unarmedEvent = new EntityDamageByEntityEvent(unarmed, victim, EntityDamageEvent.DamageCause.ENTITY_ATTACK, 1);
+
+        WeaponCondition vampiric = new WeaponCondition(WeaponCondition.ANY_META, "Vampire Blade", new int[0], new int[0], 40, FixedPoint.of(5));
+        conditionalWeapons = WeaponTable.of(Map.of(), List.of(new LifestealWeapon(weapons, FixedPoint.of(10), null, vampiric)));
+        weaponMatcher = new WeaponMatcher();
+        CompoundTag tag = new CompoundTag()
+                .putCompound("display", new CompoundTag().putString("Name", "Vampire Blade"))
+                .putList(new ListTag<CompoundTag>("ench").add(new CompoundTag().putShort("id", 40).putShort("lvl", 3)))
+                .putString("history", "x".repeat(8192));
+        namedItemTag = NBTIO.write(tag, ByteOrder.LITTLE_ENDIAN);
+        namedItem = StubItem.weapon(weapons, "Weapon " + weapons, 7);
+        namedItem.setCompoundTag(namedItemTag);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public EntityDamageByEntityEvent onAttack() {
+        attacker.setStubHealth(10);
+        listener.onAttack(event);
+        return event;
+    }
+
+    @Benchmark
+    public EntityDamageByEntityEvent onAttackRejectedByCause() {
+        listener.onAttack(projectileEvent);
+        return projectileEvent;
+    }
+
+    @Benchmark
+    public EntityDamageByEntityEvent onAttackRejectedByItem() {
+        listener.onAttack(unarmedEvent);
+        return unarmedEvent;
+    }
+
+    @Benchmark
+    public boolean healPlayer() {
+        attacker.setStubHealth(10);
+        return core.healPlayer(attacker, itemInHand);
+    }
+
+    @Benchmark
+    public LifestealWeapon weaponLookup() {
+        lookupId = lookupId % weapons + 1;
+        return config.getWeaponOrNull(lookupId);
+    }
+
+    /**
+     * Match of the conditional entry through the cache of the matcher
+     */
+    @Benchmark
+    public LifestealWeapon conditionalWeaponMatch() {
+        return weaponMatcher.match(conditionalWeapons, namedItem);
+    }
+
+    /**
+     * Match of the conditional entry which parses the NBT tag every time, as without the cache
+     */
+    @Benchmark
+    public LifestealWeapon conditionalWeaponMatchUncached() {
+        namedItem.setCompoundTag(namedItemTag);
+        return conditionalWeapons.match(namedItem.getId(), namedItem.getDamage(), namedItem.getNamedTag());
+    }
+
+    @Benchmark
+    public boolean chanceRoll() {
+        return core.rollLifestealChance(attacker.getId());
+    }
+
+    @Benchmark
+    public float healCalculation() {
+        return core.calculateHealAmount(itemInHand.getAttackDamage(), FixedPoint.of(10));
+    }
+
+    @Benchmark
+    public StubPlayer particleSpawning() {
+        core.spawnHealingParticles(attacker);
+        return attacker;
+    }
+}
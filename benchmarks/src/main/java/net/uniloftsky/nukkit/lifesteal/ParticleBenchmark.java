@@ -0,0 +1,59 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.Player;
+import cn.nukkit.StubServer;
+import net.uniloftsky.nukkit.lifesteal.config.ParticleSettings;
+import net.uniloftsky.nukkit.lifesteal.stub.StubLevel;
+import net.uniloftsky.nukkit.lifesteal.stub.StubPlayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-particle loop with the batched burst of healing particles.
+ * Lives in the plugin package to reach the package-private particle methods of {@link LifestealCore}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParticleBenchmark {
+
+    /**
+     * Amount of players who see the healed player's chunk
+     */
+    @Param({"1", "10", "50"})
+    private int viewers;
+
+    private LifestealCore core;
+
+    private StubPlayer target;
+
+    private Player[] viewerArray;
+
+    @Setup
+    public void setUp() {
+        StubServer server = StubServer.create();
+        StubLevel level = StubLevel.create();
+        target = StubPlayer.create(server, level).at(100.5, 64, -20.5);
+        for (int i = 0; i < viewers; i++) {
+            level.addViewer(i, StubPlayer.create(server, level).at(100 + i, 64, -20));
+        }
+        viewerArray = level.getChunkPlayers(target.getChunkX(), target.getChunkZ()).values().toArray(new Player[0]);
+        core = new LifestealCore(null);
+    }
+
+    @Benchmark
+    public StubPlayer loop() {
+        core.spawnHealingParticlesLoop(target, ParticleSettings.DEFAULT_AMOUNT, ParticleSettings.DEFAULT.getType());
+        return target;
+    }
+
+    @Benchmark
+    public StubPlayer batched() {
+        core.spawnHealingParticlesBatched(target, viewerArray, ParticleSettings.DEFAULT_AMOUNT, ParticleSettings.DEFAULT.getType());
+        return target;
+    }
+}
@@ -0,0 +1,75 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.item.Item;
+import net.uniloftsky.nukkit.lifesteal.LifestealPlugin;
+import net.uniloftsky.nukkit.lifesteal.stub.StubItem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.IntFunction;
+
+/**
+ * Loads {@link LifestealConfig} for benchmarks through the regular init path, but with stub items instead of the Nukkit item registry
+ */
+public final class BenchmarkConfigs {
+
+    private BenchmarkConfigs() {
+    }
+
+    /**
+     * Write the given config contents into the plugin data folder and initialize the config from it
+     *
+     * @param plugin   plugin with the data folder
+     * @param contents contents of config.json
+     * @return initialized config
+     */
+    public static LifestealConfig load(LifestealPlugin plugin, String contents) {
+        try {
+            Files.createDirectories(plugin.getDataFolder().toPath());
+            Files.writeString(plugin.getDataFolder().toPath().resolve("config.json"), contents, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        LifestealConfig config = new LifestealConfig(plugin);
+        config.setItemResolver(stubItems());
+        if (!config.init()) {
+            throw new IllegalStateException("Benchmark config cannot be initialized");
+        }
+        return config;
+    }
+
+    /**
+     * Create the config which isn't initialized, so its package-private parsing methods can be measured separately
+     *
+     * @param plugin plugin with the data folder
+     * @return config with stub item resolver
+     */
+    public static LifestealConfig parser(LifestealPlugin plugin) {
+        LifestealConfig config = new LifestealConfig(plugin);
+        config.setItemResolver(stubItems());
+        return config;
+    }
+
+    /**
+     * Config contents with weapons from 1 to the given ID, each having 10% of lifesteal
+     */
+    public static String contents(int chance, boolean batchParticles, int weapons) {
+        StringBuilder builder = new StringBuilder("{\"chance\":").append(chance)
+                .append(",\"batchParticles\":").append(batchParticles)
+                .append(",\"weapons\":[");
+        for (int id = 1; id <= weapons; id++) {
+            if (id > 1) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(id).append(",\"lifesteal\":10}");
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static IntFunction<Item> stubItems() {
+        return id -> StubItem.weapon(id, "Weapon " + id, 7);
+    }
+}
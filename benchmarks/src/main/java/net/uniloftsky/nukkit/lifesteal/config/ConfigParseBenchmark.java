@@ -0,0 +1,118 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import net.uniloftsky.nukkit.lifesteal.stub.StubLogger;
+import net.uniloftsky.nukkit.lifesteal.stub.StubPlugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming config loader with the former tree-based one on large weapon catalogs.
+ * Parse time and allocations are measured by JMH (with the GC profiler), peak heap is printed by {@link #main(String[])}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ConfigParseBenchmark {
+
+    /**
+     * Amount of weapons in the catalog
+     */
+    @Param({"1000", "50000"})
+    private int weapons;
+
+    private Path dataFolder;
+
+    private Path configFile;
+
+    private LifestealConfig config;
+
+    private TreeConfigParser treeParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataFolder = Files.createTempDirectory("lifesteal-parse-benchmark");
+        configFile = dataFolder.resolve("config.json");
+        Files.writeString(configFile, BenchmarkConfigs.contents(25, false, weapons), StandardCharsets.UTF_8);
+        config = BenchmarkConfigs.parser(StubPlugin.create(dataFolder.toFile(), StubLogger.create()));
+        treeParser = new TreeConfigParser(config);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(configFile);
+        Files.deleteIfExists(dataFolder);
+    }
+
+    @Benchmark
+    public WeaponTable streaming() throws IOException {
+        try (Reader reader = Files.newBufferedReader(configFile, StandardCharsets.UTF_8)) {
+            return config.parseMainConfig(reader).getWeapons();
+        }
+    }
+
+    @Benchmark
+    public WeaponTable tree() throws IOException {
+        return treeParser.parse(configFile);
+    }
+
+    /**
+     * Print the peak heap usage of both loaders. Run it in a fresh JVM with a fixed heap, e.g.
+     * {@code java -Xms2g -Xmx2g -cp benchmarks/target/benchmarks.jar net.uniloftsky.nukkit.lifesteal.config.ConfigParseBenchmark 50000}
+     */
+    public static void main(String[] args) throws Exception {
+        ConfigParseBenchmark benchmark = new ConfigParseBenchmark();
+        benchmark.weapons = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        benchmark.setUp();
+        try {
+            for (int i = 0; i < 5; i++) /* warm up both loaders */ {
+                benchmark.streaming();
+                benchmark.tree();
+            }
+            System.out.printf("weapons=%d streaming: peak heap %d KB%n", benchmark.weapons, peakHeapKilobytes(benchmark::streaming));
+            System.out.printf("weapons=%d tree: peak heap %d KB%n", benchmark.weapons, peakHeapKilobytes(benchmark::tree));
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    private static long peakHeapKilobytes(Parse parse) throws IOException {
+        System.gc();
+        long baseline = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                baseline += pool.getUsage().getUsed();
+                pool.resetPeakUsage();
+            }
+        }
+
+        WeaponTable result = parse.run();
+
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalStateException("Nothing was parsed");
+        }
+        return (peak - baseline) / 1024;
+    }
+
+    @FunctionalInterface
+    private interface Parse {
+        WeaponTable run() throws IOException;
+    }
+}
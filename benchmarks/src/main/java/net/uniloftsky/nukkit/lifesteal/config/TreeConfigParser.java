@@ -0,0 +1,47 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Baseline copy of the former tree-based config loading: the whole file as a string, the Gson tree, the list view of the weapons
+ * array and one more conversion of every element. Registration is the same as in the streaming loader, so only parsing differs
+ */
+final class TreeConfigParser {
+
+    private final Gson gson = new Gson();
+
+    private final LifestealConfig config;
+
+    TreeConfigParser(LifestealConfig config) {
+        this.config = config;
+    }
+
+    WeaponTable parse(Path file) throws IOException {
+        String contents = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        JsonObject configObject = JsonParser.parseString(contents).getAsJsonObject();
+        configObject.get(LifestealConfig.MainConfigFields.LIFESTEAL_CHANCE_FIELD).getAsInt();
+
+        List<JsonElement> jsonWeapons = configObject.getAsJsonArray(LifestealConfig.MainConfigFields.WEAPONS_LIST_FIELD).asList();
+        List<LifestealWeapon> weapons = new ArrayList<>(jsonWeapons.size());
+        for (JsonElement jsonWeapon : jsonWeapons) {
+            weapons.add(gson.fromJson(jsonWeapon, LifestealWeapon.class));
+        }
+
+        Map<Integer, LifestealWeapon> registry = new LinkedHashMap<>();
+        List<LifestealWeapon> variants = new ArrayList<>();
+        config.registerWeapons(weapons, registry, variants);
+        return WeaponTable.of(registry, variants);
+    }
+}
@@ -0,0 +1,31 @@
+package net.uniloftsky.nukkit.lifesteal.stub;
+
+import cn.nukkit.inventory.PlayerInventory;
+import cn.nukkit.item.Item;
+
+/**
+ * Player inventory stub which holds only the item in hand
+ */
+public class StubInventory extends PlayerInventory {
+
+    private Item itemInHand;
+
+    private StubInventory() {
+        super(null);
+    }
+
+    public static StubInventory holding(Item itemInHand) {
+        StubInventory inventory = Stubs.allocate(StubInventory.class);
+        inventory.itemInHand = itemInHand;
+        return inventory;
+    }
+
+    public void setItemInHand(Item itemInHand) {
+        this.itemInHand = itemInHand;
+    }
+
+    @Override
+    public Item getItemInHand() {
+        return itemInHand;
+    }
+}
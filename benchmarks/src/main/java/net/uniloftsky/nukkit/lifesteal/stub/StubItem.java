@@ -0,0 +1,66 @@
+package net.uniloftsky.nukkit.lifesteal.stub;
+
+import cn.nukkit.item.Item;
+
+/**
+ * Item stub which doesn't need the initialized Nukkit item registry
+ */
+public class StubItem extends Item {
+
+    private int stubId;
+
+    private String stubName;
+
+    private int stubAttackDamage;
+
+    private boolean weapon;
+
+    private StubItem() {
+        super(0);
+    }
+
+    public static StubItem weapon(int id, String name, int attackDamage) {
+        StubItem item = Stubs.allocate(StubItem.class);
+        item.stubId = id;
+        item.stubName = name;
+        item.stubAttackDamage = attackDamage;
+        item.weapon = true;
+        return item;
+    }
+
+    public static StubItem other(int id, String name) {
+        StubItem item = weapon(id, name, 1);
+        item.weapon = false;
+        return item;
+    }
+
+    @Override
+    public int getId() {
+        return stubId;
+    }
+
+    @Override
+    public String getName() {
+        return stubName;
+    }
+
+    @Override
+    public boolean isNull() {
+        return stubId == 0;
+    }
+
+    @Override
+    public boolean isSword() {
+        return weapon;
+    }
+
+    @Override
+    public boolean isAxe() {
+        return false;
+    }
+
+    @Override
+    public int getAttackDamage() {
+        return stubAttackDamage;
+    }
+}
@@ -0,0 +1,56 @@
+package net.uniloftsky.nukkit.lifesteal.stub;
+
+import cn.nukkit.Player;
+import cn.nukkit.level.Level;
+import cn.nukkit.level.format.LevelProvider;
+import cn.nukkit.level.particle.Particle;
+import cn.nukkit.network.protocol.DataPacket;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Level stub that counts spawned particles and returns the fixed set of players for every chunk
+ */
+public class StubLevel extends Level {
+
+    private Map<Integer, Player> chunkPlayers;
+
+    private long spawnedParticles;
+
+    private StubLevel() {
+        super(null, null, null, (Class<? extends LevelProvider>) null);
+    }
+
+    public static StubLevel create() {
+        StubLevel level = Stubs.allocate(StubLevel.class);
+        level.chunkPlayers = new HashMap<>();
+        return level;
+    }
+
+    public void addViewer(int entityId, Player viewer) {
+        chunkPlayers.put(entityId, viewer);
+    }
+
+    @Override
+    public Map<Integer, Player> getChunkPlayers(int chunkX, int chunkZ) {
+        return chunkPlayers;
+    }
+
+    @Override
+    public void addParticle(Particle particle) {
+        for (DataPacket packet : particle.encode()) /* the real level encodes every particle packet before broadcasting */ {
+            packet.encode();
+        }
+        spawnedParticles++;
+    }
+
+    @Override
+    public void addParticle(Particle particle, Player[] players) {
+        addParticle(particle);
+    }
+
+    public long getSpawnedParticles() {
+        return spawnedParticles;
+    }
+}
@@ -0,0 +1,46 @@
+package net.uniloftsky.nukkit.lifesteal.stub;
+
+import cn.nukkit.plugin.PluginLogger;
+import cn.nukkit.utils.LogLevel;
+
+/**
+ * Plugin logger stub which drops every message
+ */
+public class StubLogger extends PluginLogger {
+
+    private StubLogger() {
+        super(null);
+    }
+
+    public static StubLogger create() {
+        return Stubs.allocate(StubLogger.class);
+    }
+
+    @Override
+    public void info(String message) {
+    }
+
+    @Override
+    public void warning(String message) {
+    }
+
+    @Override
+    public void error(String message) {
+    }
+
+    @Override
+    public void error(String message, Throwable t) {
+    }
+
+    @Override
+    public void debug(String message) {
+    }
+
+    @Override
+    public void log(LogLevel level, String message) {
+    }
+
+    @Override
+    public void log(LogLevel level, String message, Throwable t) {
+    }
+}
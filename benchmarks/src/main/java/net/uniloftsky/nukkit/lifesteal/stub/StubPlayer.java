@@ -0,0 +1,118 @@
+package net.uniloftsky.nukkit.lifesteal.stub;
+
+import cn.nukkit.Player;
+import cn.nukkit.Server;
+import cn.nukkit.inventory.PlayerInventory;
+import cn.nukkit.level.Level;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Player stub with the plain fields instead of the network session, permissions and event calls
+ */
+public class StubPlayer extends Player {
+
+    private Server stubServer;
+
+    private Level stubLevel;
+
+    private boolean permitted;
+
+    private float stubHealth;
+
+    private PlayerInventory stubInventory;
+
+    private StubPlayer() {
+        super(null, null, (InetSocketAddress) null);
+    }
+
+    public static StubPlayer create(Server server, Level level) {
+        StubPlayer player = Stubs.allocate(StubPlayer.class);
+        player.stubServer = server;
+        player.stubLevel = level;
+        player.level = level;
+        player.permitted = true;
+        player.stubHealth = 10;
+        return player;
+    }
+
+    public StubPlayer at(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public void setPermitted(boolean permitted) {
+        this.permitted = permitted;
+    }
+
+    public StubPlayer holding(PlayerInventory inventory) {
+        this.stubInventory = inventory;
+        return this;
+    }
+
+    public void setStubHealth(float health) {
+        this.stubHealth = health;
+    }
+
+    @Override
+    public Server getServer() {
+        return stubServer;
+    }
+
+    @Override
+    public Level getLevel() {
+        return stubLevel;
+    }
+
+    @Override
+    public PlayerInventory getInventory() {
+        return stubInventory;
+    }
+
+    @Override
+    public boolean hasEffect(int effectId) {
+        return false;
+    }
+
+    @Override
+    public boolean isOnline() {
+        return true;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return stubHealth > 0;
+    }
+
+    @Override
+    public boolean hasPermission(String name) {
+        return permitted;
+    }
+
+    @Override
+    public float getHealth() {
+        return stubHealth;
+    }
+
+    @Override
+    public int getMaxHealth() {
+        return 20;
+    }
+
+    @Override
+    public void heal(float amount) {
+        stubHealth = Math.min(getMaxHealth(), stubHealth + amount);
+    }
+
+    @Override
+    public int getChunkX() {
+        return (int) x >> 4;
+    }
+
+    @Override
+    public int getChunkZ() {
+        return (int) z >> 4;
+    }
+}
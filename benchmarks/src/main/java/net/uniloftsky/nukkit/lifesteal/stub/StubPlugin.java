@@ -0,0 +1,34 @@
+package net.uniloftsky.nukkit.lifesteal.stub;
+
+import cn.nukkit.plugin.PluginBase;
+import cn.nukkit.plugin.PluginLogger;
+import net.uniloftsky.nukkit.lifesteal.LifestealPlugin;
+
+import java.io.File;
+import java.lang.reflect.Field;
+
+/**
+ * Factory of the plugin instance which isn't loaded by the server. Only the data folder and the logger are set
+ */
+public final class StubPlugin {
+
+    private StubPlugin() {
+    }
+
+    public static LifestealPlugin create(File dataFolder, PluginLogger logger) {
+        LifestealPlugin plugin = new LifestealPlugin();
+        setField(plugin, "dataFolder", dataFolder);
+        setField(plugin, "logger", logger);
+        return plugin;
+    }
+
+    private static void setField(LifestealPlugin plugin, String name, Object value) {
+        try {
+            Field field = PluginBase.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(plugin, value);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot set plugin field " + name, ex);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package net.uniloftsky.nukkit.lifesteal.stub;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+
+/**
+ * Helper to create lightweight stubs of Nukkit classes. Constructors of {@code Player}, {@code Level} and {@code Server} boot
+ * half of the server, so the stubs are allocated without running any constructor and only the overridden methods are used
+ */
+public final class Stubs {
+
+    private static final Unsafe UNSAFE;
+
+    static {
+        try {
+            Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            UNSAFE = (Unsafe) unsafeField.get(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private Stubs() {
+    }
+
+    /**
+     * Allocate the instance of the given class without invoking its constructors (and field initializers)
+     *
+     * @param type class to instantiate
+     * @return allocated instance
+     */
+    public static <T> T allocate(Class<T> type) {
+        try {
+            return type.cast(UNSAFE.allocateInstance(type));
+        } catch (InstantiationException ex) {
+            throw new IllegalStateException("Cannot allocate stub " + type.getName(), ex);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.Player;
+
+import java.util.Arrays;
+
+/**
+ * Absorption given to the players by the overheal. Only the amount given by lifesteal decays, the absorption of other sources,
+ * e.g. golden apples, stays untouched. Players are stored in dense arrays with a primitive open-addressing index keyed by entity ID,
+ * and one sweep per tick decays all of them, so there are no per-player tasks. Used from the main server thread only
+ */
+public final class AbsorptionTracker {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Entity IDs of tracked players to their positions in the dense arrays
+     */
+    private final LongIndex index = new LongIndex(INITIAL_CAPACITY);
+
+    private Player[] players = new Player[INITIAL_CAPACITY];
+
+    /**
+     * Absorption given by lifesteal and not decayed yet in HP, aligned with {@link #players}
+     */
+    private float[] amounts = new float[INITIAL_CAPACITY];
+
+    /**
+     * Give the absorption to the player. The player's absorption isn't raised above the max, the absorption above it
+     * which comes from other sources is kept as is
+     *
+     * @param player        player to give the absorption to
+     * @param amount        excess heal in HP
+     * @param maxAbsorption max absorption in HP
+     * @return true if any absorption was given
+     */
+    public boolean add(Player player, float amount, float maxAbsorption) {
+        float absorption = player.getAbsorption();
+        float added = Math.min(amount, maxAbsorption - absorption);
+        if (added <= 0) /* already at the cap */ {
+            return false;
+        }
+        player.setAbsorption(absorption + added);
+
+        long id = player.getId();
+        int position = index.positionOf(id);
+        if (position != LongIndex.ABSENT) {
+            amounts[position] += added;
+            players[position] = player;
+            return true;
+        }
+        position = index.add(id);
+        if (position == players.length) {
+            players = Arrays.copyOf(players, index.capacity());
+            amounts = Arrays.copyOf(amounts, index.capacity());
+        }
+        players[position] = player;
+        amounts[position] = added;
+        return true;
+    }
+
+    /**
+     * Decay the absorption of every tracked player. Players who quit, died, lost the absorption to damage or have it fully decayed
+     * are dropped, the rest are compacted to the beginning of the arrays
+     *
+     * @param decay decay of this sweep in HP
+     * @return amount of players still tracked
+     */
+    public int sweep(float decay) {
+        int count = index.size();
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            Player player = players[i];
+            if (!player.isOnline() || !player.isAlive()) {
+                continue;
+            }
+            float absorption = player.getAbsorption();
+            float amount = Math.min(amounts[i], absorption); // damage takes the absorption first
+            float decayed = Math.min(amount, decay);
+            if (decayed > 0) {
+                player.setAbsorption(absorption - decayed);
+            }
+            amount -= decayed;
+            if (amount <= 0) {
+                continue;
+            }
+            index.move(i, kept);
+            players[kept] = player;
+            amounts[kept] = amount;
+            kept++;
+        }
+        if (kept != count) /* rebuilding costs the same as the sweep which caused it */ {
+            Arrays.fill(players, kept, count, null);
+            index.truncate(kept);
+        }
+        return kept;
+    }
+
+    /**
+     * Take back the absorption given by lifesteal from every tracked player, e.g. when the overheal mode is turned off
+     */
+    public void clear() {
+        for (int i = 0; i < index.size(); i++) {
+            Player player = players[i];
+            if (player.isOnline()) {
+                player.setAbsorption(Math.max(0, player.getAbsorption() - amounts[i]));
+            }
+            players[i] = null;
+        }
+        index.clear();
+    }
+
+    /**
+     * Get the absorption given to the player by lifesteal
+     *
+     * @param entityId entity ID of the player
+     * @return absorption in HP, zero if the player isn't tracked
+     */
+    public float amountOf(long entityId) {
+        int position = index.positionOf(entityId);
+        return position != LongIndex.ABSENT ? amounts[position] : 0;
+    }
+
+    /**
+     * @return amount of tracked players
+     */
+    public int size() {
+        return index.size();
+    }
+}
@@ -0,0 +1,35 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.ChanceMode;
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+
+/**
+ * Strategy of the lifesteal chance rolls. Other plugins may set their own one with {@link LifestealCore#setChanceRoller(ChanceRoller)}
+ */
+@FunctionalInterface
+public interface ChanceRoller {
+
+    /**
+     * Roll the chance of the attacker
+     *
+     * @param entityId ID of the attacker. Used by the rollers which keep the state per player
+     * @param chance   chance of lifesteal in basis points. Zero and less never procs, {@link FixedPoint#HUNDRED_PERCENT} and more always procs
+     * @return true if lifesteal should happen
+     */
+    boolean roll(long entityId, int chance);
+
+    /**
+     * Create the roller of the mode from config
+     *
+     * @param mode mode of the rolls
+     * @param seed seed of the random. Ignored by {@link ChanceMode#RANDOM}, {@link ChanceMode#PRD} uses a random seed if it is zero
+     * @return roller
+     */
+    static ChanceRoller of(ChanceMode mode, long seed) {
+        return switch (mode) {
+            case RANDOM -> RandomChanceRoller.INSTANCE;
+            case SEEDED -> new SeededChanceRoller(seed);
+            case PRD -> seed != 0 ? new PrdChanceRoller(seed) : new PrdChanceRoller();
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.Player;
+
+import java.util.Arrays;
+
+/**
+ * Per-tick accumulator of pending heals. Heals of the same player are summed up, so they are applied once per tick.
+ * The particles of the player are spawned if any of the summed heals kept them on.
+ * Pending heals are stored in dense arrays in the order of the first heal, with a primitive open-addressing index keyed by entity ID.
+ * Used from the main server thread only
+ */
+public final class HealAccumulator {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Entity IDs of pending players to their positions in the dense arrays
+     */
+    private final LongIndex index = new LongIndex(INITIAL_CAPACITY);
+
+    private Player[] players = new Player[INITIAL_CAPACITY];
+
+    /**
+     * Summed heal amounts, aligned with {@link #players}
+     */
+    private float[] amounts = new float[INITIAL_CAPACITY];
+
+    /**
+     * Whether any of the summed heals spawns the particles, aligned with {@link #players}
+     */
+    private boolean[] particles = new boolean[INITIAL_CAPACITY];
+
+    /**
+     * Add the heal of the player to the pending ones
+     *
+     * @param player    player to heal
+     * @param amount    amount of heal
+     * @param particles flag to define if this heal spawns the healing particles
+     */
+    public void add(Player player, float amount, boolean particles) {
+        long id = player.getId();
+        int position = index.positionOf(id);
+        if (position != LongIndex.ABSENT) {
+            amounts[position] += amount;
+            this.particles[position] |= particles;
+            return;
+        }
+
+        position = index.add(id);
+        if (position == players.length) {
+            players = Arrays.copyOf(players, index.capacity());
+            amounts = Arrays.copyOf(amounts, index.capacity());
+            this.particles = Arrays.copyOf(this.particles, index.capacity());
+        }
+        players[position] = player;
+        amounts[position] = amount;
+        this.particles[position] = particles;
+    }
+
+    /**
+     * Pass every pending heal to the consumer and clear them
+     *
+     * @param consumer consumer of the player, the summed heal amount and the particles flag
+     * @return amount of players whose heals were passed
+     */
+    public int drain(PendingHealConsumer consumer) {
+        int drained = index.size();
+        for (int i = 0; i < drained; i++) {
+            Player player = players[i];
+            players[i] = null;
+            consumer.accept(player, amounts[i], particles[i]);
+        }
+        index.clear();
+        return drained;
+    }
+
+    /**
+     * @return amount of players with pending heals
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Consumer of the pending heal. Takes the primitive values, so draining doesn't box anything
+     */
+    @FunctionalInterface
+    public interface PendingHealConsumer {
+        void accept(Player player, float amount, boolean particles);
+    }
+}
@@ -0,0 +1,306 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.HealLimit;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-player heal limiter: cooldown between heals and token bucket. State is stored in a primitive open-addressing map keyed by entity ID.
+ * Idle entries expire through a hashed timing wheel which is advanced on access, so there are no per-player scheduled tasks.
+ * An entry expires once it is indistinguishable from a fresh one (cooldown passed and bucket refilled).
+ * Used from the main server thread only
+ */
+public final class HealLimiter {
+
+    /**
+     * Duration of one wheel tick. Matches the server tick
+     */
+    static final long WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * Amount of wheel buckets, power of two. One revolution takes ~12.8 seconds, longer expirations just go round again
+     */
+    static final int WHEEL_SIZE = 256;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Marker of free slot in the keys array
+     */
+    private static final long FREE_KEY = Long.MIN_VALUE;
+
+    /**
+     * Marker of the player who wasn't healed yet
+     */
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    /**
+     * Source of current time in nanoseconds
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Open-addressing keys (linear probing), entity IDs
+     */
+    private long[] keys;
+
+    /**
+     * Time of the last heal, aligned with {@link #keys}
+     */
+    private long[] lastHealAt;
+
+    /**
+     * Tokens left in the bucket, aligned with {@link #keys}
+     */
+    private double[] tokens;
+
+    /**
+     * Time of the last bucket refill, aligned with {@link #keys}
+     */
+    private long[] tokensAt;
+
+    /**
+     * Time when the entry can be dropped, aligned with {@link #keys}
+     */
+    private long[] expiresAt;
+
+    private int size;
+
+    /**
+     * Wheel buckets with entity IDs. Every stored entry is in exactly one bucket
+     */
+    private final long[][] wheel = new long[WHEEL_SIZE][];
+
+    private final int[] wheelSizes = new int[WHEEL_SIZE];
+
+    /**
+     * The last processed wheel tick
+     */
+    private long wheelTick = NOT_STARTED;
+
+    public HealLimiter() {
+        this(System::nanoTime);
+    }
+
+    HealLimiter(LongSupplier clock) {
+        this.clock = clock;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Check if the player can be healed now and take the heal from their limit if so
+     *
+     * @param entityId ID of the player entity
+     * @param limit    limit to apply. Null means no limit
+     * @return true if the player can be healed
+     */
+    public boolean tryAcquire(long entityId, HealLimit limit) {
+        if (limit == null || !limit.isEnabled()) {
+            return true;
+        }
+
+        long now = clock.getAsLong();
+        advance(now);
+
+        int slot = indexOf(entityId);
+        boolean created = false;
+        if (slot < 0) {
+            slot = insert(entityId);
+            lastHealAt[slot] = NEVER;
+            tokens[slot] = limit.getBurst();
+            tokensAt[slot] = now;
+            created = true;
+        }
+
+        long cooldown = limit.getCooldownNanos();
+        if (limit.isCooldownEnabled() && lastHealAt[slot] != NEVER && now - lastHealAt[slot] < cooldown) {
+            return false;
+        }
+        if (limit.isRateLimited()) {
+            double available = Math.min(limit.getBurst(), tokens[slot] + (now - tokensAt[slot]) * (limit.getHealsPerSecond() / 1e9));
+            tokensAt[slot] = now;
+            if (available < 1) {
+                tokens[slot] = available;
+                return false;
+            }
+            tokens[slot] = available - 1;
+        }
+        lastHealAt[slot] = now;
+
+        long expiry = now + cooldown;
+        if (limit.isRateLimited()) {
+            expiry = Math.max(expiry, now + (long) Math.ceil((limit.getBurst() - tokens[slot]) / limit.getHealsPerSecond() * 1e9));
+        }
+        expiresAt[slot] = expiry;
+        if (created) /* existing entries are rescheduled lazily when their bucket comes */ {
+            schedule(entityId, expiry);
+        }
+        return true;
+    }
+
+    /**
+     * @return amount of players with the active limit state
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Expire the entries of all wheel buckets passed since the last call
+     */
+    private void advance(long now) {
+        long tick = Math.floorDiv(now, WHEEL_TICK_NANOS);
+        if (wheelTick == NOT_STARTED) {
+            wheelTick = tick;
+            return;
+        }
+        if (tick <= wheelTick) {
+            return;
+        }
+        long steps = Math.min(tick - wheelTick, WHEEL_SIZE);
+        for (long t = tick - steps + 1; t <= tick; t++) {
+            expireBucket((int) (t & WHEEL_MASK), now);
+        }
+        wheelTick = tick;
+    }
+
+    private void expireBucket(int bucket, long now) {
+        long[] ids = wheel[bucket];
+        int count = wheelSizes[bucket];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            long id = ids[i];
+            int slot = indexOf(id);
+            if (slot < 0) {
+                continue;
+            }
+            if (expiresAt[slot] <= now) {
+                remove(slot);
+            } else {
+                int target = bucketOf(expiresAt[slot]);
+                if (target == bucket) /* expires on one of the next revolutions */ {
+                    ids[kept++] = id;
+                } else {
+                    add(target, id);
+                }
+            }
+        }
+        wheelSizes[bucket] = kept;
+    }
+
+    private void schedule(long entityId, long expiry) {
+        add(bucketOf(expiry), entityId);
+    }
+
+    private int bucketOf(long expiry) {
+        long tick = Math.max(Math.floorDiv(expiry, WHEEL_TICK_NANOS), wheelTick + 1);
+        return (int) (tick & WHEEL_MASK);
+    }
+
+    private void add(int bucket, long entityId) {
+        long[] ids = wheel[bucket];
+        int count = wheelSizes[bucket];
+        if (ids == null) {
+            ids = new long[8];
+            wheel[bucket] = ids;
+        } else if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            wheel[bucket] = ids;
+        }
+        ids[count] = entityId;
+        wheelSizes[bucket] = count + 1;
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int slot = LongIndex.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int insert(long key) {
+        if ((size + 1) * 2 > keys.length) /* keep load factor <= 0.5 */ {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = LongIndex.mix(key) & mask;
+        while (keys[slot] != FREE_KEY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Remove the entry with backward shift, so the probe chains stay unbroken without tombstones
+     */
+    private void remove(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != FREE_KEY) {
+            int ideal = LongIndex.mix(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) /* entry can be moved into the hole */ {
+                move(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = FREE_KEY;
+        size--;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        lastHealAt[to] = lastHealAt[from];
+        tokens[to] = tokens[from];
+        tokensAt[to] = tokensAt[from];
+        expiresAt[to] = expiresAt[from];
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldLastHealAt = lastHealAt;
+        double[] oldTokens = tokens;
+        long[] oldTokensAt = tokensAt;
+        long[] oldExpiresAt = expiresAt;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int slot = LongIndex.mix(oldKeys[i]) & mask;
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                lastHealAt[slot] = oldLastHealAt[i];
+                tokens[slot] = oldTokens[i];
+                tokensAt[slot] = oldTokensAt[i];
+                expiresAt[slot] = oldExpiresAt[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        lastHealAt = new long[capacity];
+        tokens = new double[capacity];
+        tokensAt = new long[capacity];
+        expiresAt = new long[capacity];
+    }
+}
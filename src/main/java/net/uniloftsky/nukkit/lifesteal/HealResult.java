@@ -0,0 +1,70 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+/**
+ * Outcome of the lifesteal decision, so it is known why the player was or wasn't healed.
+ * The codes are written to the combat log dumps, so they must never change
+ */
+public enum HealResult {
+
+    HEALED(1, true),
+    BATCHED(2, true),
+    PLAYER_UNAVAILABLE(3, false),
+    DISABLED_IN_LOCATION(4, false),
+    NO_PERMISSION(5, false),
+    FULL_HEALTH(6, false),
+    DISABLED_FOR_PROFILE(7, false),
+    CHANCE_LOST(8, false),
+    NOT_A_WEAPON(9, false),
+    NO_DAMAGE(10, false),
+    HEAL_LIMITED(11, false),
+    CANCELLED(12, false),
+    NOTHING_HEALED(13, false),
+    TARGET_DISABLED(14, false);
+
+    private static final HealResult[] BY_CODE = createCodeTable();
+
+    /**
+     * Code of the result in the combat log
+     */
+    private final byte code;
+
+    /**
+     * Flag to define if the heal was applied or queued for the end of tick
+     */
+    private final boolean healed;
+
+    HealResult(int code, boolean healed) {
+        this.code = (byte) code;
+        this.healed = healed;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public boolean isHealed() {
+        return healed;
+    }
+
+    /**
+     * Get the result by its code in the combat log
+     *
+     * @param code code of the result
+     * @return result or null if code is unknown, e.g. written by a newer version
+     */
+    public static HealResult fromCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+
+    private static HealResult[] createCodeTable() {
+        int maxCode = 0;
+        for (HealResult result : values()) {
+            maxCode = Math.max(maxCode, result.code);
+        }
+        HealResult[] table = new HealResult[maxCode + 1];
+        for (HealResult result : values()) {
+            table[result.code] = result;
+        }
+        return table;
+    }
+}
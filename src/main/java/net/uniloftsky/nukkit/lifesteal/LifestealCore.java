@@ -1,47 +1,154 @@
 package net.uniloftsky.nukkit.lifesteal;
 
 import cn.nukkit.Player;
+import cn.nukkit.entity.Entity;
+import cn.nukkit.event.entity.EntityDamageEvent;
 import cn.nukkit.item.Item;
+import cn.nukkit.level.Level;
 import cn.nukkit.level.Location;
 import cn.nukkit.level.particle.GenericParticle;
-import cn.nukkit.level.particle.Particle;
+import cn.nukkit.math.Vector3;
+import cn.nukkit.network.protocol.DataPacket;
+import net.uniloftsky.nukkit.lifesteal.api.LifestealHealEvent;
+import net.uniloftsky.nukkit.lifesteal.api.LifestealProcEvent;
+import net.uniloftsky.nukkit.lifesteal.api.LifestealService;
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+import net.uniloftsky.nukkit.lifesteal.config.HealClamp;
+import net.uniloftsky.nukkit.lifesteal.config.HealLimit;
 import net.uniloftsky.nukkit.lifesteal.config.LifestealConfig;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealProfile;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealRule;
 import net.uniloftsky.nukkit.lifesteal.config.LifestealWeapon;
+import net.uniloftsky.nukkit.lifesteal.config.OverhealMode;
+import net.uniloftsky.nukkit.lifesteal.config.ParticleSettings;
+import net.uniloftsky.nukkit.lifesteal.config.TargetTable;
+import net.uniloftsky.nukkit.lifesteal.metrics.LifestealMetrics;
+import net.uniloftsky.nukkit.lifesteal.stats.PlayerStatsStore;
+import net.uniloftsky.nukkit.lifesteal.trace.CombatLog;
 
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Lifesteal core holds the logic regarding the lifesteal feature (incl. healing calculations, spawning particles etc.)
  */
-public final class LifestealCore {
+public final class LifestealCore implements LifestealService {
 
     /**
-     * ID of Happy Villager particle
+     * Amount of precomputed particle patterns. Bursts rotate through them, so consecutive heals don't look identical
      */
-    private static final int PARTICLE_ID = Particle.TYPE_VILLAGER_HAPPY;
+    private static final int PARTICLE_PATTERNS_AMOUNT = 16;
 
     /**
-     * Amount of particles around the player
+     * Precomputed particle offsets around the player. Each pattern holds {@link ParticleSettings#MAX_AMOUNT} triples of x, y, z offsets,
+     * smaller bursts use the beginning of the pattern
      */
-    private static final double PARTICLES_AMOUNT = 20;
+    private static final double[][] PARTICLE_PATTERNS = createParticlePatterns();
 
     /**
      * Heal multiplier. It is needed because a player has 10 hearts but 20 HP
      */
     private static final int HEAL_MULTIPLIER = 2;
 
+    /**
+     * Divisor of the heal product: lifesteal in basis points times the fixed-point victim multiplier
+     */
+    private static final long HEAL_DIVISOR = (long) FixedPoint.HUNDRED_PERCENT * FixedPoint.SCALE;
+
+    private static final Player[] NO_VIEWERS = new Player[0];
+
     /**
      * Config instance
      */
     private LifestealConfig config;
 
+    /**
+     * Cache of the lifesteal permission check results
+     */
+    private PermissionCache permissionCache;
+
+    /**
+     * Per-player heal cooldowns and rate limits
+     */
+    private HealLimiter healLimiter;
+
+    /**
+     * Cache of the world and region rules at the players' positions
+     */
+    private PlayerRuleCache ruleCache;
+
+    /**
+     * Lifesteal counters
+     */
+    private LifestealMetrics metrics;
+
+    /**
+     * Persistent per-player statistics
+     */
+    private PlayerStatsStore stats;
+
+    /**
+     * Heals waiting for the next tick in the batched mode
+     */
+    private final HealAccumulator pendingHeals = new HealAccumulator();
+
+    /**
+     * Absorption given by the overheal, decayed once per tick
+     */
+    private final AbsorptionTracker absorption = new AbsorptionTracker();
+
+    /**
+     * Per-tick budget of the healing particles
+     */
+    private final ParticleBudget particleBudget = new ParticleBudget();
+
+    /**
+     * Matcher of the items in hand against the weapon entries
+     */
+    private final WeaponMatcher weaponMatcher = new WeaponMatcher();
+
+    /**
+     * Strategy of the lifesteal chance rolls
+     */
+    private ChanceRoller chanceRoller = RandomChanceRoller.INSTANCE;
+
+    /**
+     * Ring of the latest lifesteal decisions
+     */
+    private CombatLog combatLog = CombatLog.DISABLED;
+
+    /**
+     * Reusable particle for the batched mode. Particle is a mutable vector, so it is moved to each position before encoding.
+     * Recreated only when the particle type changes in config
+     */
+    private GenericParticle batchedParticle = new GenericParticle(new Vector3(), ParticleSettings.DEFAULT.getType());
+
+    private int batchedParticleType = ParticleSettings.DEFAULT.getType();
+
+    /**
+     * Index of the next particle pattern to use in the batched mode
+     */
+    private int nextParticlePattern;
+
     public LifestealCore(LifestealConfig config) {
+        this(config, PermissionCache.disabled(), new HealLimiter(), new PlayerRuleCache(), new LifestealMetrics(), PlayerStatsStore.disabled());
+    }
+
+    public LifestealCore(LifestealConfig config, PermissionCache permissionCache, HealLimiter healLimiter, PlayerRuleCache ruleCache,
+                         LifestealMetrics metrics, PlayerStatsStore stats) {
         this.config = config;
+        this.permissionCache = permissionCache;
+        this.healLimiter = healLimiter;
+        this.ruleCache = ruleCache;
+        this.metrics = metrics;
+        this.stats = stats;
     }
 
     /**
-     * Heal the player depending on the dealt damage and weapon type
+     * Heal the player depending on the base damage of the item and weapon type.
+     * Kept for compatibility, prefer {@link #healPlayer(Player, Item, float)} with the damage of the event
      *
      * @param target     player to heal
      * @param itemInHand item that was used while attacking
@@ -49,6 +156,48 @@ public final class LifestealCore {
      * @throws IllegalArgumentException if parameter target or itemInHand is null
      */
     public boolean healPlayer(Player target, Item itemInHand) {
+        return healPlayer(target, itemInHand, itemInHand != null ? itemInHand.getAttackDamage() : 0);
+    }
+
+    /**
+     * Heal the player depending on the dealt damage and weapon type
+     *
+     * @param target      player to heal
+     * @param itemInHand  item that was used while attacking
+     * @param dealtDamage damage of the attack, see {@link #getDealtDamage(EntityDamageEvent)}
+     * @return true if player was healed and false if not
+     * @throws IllegalArgumentException if parameter target or itemInHand is null
+     */
+    public boolean healPlayer(Player target, Item itemInHand, float dealtDamage) {
+        return healPlayer(target, itemInHand, dealtDamage, FixedPoint.SCALE);
+    }
+
+    /**
+     * Heal the player depending on the dealt damage, weapon type and type of the attacked entity
+     *
+     * @param target           player to heal
+     * @param itemInHand       item that was used while attacking
+     * @param dealtDamage      damage of the attack, see {@link #getDealtDamage(EntityDamageEvent)}
+     * @param victimMultiplier heal multiplier of the attacked entity, see {@link #getVictimMultiplier(Player, Entity)}
+     * @return true if player was healed and false if not
+     * @throws IllegalArgumentException if parameter target or itemInHand is null
+     */
+    public boolean healPlayer(Player target, Item itemInHand, float dealtDamage, int victimMultiplier) {
+        return tryHeal(target, itemInHand, dealtDamage, victimMultiplier).isHealed();
+    }
+
+    /**
+     * Heal the player depending on the dealt damage, weapon type and type of the attacked entity, and tell why the player
+     * was or wasn't healed. Every decision is recorded into the combat log
+     *
+     * @param target           player to heal
+     * @param itemInHand       item that was used while attacking
+     * @param dealtDamage      damage of the attack, see {@link #getDealtDamage(EntityDamageEvent)}
+     * @param victimMultiplier heal multiplier of the attacked entity, see {@link #getVictimMultiplier(Player, Entity)}
+     * @return outcome of the decision
+     * @throws IllegalArgumentException if parameter target or itemInHand is null
+     */
+    public HealResult tryHeal(Player target, Item itemInHand, float dealtDamage, int victimMultiplier) {
         if (target == null) {
             throw new IllegalArgumentException("Target player cannot be null!");
         }
@@ -56,30 +205,333 @@ public final class LifestealCore {
             throw new IllegalArgumentException("Item in hand cannot be null!");
         }
 
-        if (target.isOnline() && target.isAlive() && target.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())) /* if the player still online, alive and has a permission */ {
-            int randomOfLifestealChance = ThreadLocalRandom.current().nextInt(100);
-            int lifestealChance = config.getLifestealChance();
-            if (randomOfLifestealChance <= lifestealChance) {
-                Optional<LifestealWeapon> optionalWeapon = config.getWeapon(itemInHand.getId());
-                if (optionalWeapon.isPresent()) {
-                    LifestealWeapon weapon = optionalWeapon.get();
-                    int dealtDamage = itemInHand.getAttackDamage();
-                    if (dealtDamage > 0) /* if the dealt damage above zero, so we are not going to make needles calculations */ {
-                        float amountOfHeal = calculateHealAmount(dealtDamage, weapon.getLifesteal());
-                        target.heal(amountOfHeal);
-
-                        // spawn healing particles
-                        spawnHealingParticles(target);
-                        return true;
-                    }
-                }
+        if (!target.isOnline() || !target.isAlive()) /* if the player is not online or not alive anymore */ {
+            return trace(target, itemInHand, 0, 0, HealResult.PLAYER_UNAVAILABLE);
+        }
+        LifestealRule rule = config.hasLocationRules() ? ruleCache.resolve(target, config.getSnapshot()) : null;
+        if (rule != null && !rule.isEnabled()) /* lifesteal is disabled in this world or region */ {
+            return trace(target, itemInHand, 0, 0, HealResult.DISABLED_IN_LOCATION);
+        }
+        if (!permissionCache.hasLifestealPermission(target)) {
+            metrics.permissionDenied();
+            return trace(target, itemInHand, 0, 0, HealResult.NO_PERMISSION);
+        }
+        OverhealMode overhealMode = config.getOverhealMode();
+        if (overhealMode == OverhealMode.SKIP && target.getHealth() >= target.getMaxHealth()) /* the heal would be wasted */ {
+            return trace(target, itemInHand, 0, 0, HealResult.FULL_HEALTH);
+        }
+        LifestealProfile profile = config.hasProfiles() ? permissionCache.getProfile(target) : null; // cached with the permission
+        if (profile != null && !profile.getRule().isEnabled()) /* lifesteal is disabled for the player's group */ {
+            return trace(target, itemInHand, 0, 0, HealResult.DISABLED_FOR_PROFILE);
+        }
+        int lifestealChance = profile != null ? profile.getRule().chanceOr(config.getLifestealChance()) : config.getLifestealChance();
+        if (rule != null) {
+            lifestealChance = rule.chanceOr(lifestealChance);
+        }
+        if (!rollLifestealChance(target.getId(), lifestealChance)) {
+            return trace(target, itemInHand, lifestealChance, 0, HealResult.CHANCE_LOST);
+        }
+        metrics.chanceRollWon();
+        LifestealWeapon weapon = weaponMatcher.match(config.getWeaponTable(), itemInHand);
+        if (weapon == null) /* ID is registered, but meta or NBT doesn't match */ {
+            return trace(target, itemInHand, lifestealChance, 0, HealResult.NOT_A_WEAPON);
+        }
+        if (dealtDamage <= 0) /* if the dealt damage is zero, so we are not going to make needless calculations */ {
+            return trace(target, itemInHand, lifestealChance, 0, HealResult.NO_DAMAGE);
+        }
+        int lifesteal = lifestealOf(weapon, profile, rule);
+        if (LifestealProcEvent.hasListeners()) /* the event isn't created if nobody listens to it */ {
+            LifestealProcEvent procEvent = new LifestealProcEvent(target, itemInHand, toPercent(lifesteal));
+            target.getServer().getPluginManager().callEvent(procEvent);
+            if (procEvent.isCancelled()) /* before the heal limit, so the cancelled proc doesn't use it up */ {
+                return trace(target, itemInHand, lifestealChance, 0, HealResult.CANCELLED);
+            }
+        }
+        HealLimit healLimit = weapon.getHealLimit() != null ? weapon.getHealLimit() : config.getHealLimit();
+        if (!healLimiter.tryAcquire(target.getId(), healLimit)) /* cooldown or rate limit of the player */ {
+            metrics.healLimited();
+            return trace(target, itemInHand, lifestealChance, 0, HealResult.HEAL_LIMITED);
+        }
+        float amountOfHeal = calculateHealAmount(dealtDamage, lifesteal, victimMultiplier, weapon.getHealClamp());
+        boolean particles = true;
+        if (LifestealHealEvent.hasListeners()) {
+            LifestealHealEvent healEvent = new LifestealHealEvent(target, itemInHand, amountOfHeal, true);
+            target.getServer().getPluginManager().callEvent(healEvent);
+            if (healEvent.isCancelled() || !(healEvent.getAmount() > 0)) {
+                return trace(target, itemInHand, lifestealChance, 0, HealResult.CANCELLED);
+            }
+            amountOfHeal = healEvent.getAmount();
+            particles = healEvent.isParticles();
+        }
+        metrics.healApplied(weapon.getId(), amountOfHeal);
+        stats.record(target.getUniqueId(), weapon.getId(), amountOfHeal);
+        if (config.isHealsBatched()) /* heal is applied with the others in the end of tick */ {
+            pendingHeals.add(target, amountOfHeal, particles);
+            return trace(target, itemInHand, lifestealChance, amountOfHeal, HealResult.BATCHED);
+        }
+        if (!applyHeal(target, amountOfHeal, overhealMode)) /* nothing changed, e.g. absorption is at the cap */ {
+            return trace(target, itemInHand, lifestealChance, amountOfHeal, HealResult.NOTHING_HEALED);
+        }
+
+        // spawn healing particles
+        if (particles) {
+            spawnHealingParticles(target);
+        }
+        return trace(target, itemInHand, lifestealChance, amountOfHeal, HealResult.HEALED);
+    }
+
+    /**
+     * Record the attack which was rejected before the heal decision, e.g. by the item ID or the type of the attacked entity
+     *
+     * @param attacker player who attacked
+     * @param itemId   ID of item in hand
+     * @param result   reason of the rejection
+     */
+    public void recordRejected(Player attacker, int itemId, HealResult result) {
+        combatLog.record(attacker.getId(), itemId, 0, 0, result);
+    }
+
+    private HealResult trace(Player target, Item itemInHand, int chance, float amountOfHeal, HealResult result) {
+        combatLog.record(target.getId(), itemInHand.getId(), chance, amountOfHeal, result);
+        return result;
+    }
+
+    /**
+     * Apply the heals accumulated in the batched mode: one heal and at most one particle burst per player.
+     * Invoked once per tick on the main thread
+     */
+    public void applyPendingHeals() {
+        if (pendingHeals.size() == 0) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        int players = pendingHeals.drain(this::applyPendingHeal);
+        metrics.healBatchApplied(players, System.nanoTime() - startedAt);
+    }
+
+    private void applyPendingHeal(Player target, float amountOfHeal, boolean particles) {
+        if (target.isOnline() && target.isAlive()) /* player could quit or die since the attack */ {
+            if (applyHeal(target, amountOfHeal, config.getOverhealMode()) && particles) {
+                spawnHealingParticles(target);
+            }
+        }
+    }
+
+    /**
+     * Heal the player. The heal above the max health is handled depending on the overheal mode
+     *
+     * @param target       player to heal
+     * @param amountOfHeal amount of heal
+     * @param overhealMode overheal mode from config
+     * @return true if the health or absorption has changed, so the particles are worth spawning
+     */
+    boolean applyHeal(Player target, float amountOfHeal, OverhealMode overhealMode) {
+        if (overhealMode != OverhealMode.SKIP && overhealMode != OverhealMode.ABSORPTION) {
+            target.heal(amountOfHeal);
+            return true;
+        }
+
+        float missingHealth = Math.max(0, target.getMaxHealth() - target.getHealth());
+        if (amountOfHeal <= missingHealth) {
+            target.heal(amountOfHeal);
+            return true;
+        }
+        boolean healed = missingHealth > 0;
+        if (healed) {
+            target.heal(missingHealth);
+        }
+        if (overhealMode == OverhealMode.ABSORPTION) {
+            return absorption.add(target, amountOfHeal - missingHealth, config.getOverhealSettings().getMaxAbsorptionHp()) || healed;
+        }
+        return healed;
+    }
+
+    /**
+     * Decay the absorption given by the overheal. Invoked once per tick on the main thread while the absorption mode is on
+     */
+    public void decayAbsorption() {
+        if (absorption.size() == 0) {
+            return;
+        }
+        absorption.sweep(config.getOverhealSettings().getDecayPerTick());
+    }
+
+    /**
+     * Take back the absorption given by the overheal, e.g. when the absorption mode is turned off
+     */
+    public void clearAbsorption() {
+        absorption.clear();
+    }
+
+    AbsorptionTracker getAbsorption() {
+        return absorption;
+    }
+
+    /**
+     * Get the damage of the attack which the heal is calculated from, depending on config
+     *
+     * @param event damage event. Must be called at MONITOR priority, so the damage is final
+     * @return dealt damage
+     */
+    public float getDealtDamage(EntityDamageEvent event) {
+        return config.getHealDamage().of(event);
+    }
+
+    /**
+     * Get the heal multiplier of the attacked entity from the precomputed table of config or of the attacker's profile
+     *
+     * @param attacker player who attacked
+     * @param victim   attacked entity
+     * @return fixed-point multiplier, zero if lifesteal is disabled against such entity
+     */
+    public int getVictimMultiplier(Player attacker, Entity victim) {
+        TargetTable targets = config.getTargetTable();
+        if (config.hasProfiles()) {
+            LifestealProfile profile = permissionCache.getProfile(attacker);
+            if (profile != null) {
+                targets = profile.targetsOr(targets);
+            }
+        }
+        return targets.multiplierOf(victim);
+    }
+
+    /**
+     * Check if the item with such ID can trigger lifesteal at all. Used to reject the attacks before any other work
+     *
+     * @param itemId ID of item in hand
+     * @return true if item is a registered lifesteal weapon
+     */
+    @Override
+    public boolean isLifestealWeapon(int itemId) {
+        return config.isWeaponRegistered(itemId);
+    }
+
+    @Override
+    public float getLifesteal(Item item) {
+        LifestealWeapon weapon = item != null ? weaponMatcher.match(config.getWeaponTable(), item) : null;
+        return weapon != null ? toPercent(weapon.getLifesteal()) : 0;
+    }
+
+    @Override
+    public float getLifesteal(Player player, Item item) {
+        if (player == null || item == null || !isLifestealEnabled(player)) {
+            return 0;
+        }
+        LifestealWeapon weapon = weaponMatcher.match(config.getWeaponTable(), item);
+        if (weapon == null) {
+            return 0;
+        }
+        LifestealProfile profile = config.hasProfiles() ? permissionCache.getProfile(player) : null;
+        LifestealRule rule = config.hasLocationRules() ? ruleCache.resolve(player, config.getSnapshot()) : null;
+        return toPercent(lifestealOf(weapon, profile, rule));
+    }
+
+    @Override
+    public float getChance(Player player) {
+        if (player == null || !isLifestealEnabled(player)) {
+            return 0;
+        }
+        LifestealProfile profile = config.hasProfiles() ? permissionCache.getProfile(player) : null;
+        LifestealRule rule = config.hasLocationRules() ? ruleCache.resolve(player, config.getSnapshot()) : null;
+        int lifestealChance = profile != null ? profile.getRule().chanceOr(config.getLifestealChance()) : config.getLifestealChance();
+        return toPercent(rule != null ? rule.chanceOr(lifestealChance) : lifestealChance);
+    }
+
+    /**
+     * Check the permission, the profile and the world or region rules of the player in the same way as on attack
+     *
+     * @param player player to check
+     * @return true if lifesteal is enabled for the player
+     */
+    private boolean isLifestealEnabled(Player player) {
+        if (config.hasLocationRules()) {
+            LifestealRule rule = ruleCache.resolve(player, config.getSnapshot());
+            if (rule != null && !rule.isEnabled()) {
+                return false;
             }
         }
-        return false;
+        if (!permissionCache.hasLifestealPermission(player)) {
+            return false;
+        }
+        LifestealProfile profile = config.hasProfiles() ? permissionCache.getProfile(player) : null;
+        return profile == null || profile.getRule().isEnabled();
     }
 
     /**
-     * Spawn the healing particle near the attacked entity
+     * Get the lifesteal of the weapon for the player: the world or region rule wins over the profile, the profile wins over the weapon entry
+     *
+     * @param weapon  matched weapon entry
+     * @param profile profile of the player or null
+     * @param rule    world or region rule at the player's position or null
+     * @return lifesteal in basis points
+     */
+    private static int lifestealOf(LifestealWeapon weapon, LifestealProfile profile, LifestealRule rule) {
+        int lifesteal = profile != null ? profile.getRule().lifestealOf(weapon) : weapon.getLifesteal();
+        return rule != null ? rule.lifestealOr(weapon, lifesteal) : lifesteal;
+    }
+
+    private static float toPercent(int basisPoints) {
+        return (float) basisPoints / FixedPoint.SCALE;
+    }
+
+    /**
+     * Replace the strategy of the chance rolls, e.g. when the chance mode changes in config
+     *
+     * @param chanceRoller new strategy
+     * @throws IllegalArgumentException if parameter chanceRoller is null
+     */
+    public void setChanceRoller(ChanceRoller chanceRoller) {
+        if (chanceRoller == null) {
+            throw new IllegalArgumentException("Chance roller cannot be null!");
+        }
+        this.chanceRoller = chanceRoller;
+    }
+
+    public ChanceRoller getChanceRoller() {
+        return chanceRoller;
+    }
+
+    /**
+     * Replace the combat log, e.g. when its size changes in config
+     *
+     * @param combatLog new combat log
+     * @throws IllegalArgumentException if parameter combatLog is null
+     */
+    public void setCombatLog(CombatLog combatLog) {
+        if (combatLog == null) {
+            throw new IllegalArgumentException("Combat log cannot be null!");
+        }
+        this.combatLog = combatLog;
+    }
+
+    public CombatLog getCombatLog() {
+        return combatLog;
+    }
+
+    /**
+     * Roll the lifesteal chance from config
+     *
+     * @param entityId ID of the attacker
+     * @return true if lifesteal should happen
+     */
+    boolean rollLifestealChance(long entityId) {
+        return rollLifestealChance(entityId, config.getLifestealChance());
+    }
+
+    /**
+     * Roll the given lifesteal chance, e.g. the chance of the region
+     *
+     * @param entityId        ID of the attacker
+     * @param lifestealChance chance of lifesteal in basis points
+     * @return true if lifesteal should happen
+     */
+    boolean rollLifestealChance(long entityId, int lifestealChance) {
+        return chanceRoller.roll(entityId, lifestealChance);
+    }
+
+    /**
+     * Spawn the healing particle near the attacked entity. Particles are sent only if someone is within the view radius,
+     * the burst is cut by the particle budget, and the particles are sent either one by one or as one batched packet, depending on config
      *
      * @param target entity that was attacked
      * @throws IllegalArgumentException if parameter target is null
@@ -89,17 +541,137 @@ public final class LifestealCore {
             throw new IllegalArgumentException("Entity cannot be null");
         }
 
-        for (int i = 0; i < PARTICLES_AMOUNT; i++) {
+        ParticleSettings settings = config != null ? config.getParticleSettings() : ParticleSettings.DEFAULT;
+        Level level = target.getLevel();
+        int chunkX = target.getChunkX();
+        int chunkZ = target.getChunkZ();
+        Player[] viewers = viewersInRadius(target, level.getChunkPlayers(chunkX, chunkZ), settings.getViewRadius());
+        if (viewers.length == 0) /* nobody can see the particles */ {
+            return;
+        }
+
+        int amount = particleBudget.acquire(chunkX, chunkZ, settings);
+        if (amount == 0) /* budget of this tick is spent */ {
+            return;
+        }
+
+        if (config != null && config.isParticlesBatched()) {
+            spawnHealingParticlesBatched(target, viewers, amount, settings.getType());
+        } else {
+            spawnHealingParticlesLoop(target, amount, settings.getType());
+        }
+    }
+
+    /**
+     * Collect the players who see the target's chunk and are close enough to see the particles
+     *
+     * @param target       entity that was attacked
+     * @param chunkPlayers players who see the target's chunk
+     * @param viewRadius   view radius in blocks
+     * @return viewers within the radius
+     */
+    Player[] viewersInRadius(Player target, Map<Integer, Player> chunkPlayers, int viewRadius) {
+        if (chunkPlayers.isEmpty()) {
+            return NO_VIEWERS;
+        }
+        double maxDistanceSquared = (double) viewRadius * viewRadius;
+        Player[] viewers = new Player[chunkPlayers.size()];
+        int count = 0;
+        for (Player player : chunkPlayers.values()) {
+            if (player.distanceSquared(target) <= maxDistanceSquared) {
+                viewers[count++] = player;
+            }
+        }
+        return count == viewers.length ? viewers : Arrays.copyOf(viewers, count);
+    }
+
+    /**
+     * Spawn every particle separately, so each one is encoded and broadcast on its own
+     *
+     * @param target entity that was attacked
+     * @param amount amount of particles
+     * @param type   particle ID
+     */
+    void spawnHealingParticlesLoop(Player target, int amount, int type) {
+        for (int i = 0; i < amount; i++) {
             double x = ThreadLocalRandom.current().nextDouble(-1.5, 1.5);
             double z = ThreadLocalRandom.current().nextDouble(-1.5, 1.5);
             double y = ThreadLocalRandom.current().nextDouble(1, 2);
             Location locationToSpawnParticles = target.add(x, y, z);
-            target.getLevel().addParticle(new GenericParticle(locationToSpawnParticles, PARTICLE_ID));
+            target.getLevel().addParticle(new GenericParticle(locationToSpawnParticles, type));
+        }
+    }
+
+    /**
+     * Spawn the whole burst as one batched packet to the given viewers.
+     * Uses a precomputed offset pattern and the single reusable particle instead of creating locations and particles per burst
+     *
+     * @param target  entity that was attacked
+     * @param viewers players to send the particles to
+     * @param amount  amount of particles
+     * @param type    particle ID
+     */
+    void spawnHealingParticlesBatched(Player target, Player[] viewers, int amount, int type) {
+        if (type != batchedParticleType) {
+            batchedParticle = new GenericParticle(new Vector3(), type);
+            batchedParticleType = type;
+        }
+
+        double[] pattern = PARTICLE_PATTERNS[nextParticlePattern];
+        nextParticlePattern = (nextParticlePattern + 1) % PARTICLE_PATTERNS_AMOUNT;
+
+        DataPacket[] packets = new DataPacket[amount];
+        for (int i = 0; i < amount; i++) {
+            int offset = i * 3;
+            batchedParticle.setComponents(target.x + pattern[offset], target.y + pattern[offset + 1], target.z + pattern[offset + 2]);
+            packets[i] = batchedParticle.encode()[0];
         }
+        target.getServer().batchPackets(viewers, packets);
     }
 
-    float calculateHealAmount(int dealtDamage, int lifesteal) {
-        return (((float) dealtDamage) / 100 * lifesteal) * HEAL_MULTIPLIER;
+    /**
+     * Precompute the particle patterns. Offsets are in the same ranges as in {@link #spawnHealingParticlesLoop(Player, int, int)}
+     *
+     * @return patterns of x, y, z offsets
+     */
+    private static double[][] createParticlePatterns() {
+        SplittableRandom random = new SplittableRandom();
+        double[][] patterns = new double[PARTICLE_PATTERNS_AMOUNT][ParticleSettings.MAX_AMOUNT * 3];
+        for (double[] pattern : patterns) {
+            for (int i = 0; i < ParticleSettings.MAX_AMOUNT; i++) {
+                pattern[i * 3] = random.nextDouble(-1.5, 1.5);
+                pattern[i * 3 + 1] = random.nextDouble(1, 2);
+                pattern[i * 3 + 2] = random.nextDouble(-1.5, 1.5);
+            }
+        }
+        return patterns;
+    }
+
+    float calculateHealAmount(float dealtDamage, int lifesteal) {
+        return calculateHealAmount(dealtDamage, lifesteal, HealClamp.NONE);
+    }
+
+    float calculateHealAmount(float dealtDamage, int lifesteal, HealClamp healClamp) {
+        return calculateHealAmount(dealtDamage, lifesteal, FixedPoint.SCALE, healClamp);
+    }
+
+    /**
+     * Calculate the heal in fixed point: the damage is rounded to hundredths of HP once,
+     * the rest is integer math, so the result doesn't depend on the float rounding of the JVM
+     *
+     * @param dealtDamage      damage of the attack
+     * @param lifesteal        lifesteal in basis points, clamped to {@link FixedPoint#MAX_LIFESTEAL}
+     * @param victimMultiplier fixed-point heal multiplier of the attacked entity, clamped to {@link FixedPoint#MAX_MULTIPLIER}
+     * @param healClamp        bounds of the heal, applied after the multiplier
+     * @return heal in HP
+     */
+    float calculateHealAmount(float dealtDamage, int lifesteal, int victimMultiplier, HealClamp healClamp) {
+        // the bounds keep the product below 2^31 * 10^5 * 2 * 10^4 < 4.3 * 10^18, so it never overflows a long
+        long damage = Math.max(0, Math.min(Math.round((double) dealtDamage * FixedPoint.SCALE), Integer.MAX_VALUE));
+        long boundedLifesteal = Math.max(0, Math.min(lifesteal, FixedPoint.MAX_LIFESTEAL)); // scaled lifesteal and API weapons aren't checked by config
+        long boundedMultiplier = Math.max(0, Math.min(victimMultiplier, FixedPoint.MAX_MULTIPLIER));
+        long heal = (damage * boundedLifesteal * HEAL_MULTIPLIER * boundedMultiplier + HEAL_DIVISOR / 2) / HEAL_DIVISOR;
+        return (float) healClamp.apply(heal) / FixedPoint.SCALE;
     }
 
 }
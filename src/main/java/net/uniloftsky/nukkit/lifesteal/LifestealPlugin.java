@@ -1,34 +1,165 @@
 package net.uniloftsky.nukkit.lifesteal;
 
+import cn.nukkit.Server;
+import cn.nukkit.command.Command;
+import cn.nukkit.command.CommandSender;
+import cn.nukkit.event.HandlerList;
+import cn.nukkit.permission.Permission;
 import cn.nukkit.plugin.PluginBase;
+import cn.nukkit.plugin.service.ServicePriority;
+import cn.nukkit.scheduler.AsyncTask;
+import cn.nukkit.scheduler.TaskHandler;
+import net.uniloftsky.nukkit.lifesteal.api.LifestealService;
+import net.uniloftsky.nukkit.lifesteal.command.LifestealCommand;
+import net.uniloftsky.nukkit.lifesteal.config.ChanceMode;
+import net.uniloftsky.nukkit.lifesteal.config.ConfigWatcher;
 import net.uniloftsky.nukkit.lifesteal.config.LifestealConfig;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealProfile;
+import net.uniloftsky.nukkit.lifesteal.config.OverhealMode;
+import net.uniloftsky.nukkit.lifesteal.config.SharedConfigPoller;
+import net.uniloftsky.nukkit.lifesteal.config.SharedConfigSource;
+import net.uniloftsky.nukkit.lifesteal.config.WeaponCatalogFile;
 import net.uniloftsky.nukkit.lifesteal.listener.EventListener;
+import net.uniloftsky.nukkit.lifesteal.listener.PlayerCacheListener;
+import net.uniloftsky.nukkit.lifesteal.metrics.LifestealMetrics;
+import net.uniloftsky.nukkit.lifesteal.metrics.MetricsDumper;
+import net.uniloftsky.nukkit.lifesteal.stats.PlayerStatsStore;
+import net.uniloftsky.nukkit.lifesteal.trace.CombatLog;
+import net.uniloftsky.nukkit.lifesteal.trace.CombatLogFile;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Main plugin class
  */
 public class LifestealPlugin extends PluginBase {
 
+    private static final int TICKS_PER_SECOND = 20;
+
+    private static final DateTimeFormatter DUMP_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final String METRICS_MBEAN_NAME = "net.uniloftsky.nukkit.lifesteal:type=Metrics";
+
     private LifestealCore lifestealCore;
 
     private LifestealConfig config;
 
+    private PermissionCache permissionCache;
+
+    private LifestealCommand lifestealCommand;
+
+    private LifestealMetrics metrics;
+
+    private PlayerStatsStore stats;
+
+    /**
+     * Attack listener. It is registered only while at least one weapon is configured
+     */
+    private EventListener attackListener;
+
+    private boolean attackListenerRegistered;
+
+    /**
+     * Periodic metrics dump task. Null if the dump is disabled in config
+     */
+    private TaskHandler metricsDumpTask;
+
+    /**
+     * Task which applies the accumulated heals every tick. Null if heals aren't batched
+     */
+    private TaskHandler healBatchTask;
+
+    /**
+     * Sweep which decays the absorption given by the overheal every tick. Null if the absorption mode is off
+     */
+    private TaskHandler absorptionDecayTask;
+
+    /**
+     * Periodic flush of the player statistics. Null if the statistics are disabled in config
+     */
+    private TaskHandler statsFlushTask;
+
     /**
-     * Invoked on plugin enabling, when server starts
+     * Chance mode and seed of the current chance roller, so the roller and its state are kept if they don't change on reload
+     */
+    private ChanceMode chanceMode;
+
+    private long chanceSeed;
+
+    /**
+     * Name of the registered metrics MBean. Null if it isn't registered
+     */
+    private ObjectName metricsMBeanName;
+
+    /**
+     * Watcher of the config file. Null if watching is disabled in config
+     */
+    private ConfigWatcher configWatcher;
+
+    /**
+     * Poller of the shared config. Null if the local config is used
+     */
+    private SharedConfigPoller sharedConfigPoller;
+
+    /**
+     * Flag to define if the config reload is in progress, so the concurrent reloads are skipped
+     */
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    /**
+     * Invoked on plugin enabling, when server starts. The config is loaded on the async worker,
+     * lifesteal stays disabled until the config snapshot is ready
      */
     @Override
     public void onEnable() {
         this.config = new LifestealConfig(this);
-        boolean initialized = this.config.init();
+        this.config.initAsync(initialized -> {
+            if (!initialized) {
+                this.getLogger().error("Configuration cannot be initialized. Plugin will be disabled");
+                this.getServer().getPluginManager().disablePlugin(this);
+                return;
+            }
+            enableLifesteal();
+        });
+    }
 
-        if (!initialized) {
-            this.getLogger().error("Configuration cannot be initialized. Plugin will be disabled");
-            this.getServer().getPluginManager().disablePlugin(this);
+    /**
+     * Enable the lifesteal feature once the config is loaded. Invoked on the main thread
+     */
+    private void enableLifesteal() {
+        if (!this.isEnabled()) /* plugin was disabled while the config was loading */ {
             return;
         }
-
-        this.lifestealCore = new LifestealCore(config);
-        this.getServer().getPluginManager().registerEvents(new EventListener(this.getLogger(), lifestealCore), this);
+        this.permissionCache = new PermissionCache(TimeUnit.SECONDS.toNanos(config.getPermissionCacheTtl()));
+        updateProfiles();
+        this.metrics = new LifestealMetrics();
+        PlayerRuleCache ruleCache = new PlayerRuleCache();
+        this.stats = new PlayerStatsStore(getDataFolder().toPath().resolve(PlayerStatsStore.STATS_FILE), getLogger());
+        this.stats.loadAsync(task -> this.getServer().getScheduler().scheduleTask(this, task));
+        this.lifestealCore = new LifestealCore(config, permissionCache, new HealLimiter(), ruleCache, metrics, stats);
+        this.getServer().getServiceManager().register(LifestealService.class, lifestealCore, this, ServicePriority.NORMAL);
+        this.lifestealCommand = new LifestealCommand(this);
+        this.attackListener = new EventListener(this.getLogger(), lifestealCore, metrics);
+        this.getServer().getPluginManager().registerEvents(new PlayerCacheListener(permissionCache, ruleCache), this);
+        updateAttackListener();
+        updateChanceRoller();
+        updateHealBatching();
+        updateAbsorptionDecay();
+        updateCombatLog();
+        updateStatsFlush();
+        registerMetricsMBean();
+        updateMetricsDump();
+        updateConfigWatcher();
+        updateSharedConfigPoller();
         this.getLogger().info("Lifesteal plugin enabled!");
     }
 
@@ -37,6 +168,359 @@ public class LifestealPlugin extends PluginBase {
      */
     @Override
     public void onDisable() {
+        stopConfigWatcher();
+        stopSharedConfigPoller();
+        unregisterMetricsMBean();
+        this.getServer().getServiceManager().cancel(this);
+        if (lifestealCore != null) {
+            lifestealCore.clearAbsorption();
+        }
+        if (stats != null) {
+            stats.close(); // hands the remaining changes to the writer and waits for it
+        }
+        if (metrics != null) {
+            new MetricsDumper(metrics, getDataFolder().toPath().resolve(MetricsDumper.METRICS_FILE), getLogger()).run();
+        }
+        if (permissionCache != null) {
+            this.getLogger().info("Permission cache hits: " + permissionCache.getHits() + ", misses: " + permissionCache.getMisses());
+        }
         this.getLogger().info("Lifesteal plugin disabled!");
     }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        return lifestealCommand != null && lifestealCommand.onCommand(sender, command, label, args);
+    }
+
+    /**
+     * Reload the config without server restart. The file is read and parsed on the async worker, the new snapshot is published
+     * with a single reference swap, so attack handlers keep using the old config until the new one is ready
+     *
+     * @param requester sender to notify about the result
+     */
+    public void reloadLifestealConfig(CommandSender requester) {
+        if (!reloading.compareAndSet(false, true)) {
+            requester.sendMessage("Lifesteal config reload is already in progress");
+            return;
+        }
+
+        this.getServer().getScheduler().scheduleAsyncTask(this, new AsyncTask() {
+            @Override
+            public void onRun() {
+                setResult(config.reload());
+            }
+
+            @Override
+            public void onCompletion(Server server) {
+                reloading.set(false);
+                if (Boolean.TRUE.equals(getResult())) {
+                    applyReloadedConfig();
+                    requester.sendMessage("Lifesteal config reloaded");
+                } else {
+                    requester.sendMessage("Lifesteal config cannot be reloaded, the previous one stays in use. See the console for details");
+                }
+            }
+        });
+    }
+
+    /**
+     * Compile the currently loaded weapons into the binary file on the async worker. The compiled file is used on the next load
+     * as long as it is newer than the JSON config
+     *
+     * @param requester sender to notify about the result
+     */
+    public void compileWeapons(CommandSender requester) {
+        this.getServer().getScheduler().scheduleAsyncTask(this, new AsyncTask() {
+            @Override
+            public void onRun() {
+                try {
+                    setResult(config.compileWeapons());
+                } catch (IOException ex) {
+                    getLogger().error("Cannot compile weapons", ex);
+                    setResult(-1);
+                }
+            }
+
+            @Override
+            public void onCompletion(Server server) {
+                int compiled = (int) getResult();
+                if (compiled >= 0) {
+                    requester.sendMessage("Compiled " + compiled + " weapons into " + WeaponCatalogFile.COMPILED_WEAPONS);
+                } else {
+                    requester.sendMessage("Weapons cannot be compiled. See the console for details");
+                }
+            }
+        });
+    }
+
+    /**
+     * Dump the combat log into a binary file in the plugin folder. The log is read and written on the async worker,
+     * the attacks keep being recorded meanwhile
+     *
+     * @param requester sender to notify about the result
+     */
+    public void dumpCombatLog(CommandSender requester) {
+        CombatLog combatLog = lifestealCore.getCombatLog();
+        if (!combatLog.isEnabled()) {
+            requester.sendMessage("Lifesteal combat log is disabled in config");
+            return;
+        }
+        Path file = getDataFolder().toPath().resolve(CombatLogFile.DUMP_PREFIX
+                + DUMP_TIME_FORMAT.format(LocalDateTime.now()) + CombatLogFile.DUMP_EXTENSION);
+        this.getServer().getScheduler().scheduleAsyncTask(this, new AsyncTask() {
+            @Override
+            public void onRun() {
+                try {
+                    List<CombatLog.Entry> entries = combatLog.entries();
+                    CombatLogFile.write(file, entries);
+                    setResult(entries.size());
+                } catch (IOException ex) {
+                    getLogger().error("Cannot dump the combat log", ex);
+                    setResult(-1);
+                }
+            }
+
+            @Override
+            public void onCompletion(Server server) {
+                int dumped = (int) getResult();
+                if (dumped >= 0) {
+                    requester.sendMessage("Dumped " + dumped + " lifesteal decisions into " + file.getFileName());
+                } else {
+                    requester.sendMessage("Combat log cannot be dumped. See the console for details");
+                }
+            }
+        });
+    }
+
+    /**
+     * Apply the reloaded values which are not read from the config snapshot directly. Invoked on the main thread
+     */
+    private void applyReloadedConfig() {
+        permissionCache.setTtlNanos(TimeUnit.SECONDS.toNanos(config.getPermissionCacheTtl()));
+        updateProfiles();
+        updateAttackListener();
+        updateChanceRoller();
+        updateHealBatching();
+        updateAbsorptionDecay();
+        updateCombatLog();
+        updateStatsFlush();
+        updateMetricsDump();
+        updateConfigWatcher();
+        updateSharedConfigPoller();
+    }
+
+    public LifestealMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PlayerStatsStore getStats() {
+        return stats;
+    }
+
+    public CombatLog getCombatLog() {
+        return lifestealCore.getCombatLog();
+    }
+
+    /**
+     * Register the attack listener if any weapon is configured, otherwise unregister it, so the damage events don't reach the plugin at all
+     */
+    private void updateAttackListener() {
+        boolean hasWeapons = config.hasWeapons();
+        if (hasWeapons && !attackListenerRegistered) {
+            this.getServer().getPluginManager().registerEvents(attackListener, this);
+            attackListenerRegistered = true;
+        } else if (!hasWeapons && attackListenerRegistered) {
+            HandlerList.unregisterAll(attackListener);
+            attackListenerRegistered = false;
+        }
+        if (!hasWeapons) {
+            this.getLogger().warning("No lifesteal weapons are configured, attacks are not handled");
+        }
+    }
+
+    /**
+     * Register the permission nodes of the profiles and hand the profiles to the permission cache, which resolves them per player.
+     * The nodes are registered as not granted by default, otherwise the operators would get every profile
+     */
+    private void updateProfiles() {
+        for (LifestealProfile profile : config.getProfiles()) {
+            if (this.getServer().getPluginManager().getPermission(profile.getPermission()) == null) {
+                this.getServer().getPluginManager().addPermission(new Permission(profile.getPermission(),
+                        "Selects the lifesteal profile " + profile.getName(), Permission.DEFAULT_FALSE));
+            }
+        }
+        permissionCache.setProfiles(config.getProfiles());
+    }
+
+    /**
+     * Replace the chance roller if the chance mode or seed changed in config. The seeded roller restarts its sequence
+     * and the PRD roller forgets the streaks only then. In PRD mode the constants of the configured chances are computed
+     * on the async worker, so the first attacks with a new chance don't run the search on the main thread
+     */
+    private void updateChanceRoller() {
+        ChanceMode mode = config.getChanceMode();
+        long seed = config.getChanceSeed();
+        if (mode != chanceMode || seed != chanceSeed) {
+            lifestealCore.setChanceRoller(ChanceRoller.of(mode, seed));
+            chanceMode = mode;
+            chanceSeed = seed;
+        }
+        if (mode == ChanceMode.PRD) {
+            List<Integer> chances = config.getChances();
+            this.getServer().getScheduler().scheduleAsyncTask(this, new AsyncTask() {
+                @Override
+                public void onRun() {
+                    PrdChanceRoller.precompute(chances);
+                }
+            });
+        }
+    }
+
+    /**
+     * Start or stop the per-tick application of the accumulated heals depending on config
+     */
+    private void updateHealBatching() {
+        boolean batched = config.isHealsBatched();
+        if (batched && healBatchTask == null) {
+            healBatchTask = this.getServer().getScheduler().scheduleRepeatingTask(this, lifestealCore::applyPendingHeals, 1);
+        } else if (!batched && healBatchTask != null) {
+            healBatchTask.cancel();
+            healBatchTask = null;
+            lifestealCore.applyPendingHeals(); // don't lose the heals accumulated before the reload
+        }
+    }
+
+    /**
+     * Start or stop the per-tick decay of the absorption given by the overheal depending on config
+     */
+    private void updateAbsorptionDecay() {
+        boolean absorption = config.getOverhealMode() == OverhealMode.ABSORPTION;
+        if (absorption && absorptionDecayTask == null) {
+            absorptionDecayTask = this.getServer().getScheduler().scheduleRepeatingTask(this, lifestealCore::decayAbsorption, 1);
+        } else if (!absorption && absorptionDecayTask != null) {
+            absorptionDecayTask.cancel();
+            absorptionDecayTask = null;
+            lifestealCore.clearAbsorption(); // nothing would decay it anymore
+        }
+    }
+
+    /**
+     * Replace the combat log if its size changed in config. The records of the previous log are dropped
+     */
+    private void updateCombatLog() {
+        int capacity = CombatLog.capacityFor(config.getTraceSize());
+        if (lifestealCore.getCombatLog().getCapacity() != capacity) {
+            lifestealCore.setCombatLog(capacity > 0 ? new CombatLog(capacity) : CombatLog.DISABLED);
+        }
+    }
+
+    /**
+     * (Re)schedule the periodic flush of the player statistics depending on config. The flush runs on the main thread,
+     * where the counters are updated, and only hands the batches over to the writer thread
+     */
+    private void updateStatsFlush() {
+        if (statsFlushTask != null) {
+            statsFlushTask.cancel();
+            statsFlushTask = null;
+        }
+        int interval = config.getStatsFlushInterval();
+        stats.configure(interval > 0, config.getStatsBatchSize());
+        if (interval > 0) {
+            statsFlushTask = this.getServer().getScheduler().scheduleRepeatingTask(this, stats::flush, interval * TICKS_PER_SECOND);
+        } else {
+            stats.flush(); // don't lose the changes collected before the reload
+        }
+    }
+
+    /**
+     * (Re)schedule the periodic metrics dump depending on config
+     */
+    private void updateMetricsDump() {
+        if (metricsDumpTask != null) {
+            metricsDumpTask.cancel();
+            metricsDumpTask = null;
+        }
+        int interval = config.getMetricsDumpInterval();
+        if (interval > 0) {
+            MetricsDumper dumper = new MetricsDumper(metrics, getDataFolder().toPath().resolve(MetricsDumper.METRICS_FILE), getLogger());
+            metricsDumpTask = this.getServer().getScheduler().scheduleRepeatingTask(this, dumper, interval * TICKS_PER_SECOND, true);
+        }
+    }
+
+    private void registerMetricsMBean() {
+        try {
+            ObjectName name = new ObjectName(METRICS_MBEAN_NAME);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            this.metricsMBeanName = name;
+        } catch (JMException ex) {
+            this.getLogger().warning("Cannot register lifesteal metrics MBean: " + ex.getMessage());
+        }
+    }
+
+    private void unregisterMetricsMBean() {
+        if (metricsMBeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsMBeanName);
+            } catch (JMException ex) {
+                this.getLogger().warning("Cannot unregister lifesteal metrics MBean: " + ex.getMessage());
+            }
+            metricsMBeanName = null;
+        }
+    }
+
+    /**
+     * Start or stop the config watcher depending on config
+     */
+    private void updateConfigWatcher() {
+        if (config.isWatchConfig() && configWatcher == null) {
+            ConfigWatcher watcher = new ConfigWatcher(config.getMainConfigFile().toPath(),
+                    () -> this.getServer().getScheduler().scheduleTask(this, () -> reloadLifestealConfig(this.getServer().getConsoleSender())),
+                    this.getLogger());
+            try {
+                watcher.start();
+                this.configWatcher = watcher;
+                this.getLogger().info("Watching " + config.getMainConfigFile().getName() + " for changes");
+            } catch (IOException ex) {
+                this.getLogger().error("Cannot watch the config file for changes", ex);
+            }
+        } else if (!config.isWatchConfig()) {
+            stopConfigWatcher();
+        }
+    }
+
+    private void stopConfigWatcher() {
+        if (configWatcher != null) {
+            try {
+                configWatcher.close();
+            } catch (IOException ex) {
+                this.getLogger().error("Cannot stop the config watcher", ex);
+            }
+            configWatcher = null;
+        }
+    }
+
+    /**
+     * Start or stop the shared config poller depending on config. The poller is restarted only if the shared source was replaced
+     */
+    private void updateSharedConfigPoller() {
+        SharedConfigSource source = config.getSharedSource();
+        if (sharedConfigPoller != null && sharedConfigPoller.getSource() == source) {
+            return;
+        }
+        stopSharedConfigPoller();
+        if (source != null) {
+            sharedConfigPoller = new SharedConfigPoller(source, config::pollSharedConfig,
+                    () -> this.getServer().getScheduler().scheduleTask(this, this::applyReloadedConfig),
+                    this.getLogger());
+            sharedConfigPoller.start();
+            this.getLogger().info("Polling shared config " + source.getLocation() + " every " + source.getPollInterval() + " seconds");
+        }
+    }
+
+    private void stopSharedConfigPoller() {
+        if (sharedConfigPoller != null) {
+            sharedConfigPoller.close();
+            sharedConfigPoller = null;
+        }
+    }
 }
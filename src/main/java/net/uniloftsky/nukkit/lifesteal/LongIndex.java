@@ -0,0 +1,166 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import java.util.Arrays;
+
+/**
+ * Primitive open-addressing index (linear probing) of long keys, e.g. entity IDs, to dense positions in the order the keys were added.
+ * The owner keeps its values in its own arrays aligned with the positions, so neither keys nor values are boxed.
+ * Linear probing doesn't support removal, so keys are only dropped all at once by {@link #clear()} or by compacting the positions
+ * with {@link #move(int, int)} and {@link #truncate(int)}. Not thread-safe
+ */
+final class LongIndex {
+
+    /**
+     * Position of the key which isn't in the index
+     */
+    static final int ABSENT = -1;
+
+    private static final int FREE_SLOT = -1;
+
+    /**
+     * Value - position of the key, or {@link #FREE_SLOT}. Always at least twice as large as {@link #keys}, so load factor <= 0.5
+     */
+    private int[] index;
+
+    /**
+     * Keys by position
+     */
+    private long[] keys;
+
+    /**
+     * Index slots by position, so the index is cleared without a full scan
+     */
+    private int[] slots;
+
+    private int size;
+
+    /**
+     * @param capacity initial amount of keys, power of two
+     */
+    LongIndex(int capacity) {
+        this.index = new int[capacity * 2];
+        this.keys = new long[capacity];
+        this.slots = new int[capacity];
+        Arrays.fill(index, FREE_SLOT);
+    }
+
+    /**
+     * Get the position of the key
+     *
+     * @param key key to find
+     * @return position, or {@link #ABSENT} if the key isn't in the index
+     */
+    int positionOf(long key) {
+        int mask = index.length - 1;
+        int slot = mix(key) & mask;
+        int position;
+        while ((position = index[slot]) != FREE_SLOT) {
+            if (keys[position] == key) {
+                return position;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Add the key which isn't in the index yet at the next position. Once the position reaches the capacity,
+     * the index grows, so the owner must grow its aligned arrays to {@link #capacity()} as well
+     *
+     * @param key key to add
+     * @return position of the key, equal to the former size
+     */
+    int add(long key) {
+        if (size == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+            index = new int[capacity * 2];
+            rebuild();
+        }
+        int position = size++;
+        keys[position] = key;
+        insert(position);
+        return position;
+    }
+
+    /**
+     * @param position position of the key
+     * @return key at the position
+     */
+    long keyAt(int position) {
+        return keys[position];
+    }
+
+    /**
+     * Move the key to a lower position while compacting. The index is stale until {@link #truncate(int)} is invoked
+     *
+     * @param from current position of the key
+     * @param to   new position of the key
+     */
+    void move(int from, int to) {
+        keys[to] = keys[from];
+    }
+
+    /**
+     * Drop the keys at the positions from the new size on and rebuild the index of the rest
+     *
+     * @param newSize amount of keys to keep
+     */
+    void truncate(int newSize) {
+        size = newSize;
+        rebuild();
+    }
+
+    /**
+     * Drop all keys. Costs the amount of keys, not the capacity
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            index[slots[i]] = FREE_SLOT;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return amount of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return amount of keys the owner's aligned arrays must hold
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    private void insert(int position) {
+        int mask = index.length - 1;
+        int slot = mix(keys[position]) & mask;
+        while (index[slot] != FREE_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position;
+        slots[position] = slot;
+    }
+
+    private void rebuild() {
+        Arrays.fill(index, FREE_SLOT);
+        for (int i = 0; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    /**
+     * Spread the bits of the key, so the sequential entity IDs don't cluster in the neighbour slots
+     *
+     * @param key key to hash
+     * @return hash of the key
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,151 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.ParticleSettings;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Budget of the healing particles per tick. It caps the particles sent on the whole server and in one chunk,
+ * and lowers the level of detail of the bursts which happen in the same chunk in the same tick: the first burst is full,
+ * every next one is half of the previous, so close heals merge into one visible effect instead of stacking up.
+ * Used from the main server thread only
+ */
+public final class ParticleBudget {
+
+    /**
+     * Duration of one budget window. Matches the server tick
+     */
+    static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * Max halving of the burst in one chunk
+     */
+    private static final int MAX_LOD_SHIFT = 4;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final long FREE_KEY = Long.MIN_VALUE;
+
+    /**
+     * Source of current time in nanoseconds
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Index of the current window
+     */
+    private long window = Long.MIN_VALUE;
+
+    /**
+     * Particles sent on the whole server in the current window
+     */
+    private int spent;
+
+    /**
+     * Open-addressing keys (linear probing), chunk hashes touched in the current window
+     */
+    private long[] chunkKeys = new long[INITIAL_CAPACITY];
+
+    /**
+     * Bursts in the chunk in the current window, aligned with {@link #chunkKeys}
+     */
+    private int[] chunkBursts = new int[INITIAL_CAPACITY];
+
+    /**
+     * Particles sent in the chunk in the current window, aligned with {@link #chunkKeys}
+     */
+    private int[] chunkSpent = new int[INITIAL_CAPACITY];
+
+    private int chunks;
+
+    public ParticleBudget() {
+        this(System::nanoTime);
+    }
+
+    ParticleBudget(LongSupplier clock) {
+        this.clock = clock;
+        Arrays.fill(chunkKeys, FREE_KEY);
+    }
+
+    /**
+     * Take the particles of one burst from the budget
+     *
+     * @param chunkX   X of the chunk where the burst happens
+     * @param chunkZ   Z of the chunk where the burst happens
+     * @param settings particle settings
+     * @return amount of particles to send, zero if the budget is spent
+     */
+    public int acquire(int chunkX, int chunkZ, ParticleSettings settings) {
+        long currentWindow = Math.floorDiv(clock.getAsLong(), WINDOW_NANOS);
+        if (currentWindow != window) {
+            window = currentWindow;
+            spent = 0;
+            clearChunks();
+        }
+
+        int slot = chunkSlot(((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL));
+        int bursts = chunkBursts[slot]++;
+        int amount = settings.getAmount() >> Math.min(bursts, MAX_LOD_SHIFT);
+        amount = Math.min(amount, settings.getChunkBudget() - chunkSpent[slot]);
+        amount = Math.min(amount, settings.getTickBudget() - spent);
+        if (amount <= 0) {
+            return 0;
+        }
+        chunkSpent[slot] += amount;
+        spent += amount;
+        return amount;
+    }
+
+    private int chunkSlot(long key) {
+        if ((chunks + 1) * 2 > chunkKeys.length) /* keep load factor <= 0.5 */ {
+            grow();
+        }
+        int mask = chunkKeys.length - 1;
+        int slot = LongIndex.mix(key) & mask;
+        long current;
+        while ((current = chunkKeys[slot]) != FREE_KEY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        chunkKeys[slot] = key;
+        chunks++;
+        return slot;
+    }
+
+    private void clearChunks() {
+        if (chunks > 0) {
+            Arrays.fill(chunkKeys, FREE_KEY);
+            Arrays.fill(chunkBursts, 0);
+            Arrays.fill(chunkSpent, 0);
+            chunks = 0;
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = chunkKeys;
+        int[] oldBursts = chunkBursts;
+        int[] oldSpent = chunkSpent;
+        int capacity = oldKeys.length * 2;
+        chunkKeys = new long[capacity];
+        Arrays.fill(chunkKeys, FREE_KEY);
+        chunkBursts = new int[capacity];
+        chunkSpent = new int[capacity];
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int slot = LongIndex.mix(oldKeys[i]) & mask;
+                while (chunkKeys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                chunkKeys[slot] = oldKeys[i];
+                chunkBursts[slot] = oldBursts[i];
+                chunkSpent[slot] = oldSpent[i];
+            }
+        }
+    }
+}
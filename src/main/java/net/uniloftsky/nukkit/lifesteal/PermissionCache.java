@@ -0,0 +1,215 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.Player;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealProfile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of the lifesteal permission check results. Key - player UUID, value - the last result of the check and the profile
+ * selected by the profile permissions, so the attacks don't check any permission node while the entry is valid.
+ * Entries are filled on join and invalidated on quit, on level change, on config reload and after the configured TTL.
+ * With the TTL disabled the permission is checked on every attack, but the profile is still kept until the player quits,
+ * changes the level or the config is reloaded, since resolving it checks a permission node per profile.
+ * Used from the main server thread only
+ */
+public final class PermissionCache {
+
+    /**
+     * Name of the permission node. {@link Permissions} stays the single source of it
+     */
+    private static final String PERMISSION = Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission();
+
+    /**
+     * Storage of cached results. Key - player UUID, value - cached result
+     */
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    /**
+     * Profiles of the player groups, the highest priority first
+     */
+    private LifestealProfile[] profiles = new LifestealProfile[0];
+
+    /**
+     * Time to live of cached result in nanoseconds. Zero or negative value disables caching
+     */
+    private long ttlNanos;
+
+    /**
+     * Source of current time in nanoseconds
+     */
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PermissionCache(long ttlNanos) {
+        this(ttlNanos, System::nanoTime);
+    }
+
+    PermissionCache(long ttlNanos, LongSupplier clock) {
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * Create the cache which doesn't cache anything and asks the player every time
+     *
+     * @return disabled cache
+     */
+    public static PermissionCache disabled() {
+        return new PermissionCache(0);
+    }
+
+    /**
+     * Check if the player has the lifesteal permission, using the cached result if it is still valid
+     *
+     * @param player player to check
+     * @return true if player has the permission
+     */
+    public boolean hasLifestealPermission(Player player) {
+        if (!isEnabled()) {
+            misses.increment();
+            return player.hasPermission(PERMISSION);
+        }
+
+        long now = clock.getAsLong();
+        Entry entry = entries.get(player.getUniqueId());
+        if (entry != null && now - entry.checkedAt < ttlNanos) {
+            hits.increment();
+            return entry.permitted;
+        }
+
+        misses.increment();
+        return store(player, entry, now).permitted;
+    }
+
+    /**
+     * Get the profile of the player, using the cached one if it is still valid. Without the TTL the profile stays cached
+     * until the entry is invalidated
+     *
+     * @param player player to check
+     * @return profile with the highest priority among the ones the player has permission for, or null if none
+     */
+    public LifestealProfile getProfile(Player player) {
+        if (profiles.length == 0) {
+            return null;
+        }
+
+        Entry entry = entries.get(player.getUniqueId());
+        if (!isEnabled()) {
+            return entry != null ? entry.profile : storeProfile(player, null).profile;
+        }
+
+        long now = clock.getAsLong();
+        if (entry != null && now - entry.checkedAt < ttlNanos) {
+            return entry.profile;
+        }
+        return store(player, entry, now).profile;
+    }
+
+    /**
+     * Replace the profiles, e.g. after config reload. All cached results are dropped
+     *
+     * @param profiles profiles of the player groups, the highest priority first
+     */
+    public void setProfiles(List<LifestealProfile> profiles) {
+        this.profiles = profiles.toArray(new LifestealProfile[0]);
+        invalidateAll();
+    }
+
+    /**
+     * Check the permission and the profile of the player and cache the result, e.g. when the player joins.
+     * Without the TTL only the profile is cached
+     *
+     * @param player player to check
+     */
+    public void refresh(Player player) {
+        if (isEnabled()) {
+            store(player, entries.get(player.getUniqueId()), clock.getAsLong());
+        } else if (profiles.length > 0) {
+            storeProfile(player, entries.get(player.getUniqueId()));
+        }
+    }
+
+    /**
+     * Drop the cached result of the player, e.g. when the player quits or their permissions change
+     *
+     * @param uuid player UUID
+     */
+    public void invalidate(UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    /**
+     * Drop all cached results
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Change the time to live of cached results, e.g. after config reload. All cached results are dropped
+     *
+     * @param ttlNanos time to live in nanoseconds. Zero or negative value disables caching
+     */
+    public void setTtlNanos(long ttlNanos) {
+        this.ttlNanos = ttlNanos;
+        invalidateAll();
+    }
+
+    public boolean isEnabled() {
+        return ttlNanos > 0;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private Entry store(Player player, Entry entry, long now) {
+        entry = storeProfile(player, entry);
+        entry.permitted = player.hasPermission(PERMISSION);
+        entry.checkedAt = now;
+        return entry;
+    }
+
+    private Entry storeProfile(Player player, Entry entry) {
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(player.getUniqueId(), entry);
+        }
+        entry.profile = resolveProfile(player);
+        return entry;
+    }
+
+    private LifestealProfile resolveProfile(Player player) {
+        for (LifestealProfile profile : profiles) {
+            if (player.hasPermission(profile.getPermission())) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Mutable cached result, so the refresh of existing player doesn't allocate
+     */
+    private static final class Entry {
+        private boolean permitted;
+        private LifestealProfile profile;
+        private long checkedAt;
+    }
+}
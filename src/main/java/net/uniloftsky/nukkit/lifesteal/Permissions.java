@@ -2,7 +2,9 @@ package net.uniloftsky.nukkit.lifesteal;
 
 public enum Permissions {
 
-    LIFESTEAL_ABILITY_PERMISSION("uniloftsky.nukkit.lifesteal");
+    LIFESTEAL_ABILITY_PERMISSION("uniloftsky.nukkit.lifesteal"),
+    LIFESTEAL_ADMIN_PERMISSION("uniloftsky.nukkit.lifesteal.admin"),
+    LIFESTEAL_PROFILE_PERMISSION("uniloftsky.nukkit.lifesteal.profile");
 
     private final String permission;
 
@@ -14,6 +16,16 @@ public enum Permissions {
         return permission;
     }
 
+    /**
+     * Get the child node of this permission, e.g. the node of the named profile
+     *
+     * @param name name of the child
+     * @return permission node
+     */
+    public String child(String name) {
+        return this.permission + "." + name;
+    }
+
     @Override
     public String toString() {
         return this.name() + ":" + this.permission;
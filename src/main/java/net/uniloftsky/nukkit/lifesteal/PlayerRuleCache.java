@@ -0,0 +1,82 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.Player;
+import cn.nukkit.level.Level;
+import net.uniloftsky.nukkit.lifesteal.config.ConfigSnapshot;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealRegion;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealRule;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cache of the world rule and candidate regions of the player's current chunk. Key - player UUID.
+ * The spatial index is queried only when the player crosses a chunk boundary, changes the level or the config is reloaded,
+ * otherwise resolving the rule only checks the few regions of the chunk.
+ * Used from the main server thread only
+ */
+public final class PlayerRuleCache {
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    /**
+     * Resolve the rule at the player's position
+     *
+     * @param player   player to resolve the rule for
+     * @param snapshot current config snapshot
+     * @return rule of the region or of the world, or null if there is no rule at this position
+     */
+    public LifestealRule resolve(Player player, ConfigSnapshot snapshot) {
+        Level level = player.getLevel();
+        int chunkX = player.getChunkX();
+        int chunkZ = player.getChunkZ();
+
+        Entry entry = entries.get(player.getUniqueId());
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(player.getUniqueId(), entry);
+        }
+        if (entry.snapshot != snapshot || entry.level != level || entry.chunkX != chunkX || entry.chunkZ != chunkZ) /* moved to another chunk */ {
+            String world = level.getFolderName();
+            entry.snapshot = snapshot;
+            entry.level = level;
+            entry.chunkX = chunkX;
+            entry.chunkZ = chunkZ;
+            entry.worldRule = snapshot.getWorldRule(world);
+            entry.regions = snapshot.getRegions().candidates(world, chunkX, chunkZ);
+        }
+
+        for (LifestealRegion region : entry.regions) /* sorted by priority, the first one wins */ {
+            if (region.contains(player.x, player.y, player.z)) {
+                return region.getRule();
+            }
+        }
+        return entry.worldRule;
+    }
+
+    /**
+     * Drop the cached state of the player, e.g. when the player quits
+     *
+     * @param uuid player UUID
+     */
+    public void invalidate(UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Mutable cached state, so crossing a chunk doesn't allocate
+     */
+    private static final class Entry {
+        private ConfigSnapshot snapshot;
+        private Level level;
+        private int chunkX;
+        private int chunkZ;
+        private LifestealRule worldRule;
+        private LifestealRegion[] regions;
+    }
+}
@@ -0,0 +1,228 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.SplittableRandom;
+
+/**
+ * Pseudo-random distribution roller. The N-th roll since the last proc of the player succeeds with the chance of N * C,
+ * where the constant C is chosen so the long-run proc rate equals the configured chance. Streaks of misses are capped
+ * at 1 / C rolls and streaks of procs are rare, unlike the independent rolls.
+ * The failed attempts are counted per entity ID in an open-addressing map, which is cleared when it grows too big,
+ * so the players who left don't pile up. Used from the main server thread only
+ */
+final class PrdChanceRoller implements ChanceRoller {
+
+    /**
+     * Max amount of tracked players. The counters are dropped all at once beyond it, which only restarts their streaks
+     */
+    static final int MAX_ENTRIES = 4096;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Marker of free slot in the keys array
+     */
+    private static final long FREE_KEY = Long.MIN_VALUE;
+
+    /**
+     * Iterations of the bisection search of the constant, enough for double precision
+     */
+    private static final int BISECTION_STEPS = 64;
+
+    /**
+     * Probability of no proc yet, below which the remaining rolls don't change the expected amount of rolls.
+     * Small chances need millions of rolls to reach the guaranteed proc otherwise
+     */
+    private static final double NEGLIGIBLE_PROBABILITY = 1e-15;
+
+    /**
+     * PRD constants per chance. The configured chances are computed by {@link #precompute(Collection)} on the async worker
+     * when config loads, any other chance on its first use. NaN if not computed yet. Accessed via {@link #CONSTANT} only
+     */
+    private static final double[] CONSTANTS = createConstants();
+
+    /**
+     * Release/acquire access to the elements of {@link #CONSTANTS}: the doubles aren't torn, and the main thread sees
+     * the constants stored by the async worker
+     */
+    private static final VarHandle CONSTANT = MethodHandles.arrayElementVarHandle(double[].class);
+
+    private final SplittableRandom random;
+
+    /**
+     * Open-addressing keys (linear probing), entity IDs
+     */
+    private long[] keys;
+
+    /**
+     * Rolls since the last proc, aligned with {@link #keys}
+     */
+    private int[] attempts;
+
+    private int size;
+
+    PrdChanceRoller() {
+        this(new SplittableRandom());
+    }
+
+    PrdChanceRoller(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private PrdChanceRoller(SplittableRandom random) {
+        this.random = random;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public boolean roll(long entityId, int chance) {
+        if (chance <= 0) {
+            return false;
+        }
+        if (chance >= FixedPoint.HUNDRED_PERCENT) {
+            return true;
+        }
+
+        int slot = slotOf(entityId);
+        int attempt = attempts[slot] + 1;
+        if (random.nextDouble() < attempt * constantOf(chance)) {
+            attempts[slot] = 0;
+            return true;
+        }
+        attempts[slot] = attempt;
+        return false;
+    }
+
+    /**
+     * @return amount of tracked players
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the PRD constant of the chance: the chance of the first roll after a proc
+     *
+     * @param chance chance in basis points, 1 to 9999
+     * @return constant
+     */
+    static double constantOf(int chance) {
+        double constant = (double) CONSTANT.getAcquire(CONSTANTS, chance);
+        if (Double.isNaN(constant)) /* a race computes the same value twice, both stores are atomic */ {
+            constant = computeConstant((double) chance / FixedPoint.HUNDRED_PERCENT);
+            CONSTANT.setRelease(CONSTANTS, chance, constant);
+        }
+        return constant;
+    }
+
+    /**
+     * Compute the constants of the chances which aren't computed yet, so the rolls on the main thread only look them up.
+     * Invoked on the async worker after config loads
+     *
+     * @param chances chances in basis points. The ones out of 1 to 9999 are skipped, they never need a constant
+     */
+    static void precompute(Collection<Integer> chances) {
+        for (int chance : chances) {
+            if (chance > 0 && chance < FixedPoint.HUNDRED_PERCENT) {
+                constantOf(chance);
+            }
+        }
+    }
+
+    /**
+     * Find the constant which gives the required proc rate by bisection. The rate grows with the constant monotonically
+     *
+     * @param probability required proc rate
+     * @return constant
+     */
+    static double computeConstant(double probability) {
+        double low = 0;
+        double high = probability;
+        for (int i = 0; i < BISECTION_STEPS; i++) {
+            double middle = (low + high) / 2;
+            if (rateOf(middle) < probability) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * Get the long-run proc rate of the constant: one divided by the expected amount of rolls per proc
+     *
+     * @param constant PRD constant
+     * @return proc rate
+     */
+    static double rateOf(double constant) {
+        double notProcced = 1;
+        double expectedRolls = 0;
+        int maxRolls = (int) Math.ceil(1 / constant);
+        for (int n = 1; n <= maxRolls && notProcced > NEGLIGIBLE_PROBABILITY; n++) {
+            double procOnRoll = Math.min(1, n * constant) * notProcced;
+            expectedRolls += n * procOnRoll;
+            notProcced -= procOnRoll;
+        }
+        return 1 / expectedRolls;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = LongIndex.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size >= MAX_ENTRIES) /* forget everyone instead of tracking the players who left */ {
+            allocate(INITIAL_CAPACITY);
+        } else if ((size + 1) * 2 > keys.length) /* keep load factor <= 0.5 */ {
+            resize(keys.length * 2);
+        } else {
+            keys[slot] = key;
+            size++;
+            return slot;
+        }
+        return slotOf(key);
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldAttempts = attempts;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int slot = LongIndex.mix(oldKeys[i]) & mask;
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                attempts[slot] = oldAttempts[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        attempts = new int[capacity];
+        size = 0;
+    }
+
+    private static double[] createConstants() {
+        double[] constants = new double[FixedPoint.HUNDRED_PERCENT];
+        Arrays.fill(constants, Double.NaN);
+        return constants;
+    }
+}
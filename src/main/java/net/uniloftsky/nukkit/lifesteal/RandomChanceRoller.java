@@ -0,0 +1,22 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Default roller: every roll is independent and uses the thread-local random
+ */
+final class RandomChanceRoller implements ChanceRoller {
+
+    static final RandomChanceRoller INSTANCE = new RandomChanceRoller();
+
+    private RandomChanceRoller() {
+    }
+
+    @Override
+    public boolean roll(long entityId, int chance) {
+        // nextInt(10000) is in [0, 9999], so exactly `chance` of 10000 values are below the chance
+        return ThreadLocalRandom.current().nextInt(FixedPoint.HUNDRED_PERCENT) < chance;
+    }
+}
@@ -0,0 +1,23 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+
+import java.util.SplittableRandom;
+
+/**
+ * Roller with the seeded random, so the same sequence of attacks gives the same procs, e.g. to replay a tournament.
+ * Used from the main server thread only
+ */
+final class SeededChanceRoller implements ChanceRoller {
+
+    private final SplittableRandom random;
+
+    SeededChanceRoller(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public boolean roll(long entityId, int chance) {
+        return random.nextInt(FixedPoint.HUNDRED_PERCENT) < chance;
+    }
+}
@@ -0,0 +1,113 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.item.Item;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealWeapon;
+import net.uniloftsky.nukkit.lifesteal.config.WeaponTable;
+
+import java.util.Arrays;
+
+/**
+ * Matcher of the items in hand against the weapon table. Items of IDs without conditional entries are resolved by the ID alone,
+ * the others by their meta and, if needed, by their NBT tag. Parsing the tag allocates and costs more the larger the tag is,
+ * so the match results are cached by the raw tag bytes: a hit costs a sampled hash and one array comparison of the bytes.
+ * Used from the main server thread only
+ */
+public final class WeaponMatcher {
+
+    /**
+     * Amount of cache slots, power of two. Players rarely carry more distinct conditional weapons than this
+     */
+    private static final int CACHE_SIZE = 64;
+
+    /**
+     * Amount of bytes hashed at the start and at the end of the tag. The middle of large tags isn't hashed, it is only compared on hit
+     */
+    private static final int HASHED_EDGE_BYTES = 32;
+
+    /**
+     * Table the cached results belong to. The cache is dropped when the config is reloaded
+     */
+    private WeaponTable cachedTable;
+
+    private final int[] ids = new int[CACHE_SIZE];
+    private final int[] metas = new int[CACHE_SIZE];
+    private final int[] hashes = new int[CACHE_SIZE];
+
+    /**
+     * Copies of the cached tags. Null marks a free slot
+     */
+    private final byte[][] tags = new byte[CACHE_SIZE][];
+
+    /**
+     * Matched weapons, aligned with {@link #tags}. Null if nothing matched
+     */
+    private final LifestealWeapon[] results = new LifestealWeapon[CACHE_SIZE];
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Match the item against the weapon table
+     *
+     * @param table weapon table of the current config
+     * @param item  item in hand
+     * @return matched weapon or null if the item isn't a lifesteal weapon
+     */
+    public LifestealWeapon match(WeaponTable table, Item item) {
+        int id = item.getId();
+        if (!table.needsTag(id)) /* only the ID and meta are checked, nothing to parse */ {
+            return table.match(id, item.getDamage(), null);
+        }
+        if (!item.hasCompoundTag()) {
+            return table.match(id, item.getDamage(), null);
+        }
+
+        if (table != cachedTable) {
+            Arrays.fill(tags, null);
+            Arrays.fill(results, null);
+            cachedTable = table;
+        }
+
+        int meta = item.getDamage();
+        byte[] tag = item.getCompoundTag();
+        int hash = hash(id, meta, tag);
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        if (tags[slot] != null && ids[slot] == id && metas[slot] == meta && hashes[slot] == hash && Arrays.equals(tags[slot], tag)) {
+            hits++;
+            return results[slot];
+        }
+
+        misses++;
+        LifestealWeapon result = table.match(id, meta, item.getNamedTag());
+        ids[slot] = id;
+        metas[slot] = meta;
+        hashes[slot] = hash;
+        tags[slot] = tag.clone();
+        results[slot] = result;
+        return result;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Hash the item ID, meta, tag length and the edges of the tag. Tags differing only in the middle collide,
+     * which is resolved by the full comparison of the bytes
+     */
+    static int hash(int id, int meta, byte[] tag) {
+        int h = 31 * (31 * id + meta) + tag.length;
+        int edge = Math.min(tag.length, HASHED_EDGE_BYTES);
+        for (int i = 0; i < edge; i++) {
+            h = 31 * h + tag[i];
+        }
+        for (int i = Math.max(edge, tag.length - HASHED_EDGE_BYTES); i < tag.length; i++) {
+            h = 31 * h + tag[i];
+        }
+        return h * 0x9E3779B9;
+    }
+}
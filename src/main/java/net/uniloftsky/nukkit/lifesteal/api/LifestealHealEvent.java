@@ -0,0 +1,75 @@
+package net.uniloftsky.nukkit.lifesteal.api;
+
+import cn.nukkit.Player;
+import cn.nukkit.event.Cancellable;
+import cn.nukkit.event.HandlerList;
+import cn.nukkit.event.player.PlayerEvent;
+import cn.nukkit.item.Item;
+
+/**
+ * Called before the lifesteal heal is applied. Listeners may change the amount of heal, hide the healing particles
+ * or cancel the heal. In the batched mode the heals of the player are applied together in the end of tick with one particle burst,
+ * which is spawned if any of the heals of the batch kept the particles on. Called only if someone listens to it
+ */
+public class LifestealHealEvent extends PlayerEvent implements Cancellable {
+
+    private static final HandlerList handlers = new HandlerList();
+
+    private final Item weapon;
+
+    private float amount;
+
+    private boolean particles;
+
+    /**
+     * @param player    player to heal
+     * @param weapon    item in hand
+     * @param amount    calculated heal in HP
+     * @param particles flag to define if the healing particles are spawned
+     */
+    public LifestealHealEvent(Player player, Item weapon, float amount, boolean particles) {
+        this.player = player;
+        this.weapon = weapon;
+        this.amount = amount;
+        this.particles = particles;
+    }
+
+    public static HandlerList getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * Check if any plugin listens to this event, so the event isn't even created otherwise
+     *
+     * @return true if the event has listeners
+     */
+    public static boolean hasListeners() {
+        return handlers.getRegisteredListeners().length > 0;
+    }
+
+    public Item getWeapon() {
+        return weapon;
+    }
+
+    /**
+     * @return heal in HP
+     */
+    public float getAmount() {
+        return amount;
+    }
+
+    /**
+     * @param amount heal in HP. The heal isn't applied if it isn't above zero
+     */
+    public void setAmount(float amount) {
+        this.amount = amount;
+    }
+
+    public boolean isParticles() {
+        return particles;
+    }
+
+    public void setParticles(boolean particles) {
+        this.particles = particles;
+    }
+}
@@ -0,0 +1,55 @@
+package net.uniloftsky.nukkit.lifesteal.api;
+
+import cn.nukkit.Player;
+import cn.nukkit.event.Cancellable;
+import cn.nukkit.event.HandlerList;
+import cn.nukkit.event.player.PlayerEvent;
+import cn.nukkit.item.Item;
+
+/**
+ * Called when lifesteal of the player's weapon procs: the chance roll is won, before the heal limits are checked and the heal is calculated.
+ * Cancelling the event cancels the heal, and the cancelled proc doesn't use up the player's heal limits. Called only if someone listens to it
+ */
+public class LifestealProcEvent extends PlayerEvent implements Cancellable {
+
+    private static final HandlerList handlers = new HandlerList();
+
+    private final Item weapon;
+
+    private final float lifesteal;
+
+    /**
+     * @param player    player who attacked
+     * @param weapon    item in hand
+     * @param lifesteal lifesteal of the weapon in percent, incl. the player's profile and the world or region rules
+     */
+    public LifestealProcEvent(Player player, Item weapon, float lifesteal) {
+        this.player = player;
+        this.weapon = weapon;
+        this.lifesteal = lifesteal;
+    }
+
+    public static HandlerList getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * Check if any plugin listens to this event, so the event isn't even created otherwise
+     *
+     * @return true if the event has listeners
+     */
+    public static boolean hasListeners() {
+        return handlers.getRegisteredListeners().length > 0;
+    }
+
+    public Item getWeapon() {
+        return weapon;
+    }
+
+    /**
+     * @return lifesteal of the weapon in percent
+     */
+    public float getLifesteal() {
+        return lifesteal;
+    }
+}
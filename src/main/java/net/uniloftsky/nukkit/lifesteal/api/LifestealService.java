@@ -0,0 +1,45 @@
+package net.uniloftsky.nukkit.lifesteal.api;
+
+import cn.nukkit.Player;
+import cn.nukkit.item.Item;
+
+/**
+ * Lifesteal values for other plugins. Registered in the Nukkit service manager while the plugin is enabled:
+ * {@code server.getServiceManager().getProvider(LifestealService.class).getProvider()}. The values always come from the current config.
+ * Must be used from the main server thread
+ */
+public interface LifestealService {
+
+    /**
+     * Check if the item with such ID can trigger lifesteal at all
+     *
+     * @param itemId ID of item
+     * @return true if item is a registered lifesteal weapon
+     */
+    boolean isLifestealWeapon(int itemId);
+
+    /**
+     * Get the lifesteal of the weapon entry the item matches, without the profiles and the world or region rules
+     *
+     * @param item item to check
+     * @return lifesteal in percent, zero if the item isn't a lifesteal weapon
+     */
+    float getLifesteal(Item item);
+
+    /**
+     * Get the lifesteal of the item for the player, incl. the player's profile and the rules of the world or region the player is in
+     *
+     * @param player player holding the item
+     * @param item   item to check
+     * @return lifesteal in percent, zero if the item isn't a lifesteal weapon or lifesteal is disabled for the player
+     */
+    float getLifesteal(Player player, Item item);
+
+    /**
+     * Get the lifesteal chance of the player, incl. the player's profile and the rules of the world or region the player is in
+     *
+     * @param player player to check
+     * @return chance in percent, zero if lifesteal is disabled for the player
+     */
+    float getChance(Player player);
+}
@@ -0,0 +1,165 @@
+package net.uniloftsky.nukkit.lifesteal.command;
+
+import cn.nukkit.Player;
+import cn.nukkit.command.Command;
+import cn.nukkit.command.CommandExecutor;
+import cn.nukkit.command.CommandSender;
+import net.uniloftsky.nukkit.lifesteal.LifestealPlugin;
+import net.uniloftsky.nukkit.lifesteal.Permissions;
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+import net.uniloftsky.nukkit.lifesteal.metrics.LifestealMetrics;
+import net.uniloftsky.nukkit.lifesteal.stats.PlayerStats;
+import net.uniloftsky.nukkit.lifesteal.stats.PlayerStatsStore;
+import net.uniloftsky.nukkit.lifesteal.trace.CombatLog;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Executor of the {@code /lifesteal} command and its subcommands
+ */
+public class LifestealCommand implements CommandExecutor {
+
+    static final String RELOAD_SUBCOMMAND = "reload";
+    static final String COMPILE_SUBCOMMAND = "compile";
+    static final String STATS_SUBCOMMAND = "stats";
+    static final String TOP_SUBCOMMAND = "top";
+    static final String TOP_BY_PROCS = "procs";
+    static final String TRACE_SUBCOMMAND = "trace";
+    static final String DUMP_SUBCOMMAND = "dump";
+
+    /**
+     * Amount of players in the leaderboard
+     */
+    static final int TOP_SIZE = 10;
+
+    /**
+     * Default and max amount of the player's decisions shown by the trace
+     */
+    static final int TRACE_SIZE = 10;
+    static final int MAX_TRACE_SIZE = 100;
+
+    private static final DateTimeFormatter TRACE_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final LifestealPlugin plugin;
+
+    public LifestealCommand(LifestealPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission(Permissions.LIFESTEAL_ADMIN_PERMISSION.getPermission())) {
+            sender.sendMessage("You don't have permission to use this command");
+            return true;
+        }
+        if (args.length == 0) {
+            return false;
+        }
+
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case RELOAD_SUBCOMMAND:
+                plugin.reloadLifestealConfig(sender);
+                return true;
+            case COMPILE_SUBCOMMAND:
+                plugin.compileWeapons(sender);
+                return true;
+            case STATS_SUBCOMMAND:
+                sendStats(sender);
+                return true;
+            case TOP_SUBCOMMAND:
+                sendTop(sender, args.length > 1 && TOP_BY_PROCS.equalsIgnoreCase(args[1]));
+                return true;
+            case TRACE_SUBCOMMAND:
+                if (args.length < 2) {
+                    return false;
+                }
+                sendTrace(sender, args[1], args.length > 2 ? parseTraceSize(args[2]) : TRACE_SIZE);
+                return true;
+            case DUMP_SUBCOMMAND:
+                plugin.dumpCombatLog(sender);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void sendStats(CommandSender sender) {
+        LifestealMetrics metrics = plugin.getMetrics();
+        sender.sendMessage("Lifesteal stats: " + metrics);
+        Map<Integer, Long> healsPerWeapon = metrics.getHealsPerWeapon();
+        if (!healsPerWeapon.isEmpty()) {
+            sender.sendMessage("Heals per weapon ID: " + new TreeMap<>(healsPerWeapon));
+        }
+    }
+
+    private void sendTop(CommandSender sender, boolean byProcs) {
+        PlayerStatsStore stats = plugin.getStats();
+        if (stats.isFailed()) {
+            sender.sendMessage("Lifesteal statistics couldn't be loaded, see the server log");
+            return;
+        }
+        if (!stats.isLoaded()) {
+            sender.sendMessage("Lifesteal statistics are not loaded yet");
+            return;
+        }
+        Comparator<PlayerStats> order = byProcs
+                ? Comparator.comparingLong(PlayerStats::getTotalProcs).reversed()
+                : Comparator.comparingDouble(PlayerStats::getTotalHealed).reversed();
+        List<PlayerStats> top = stats.top(TOP_SIZE, order);
+        sender.sendMessage("Top lifesteal players by " + (byProcs ? "procs" : "stolen HP") + ":");
+        for (int i = 0; i < top.size(); i++) {
+            PlayerStats playerStats = top.get(i);
+            String name = plugin.getServer().getOfflinePlayer(playerStats.getUuid()).getName();
+            sender.sendMessage((i + 1) + ". " + (name != null ? name : playerStats.getUuid()) + " - "
+                    + String.format(Locale.ROOT, "%.1f", playerStats.getTotalHealed()) + " HP, " + playerStats.getTotalProcs()
+                    + " procs, best weapon ID " + playerStats.getBestWeaponId());
+        }
+    }
+
+    /**
+     * Show the latest lifesteal decisions of the online player, newest first
+     *
+     * @param sender     sender to show the decisions to
+     * @param playerName name of the player
+     * @param limit      max amount of decisions
+     */
+    private void sendTrace(CommandSender sender, String playerName, int limit) {
+        CombatLog combatLog = plugin.getCombatLog();
+        if (!combatLog.isEnabled()) {
+            sender.sendMessage("Lifesteal combat log is disabled in config");
+            return;
+        }
+        Player player = plugin.getServer().getPlayerExact(playerName);
+        if (player == null) /* entity IDs change on rejoin, so only online players can be traced */ {
+            sender.sendMessage("Player " + playerName + " is not online");
+            return;
+        }
+        List<CombatLog.Entry> entries = combatLog.latest(player.getId(), limit);
+        if (entries.isEmpty()) {
+            sender.sendMessage("No lifesteal decisions of " + player.getName() + " in the combat log");
+            return;
+        }
+        sender.sendMessage("Latest lifesteal decisions of " + player.getName() + ":");
+        for (CombatLog.Entry entry : entries) {
+            sender.sendMessage(TRACE_TIME_FORMAT.format(Instant.ofEpochMilli(entry.timestamp())) + " item " + entry.itemId()
+                    + (entry.chance() > 0 ? ", chance " + FixedPoint.toString(entry.chance()) + "%" : "")
+                    + " - " + entry.result()
+                    + (entry.heal() > 0 ? ", " + String.format(Locale.ROOT, "%.2f", entry.heal()) + " HP" : ""));
+        }
+    }
+
+    private static int parseTraceSize(String value) {
+        try {
+            return Math.max(1, Math.min(Integer.parseInt(value), MAX_TRACE_SIZE));
+        } catch (NumberFormatException ex) {
+            return TRACE_SIZE;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+/**
+ * Source of the lifesteal chance rolls
+ */
+public enum ChanceMode {
+
+    /**
+     * Independent rolls with the thread-local random
+     */
+    RANDOM("random"),
+
+    /**
+     * Independent rolls with the random seeded from config, so the same attacks give the same procs, e.g. for replays
+     */
+    SEEDED("seeded"),
+
+    /**
+     * Pseudo-random distribution: the chance grows with every failed roll and resets on proc, so long streaks of procs
+     * and misses are rare while the overall rate stays the configured one
+     */
+    PRD("prd");
+
+    private final String configName;
+
+    ChanceMode(String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Get the mode by its name in config
+     *
+     * @param configName name in config
+     * @return mode
+     * @throws IllegalArgumentException if there is no mode with such name
+     */
+    public static ChanceMode fromConfigName(String configName) {
+        for (ChanceMode chanceMode : values()) {
+            if (chanceMode.configName.equals(configName)) {
+                return chanceMode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown chance mode '" + configName + "'");
+    }
+}
@@ -0,0 +1,568 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable state of the loaded configuration. A new snapshot is built completely before it is published in {@link LifestealConfig},
+ * so the readers always see either the old or the new state and never a partially loaded one
+ */
+public final class ConfigSnapshot {
+
+    /**
+     * Snapshot which is used until the config is loaded
+     */
+    static final ConfigSnapshot EMPTY = new Builder().build();
+
+    /**
+     * Default time to live of cached permission check results in seconds
+     */
+    static final int DEFAULT_PERMISSION_CACHE_TTL = 30;
+
+    /**
+     * Default interval of the player statistics flush in seconds
+     */
+    static final int DEFAULT_STATS_FLUSH_INTERVAL = 30;
+
+    /**
+     * Default max amount of player statistics records in one write
+     */
+    static final int DEFAULT_STATS_BATCH_SIZE = 512;
+
+    /**
+     * Default amount of the lifesteal decisions kept in the combat log
+     */
+    static final int DEFAULT_TRACE_SIZE = 65536;
+
+    /**
+     * Default interval of the shared config polls in seconds
+     */
+    static final int DEFAULT_SHARED_POLL_INTERVAL = 30;
+
+    /**
+     * Default max interval of the shared config polls in seconds while the source is unreachable
+     */
+    static final int DEFAULT_SHARED_MAX_BACKOFF = 600;
+
+    /**
+     * Chance of lifesteal in basis points, see {@link FixedPoint}
+     */
+    private final int lifestealChance;
+
+    /**
+     * Source of the chance rolls
+     */
+    private final ChanceMode chanceMode;
+
+    /**
+     * Seed of the chance rolls, see {@link ChanceMode}
+     */
+    private final long chanceSeed;
+
+    /**
+     * Flag to define if healing particles are sent as one batched packet instead of one packet per particle
+     */
+    private final boolean particlesBatched;
+
+    /**
+     * Flag to define if heals are accumulated and applied once per tick instead of applying each one at once
+     */
+    private final boolean healsBatched;
+
+    /**
+     * Time to live of cached permission check results in seconds. Zero disables the cache
+     */
+    private final int permissionCacheTtl;
+
+    /**
+     * Flag to define if the config file is watched and reloaded automatically on change
+     */
+    private final boolean watchConfig;
+
+    /**
+     * Interval of metrics dump into the file in seconds. Zero disables the dump
+     */
+    private final int metricsDumpInterval;
+
+    /**
+     * Interval of the player statistics flush in seconds. Zero disables the statistics
+     */
+    private final int statsFlushInterval;
+
+    /**
+     * Max amount of player statistics records in one write
+     */
+    private final int statsBatchSize;
+
+    /**
+     * Amount of the lifesteal decisions kept in the combat log, 0 if the log is disabled
+     */
+    private final int traceSize;
+
+    /**
+     * Directory or HTTP(S) URL of the config shared by the server network. Null if the local config is used
+     */
+    private final String sharedSource;
+
+    /**
+     * Interval of the shared config polls in seconds
+     */
+    private final int sharedPollInterval;
+
+    /**
+     * Max interval of the shared config polls in seconds while the source is unreachable
+     */
+    private final int sharedMaxBackoff;
+
+    /**
+     * Damage of the attack which the heal amount is calculated from
+     */
+    private final HealDamage healDamage;
+
+    /**
+     * Settings of the healing particles
+     */
+    private final ParticleSettings particleSettings;
+
+    /**
+     * Heal limit of the weapons which don't define their own
+     */
+    private final HealLimit healLimit;
+
+    /**
+     * Handling of the heal above the max health
+     */
+    private final OverhealSettings overheal;
+
+    /**
+     * Heal multipliers per type of the attacked entity
+     */
+    private final TargetTable targets;
+
+    /**
+     * Profiles of the player groups, the highest priority first
+     */
+    private final List<LifestealProfile> profiles;
+
+    /**
+     * Rules of the worlds. Key - folder name of the level, value - rule
+     */
+    private final Map<String, LifestealRule> worldRules;
+
+    /**
+     * Spatial index of the regions with their own rules
+     */
+    private final RegionIndex regions;
+
+    /**
+     * Frozen lookup table with registered weapons
+     */
+    private final WeaponTable weapons;
+
+    /**
+     * Every chance which can be rolled: the global one and the ones of the profiles, worlds and regions, ascending
+     */
+    private final List<Integer> chances;
+
+    private ConfigSnapshot(Builder builder) {
+        this.lifestealChance = builder.lifestealChance;
+        this.chanceMode = builder.chanceMode;
+        this.chanceSeed = builder.chanceSeed;
+        this.particlesBatched = builder.particlesBatched;
+        this.healsBatched = builder.healsBatched;
+        this.permissionCacheTtl = builder.permissionCacheTtl;
+        this.watchConfig = builder.watchConfig;
+        this.metricsDumpInterval = builder.metricsDumpInterval;
+        this.statsFlushInterval = builder.statsFlushInterval;
+        this.statsBatchSize = builder.statsBatchSize;
+        this.traceSize = builder.traceSize;
+        this.sharedSource = builder.sharedSource;
+        this.sharedPollInterval = builder.sharedPollInterval;
+        this.sharedMaxBackoff = builder.sharedMaxBackoff;
+        this.healDamage = builder.healDamage;
+        this.particleSettings = new ParticleSettings(builder.particleAmount, builder.particleType, builder.particleViewRadius,
+                builder.particleTickBudget, builder.particleChunkBudget);
+        this.healLimit = new HealLimit(builder.healCooldown, builder.healsPerSecond, builder.healBurst);
+        this.overheal = new OverhealSettings(builder.overhealMode, builder.maxAbsorption, builder.absorptionDecay);
+        this.targets = builder.targets.build();
+        List<LifestealProfile> profiles = new ArrayList<>(builder.profiles);
+        profiles.sort(Comparator.comparingInt(LifestealProfile::getPriority).reversed()); // stable, so equal priorities keep the config order
+        this.profiles = List.copyOf(profiles);
+        this.worldRules = Map.copyOf(builder.worldRules);
+        List<LifestealRegion> regions = new ArrayList<>(builder.regions.size());
+        for (LifestealRegion region : builder.regions) /* region values fall back to the rule of its world */ {
+            regions.add(region.withRule(region.getRule().withFallback(worldRules.get(region.getWorld()))));
+        }
+        this.regions = RegionIndex.of(regions);
+        this.weapons = WeaponTable.of(builder.weapons, builder.weaponVariants);
+
+        TreeSet<Integer> chances = new TreeSet<>();
+        chances.add(lifestealChance);
+        for (LifestealProfile profile : profiles) {
+            chances.add(profile.getRule().chanceOr(lifestealChance));
+        }
+        for (LifestealRule rule : worldRules.values()) {
+            chances.add(rule.chanceOr(lifestealChance));
+        }
+        for (LifestealRegion region : regions) {
+            chances.add(region.getRule().chanceOr(lifestealChance));
+        }
+        this.chances = List.copyOf(chances);
+    }
+
+    public int getLifestealChance() {
+        return lifestealChance;
+    }
+
+    public ChanceMode getChanceMode() {
+        return chanceMode;
+    }
+
+    public long getChanceSeed() {
+        return chanceSeed;
+    }
+
+    public boolean isParticlesBatched() {
+        return particlesBatched;
+    }
+
+    public boolean isHealsBatched() {
+        return healsBatched;
+    }
+
+    public int getPermissionCacheTtl() {
+        return permissionCacheTtl;
+    }
+
+    public boolean isWatchConfig() {
+        return watchConfig;
+    }
+
+    public int getMetricsDumpInterval() {
+        return metricsDumpInterval;
+    }
+
+    public int getStatsFlushInterval() {
+        return statsFlushInterval;
+    }
+
+    public int getStatsBatchSize() {
+        return statsBatchSize;
+    }
+
+    public int getTraceSize() {
+        return traceSize;
+    }
+
+    /**
+     * @return directory or HTTP(S) URL of the shared config, or null if the local config is used
+     */
+    public String getSharedSource() {
+        return sharedSource;
+    }
+
+    public int getSharedPollInterval() {
+        return sharedPollInterval;
+    }
+
+    public int getSharedMaxBackoff() {
+        return sharedMaxBackoff;
+    }
+
+    public HealDamage getHealDamage() {
+        return healDamage;
+    }
+
+    public ParticleSettings getParticleSettings() {
+        return particleSettings;
+    }
+
+    public HealLimit getHealLimit() {
+        return healLimit;
+    }
+
+    public OverhealSettings getOverheal() {
+        return overheal;
+    }
+
+    public TargetTable getTargets() {
+        return targets;
+    }
+
+    /**
+     * @return profiles of the player groups, the highest priority first
+     */
+    public List<LifestealProfile> getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * Get the rule of the world
+     *
+     * @param world folder name of the level
+     * @return rule or null if the world has no rule
+     */
+    public LifestealRule getWorldRule(String world) {
+        return worldRules.get(world);
+    }
+
+    public RegionIndex getRegions() {
+        return regions;
+    }
+
+    /**
+     * @return true if any world or region rule is defined
+     */
+    public boolean hasLocationRules() {
+        return !worldRules.isEmpty() || !regions.isEmpty();
+    }
+
+    public WeaponTable getWeapons() {
+        return weapons;
+    }
+
+    /**
+     * @return every chance which can be rolled in basis points, ascending. A rule or profile without its own chance rolls the global one
+     */
+    public List<Integer> getChances() {
+        return chances;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "lifestealChance=" + FixedPoint.toString(lifestealChance) + '%' +
+                ", chanceMode=" + chanceMode.getConfigName() +
+                ", chanceSeed=" + chanceSeed +
+                ", particlesBatched=" + particlesBatched +
+                ", healsBatched=" + healsBatched +
+                ", permissionCacheTtl=" + permissionCacheTtl +
+                ", watchConfig=" + watchConfig +
+                ", metricsDumpInterval=" + metricsDumpInterval +
+                ", statsFlushInterval=" + statsFlushInterval +
+                ", statsBatchSize=" + statsBatchSize +
+                ", traceSize=" + traceSize +
+                (sharedSource != null ? ", sharedSource=" + sharedSource : "") +
+                ", healDamage=" + healDamage.getConfigName() +
+                ", healLimit=" + healLimit +
+                ", particleSettings=" + particleSettings +
+                ", overheal=" + overheal +
+                ", targets=" + targets +
+                ", profiles=" + profiles +
+                ", worldRules=" + worldRules.keySet() +
+                ", regions=" + regions.size() +
+                ", weapons=" + weapons.size() +
+                '}';
+    }
+
+    /**
+     * Mutable staging state, filled while the config is loading
+     */
+    static final class Builder {
+
+        private int lifestealChance;
+        private ChanceMode chanceMode = ChanceMode.RANDOM;
+        private long chanceSeed;
+        private boolean particlesBatched;
+        private boolean healsBatched;
+        private int permissionCacheTtl = DEFAULT_PERMISSION_CACHE_TTL;
+        private boolean watchConfig;
+        private int metricsDumpInterval;
+        private int statsFlushInterval = DEFAULT_STATS_FLUSH_INTERVAL;
+        private int statsBatchSize = DEFAULT_STATS_BATCH_SIZE;
+        private int traceSize = DEFAULT_TRACE_SIZE;
+        private String sharedSource;
+        private int sharedPollInterval = DEFAULT_SHARED_POLL_INTERVAL;
+        private int sharedMaxBackoff = DEFAULT_SHARED_MAX_BACKOFF;
+        private HealDamage healDamage = HealDamage.FINAL;
+        private int healCooldown;
+        private float healsPerSecond;
+        private int healBurst;
+        private int particleAmount = ParticleSettings.DEFAULT_AMOUNT;
+        private int particleType = ParticleSettings.DEFAULT.getType();
+        private int particleViewRadius = ParticleSettings.DEFAULT_VIEW_RADIUS;
+        private int particleTickBudget = ParticleSettings.DEFAULT_TICK_BUDGET;
+        private int particleChunkBudget = ParticleSettings.DEFAULT_CHUNK_BUDGET;
+        private OverhealMode overhealMode = OverhealMode.HEAL;
+        private int maxAbsorption = OverhealSettings.DEFAULT_MAX_ABSORPTION;
+        private int absorptionDecay = OverhealSettings.DEFAULT_ABSORPTION_DECAY;
+
+        private final TargetTable.Builder targets = new TargetTable.Builder();
+        private final List<LifestealProfile> profiles = new ArrayList<>();
+        private final Map<String, LifestealRule> worldRules = new HashMap<>();
+        private final List<LifestealRegion> regions = new ArrayList<>();
+
+        /**
+         * Registered weapons. Key - id, value - weapon
+         */
+        private final Map<Integer, LifestealWeapon> weapons = new LinkedHashMap<>();
+
+        /**
+         * Registered weapons with conditions, in config order
+         */
+        private final List<LifestealWeapon> weaponVariants = new ArrayList<>();
+
+        Builder lifestealChance(int lifestealChance) {
+            this.lifestealChance = lifestealChance;
+            return this;
+        }
+
+        Builder chanceMode(ChanceMode chanceMode) {
+            this.chanceMode = chanceMode;
+            return this;
+        }
+
+        Builder chanceSeed(long chanceSeed) {
+            this.chanceSeed = chanceSeed;
+            return this;
+        }
+
+        Builder particlesBatched(boolean particlesBatched) {
+            this.particlesBatched = particlesBatched;
+            return this;
+        }
+
+        Builder healsBatched(boolean healsBatched) {
+            this.healsBatched = healsBatched;
+            return this;
+        }
+
+        Builder permissionCacheTtl(int permissionCacheTtl) {
+            this.permissionCacheTtl = Math.max(0, permissionCacheTtl);
+            return this;
+        }
+
+        Builder watchConfig(boolean watchConfig) {
+            this.watchConfig = watchConfig;
+            return this;
+        }
+
+        Builder metricsDumpInterval(int metricsDumpInterval) {
+            this.metricsDumpInterval = Math.max(0, metricsDumpInterval);
+            return this;
+        }
+
+        Builder statsFlushInterval(int statsFlushInterval) {
+            this.statsFlushInterval = Math.max(0, statsFlushInterval);
+            return this;
+        }
+
+        Builder statsBatchSize(int statsBatchSize) {
+            this.statsBatchSize = Math.max(1, statsBatchSize);
+            return this;
+        }
+
+        Builder traceSize(int traceSize) {
+            this.traceSize = Math.max(0, traceSize);
+            return this;
+        }
+
+        Builder sharedSource(String sharedSource) {
+            this.sharedSource = sharedSource == null || sharedSource.isBlank() ? null : sharedSource;
+            return this;
+        }
+
+        Builder sharedPollInterval(int sharedPollInterval) {
+            this.sharedPollInterval = Math.max(1, sharedPollInterval);
+            return this;
+        }
+
+        Builder sharedMaxBackoff(int sharedMaxBackoff) {
+            this.sharedMaxBackoff = Math.max(1, sharedMaxBackoff);
+            return this;
+        }
+
+        Builder healDamage(HealDamage healDamage) {
+            this.healDamage = healDamage;
+            return this;
+        }
+
+        Builder healCooldown(int healCooldown) {
+            this.healCooldown = healCooldown;
+            return this;
+        }
+
+        Builder healsPerSecond(float healsPerSecond) {
+            this.healsPerSecond = healsPerSecond;
+            return this;
+        }
+
+        Builder healBurst(int healBurst) {
+            this.healBurst = healBurst;
+            return this;
+        }
+
+        Builder particleAmount(int particleAmount) {
+            this.particleAmount = particleAmount;
+            return this;
+        }
+
+        Builder particleType(int particleType) {
+            this.particleType = particleType;
+            return this;
+        }
+
+        Builder particleViewRadius(int particleViewRadius) {
+            this.particleViewRadius = particleViewRadius;
+            return this;
+        }
+
+        Builder particleTickBudget(int particleTickBudget) {
+            this.particleTickBudget = particleTickBudget;
+            return this;
+        }
+
+        Builder particleChunkBudget(int particleChunkBudget) {
+            this.particleChunkBudget = particleChunkBudget;
+            return this;
+        }
+
+        Builder overhealMode(OverhealMode overhealMode) {
+            this.overhealMode = overhealMode;
+            return this;
+        }
+
+        Builder maxAbsorption(int maxAbsorption) {
+            this.maxAbsorption = maxAbsorption;
+            return this;
+        }
+
+        Builder absorptionDecay(int absorptionDecay) {
+            this.absorptionDecay = absorptionDecay;
+            return this;
+        }
+
+        TargetTable.Builder targets() {
+            return targets;
+        }
+
+        List<LifestealProfile> profiles() {
+            return profiles;
+        }
+
+        Map<String, LifestealRule> worldRules() {
+            return worldRules;
+        }
+
+        List<LifestealRegion> regions() {
+            return regions;
+        }
+
+        Map<Integer, LifestealWeapon> weapons() {
+            return weapons;
+        }
+
+        List<LifestealWeapon> weaponVariants() {
+            return weaponVariants;
+        }
+
+        ConfigSnapshot build() {
+            return new ConfigSnapshot(this);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.plugin.PluginLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watcher of the config file. Runs on its own daemon thread and invokes the callback when the file is created or modified.
+ * Editors often write the file in several steps, so the events are collected for a short debounce period before the callback
+ */
+public final class ConfigWatcher implements Closeable {
+
+    /**
+     * Time to collect the further file events before invoking the callback
+     */
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    private final Path configFile;
+    private final Runnable onChange;
+    private final PluginLogger logger;
+
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * @param configFile file to watch
+     * @param onChange   callback invoked on the watcher thread when the file changes
+     * @param logger     plugin logger
+     */
+    public ConfigWatcher(Path configFile, Runnable onChange, PluginLogger logger) {
+        this.configFile = configFile;
+        this.onChange = onChange;
+        this.logger = logger;
+    }
+
+    /**
+     * Start watching the directory of the config file
+     *
+     * @throws IOException if the directory cannot be watched
+     */
+    public void start() throws IOException {
+        Path directory = configFile.toAbsolutePath().getParent();
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        this.thread = new Thread(this::watch, "Lifesteal config watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void watch() {
+        Path fileName = configFile.getFileName();
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                boolean changed = isConfigChanged(key, fileName);
+
+                if (changed) /* wait until the file is written completely and drop the duplicated events */ {
+                    WatchKey nextKey;
+                    while ((nextKey = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        isConfigChanged(nextKey, fileName);
+                    }
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) /* watcher was closed */ {
+        } catch (RuntimeException ex) {
+            logger.error("Config watcher stopped because of unexpected exception", ex);
+        }
+    }
+
+    private boolean isConfigChanged(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Decimal config values stored as integers with two fraction digits: chances and lifesteal are basis points
+ * (hundredths of percent), heal amounts are hundredths of HP, multipliers are hundredths of one. Integer math gives the same results on every JVM
+ */
+public final class FixedPoint {
+
+    /**
+     * Integer value of one, e.g. 1% in basis points or 1 HP in hundredths
+     */
+    public static final int SCALE = 100;
+
+    /**
+     * Basis points of 100%
+     */
+    public static final int HUNDRED_PERCENT = 100 * SCALE;
+
+    /**
+     * Max lifesteal in basis points, 1000%
+     */
+    public static final int MAX_LIFESTEAL = 10 * HUNDRED_PERCENT;
+
+    /**
+     * Max heal multiplier of the attacked entity, 100 times
+     */
+    public static final int MAX_MULTIPLIER = 100 * SCALE;
+
+    private static final int FRACTION_DIGITS = 2;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Convert the whole value, e.g. an integer percent of the former configs
+     *
+     * @param value whole value
+     * @return fixed-point value
+     */
+    public static int of(int value) {
+        return Math.multiplyExact(value, SCALE);
+    }
+
+    /**
+     * Parse the decimal value. Digits beyond the second fraction digit are rounded half up
+     *
+     * @param value decimal value, e.g. "2.5" or "10"
+     * @return fixed-point value
+     * @throws NumberFormatException if value isn't a number
+     * @throws ArithmeticException   if value doesn't fit into an int
+     */
+    public static int parse(String value) {
+        return new BigDecimal(value).setScale(FRACTION_DIGITS, RoundingMode.HALF_UP).unscaledValue().intValueExact();
+    }
+
+    /**
+     * Format the fixed-point value as a decimal without trailing zeros
+     *
+     * @param value fixed-point value
+     * @return decimal, e.g. "2.5" or "10"
+     */
+    public static String toString(int value) {
+        return BigDecimal.valueOf(value, FRACTION_DIGITS).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,85 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+/**
+ * Bounds of the heal amount of one lifesteal proc. Amounts are in hundredths of HP, see {@link FixedPoint}
+ */
+public final class HealClamp {
+
+    /**
+     * Max heal which means that the heal isn't capped
+     */
+    public static final int NO_MAX = 0;
+
+    /**
+     * Clamp which doesn't change anything
+     */
+    public static final HealClamp NONE = new HealClamp(0, NO_MAX);
+
+    /**
+     * Min heal of a proc
+     */
+    private final int min;
+
+    /**
+     * Max heal of a proc or {@link #NO_MAX}
+     */
+    private final int max;
+
+    /**
+     * @param min min heal in hundredths of HP. Negative value means zero
+     * @param max max heal in hundredths of HP. Zero or negative value disables the cap, the value below min is raised to min
+     */
+    public HealClamp(int min, int max) {
+        this.min = Math.max(0, min);
+        this.max = max > NO_MAX ? Math.max(max, this.min) : NO_MAX;
+    }
+
+    /**
+     * Clamp the heal
+     *
+     * @param heal heal in hundredths of HP
+     * @return heal within the bounds
+     */
+    public long apply(long heal) {
+        if (heal < min) {
+            return min;
+        }
+        return max != NO_MAX && heal > max ? max : heal;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return true if any bound is set
+     */
+    public boolean isEnabled() {
+        return min > 0 || max != NO_MAX;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HealClamp that = (HealClamp) o;
+        return min == that.min && max == that.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * min + max;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "min=" + FixedPoint.toString(min) +
+                ", max=" + (max != NO_MAX ? FixedPoint.toString(max) : "none") +
+                '}';
+    }
+}
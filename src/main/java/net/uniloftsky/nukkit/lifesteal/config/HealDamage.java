@@ -0,0 +1,66 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.event.entity.EntityDamageEvent;
+
+/**
+ * Damage of the attack which the heal amount is calculated from
+ */
+public enum HealDamage {
+
+    /**
+     * Damage which was actually dealt, after enchantments, crits, effects and the victim's armor
+     */
+    FINAL("final") {
+        @Override
+        public float of(EntityDamageEvent event) {
+            return event.getFinalDamage();
+        }
+    },
+
+    /**
+     * Damage with all the attacker's bonuses, but before the victim's armor reduced it
+     */
+    PRE_ARMOR("preArmor") {
+        @Override
+        public float of(EntityDamageEvent event) {
+            // armor modifiers are negative, so they are subtracted to get the damage back
+            return event.getFinalDamage()
+                    - event.getDamage(EntityDamageEvent.DamageModifier.ARMOR)
+                    - event.getDamage(EntityDamageEvent.DamageModifier.ARMOR_ENCHANTMENTS);
+        }
+    };
+
+    private final String configName;
+
+    HealDamage(String configName) {
+        this.configName = configName;
+    }
+
+    /**
+     * Get the damage of the event depending on this mode
+     *
+     * @param event damage event
+     * @return damage to calculate heal from
+     */
+    public abstract float of(EntityDamageEvent event);
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Get the mode by its name in config
+     *
+     * @param configName name in config
+     * @return mode
+     * @throws IllegalArgumentException if there is no mode with such name
+     */
+    public static HealDamage fromConfigName(String configName) {
+        for (HealDamage healDamage : values()) {
+            if (healDamage.configName.equals(configName)) {
+                return healDamage;
+            }
+        }
+        throw new IllegalArgumentException("Unknown heal damage '" + configName + "'");
+    }
+}
@@ -0,0 +1,81 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of how often one player can be healed by lifesteal: the cooldown between two heals and the token bucket
+ * which allows a short burst of heals and refills at the given rate
+ */
+public final class HealLimit {
+
+    /**
+     * Limit which doesn't limit anything
+     */
+    public static final HealLimit NONE = new HealLimit(0, 0, 0);
+
+    /**
+     * Min time between two heals in milliseconds. Zero disables the cooldown
+     */
+    private final int cooldownMillis;
+
+    /**
+     * Refill rate of the token bucket. Zero disables the bucket
+     */
+    private final float healsPerSecond;
+
+    /**
+     * Capacity of the token bucket, i.e. how many heals may happen in a row
+     */
+    private final int burst;
+
+    /**
+     * @param cooldownMillis min time between two heals in milliseconds. Zero or negative value disables the cooldown
+     * @param healsPerSecond refill rate of the token bucket. Zero or negative value disables the bucket
+     * @param burst          capacity of the token bucket. Zero or negative value means the rate rounded up
+     */
+    public HealLimit(int cooldownMillis, float healsPerSecond, int burst) {
+        this.cooldownMillis = Math.max(0, cooldownMillis);
+        this.healsPerSecond = Math.max(0, healsPerSecond);
+        this.burst = this.healsPerSecond > 0 ? (burst > 0 ? burst : (int) Math.ceil(this.healsPerSecond)) : 0;
+    }
+
+    public int getCooldownMillis() {
+        return cooldownMillis;
+    }
+
+    public long getCooldownNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+    }
+
+    public float getHealsPerSecond() {
+        return healsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public boolean isCooldownEnabled() {
+        return cooldownMillis > 0;
+    }
+
+    public boolean isRateLimited() {
+        return healsPerSecond > 0;
+    }
+
+    /**
+     * @return true if any limit is enabled
+     */
+    public boolean isEnabled() {
+        return isCooldownEnabled() || isRateLimited();
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "cooldownMillis=" + cooldownMillis +
+                ", healsPerSecond=" + healsPerSecond +
+                ", burst=" + burst +
+                '}';
+    }
+}
@@ -1,20 +1,27 @@
 package net.uniloftsky.nukkit.lifesteal.config;
 
+import cn.nukkit.Server;
 import cn.nukkit.item.Item;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import cn.nukkit.scheduler.AsyncTask;
+import com.google.gson.stream.JsonReader;
 import net.uniloftsky.nukkit.lifesteal.LifestealPlugin;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 /**
  * Class to hold configurable data. It holds information about lifesteal chance, registered weapons and its lifesteal potential
@@ -31,15 +38,20 @@ public final class LifestealConfig {
      */
     private static final String UNKNOWN_ITEM = "unknown";
 
+    /**
+     * Max amount of invalid weapon IDs listed in the log
+     */
+    private static final int MAX_REPORTED_INVALID_WEAPONS = 20;
+
     /**
      * Plugin instance
      */
     private LifestealPlugin plugin;
 
     /**
-     * Gson instance to parse JSON configs
+     * Resolver of Minecraft items by ID, used to validate the registered weapons
      */
-    private final Gson gson;
+    private IntFunction<Item> itemResolver = Item::get;
 
     /**
      * Plugin data folder
@@ -47,23 +59,22 @@ public final class LifestealConfig {
     private File pluginDataFolder;
 
     /**
-     * Storage with registered weapons. Key - id, value - weapon
+     * Currently published config snapshot. Replaced as a whole on reload with a single volatile write
      */
-    private Map<Integer, LifestealWeapon> weapons = new HashMap<>();
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
 
     /**
-     * Chance of lifesteal. Read from config
+     * Source of the config shared by the server network. Null if the local config is used
      */
-    private int lifestealChance;
+    private volatile SharedConfigSource sharedSource;
 
     /**
      * Flag to define if config is initialized. After successful initialization the value changes to true
      */
-    private boolean configInitialized = false;
+    private volatile boolean configInitialized = false;
 
     public LifestealConfig(LifestealPlugin plugin) {
         this.plugin = plugin;
-        this.gson = new Gson();
         this.pluginDataFolder = plugin.getDataFolder();
     }
 
@@ -74,67 +85,985 @@ public final class LifestealConfig {
      */
     public boolean init() {
         plugin.getLogger().info("Loading configuration...");
+        long startedAt = System.nanoTime();
         configInitialized = processMainConfig();
+        if (configInitialized) {
+            plugin.getLogger().info("Configuration loaded in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) + " ms");
+        }
         return configInitialized;
     }
 
+    /**
+     * Initialization method which loads the config on the async worker, so the file I/O and parsing don't block the main thread
+     *
+     * @param onCompletion callback invoked on the main thread with the result of initialization
+     */
+    public void initAsync(Consumer<Boolean> onCompletion) {
+        plugin.getServer().getScheduler().scheduleAsyncTask(plugin, new AsyncTask() {
+            @Override
+            public void onRun() {
+                setResult(init());
+            }
+
+            @Override
+            public void onCompletion(Server server) {
+                onCompletion.accept(Boolean.TRUE.equals(getResult()));
+            }
+        });
+    }
+
+    public boolean isLoaded() {
+        return configInitialized;
+    }
+
+    /**
+     * Replace the resolver of Minecraft items. Lets benchmarks and tools load the config without the initialized Nukkit item registry.
+     * Must be invoked before {@link #init()}
+     *
+     * @param itemResolver resolver of Minecraft items by ID
+     */
+    void setItemResolver(IntFunction<Item> itemResolver) {
+        this.itemResolver = itemResolver;
+    }
+
+    /**
+     * Reload the config from file and publish the new snapshot. Blocking, so it should be invoked off the main thread.
+     * If the file cannot be read or parsed, the current snapshot stays in use
+     *
+     * @return true if the new snapshot was published, false if not
+     */
+    public synchronized boolean reload() {
+        isInitialized();
+        plugin.getLogger().info("Reloading " + MAIN_CONFIG);
+        ConfigSnapshot newSnapshot = loadMainConfig();
+        if (newSnapshot == null) {
+            return false;
+        }
+        publish(resolveSharedConfig(newSnapshot));
+        return true;
+    }
+
     boolean processMainConfig() {
         plugin.getLogger().info("Loading " + MAIN_CONFIG);
         plugin.saveResource(MAIN_CONFIG);
 
-        String mainConfigContents;
+        ConfigSnapshot newSnapshot = loadMainConfig();
+        if (newSnapshot == null) {
+            return false;
+        }
+        publish(resolveSharedConfig(newSnapshot));
+        return true;
+    }
+
+    /**
+     * Choose the snapshot to publish if the local config points to the shared one: the new version of the shared config,
+     * the current snapshot if the version didn't change, the last-known-good copy if the source is unreachable,
+     * or the local config if there is nothing else
+     *
+     * @param localSnapshot snapshot of the local config
+     * @return snapshot to publish
+     */
+    ConfigSnapshot resolveSharedConfig(ConfigSnapshot localSnapshot) {
+        SharedConfigSource source = configureSharedSource(localSnapshot);
+        if (source == null) {
+            return localSnapshot;
+        }
+
         try {
-            mainConfigContents = getConfigContents(MAIN_CONFIG);
+            ConfigSnapshot sharedSnapshot = loadSharedConfig(source);
+            if (sharedSnapshot != null) {
+                return sharedSnapshot;
+            }
         } catch (IOException ex) {
-            plugin.getLogger().error("Cannot get " + MAIN_CONFIG + " file");
-            return false;
+            plugin.getLogger().warning("Cannot reach shared config source " + source.getLocation() + ": " + ex.getMessage());
+        }
+        if (source.isLoaded()) /* the version didn't change or the new one is broken, keep the current one */ {
+            return snapshot;
         }
 
-        JsonObject configObject = JsonParser.parseString(mainConfigContents).getAsJsonObject();
-        JsonElement lifestealChanceElement = configObject.get(MainConfigFields.LIFESTEAL_CHANCE_FIELD); // retrieve chance of lifesteal from config
-        if (lifestealChanceElement != null) {
-            this.lifestealChance = lifestealChanceElement.getAsInt();
+        ConfigSnapshot cachedSnapshot = loadLastKnownGood(source);
+        if (cachedSnapshot != null) {
+            return cachedSnapshot;
         }
+        plugin.getLogger().warning("No shared config is available, the local " + MAIN_CONFIG + " is used until the shared source is reachable");
+        return localSnapshot;
+    }
 
-        List<JsonElement> jsonWeapons = configObject.getAsJsonArray(MainConfigFields.WEAPONS_LIST_FIELD).asList(); // retrieve weapons and register them
-        for (JsonElement jsonWeapon : jsonWeapons) {
-            LifestealWeapon weapon = gson.fromJson(jsonWeapon, LifestealWeapon.class);
-            registerWeapon(weapon);
+    /**
+     * Load and publish the new version of the shared config, if any. Invoked by the poller off the main thread
+     *
+     * @return true if the new snapshot was published
+     * @throws IOException if the shared source cannot be reached
+     */
+    public synchronized boolean pollSharedConfig() throws IOException {
+        SharedConfigSource source = sharedSource;
+        if (source == null) {
+            return false;
         }
+        ConfigSnapshot sharedSnapshot = loadSharedConfig(source);
+        if (sharedSnapshot == null) {
+            return false;
+        }
+        publish(sharedSnapshot);
         return true;
     }
 
+    /**
+     * Create the shared source if the local config points to it. The existing source is kept if its settings didn't change,
+     * so the unchanged version isn't parsed again on reload
+     *
+     * @param localSnapshot snapshot of the local config
+     * @return shared source or null if the local config is used
+     */
+    private SharedConfigSource configureSharedSource(ConfigSnapshot localSnapshot) {
+        String location = localSnapshot.getSharedSource();
+        SharedConfigSource source = sharedSource;
+        if (location == null) {
+            source = null;
+        } else if (source == null || !source.hasSettings(location, localSnapshot.getSharedPollInterval(), localSnapshot.getSharedMaxBackoff())) {
+            source = new SharedConfigSource(location, pluginDataFolder.toPath().resolve(SharedConfigSource.CACHE_FILE),
+                    localSnapshot.getSharedPollInterval(), localSnapshot.getSharedMaxBackoff());
+        }
+        this.sharedSource = source;
+        return source;
+    }
+
+    /**
+     * Fetch the shared config and parse it if its version changed. The content which was parsed successfully is saved
+     * as the last-known-good copy
+     *
+     * @param source shared source
+     * @return new snapshot, or null if the version didn't change or the new version is malformed
+     * @throws IOException if the shared source cannot be reached
+     */
+    ConfigSnapshot loadSharedConfig(SharedConfigSource source) throws IOException {
+        byte[] content = source.fetchIfChanged();
+        if (content == null) {
+            return null;
+        }
+        ConfigSnapshot sharedSnapshot = parseSharedConfig(content, source);
+        if (sharedSnapshot == null) {
+            return null;
+        }
+        try {
+            source.saveLastKnownGood(content);
+        } catch (IOException ex) {
+            plugin.getLogger().warning("Cannot save the copy of the shared config: " + ex.getMessage());
+        }
+        plugin.getLogger().info("Loaded shared config version " + source.getVersion() + " from " + source.getLocation());
+        return sharedSnapshot;
+    }
+
+    private ConfigSnapshot loadLastKnownGood(SharedConfigSource source) {
+        try {
+            byte[] content = source.readLastKnownGood();
+            if (content == null) {
+                return null;
+            }
+            ConfigSnapshot cachedSnapshot = parseSharedConfig(content, source);
+            if (cachedSnapshot != null) {
+                source.markLoaded();
+                plugin.getLogger().warning("Using the last-known-good shared config version " + source.getVersion());
+            }
+            return cachedSnapshot;
+        } catch (IOException ex) {
+            plugin.getLogger().error("Cannot read " + SharedConfigSource.CACHE_FILE, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Parse the content of the shared config. The weapons are always read from it, the compiled weapons of the local config
+     * don't apply
+     *
+     * @return new snapshot or null if content is malformed
+     */
+    private ConfigSnapshot parseSharedConfig(byte[] content, SharedConfigSource source) {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+            return parseMainConfig(reader, null);
+        } catch (IOException | RuntimeException ex) /* malformed JSON or unexpected types of values */ {
+            plugin.getLogger().error("Cannot parse shared config version " + source.getVersion() + " from " + source.getLocation()
+                    + ", it is skipped until it changes", ex);
+            return null;
+        }
+    }
+
+    /**
+     * @return source of the shared config or null if the local config is used
+     */
+    public SharedConfigSource getSharedSource() {
+        return sharedSource;
+    }
+
+    /**
+     * Read and parse the main config into a new snapshot without publishing it
+     *
+     * @return new snapshot or null if config cannot be read or parsed
+     */
+    ConfigSnapshot loadMainConfig() {
+        Reader mainConfigReader;
+        try {
+            mainConfigReader = openConfigReader(MAIN_CONFIG);
+        } catch (IOException ex) {
+            plugin.getLogger().error("Cannot get " + MAIN_CONFIG + " file");
+            return null;
+        }
+
+        try (Reader reader = mainConfigReader) {
+            return parseMainConfig(reader, loadCompiledWeapons());
+        } catch (IOException | RuntimeException ex) /* malformed JSON or unexpected types of values */ {
+            plugin.getLogger().error("Cannot parse " + MAIN_CONFIG + " file", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Load the compiled weapons file if it is newer than the main config
+     *
+     * @return compiled weapons or null if the weapons must be read from the main config
+     */
+    WeaponCatalogFile.Contents loadCompiledWeapons() {
+        Path mainConfigPath = pluginDataFolder.toPath().resolve(MAIN_CONFIG);
+        Path compiledPath = pluginDataFolder.toPath().resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+        try {
+            if (!Files.isRegularFile(compiledPath) || !Files.getLastModifiedTime(compiledPath).toInstant().isAfter(Files.getLastModifiedTime(mainConfigPath).toInstant())) {
+                return null;
+            }
+            WeaponCatalogFile.Contents contents = WeaponCatalogFile.read(compiledPath);
+            plugin.getLogger().info("Using compiled weapons from " + WeaponCatalogFile.COMPILED_WEAPONS);
+            return contents;
+        } catch (IOException ex) {
+            plugin.getLogger().warning("Cannot read " + WeaponCatalogFile.COMPILED_WEAPONS + ", weapons will be read from " + MAIN_CONFIG + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    ConfigSnapshot parseMainConfig(Reader mainConfigReader) throws IOException {
+        return parseMainConfig(mainConfigReader, null);
+    }
+
+    /**
+     * Parse the main config with the streaming reader. Values and weapon records are read one at a time,
+     * so neither the whole file contents nor the JSON tree are held in memory
+     *
+     * @param mainConfigReader reader of the main config contents
+     * @param compiledWeapons  weapons from the compiled file. If present, the weapons of the main config are skipped
+     * @return new snapshot
+     * @throws IOException if config cannot be read or is malformed
+     */
+    ConfigSnapshot parseMainConfig(Reader mainConfigReader, WeaponCatalogFile.Contents compiledWeapons) throws IOException {
+        ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder();
+        List<LifestealWeapon> weapons = new ArrayList<>();
+
+        JsonReader reader = new JsonReader(mainConfigReader);
+        reader.setLenient(true); // same leniency as the former JsonParser-based loading
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case MainConfigFields.LIFESTEAL_CHANCE_FIELD: // retrieve chance of lifesteal from config
+                    builder.lifestealChance(readFixedPoint(reader));
+                    break;
+                case MainConfigFields.CHANCE_MODE_FIELD: // retrieve source of the chance rolls from config
+                    builder.chanceMode(ChanceMode.fromConfigName(reader.nextString()));
+                    break;
+                case MainConfigFields.CHANCE_SEED_FIELD: // retrieve seed of the chance rolls from config
+                    builder.chanceSeed(reader.nextLong());
+                    break;
+                case MainConfigFields.PERMISSION_CACHE_TTL_FIELD: // retrieve permission cache TTL from config
+                    builder.permissionCacheTtl(reader.nextInt());
+                    break;
+                case MainConfigFields.PARTICLES_BATCHED_FIELD: // retrieve particles sending mode from config
+                    builder.particlesBatched(reader.nextBoolean());
+                    break;
+                case MainConfigFields.HEALS_BATCHED_FIELD: // retrieve heals applying mode from config
+                    builder.healsBatched(reader.nextBoolean());
+                    break;
+                case MainConfigFields.WATCH_CONFIG_FIELD: // retrieve config watching mode from config
+                    builder.watchConfig(reader.nextBoolean());
+                    break;
+                case MainConfigFields.METRICS_DUMP_INTERVAL_FIELD: // retrieve metrics dump interval from config
+                    builder.metricsDumpInterval(reader.nextInt());
+                    break;
+                case MainConfigFields.STATS_FLUSH_INTERVAL_FIELD: // retrieve player statistics flush interval from config
+                    builder.statsFlushInterval(reader.nextInt());
+                    break;
+                case MainConfigFields.STATS_BATCH_SIZE_FIELD: // retrieve player statistics batch size from config
+                    builder.statsBatchSize(reader.nextInt());
+                    break;
+                case MainConfigFields.TRACE_SIZE_FIELD: // retrieve amount of the decisions kept in the combat log
+                    builder.traceSize(reader.nextInt());
+                    break;
+                case MainConfigFields.SHARED_SOURCE_FIELD: // retrieve location of the config shared by the server network
+                    builder.sharedSource(reader.nextString());
+                    break;
+                case MainConfigFields.SHARED_POLL_INTERVAL_FIELD: // retrieve interval of the shared config polls
+                    builder.sharedPollInterval(reader.nextInt());
+                    break;
+                case MainConfigFields.SHARED_MAX_BACKOFF_FIELD: // retrieve max interval of the shared config polls
+                    builder.sharedMaxBackoff(reader.nextInt());
+                    break;
+                case MainConfigFields.HEAL_DAMAGE_FIELD: // retrieve damage the heal is calculated from
+                    builder.healDamage(HealDamage.fromConfigName(reader.nextString()));
+                    break;
+                case MainConfigFields.HEAL_COOLDOWN_FIELD: // retrieve global heal cooldown from config
+                    builder.healCooldown(reader.nextInt());
+                    break;
+                case MainConfigFields.HEALS_PER_SECOND_FIELD: // retrieve global heal rate from config
+                    builder.healsPerSecond((float) reader.nextDouble());
+                    break;
+                case MainConfigFields.HEAL_BURST_FIELD: // retrieve global heal burst from config
+                    builder.healBurst(reader.nextInt());
+                    break;
+                case MainConfigFields.PARTICLE_AMOUNT_FIELD: // retrieve amount of particles in a burst from config
+                    builder.particleAmount(reader.nextInt());
+                    break;
+                case MainConfigFields.PARTICLE_TYPE_FIELD: // retrieve particle type from config
+                    builder.particleType(ParticleSettings.typeOf(reader.nextString()));
+                    break;
+                case MainConfigFields.PARTICLE_VIEW_RADIUS_FIELD: // retrieve particle view radius from config
+                    builder.particleViewRadius(reader.nextInt());
+                    break;
+                case MainConfigFields.PARTICLE_TICK_BUDGET_FIELD: // retrieve global particle budget from config
+                    builder.particleTickBudget(reader.nextInt());
+                    break;
+                case MainConfigFields.PARTICLE_CHUNK_BUDGET_FIELD: // retrieve per-chunk particle budget from config
+                    builder.particleChunkBudget(reader.nextInt());
+                    break;
+                case MainConfigFields.OVERHEAL_FIELD: // retrieve handling of the heal above the max health from config
+                    builder.overhealMode(OverhealMode.fromConfigName(reader.nextString()));
+                    break;
+                case MainConfigFields.MAX_ABSORPTION_FIELD: // retrieve max absorption given by lifesteal from config
+                    builder.maxAbsorption(readFixedPoint(reader));
+                    break;
+                case MainConfigFields.ABSORPTION_DECAY_FIELD: // retrieve decay of the absorption given by lifesteal from config
+                    builder.absorptionDecay(readFixedPoint(reader));
+                    break;
+                case MainConfigFields.TARGETS_FIELD: // retrieve heal multipliers per type of the attacked entity
+                    readTargets(reader, builder.targets());
+                    break;
+                case MainConfigFields.PROFILES_FIELD: // retrieve profiles of the player groups
+                    readProfiles(reader, builder.profiles());
+                    break;
+                case MainConfigFields.WORLDS_FIELD: // retrieve rules of the worlds
+                    readWorldRules(reader, builder.worldRules());
+                    break;
+                case MainConfigFields.REGIONS_FIELD: // retrieve regions with their own rules
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        builder.regions().add(readRegion(reader));
+                    }
+                    reader.endArray();
+                    break;
+                case MainConfigFields.WEAPONS_LIST_FIELD: // retrieve weapons, unless they are compiled
+                    if (compiledWeapons != null) {
+                        reader.skipValue();
+                        break;
+                    }
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        weapons.add(readWeapon(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (compiledWeapons != null) {
+            for (LifestealWeapon weapon : compiledWeapons.validated()) {
+                if (weapon.getCondition() != null) {
+                    builder.weaponVariants().add(weapon);
+                } else {
+                    builder.weapons().put(weapon.getId(), weapon);
+                }
+            }
+            weapons = compiledWeapons.unvalidated();
+        }
+        registerWeapons(weapons, builder.weapons(), builder.weaponVariants());
+        if (!builder.profiles().isEmpty()) {
+            plugin.getLogger().info("Loaded " + builder.profiles().size() + " profiles");
+        }
+        if (!builder.worldRules().isEmpty() || !builder.regions().isEmpty()) {
+            plugin.getLogger().info("Loaded " + builder.worldRules().size() + " world rules and " + builder.regions().size() + " regions");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Read the heal multipliers per type of the attacked entity. Unknown fields are skipped
+     *
+     * @param reader  reader positioned at the targets object
+     * @param targets target table builder
+     * @throws IOException if multipliers are malformed
+     */
+    static void readTargets(JsonReader reader, TargetTable.Builder targets) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case TargetFields.PLAYERS_FIELD:
+                    targets.players(readFixedPoint(reader, FixedPoint.MAX_MULTIPLIER));
+                    break;
+                case TargetFields.HOSTILE_FIELD:
+                    targets.hostile(readFixedPoint(reader, FixedPoint.MAX_MULTIPLIER));
+                    break;
+                case TargetFields.PASSIVE_FIELD:
+                    targets.passive(readFixedPoint(reader, FixedPoint.MAX_MULTIPLIER));
+                    break;
+                case TargetFields.BOSSES_FIELD:
+                    targets.bosses(readFixedPoint(reader, FixedPoint.MAX_MULTIPLIER));
+                    break;
+                case TargetFields.OTHER_FIELD:
+                    targets.other(readFixedPoint(reader, FixedPoint.MAX_MULTIPLIER));
+                    break;
+                case TargetFields.ENTITIES_FIELD: // key - entity network ID, value - multiplier
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        int networkId = Integer.parseInt(reader.nextName());
+                        targets.entity(networkId, readFixedPoint(reader, FixedPoint.MAX_MULTIPLIER));
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Read the profiles of the player groups. Key - profile name, value - profile settings. Unknown fields are skipped
+     *
+     * @param reader   reader positioned at the profiles object
+     * @param profiles target list
+     * @throws IOException if profiles are malformed
+     */
+    static void readProfiles(JsonReader reader, List<LifestealProfile> profiles) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            int priority = 0;
+            LifestealRule.Builder rule = new LifestealRule.Builder();
+            TargetTable.Builder targets = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                switch (field) {
+                    case ProfileFields.PRIORITY_FIELD:
+                        priority = reader.nextInt();
+                        break;
+                    case ProfileFields.TARGETS_FIELD:
+                        targets = new TargetTable.Builder();
+                        readTargets(reader, targets);
+                        break;
+                    default:
+                        if (!readRuleField(reader, field, rule)) {
+                            reader.skipValue();
+                        }
+                }
+            }
+            reader.endObject();
+            profiles.add(new LifestealProfile(name, priority, rule.build(), targets != null ? targets.build() : null));
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Read the rules of the worlds. Key - folder name of the level, value - rule
+     *
+     * @param reader     reader positioned at the worlds object
+     * @param worldRules target map
+     * @throws IOException if rules are malformed
+     */
+    static void readWorldRules(JsonReader reader, Map<String, LifestealRule> worldRules) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String world = reader.nextName();
+            LifestealRule.Builder rule = new LifestealRule.Builder();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!readRuleField(reader, reader.nextName(), rule)) {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            worldRules.put(world, rule.build());
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Read one region record. Unknown fields are skipped
+     *
+     * @param reader reader positioned at the region object
+     * @return region read from config
+     * @throws IOException if record is malformed
+     */
+    static LifestealRegion readRegion(JsonReader reader) throws IOException {
+        String name = null;
+        String world = null;
+        int[] min = null;
+        int[] max = null;
+        int priority = 0;
+        LifestealRule.Builder rule = new LifestealRule.Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            switch (field) {
+                case RegionFields.NAME_FIELD:
+                    name = reader.nextString();
+                    break;
+                case RegionFields.WORLD_FIELD:
+                    world = reader.nextString();
+                    break;
+                case RegionFields.MIN_FIELD:
+                    min = readPosition(reader);
+                    break;
+                case RegionFields.MAX_FIELD:
+                    max = readPosition(reader);
+                    break;
+                case RegionFields.PRIORITY_FIELD:
+                    priority = reader.nextInt();
+                    break;
+                default:
+                    if (!readRuleField(reader, field, rule)) {
+                        reader.skipValue();
+                    }
+            }
+        }
+        reader.endObject();
+        if (world == null || min == null || max == null) {
+            throw new IllegalArgumentException("Region '" + name + "' must define " + RegionFields.WORLD_FIELD + ", " + RegionFields.MIN_FIELD + " and " + RegionFields.MAX_FIELD);
+        }
+        return new LifestealRegion(name, world, min, max, priority, rule.build());
+    }
+
+    /**
+     * Read the value of the rule field
+     *
+     * @return false if the field isn't a rule field and wasn't read
+     */
+    private static boolean readRuleField(JsonReader reader, String field, LifestealRule.Builder rule) throws IOException {
+        switch (field) {
+            case RuleFields.ENABLED_FIELD:
+                rule.enabled(reader.nextBoolean());
+                return true;
+            case RuleFields.CHANCE_FIELD:
+                rule.chance(readFixedPoint(reader));
+                return true;
+            case RuleFields.LIFESTEAL_FIELD:
+                rule.lifesteal(readFixedPoint(reader, FixedPoint.MAX_LIFESTEAL));
+                return true;
+            case RuleFields.WEAPONS_FIELD: // key - weapon ID, value - lifesteal
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    int id = Integer.parseInt(reader.nextName());
+                    rule.weapon(id, readFixedPoint(reader, FixedPoint.MAX_LIFESTEAL));
+                }
+                reader.endObject();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Read the block position written as [x, y, z]
+     */
+    private static int[] readPosition(JsonReader reader) throws IOException {
+        reader.beginArray();
+        int[] position = {reader.nextInt(), reader.nextInt(), reader.nextInt()};
+        reader.endArray();
+        return position;
+    }
+
+    /**
+     * Read one weapon record. Unknown fields are skipped
+     *
+     * @param reader reader positioned at the weapon object
+     * @return weapon read from config
+     * @throws IOException if record is malformed
+     */
+    static LifestealWeapon readWeapon(JsonReader reader) throws IOException {
+        int id = 0;
+        int lifesteal = 0;
+        boolean limited = false;
+        int healCooldown = 0;
+        float healsPerSecond = 0;
+        int healBurst = 0;
+        boolean conditional = false;
+        int meta = WeaponCondition.ANY_META;
+        String customName = null;
+        List<int[]> enchantments = new ArrayList<>();
+        int scaleEnchantment = WeaponCondition.NO_ENCHANTMENT;
+        int lifestealPerLevel = 0;
+        int minHeal = 0;
+        int maxHeal = HealClamp.NO_MAX;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case WeaponFields.ID_FIELD:
+                    id = reader.nextInt();
+                    break;
+                case WeaponFields.LIFESTEAL_FIELD:
+                    lifesteal = readFixedPoint(reader, FixedPoint.MAX_LIFESTEAL);
+                    break;
+                case WeaponFields.MIN_HEAL_FIELD:
+                    minHeal = readFixedPoint(reader);
+                    break;
+                case WeaponFields.MAX_HEAL_FIELD:
+                    maxHeal = readFixedPoint(reader);
+                    break;
+                case WeaponFields.HEAL_COOLDOWN_FIELD:
+                    healCooldown = reader.nextInt();
+                    limited = true;
+                    break;
+                case WeaponFields.HEALS_PER_SECOND_FIELD:
+                    healsPerSecond = (float) reader.nextDouble();
+                    limited = true;
+                    break;
+                case WeaponFields.HEAL_BURST_FIELD:
+                    healBurst = reader.nextInt();
+                    limited = true;
+                    break;
+                case WeaponFields.META_FIELD:
+                    meta = reader.nextInt();
+                    conditional = true;
+                    break;
+                case WeaponFields.CUSTOM_NAME_FIELD:
+                    customName = reader.nextString();
+                    conditional = true;
+                    break;
+                case WeaponFields.ENCHANTMENTS_FIELD: // key - enchantment ID, value - min level
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        enchantments.add(new int[]{Integer.parseInt(reader.nextName()), reader.nextInt()});
+                    }
+                    reader.endObject();
+                    conditional = true;
+                    break;
+                case WeaponFields.SCALE_ENCHANTMENT_FIELD:
+                    scaleEnchantment = reader.nextInt();
+                    conditional = true;
+                    break;
+                case WeaponFields.LIFESTEAL_PER_LEVEL_FIELD:
+                    lifestealPerLevel = readFixedPoint(reader, FixedPoint.MAX_LIFESTEAL);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        WeaponCondition condition = null;
+        if (conditional) {
+            int[] enchantmentIds = new int[enchantments.size()];
+            int[] enchantmentLevels = new int[enchantments.size()];
+            for (int i = 0; i < enchantmentIds.length; i++) {
+                enchantmentIds[i] = enchantments.get(i)[0];
+                enchantmentLevels[i] = enchantments.get(i)[1];
+            }
+            condition = new WeaponCondition(meta, customName, enchantmentIds, enchantmentLevels, scaleEnchantment, lifestealPerLevel);
+        }
+        return new LifestealWeapon(id, lifesteal, limited ? new HealLimit(healCooldown, healsPerSecond, healBurst) : null, condition,
+                new HealClamp(minHeal, maxHeal));
+    }
+
+    /**
+     * Read the decimal value, e.g. a percent or HP, as a fixed-point value. Integers of the former configs are read the same way
+     *
+     * @param reader reader positioned at the number
+     * @return fixed-point value, see {@link FixedPoint}
+     * @throws IOException if value isn't a number
+     */
+    static int readFixedPoint(JsonReader reader) throws IOException {
+        String value = reader.nextString();
+        try {
+            return FixedPoint.parse(value);
+        } catch (NumberFormatException | ArithmeticException ex) {
+            throw new IOException("Invalid decimal value '" + value + "' at " + reader.getPath(), ex);
+        }
+    }
+
+    /**
+     * Read the bounded decimal value, e.g. lifesteal or a heal multiplier, as a fixed-point value
+     *
+     * @param reader reader positioned at the number
+     * @param max    max fixed-point value
+     * @return fixed-point value between zero and max
+     * @throws IOException if value isn't a number or is out of bounds
+     */
+    static int readFixedPoint(JsonReader reader, int max) throws IOException {
+        int value = readFixedPoint(reader);
+        if (value < 0 || value > max) {
+            throw new IOException("Value " + FixedPoint.toString(value) + " at " + reader.getPath() + " must be between 0 and " + FixedPoint.toString(max));
+        }
+        return value;
+    }
+
+    /**
+     * Publish the completely built snapshot, so all further reads use it
+     *
+     * @param newSnapshot snapshot to publish
+     */
+    void publish(ConfigSnapshot newSnapshot) {
+        this.snapshot = newSnapshot;
+    }
+
+    /**
+     * Get the currently published snapshot. Read it once and use the result, if several values must be consistent with each other
+     *
+     * @return current snapshot
+     */
+    public ConfigSnapshot getSnapshot() {
+        isInitialized();
+        return snapshot;
+    }
+
+    /**
+     * Compile the weapons of the current snapshot into the binary file. The weapons are already validated,
+     * so the next load of the compiled file skips the validation
+     *
+     * @return amount of compiled weapons
+     * @throws IOException if file cannot be written
+     */
+    public int compileWeapons() throws IOException {
+        WeaponTable table = getWeaponTable();
+        List<LifestealWeapon> weapons = new ArrayList<>(table.toMap().values());
+        weapons.addAll(table.variants());
+        WeaponCatalogFile.write(pluginDataFolder.toPath().resolve(WeaponCatalogFile.COMPILED_WEAPONS), weapons, WeaponCatalogFile.FLAG_VALIDATED);
+        return weapons.size();
+    }
+
+    public File getMainConfigFile() {
+        return new File(pluginDataFolder, MAIN_CONFIG);
+    }
+
+    /**
+     * @return chance of lifesteal in basis points, see {@link FixedPoint}
+     */
     public int getLifestealChance() {
         isInitialized();
-        return lifestealChance;
+        return snapshot.getLifestealChance();
+    }
+
+    public ChanceMode getChanceMode() {
+        isInitialized();
+        return snapshot.getChanceMode();
+    }
+
+    /**
+     * @return every chance of the global config, profiles, worlds and regions in basis points, ascending
+     */
+    public List<Integer> getChances() {
+        isInitialized();
+        return snapshot.getChances();
+    }
+
+    public long getChanceSeed() {
+        isInitialized();
+        return snapshot.getChanceSeed();
+    }
+
+    public boolean isParticlesBatched() {
+        isInitialized();
+        return snapshot.isParticlesBatched();
+    }
+
+    public boolean isHealsBatched() {
+        isInitialized();
+        return snapshot.isHealsBatched();
+    }
+
+    public int getPermissionCacheTtl() {
+        isInitialized();
+        return snapshot.getPermissionCacheTtl();
+    }
+
+    public int getMetricsDumpInterval() {
+        isInitialized();
+        return snapshot.getMetricsDumpInterval();
+    }
+
+    public int getStatsFlushInterval() {
+        isInitialized();
+        return snapshot.getStatsFlushInterval();
+    }
+
+    public int getStatsBatchSize() {
+        isInitialized();
+        return snapshot.getStatsBatchSize();
+    }
+
+    public int getTraceSize() {
+        isInitialized();
+        return snapshot.getTraceSize();
+    }
+
+    public HealDamage getHealDamage() {
+        isInitialized();
+        return snapshot.getHealDamage();
+    }
+
+    public HealLimit getHealLimit() {
+        isInitialized();
+        return snapshot.getHealLimit();
+    }
+
+    public ParticleSettings getParticleSettings() {
+        isInitialized();
+        return snapshot.getParticleSettings();
+    }
+
+    /**
+     * @return profiles of the player groups, the highest priority first
+     */
+    public List<LifestealProfile> getProfiles() {
+        isInitialized();
+        return snapshot.getProfiles();
+    }
+
+    public boolean hasProfiles() {
+        isInitialized();
+        return !snapshot.getProfiles().isEmpty();
+    }
+
+    public OverhealSettings getOverhealSettings() {
+        isInitialized();
+        return snapshot.getOverheal();
+    }
+
+    public OverhealMode getOverhealMode() {
+        isInitialized();
+        return snapshot.getOverheal().getMode();
+    }
+
+    public TargetTable getTargetTable() {
+        isInitialized();
+        return snapshot.getTargets();
+    }
+
+    /**
+     * @return true if any world or region rule is defined
+     */
+    public boolean hasLocationRules() {
+        isInitialized();
+        return snapshot.hasLocationRules();
+    }
+
+    public boolean isWatchConfig() {
+        isInitialized();
+        return snapshot.isWatchConfig();
     }
 
     public Map<Integer, LifestealWeapon> getWeapons() {
         isInitialized();
-        return new HashMap<>(weapons);
+        return snapshot.getWeapons().toMap();
+    }
+
+    /**
+     * Get the frozen table of registered weapons, e.g. to match the items against the conditional weapon entries
+     *
+     * @return weapon table of the current snapshot
+     */
+    public WeaponTable getWeaponTable() {
+        isInitialized();
+        return snapshot.getWeapons();
     }
 
+    /**
+     * Get the registered weapon by item ID. Kept for compatibility, prefer {@link #getWeaponOrNull(int)} on hot paths
+     *
+     * @param id item ID
+     * @return optional with weapon or empty optional if weapon isn't registered
+     */
     public Optional<LifestealWeapon> getWeapon(int id) {
+        return Optional.ofNullable(getWeaponOrNull(id));
+    }
+
+    /**
+     * Get the registered weapon by item ID. Doesn't box the ID and doesn't allocate anything
+     *
+     * @param id item ID
+     * @return weapon or null if weapon isn't registered
+     */
+    public LifestealWeapon getWeaponOrNull(int id) {
         isInitialized();
-        return Optional.ofNullable(weapons.get(id));
+        return snapshot.getWeapons().get(id);
+    }
+
+    /**
+     * Check if the weapon with such item ID is registered. Cheaper than {@link #getWeaponOrNull(int)} and used to reject the events early
+     *
+     * @param id item ID
+     * @return true if weapon is registered
+     */
+    public boolean isWeaponRegistered(int id) {
+        return snapshot.getWeapons().contains(id);
+    }
+
+    /**
+     * @return true if at least one weapon is registered
+     */
+    public boolean hasWeapons() {
+        return !snapshot.getWeapons().isEmpty();
     }
 
-    String getConfigContents(String configName) throws IOException {
+    Reader openConfigReader(String configName) throws IOException {
         Path configPath = pluginDataFolder.toPath().resolve(configName);
-        return new String(Files.readAllBytes(configPath));
-    }
-
-    void registerWeapon(LifestealWeapon weapon) {
-        if (weapon.getId() > 0) {
-            Item minecraftItem = Item.get(weapon.getId());
-            if (!isWeaponItemValid(minecraftItem)) /* if weapon is not valid */ {
-                plugin.getLogger().warning("Cannot register a weapon with ID " + weapon.getId() + ". It either doesn't exist or is not a weapon");
-            } else /* if weapon is valid, proceed to retrieve its name and register it */ {
-                weapon.setName(minecraftItem.getName());
-                this.weapons.put(minecraftItem.getId(), weapon);
-                plugin.getLogger().info("Registered weapon: " + weapon);
+        return Files.newBufferedReader(configPath, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Validate and register the weapons in one batch. Every distinct item ID is resolved once,
+     * and the result is reported with one summary line instead of a line per weapon
+     *
+     * @param weapons  weapons read from config
+     * @param registry storage of registered weapons without conditions. Key - id, value - weapon
+     * @param variants storage of registered weapons with conditions
+     */
+    void registerWeapons(List<LifestealWeapon> weapons, Map<Integer, LifestealWeapon> registry, List<LifestealWeapon> variants) {
+        Map<Integer, Item> resolvedItems = new HashMap<>();
+        List<Integer> invalidIds = new ArrayList<>();
+        for (LifestealWeapon weapon : weapons) {
+            Item minecraftItem = weapon.getId() > 0 ? resolvedItems.computeIfAbsent(weapon.getId(), itemResolver::apply) : null;
+            if (minecraftItem == null || !registerWeapon(weapon, minecraftItem, registry, variants)) {
+                invalidIds.add(weapon.getId());
             }
         }
+
+        plugin.getLogger().info("Registered " + (registry.size() + variants.size()) + " weapons");
+        if (!invalidIds.isEmpty()) {
+            List<Integer> reportedIds = invalidIds.subList(0, Math.min(invalidIds.size(), MAX_REPORTED_INVALID_WEAPONS));
+            plugin.getLogger().warning("Cannot register " + invalidIds.size() + " weapons. They either don't exist or are not weapons. IDs: " + reportedIds
+                    + (invalidIds.size() > reportedIds.size() ? " and " + (invalidIds.size() - reportedIds.size()) + " more" : ""));
+        }
+    }
+
+    /**
+     * Register the weapon if its Minecraft item is a valid weapon. Weapons with conditions may be any existing item,
+     * e.g. a stick with the custom name, because the conditions already pick out the exact item
+     *
+     * @param weapon        weapon read from config
+     * @param minecraftItem item resolved by weapon ID
+     * @param registry      storage of registered weapons without conditions. Key - id, value - weapon
+     * @param variants      storage of registered weapons with conditions
+     * @return true if weapon was registered, false if it isn't valid
+     */
+    boolean registerWeapon(LifestealWeapon weapon, Item minecraftItem, Map<Integer, LifestealWeapon> registry, List<LifestealWeapon> variants) {
+        boolean conditional = weapon.getCondition() != null;
+        if (conditional ? !isItemKnown(minecraftItem) : !isWeaponItemValid(minecraftItem)) /* if weapon is not valid */ {
+            return false;
+        }
+        // if weapon is valid, proceed to retrieve its name and register it
+        weapon.setName(minecraftItem.getName());
+        if (conditional) {
+            variants.add(weapon);
+        } else {
+            registry.put(minecraftItem.getId(), weapon);
+        }
+        return true;
     }
 
     /**
@@ -144,7 +1073,17 @@ public final class LifestealConfig {
      * @return true if valid, false if not
      */
     boolean isWeaponItemValid(Item item) {
-        return !item.isNull() && !item.getName().equalsIgnoreCase(UNKNOWN_ITEM) && (item.isAxe() || item.isSword());
+        return isItemKnown(item) && (item.isAxe() || item.isSword());
+    }
+
+    /**
+     * Check if the imported from config item exists in Minecraft
+     *
+     * @param item item to check
+     * @return true if item exists
+     */
+    boolean isItemKnown(Item item) {
+        return !item.isNull() && !item.getName().equalsIgnoreCase(UNKNOWN_ITEM);
     }
 
     void isInitialized() {
@@ -155,6 +1094,79 @@ public final class LifestealConfig {
 
     static class MainConfigFields {
         static final String LIFESTEAL_CHANCE_FIELD = "chance";
+        static final String CHANCE_MODE_FIELD = "chanceMode";
+        static final String CHANCE_SEED_FIELD = "chanceSeed";
         static final String WEAPONS_LIST_FIELD = "weapons";
+        static final String PARTICLES_BATCHED_FIELD = "batchParticles";
+        static final String PERMISSION_CACHE_TTL_FIELD = "permissionCacheTtl";
+        static final String WATCH_CONFIG_FIELD = "watchConfig";
+        static final String METRICS_DUMP_INTERVAL_FIELD = "metricsDumpInterval";
+        static final String HEAL_DAMAGE_FIELD = "healDamage";
+        static final String STATS_FLUSH_INTERVAL_FIELD = "statsFlushInterval";
+        static final String STATS_BATCH_SIZE_FIELD = "statsBatchSize";
+        static final String TRACE_SIZE_FIELD = "traceSize";
+        static final String HEALS_BATCHED_FIELD = "batchHeals";
+        static final String HEAL_COOLDOWN_FIELD = "healCooldown";
+        static final String HEALS_PER_SECOND_FIELD = "healsPerSecond";
+        static final String HEAL_BURST_FIELD = "healBurst";
+        static final String PARTICLE_AMOUNT_FIELD = "particleAmount";
+        static final String PARTICLE_TYPE_FIELD = "particleType";
+        static final String PARTICLE_VIEW_RADIUS_FIELD = "particleViewRadius";
+        static final String PARTICLE_TICK_BUDGET_FIELD = "particleTickBudget";
+        static final String PARTICLE_CHUNK_BUDGET_FIELD = "particleChunkBudget";
+        static final String WORLDS_FIELD = "worlds";
+        static final String REGIONS_FIELD = "regions";
+        static final String TARGETS_FIELD = "targets";
+        static final String OVERHEAL_FIELD = "overheal";
+        static final String MAX_ABSORPTION_FIELD = "maxAbsorption";
+        static final String ABSORPTION_DECAY_FIELD = "absorptionDecay";
+        static final String PROFILES_FIELD = "profiles";
+        static final String SHARED_SOURCE_FIELD = "sharedSource";
+        static final String SHARED_POLL_INTERVAL_FIELD = "sharedPollInterval";
+        static final String SHARED_MAX_BACKOFF_FIELD = "sharedMaxBackoff";
+    }
+
+    static class ProfileFields {
+        static final String PRIORITY_FIELD = "priority";
+        static final String TARGETS_FIELD = "targets";
+    }
+
+    static class TargetFields {
+        static final String PLAYERS_FIELD = "players";
+        static final String HOSTILE_FIELD = "hostile";
+        static final String PASSIVE_FIELD = "passive";
+        static final String BOSSES_FIELD = "bosses";
+        static final String OTHER_FIELD = "other";
+        static final String ENTITIES_FIELD = "entities";
+    }
+
+    static class RuleFields {
+        static final String ENABLED_FIELD = "enabled";
+        static final String CHANCE_FIELD = "chance";
+        static final String LIFESTEAL_FIELD = "lifesteal";
+        static final String WEAPONS_FIELD = "weapons";
+    }
+
+    static class RegionFields {
+        static final String NAME_FIELD = "name";
+        static final String WORLD_FIELD = "world";
+        static final String MIN_FIELD = "min";
+        static final String MAX_FIELD = "max";
+        static final String PRIORITY_FIELD = "priority";
+    }
+
+    static class WeaponFields {
+        static final String ID_FIELD = "id";
+        static final String LIFESTEAL_FIELD = "lifesteal";
+        static final String HEAL_COOLDOWN_FIELD = "healCooldown";
+        static final String HEALS_PER_SECOND_FIELD = "healsPerSecond";
+        static final String HEAL_BURST_FIELD = "healBurst";
+        static final String META_FIELD = "meta";
+        static final String CUSTOM_NAME_FIELD = "customName";
+        static final String ENCHANTMENTS_FIELD = "enchantments";
+        static final String SCALE_ENCHANTMENT_FIELD = "scaleEnchantment";
+        static final String LIFESTEAL_PER_LEVEL_FIELD = "lifestealPerLevel";
+        static final String MIN_HEAL_FIELD = "minHeal";
+        static final String MAX_HEAL_FIELD = "maxHeal";
     }
 }
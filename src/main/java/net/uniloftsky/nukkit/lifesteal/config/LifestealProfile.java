@@ -0,0 +1,76 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import net.uniloftsky.nukkit.lifesteal.Permissions;
+
+/**
+ * Named set of lifesteal settings for a group of players, e.g. a VIP rank. The profile is chosen by the permission node
+ * {@code uniloftsky.nukkit.lifesteal.profile.<name>}. The world and region rules still apply on top of the profile
+ */
+public final class LifestealProfile {
+
+    private final String name;
+
+    /**
+     * Permission node which selects the profile
+     */
+    private final String permission;
+
+    /**
+     * Profile with higher priority wins if the player has several profile permissions
+     */
+    private final int priority;
+
+    /**
+     * Chance and lifesteal of the profile. Values which aren't set fall back to the global config
+     */
+    private final LifestealRule rule;
+
+    /**
+     * Heal multipliers per type of the attacked entity. Null if the profile uses the global ones
+     */
+    private final TargetTable targets;
+
+    public LifestealProfile(String name, int priority, LifestealRule rule, TargetTable targets) {
+        this.name = name;
+        this.permission = Permissions.LIFESTEAL_PROFILE_PERMISSION.child(name);
+        this.priority = priority;
+        this.rule = rule;
+        this.targets = targets;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public LifestealRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Get the heal multipliers of the profile
+     *
+     * @param globalTargets heal multipliers from the global config
+     * @return multipliers of this profile or the global ones if not set
+     */
+    public TargetTable targetsOr(TargetTable globalTargets) {
+        return targets != null ? targets : globalTargets;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "name='" + name + '\'' +
+                ", priority=" + priority +
+                ", rule=" + rule +
+                (targets != null ? ", targets=" + targets : "") +
+                '}';
+    }
+}
@@ -0,0 +1,103 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+/**
+ * Cuboid region with its own lifesteal rule. Bounds are inclusive block coordinates
+ */
+public final class LifestealRegion {
+
+    private final String name;
+
+    /**
+     * Folder name of the level
+     */
+    private final String world;
+
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+
+    /**
+     * Region with higher priority wins if regions overlap
+     */
+    private final int priority;
+
+    /**
+     * Rule of the region, already combined with the rule of its world
+     */
+    private final LifestealRule rule;
+
+    public LifestealRegion(String name, String world, int[] min, int[] max, int priority, LifestealRule rule) {
+        this.name = name;
+        this.world = world;
+        this.minX = Math.min(min[0], max[0]);
+        this.minY = Math.min(min[1], max[1]);
+        this.minZ = Math.min(min[2], max[2]);
+        this.maxX = Math.max(min[0], max[0]);
+        this.maxY = Math.max(min[1], max[1]);
+        this.maxZ = Math.max(min[2], max[2]);
+        this.priority = priority;
+        this.rule = rule;
+    }
+
+    /**
+     * Check if the position is inside the region
+     *
+     * @return true if position is inside
+     */
+    public boolean contains(double x, double y, double z) {
+        return x >= minX && x < maxX + 1
+                && y >= minY && y < maxY + 1
+                && z >= minZ && z < maxZ + 1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public int getMinChunkX() {
+        return minX >> 4;
+    }
+
+    public int getMinChunkZ() {
+        return minZ >> 4;
+    }
+
+    public int getMaxChunkX() {
+        return maxX >> 4;
+    }
+
+    public int getMaxChunkZ() {
+        return maxZ >> 4;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public LifestealRule getRule() {
+        return rule;
+    }
+
+    LifestealRegion withRule(LifestealRule rule) {
+        return new LifestealRegion(name, world, new int[]{minX, minY, minZ}, new int[]{maxX, maxY, maxZ}, priority, rule);
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "name='" + name + '\'' +
+                ", world='" + world + '\'' +
+                ", min=" + minX + "," + minY + "," + minZ +
+                ", max=" + maxX + "," + maxY + "," + maxZ +
+                ", priority=" + priority +
+                ", rule=" + rule +
+                '}';
+    }
+}
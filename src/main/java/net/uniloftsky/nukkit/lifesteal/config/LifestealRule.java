@@ -0,0 +1,153 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Override of the lifesteal settings in a world or a region. Values which aren't set fall back to the wider rule or to the global config.
+ * Chance and lifesteal are in basis points, see {@link FixedPoint}
+ */
+public final class LifestealRule {
+
+    /**
+     * Marker of the value which isn't set
+     */
+    static final int UNSET = -1;
+
+    /**
+     * Null if not set
+     */
+    private final Boolean enabled;
+
+    private final int chance;
+
+    /**
+     * Lifesteal of all weapons
+     */
+    private final int lifesteal;
+
+    /**
+     * Lifesteal of specific weapons. Key - weapon ID, value - lifesteal
+     */
+    private final Map<Integer, Integer> weapons;
+
+    private LifestealRule(Boolean enabled, int chance, int lifesteal, Map<Integer, Integer> weapons) {
+        this.enabled = enabled;
+        this.chance = chance;
+        this.lifesteal = lifesteal;
+        this.weapons = weapons;
+    }
+
+    /**
+     * @return false if lifesteal is disabled by this rule
+     */
+    public boolean isEnabled() {
+        return enabled == null || enabled;
+    }
+
+    /**
+     * Get the chance of lifesteal
+     *
+     * @param globalChance chance from the global config
+     * @return chance of this rule or the global one if not set
+     */
+    public int chanceOr(int globalChance) {
+        return chance != UNSET ? chance : globalChance;
+    }
+
+    /**
+     * Get the lifesteal of the weapon
+     *
+     * @param weapon registered weapon
+     * @return lifesteal of the weapon in this rule, or the weapon's own lifesteal if not set
+     */
+    public int lifestealOf(LifestealWeapon weapon) {
+        return lifestealOr(weapon, weapon.getLifesteal());
+    }
+
+    /**
+     * Get the lifesteal of the weapon
+     *
+     * @param weapon            registered weapon
+     * @param fallbackLifesteal lifesteal of the wider settings, e.g. of the player's profile
+     * @return lifesteal of the weapon in this rule, or the fallback if not set
+     */
+    public int lifestealOr(LifestealWeapon weapon, int fallbackLifesteal) {
+        if (!weapons.isEmpty()) {
+            Integer weaponLifesteal = weapons.get(weapon.getId());
+            if (weaponLifesteal != null) {
+                return weaponLifesteal;
+            }
+        }
+        return lifesteal != UNSET ? lifesteal : fallbackLifesteal;
+    }
+
+    /**
+     * Combine this rule with the wider one. Values of this rule win, the missing ones are taken from the fallback
+     *
+     * @param fallback wider rule, e.g. rule of the world. May be null
+     * @return combined rule
+     */
+    LifestealRule withFallback(LifestealRule fallback) {
+        if (fallback == null) {
+            return this;
+        }
+        Map<Integer, Integer> combinedWeapons = weapons;
+        if (!fallback.weapons.isEmpty()) {
+            combinedWeapons = new HashMap<>(fallback.weapons);
+            if (lifesteal != UNSET) /* own lifesteal of all weapons replaces the fallback's per-weapon values */ {
+                combinedWeapons.clear();
+            }
+            combinedWeapons.putAll(weapons);
+        }
+        return new LifestealRule(enabled != null ? enabled : fallback.enabled,
+                chance != UNSET ? chance : fallback.chance,
+                lifesteal != UNSET ? lifesteal : fallback.lifesteal,
+                Map.copyOf(combinedWeapons));
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "enabled=" + isEnabled() +
+                (chance != UNSET ? ", chance=" + FixedPoint.toString(chance) + '%' : "") +
+                (lifesteal != UNSET ? ", lifesteal=" + FixedPoint.toString(lifesteal) + '%' : "") +
+                (!weapons.isEmpty() ? ", weapons=" + weapons : "") +
+                '}';
+    }
+
+    /**
+     * Mutable staging state, filled while the config is loading
+     */
+    static final class Builder {
+
+        private Boolean enabled;
+        private int chance = UNSET;
+        private int lifesteal = UNSET;
+        private final Map<Integer, Integer> weapons = new HashMap<>();
+
+        Builder enabled(boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        Builder chance(int chance) {
+            this.chance = Math.max(0, chance);
+            return this;
+        }
+
+        Builder lifesteal(int lifesteal) {
+            this.lifesteal = Math.max(0, lifesteal);
+            return this;
+        }
+
+        Builder weapon(int id, int lifesteal) {
+            this.weapons.put(id, Math.max(0, lifesteal));
+            return this;
+        }
+
+        LifestealRule build() {
+            return new LifestealRule(enabled, chance, lifesteal, Map.copyOf(weapons));
+        }
+    }
+}
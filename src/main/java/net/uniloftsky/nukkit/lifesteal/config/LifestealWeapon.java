@@ -13,18 +13,67 @@ public class LifestealWeapon {
     private final int id;
 
     /**
-     * Percentage of lifesteal
+     * Lifesteal in basis points, see {@link FixedPoint}
      */
     private final int lifesteal;
 
+    /**
+     * Heal limit of this weapon. Null if the global limit is used
+     */
+    private final HealLimit healLimit;
+
+    /**
+     * Conditions besides the item ID. Null if any item with such ID matches
+     */
+    private final WeaponCondition condition;
+
+    /**
+     * Bounds of the heal of this weapon
+     */
+    private final HealClamp healClamp;
+
     /**
      * Weapon name
      */
     private String name;
 
     public LifestealWeapon(int id, int lifesteal) {
+        this(id, lifesteal, null);
+    }
+
+    public LifestealWeapon(int id, int lifesteal, HealLimit healLimit) {
+        this(id, lifesteal, healLimit, null);
+    }
+
+    public LifestealWeapon(int id, int lifesteal, HealLimit healLimit, WeaponCondition condition) {
+        this(id, lifesteal, healLimit, condition, HealClamp.NONE);
+    }
+
+    /**
+     * @param id        Minecraft item ID
+     * @param lifesteal lifesteal in basis points
+     * @param healLimit heal limit of this weapon or null if the global limit is used
+     * @param condition conditions besides the item ID or null if any item with such ID matches
+     * @param healClamp bounds of the heal or null if the heal isn't clamped
+     */
+    public LifestealWeapon(int id, int lifesteal, HealLimit healLimit, WeaponCondition condition, HealClamp healClamp) {
         this.id = id;
         this.lifesteal = lifesteal;
+        this.healLimit = healLimit;
+        this.condition = condition;
+        this.healClamp = healClamp != null ? healClamp : HealClamp.NONE;
+    }
+
+    /**
+     * Copy the weapon with another lifesteal, e.g. for a level of the scale enchantment
+     *
+     * @param lifesteal lifesteal of the copy
+     * @return copy of the weapon
+     */
+    LifestealWeapon withLifesteal(int lifesteal) {
+        LifestealWeapon copy = new LifestealWeapon(id, lifesteal, healLimit, condition, healClamp);
+        copy.setName(name);
+        return copy;
     }
 
     public int getId() {
@@ -43,17 +92,29 @@ public class LifestealWeapon {
         return lifesteal;
     }
 
+    public HealLimit getHealLimit() {
+        return healLimit;
+    }
+
+    public WeaponCondition getCondition() {
+        return condition;
+    }
+
+    public HealClamp getHealClamp() {
+        return healClamp;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         LifestealWeapon that = (LifestealWeapon) o;
-        return id == that.id;
+        return id == that.id && Objects.equals(condition, that.condition);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(id);
+        return 31 * Objects.hashCode(id) + Objects.hashCode(condition);
     }
 
     @Override
@@ -61,7 +122,10 @@ public class LifestealWeapon {
         return "{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
-                ", lifesteal=" + lifesteal +
+                ", lifesteal=" + FixedPoint.toString(lifesteal) + '%' +
+                (healLimit != null ? ", healLimit=" + healLimit : "") +
+                (healClamp.isEnabled() ? ", healClamp=" + healClamp : "") +
+                (condition != null ? ", condition=" + condition : "") +
                 '}';
     }
 }
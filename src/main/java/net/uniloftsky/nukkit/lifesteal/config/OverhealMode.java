@@ -0,0 +1,48 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+/**
+ * What happens with the heal which doesn't fit into the max health of the player
+ */
+public enum OverhealMode {
+
+    /**
+     * The heal is applied as is, the excess is lost. Particles are spawned even if the player is at max health
+     */
+    HEAL("heal"),
+
+    /**
+     * No heal and no particles if the player is already at max health
+     */
+    SKIP("skip"),
+
+    /**
+     * The excess turns into absorption hearts, capped and decaying over time, see {@link OverhealSettings}
+     */
+    ABSORPTION("absorption");
+
+    private final String configName;
+
+    OverhealMode(String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Get the mode by its name in config
+     *
+     * @param configName name in config
+     * @return mode
+     * @throws IllegalArgumentException if there is no mode with such name
+     */
+    public static OverhealMode fromConfigName(String configName) {
+        for (OverhealMode overhealMode : values()) {
+            if (overhealMode.configName.equals(configName)) {
+                return overhealMode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown overheal mode '" + configName + "'");
+    }
+}
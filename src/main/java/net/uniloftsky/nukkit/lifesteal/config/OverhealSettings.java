@@ -0,0 +1,82 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+/**
+ * Settings of the heal which exceeds the max health of the player. Amounts are in hundredths of HP, see {@link FixedPoint}
+ */
+public final class OverhealSettings {
+
+    /**
+     * Default max absorption given by lifesteal, 2 hearts
+     */
+    static final int DEFAULT_MAX_ABSORPTION = FixedPoint.of(4);
+
+    /**
+     * Default decay of the absorption given by lifesteal, half a heart per second
+     */
+    static final int DEFAULT_ABSORPTION_DECAY = FixedPoint.of(1);
+
+    private static final int TICKS_PER_SECOND = 20;
+
+    /**
+     * Settings which keep the former behavior: the heal is applied as is
+     */
+    public static final OverhealSettings DEFAULT = new OverhealSettings(OverhealMode.HEAL, DEFAULT_MAX_ABSORPTION, DEFAULT_ABSORPTION_DECAY);
+
+    private final OverhealMode mode;
+
+    /**
+     * Max absorption which lifesteal can raise the player's absorption to
+     */
+    private final int maxAbsorption;
+
+    /**
+     * Decay of the absorption given by lifesteal per second. Zero keeps it until it is absorbed by damage
+     */
+    private final int absorptionDecay;
+
+    /**
+     * @param mode            overheal mode
+     * @param maxAbsorption   max absorption in hundredths of HP. Negative value means zero
+     * @param absorptionDecay decay per second in hundredths of HP. Negative value means zero
+     */
+    public OverhealSettings(OverhealMode mode, int maxAbsorption, int absorptionDecay) {
+        this.mode = mode;
+        this.maxAbsorption = Math.max(0, maxAbsorption);
+        this.absorptionDecay = Math.max(0, absorptionDecay);
+    }
+
+    public OverhealMode getMode() {
+        return mode;
+    }
+
+    public int getMaxAbsorption() {
+        return maxAbsorption;
+    }
+
+    public int getAbsorptionDecay() {
+        return absorptionDecay;
+    }
+
+    /**
+     * @return max absorption in HP
+     */
+    public float getMaxAbsorptionHp() {
+        return (float) maxAbsorption / FixedPoint.SCALE;
+    }
+
+    /**
+     * @return decay of one tick in HP
+     */
+    public float getDecayPerTick() {
+        return (float) absorptionDecay / FixedPoint.SCALE / TICKS_PER_SECOND;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "mode=" + mode.getConfigName() +
+                ", maxAbsorption=" + FixedPoint.toString(maxAbsorption) +
+                ", absorptionDecay=" + FixedPoint.toString(absorptionDecay) +
+                '}';
+    }
+}
@@ -0,0 +1,102 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.level.particle.Particle;
+
+/**
+ * Settings of the healing particles: burst size, particle type, viewer radius and budgets which keep large fights
+ * from flooding the clients with particles
+ */
+public final class ParticleSettings {
+
+    /**
+     * Max amount of particles in one burst
+     */
+    public static final int MAX_AMOUNT = 100;
+
+    public static final int DEFAULT_AMOUNT = 20;
+    public static final String DEFAULT_TYPE = "villager_happy";
+    public static final int DEFAULT_VIEW_RADIUS = 32;
+    public static final int DEFAULT_TICK_BUDGET = 400;
+    public static final int DEFAULT_CHUNK_BUDGET = 60;
+
+    public static final ParticleSettings DEFAULT = new ParticleSettings(DEFAULT_AMOUNT, Particle.TYPE_VILLAGER_HAPPY, DEFAULT_VIEW_RADIUS, DEFAULT_TICK_BUDGET, DEFAULT_CHUNK_BUDGET);
+
+    /**
+     * Amount of particles in a full burst
+     */
+    private final int amount;
+
+    /**
+     * Nukkit particle ID
+     */
+    private final int type;
+
+    /**
+     * Particles are sent only if at least one player is within this radius in blocks
+     */
+    private final int viewRadius;
+
+    /**
+     * Max amount of particles sent on the whole server per tick
+     */
+    private final int tickBudget;
+
+    /**
+     * Max amount of particles sent in one chunk per tick
+     */
+    private final int chunkBudget;
+
+    public ParticleSettings(int amount, int type, int viewRadius, int tickBudget, int chunkBudget) {
+        this.amount = Math.max(0, Math.min(MAX_AMOUNT, amount));
+        this.type = type;
+        this.viewRadius = Math.max(0, viewRadius);
+        this.tickBudget = Math.max(0, tickBudget);
+        this.chunkBudget = Math.max(0, chunkBudget);
+    }
+
+    /**
+     * Get the particle ID by its name, e.g. {@code villager_happy} for {@link Particle#TYPE_VILLAGER_HAPPY}
+     *
+     * @param name particle name
+     * @return particle ID
+     * @throws IllegalArgumentException if there is no particle with such name
+     */
+    public static int typeOf(String name) {
+        Integer type = Particle.getParticleIdByName(name);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown particle type '" + name + "'");
+        }
+        return type;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getViewRadius() {
+        return viewRadius;
+    }
+
+    public int getTickBudget() {
+        return tickBudget;
+    }
+
+    public int getChunkBudget() {
+        return chunkBudget;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "amount=" + amount +
+                ", type=" + type +
+                ", viewRadius=" + viewRadius +
+                ", tickBudget=" + tickBudget +
+                ", chunkBudget=" + chunkBudget +
+                '}';
+    }
+}
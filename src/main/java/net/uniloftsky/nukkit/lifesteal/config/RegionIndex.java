@@ -0,0 +1,166 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chunk-keyed grid of the regions. Every chunk which a region touches points to the region, so finding the regions
+ * at a position only takes the regions of its chunk. Regions which cover more than {@link #MAX_INDEXED_CHUNKS} chunks,
+ * e.g. a whole world border, aren't spread over the grid, they are kept in a per-world fallback list instead, which applies
+ * to every chunk of the world. Built once at config load and never modified afterwards
+ */
+public final class RegionIndex {
+
+    public static final RegionIndex EMPTY = new RegionIndex(Map.of(), Map.of(), 0);
+
+    /**
+     * Max amount of chunks a region is indexed in, 64 x 64 chunks (1024 x 1024 blocks)
+     */
+    static final long MAX_INDEXED_CHUNKS = 64 * 64;
+
+    private static final LifestealRegion[] NO_REGIONS = new LifestealRegion[0];
+
+    /**
+     * Key - world, value - regions per chunk. Key of chunk - chunk hash, value - regions sorted by priority, highest first
+     */
+    private final Map<String, Map<Long, LifestealRegion[]>> grid;
+
+    /**
+     * Key - world, value - regions too large for the grid, sorted by priority, highest first. Also merged into every chunk of the grid
+     */
+    private final Map<String, LifestealRegion[]> fallback;
+
+    private final int size;
+
+    private RegionIndex(Map<String, Map<Long, LifestealRegion[]>> grid, Map<String, LifestealRegion[]> fallback, int size) {
+        this.grid = grid;
+        this.fallback = fallback;
+        this.size = size;
+    }
+
+    /**
+     * Build the index of the regions
+     *
+     * @param regions regions to index. Later regions win over the earlier ones with the same priority
+     * @return index
+     */
+    public static RegionIndex of(List<LifestealRegion> regions) {
+        if (regions.isEmpty()) {
+            return EMPTY;
+        }
+
+        List<LifestealRegion> ordered = new ArrayList<>(regions);
+        Collections.reverse(ordered); // stable sort keeps the later regions first within the same priority
+        ordered.sort(Comparator.comparingInt(LifestealRegion::getPriority).reversed());
+
+        Map<String, Map<Long, List<LifestealRegion>>> staging = new HashMap<>();
+        Map<String, List<LifestealRegion>> largeRegions = new HashMap<>();
+        for (LifestealRegion region : ordered) {
+            Map<Long, List<LifestealRegion>> chunks = staging.computeIfAbsent(region.getWorld(), world -> new HashMap<>());
+            if (chunkCount(region) > MAX_INDEXED_CHUNKS) {
+                largeRegions.computeIfAbsent(region.getWorld(), world -> new ArrayList<>()).add(region);
+                continue;
+            }
+            for (int chunkX = region.getMinChunkX(); chunkX <= region.getMaxChunkX(); chunkX++) {
+                for (int chunkZ = region.getMinChunkZ(); chunkZ <= region.getMaxChunkZ(); chunkZ++) {
+                    chunks.computeIfAbsent(chunkHash(chunkX, chunkZ), hash -> new ArrayList<>(2)).add(region);
+                }
+            }
+        }
+        if (!largeRegions.isEmpty()) /* chunks of the grid also hold the large regions, so a lookup never merges two lists */ {
+            Map<LifestealRegion, Integer> ranks = new IdentityHashMap<>(ordered.size() * 2);
+            for (int i = 0; i < ordered.size(); i++) {
+                ranks.put(ordered.get(i), i);
+            }
+            for (Map.Entry<String, Map<Long, List<LifestealRegion>>> world : staging.entrySet()) {
+                List<LifestealRegion> large = largeRegions.get(world.getKey());
+                if (large != null) {
+                    world.getValue().replaceAll((hash, regionsOfChunk) -> mergeByRank(regionsOfChunk, large, ranks));
+                }
+            }
+        }
+
+        Map<String, Map<Long, LifestealRegion[]>> grid = new HashMap<>();
+        for (Map.Entry<String, Map<Long, List<LifestealRegion>>> world : staging.entrySet()) {
+            Map<Long, LifestealRegion[]> chunks = new HashMap<>(world.getValue().size() * 2);
+            for (Map.Entry<Long, List<LifestealRegion>> chunk : world.getValue().entrySet()) {
+                chunks.put(chunk.getKey(), chunk.getValue().toArray(NO_REGIONS));
+            }
+            grid.put(world.getKey(), chunks);
+        }
+        Map<String, LifestealRegion[]> fallback = new HashMap<>();
+        for (Map.Entry<String, List<LifestealRegion>> world : largeRegions.entrySet()) {
+            fallback.put(world.getKey(), world.getValue().toArray(NO_REGIONS));
+        }
+        return new RegionIndex(grid, fallback, regions.size());
+    }
+
+    private static long chunkCount(LifestealRegion region) {
+        return ((long) region.getMaxChunkX() - region.getMinChunkX() + 1) * ((long) region.getMaxChunkZ() - region.getMinChunkZ() + 1);
+    }
+
+    /**
+     * Merge two lists of regions which are both sorted by rank
+     *
+     * @param first  first list
+     * @param second second list
+     * @param ranks  key - region, value - its position among all regions sorted by priority
+     * @return merged list, sorted by rank
+     */
+    private static List<LifestealRegion> mergeByRank(List<LifestealRegion> first, List<LifestealRegion> second, Map<LifestealRegion, Integer> ranks) {
+        List<LifestealRegion> merged = new ArrayList<>(first.size() + second.size());
+        int i = 0;
+        int j = 0;
+        while (i < first.size() || j < second.size()) {
+            if (j == second.size() || (i < first.size() && ranks.get(first.get(i)) < ranks.get(second.get(j)))) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Get the regions which touch the chunk, incl. the regions too large for the grid
+     *
+     * @param world  folder name of the level
+     * @param chunkX chunk X
+     * @param chunkZ chunk Z
+     * @return regions sorted by priority, highest first. Empty array if there are none
+     */
+    public LifestealRegion[] candidates(String world, int chunkX, int chunkZ) {
+        Map<Long, LifestealRegion[]> chunks = grid.get(world);
+        LifestealRegion[] regions = chunks != null ? chunks.get(chunkHash(chunkX, chunkZ)) : null;
+        if (regions != null) {
+            return regions;
+        }
+        return fallback.getOrDefault(world, NO_REGIONS);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static long chunkHash(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public String toString() {
+        return "RegionIndex{" +
+                "size=" + size +
+                ", worlds=" + grid.keySet() +
+                ", fallbackWorlds=" + fallback.keySet() +
+                '}';
+    }
+}
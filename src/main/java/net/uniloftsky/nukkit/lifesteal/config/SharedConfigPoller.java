@@ -0,0 +1,118 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.plugin.PluginLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Poller of the shared config. Runs on its own daemon thread and invokes the callback when a new version was published.
+ * While the source is unreachable, the interval doubles with every failed poll up to the max backoff, so a down endpoint
+ * isn't hammered by every server of the network. The delays get a small random jitter, so the servers don't poll in lockstep
+ */
+public final class SharedConfigPoller implements Closeable {
+
+    /**
+     * Max part of the delay added as the random jitter
+     */
+    private static final double JITTER = 0.1;
+
+    private final SharedConfigSource source;
+    private final Poll poll;
+    private final Runnable onChange;
+    private final PluginLogger logger;
+
+    private Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * @param source   polled source, defines the intervals
+     * @param poll     action which loads and publishes the new version if any
+     * @param onChange callback invoked on the poller thread when a new version was published
+     * @param logger   plugin logger
+     */
+    public SharedConfigPoller(SharedConfigSource source, Poll poll, Runnable onChange, PluginLogger logger) {
+        this.source = source;
+        this.poll = poll;
+        this.onChange = onChange;
+        this.logger = logger;
+    }
+
+    public void start() {
+        this.thread = new Thread(this::run, "Lifesteal shared config poller");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run() {
+        long intervalMillis = TimeUnit.SECONDS.toMillis(source.getPollInterval());
+        long maxBackoffMillis = TimeUnit.SECONDS.toMillis(source.getMaxBackoff());
+        int failures = 0;
+        try {
+            while (!closed) {
+                long delay = delayMillis(failures, intervalMillis, maxBackoffMillis);
+                Thread.sleep(delay + (long) (ThreadLocalRandom.current().nextDouble() * JITTER * delay));
+                try {
+                    if (poll.poll()) {
+                        onChange.run();
+                    }
+                    if (failures > 0) {
+                        logger.info("Shared config source " + source.getLocation() + " is reachable again");
+                    }
+                    failures = 0;
+                } catch (IOException ex) {
+                    if (failures == 0) /* one line per outage, not per poll */ {
+                        logger.warning("Cannot reach shared config source " + source.getLocation() + ", backing off: " + ex.getMessage());
+                    }
+                    failures++;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            logger.error("Shared config poller stopped because of unexpected exception", ex);
+        }
+    }
+
+    /**
+     * Get the delay before the next poll: the interval doubled for every failed poll in a row, capped at the max backoff
+     *
+     * @param failures         failed polls in a row
+     * @param intervalMillis   interval between polls while the source is reachable
+     * @param maxBackoffMillis max delay
+     * @return delay in milliseconds
+     */
+    static long delayMillis(int failures, long intervalMillis, long maxBackoffMillis) {
+        if (failures >= Long.numberOfLeadingZeros(intervalMillis) - 1) /* doubling would overflow */ {
+            return maxBackoffMillis;
+        }
+        return Math.min(intervalMillis << failures, maxBackoffMillis);
+    }
+
+    public SharedConfigSource getSource() {
+        return source;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Poll of the shared source
+     */
+    @FunctionalInterface
+    public interface Poll {
+
+        /**
+         * @return true if a new version was published
+         * @throws IOException if the source cannot be reached
+         */
+        boolean poll() throws IOException;
+    }
+}
@@ -0,0 +1,253 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Config shared by several servers: a directory with {@value #SHARED_CONFIG}, e.g. on a network mount, or an HTTP endpoint.
+ * The content is fetched only if its metadata changed (modification time and size of the file, ETag and Last-Modified
+ * of the response), and is handed over for parsing only if its SHA-256 hash differs from the last fetched one.
+ * The last content which was parsed successfully is cached on disk, so the server starts with it if the source is unreachable
+ */
+public final class SharedConfigSource {
+
+    /**
+     * Name of the config in the shared directory
+     */
+    static final String SHARED_CONFIG = "config.json";
+
+    /**
+     * Name of the last-known-good copy in the plugin folder
+     */
+    public static final String CACHE_FILE = "shared-config.json";
+
+    private static final Duration HTTP_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final int VERSION_BYTES = 4;
+
+    /**
+     * Directory path or HTTP(S) URL as written in config
+     */
+    private final String location;
+
+    /**
+     * Null if the source is a directory
+     */
+    private final URI uri;
+
+    /**
+     * Null if the source is an HTTP endpoint
+     */
+    private final Path directory;
+
+    private final Path cacheFile;
+
+    /**
+     * Interval between two polls in seconds
+     */
+    private final int pollInterval;
+
+    /**
+     * Max interval between two polls in seconds while the source is unreachable
+     */
+    private final int maxBackoff;
+
+    private HttpClient httpClient;
+
+    private String etag;
+    private String lastModified;
+    private long fileModified = -1;
+    private long fileSize = -1;
+
+    /**
+     * Hash of the last fetched content, whether it was parsed successfully or not. Null if nothing was fetched yet
+     */
+    private byte[] lastHash;
+
+    /**
+     * Flag to define if a snapshot of this source was published
+     */
+    private boolean loaded;
+
+    /**
+     * @param location     directory path or HTTP(S) URL
+     * @param cacheFile    last-known-good copy of the content
+     * @param pollInterval interval between two polls in seconds
+     * @param maxBackoff   max interval between two polls in seconds while the source is unreachable
+     */
+    public SharedConfigSource(String location, Path cacheFile, int pollInterval, int maxBackoff) {
+        this.location = location;
+        this.uri = isHttp(location) ? URI.create(location) : null;
+        this.directory = uri == null ? Path.of(location) : null;
+        this.cacheFile = cacheFile;
+        this.pollInterval = Math.max(1, pollInterval);
+        this.maxBackoff = Math.max(this.pollInterval, maxBackoff);
+    }
+
+    /**
+     * Fetch the content if it changed since the last fetch
+     *
+     * @return new content, or null if the source has the same version
+     * @throws IOException if the source cannot be reached
+     */
+    public synchronized byte[] fetchIfChanged() throws IOException {
+        byte[] content = uri != null ? fetchHttp() : fetchFile();
+        if (content == null) {
+            return null;
+        }
+        byte[] hash = sha256(content);
+        if (Arrays.equals(hash, lastHash)) /* same version, e.g. the file was touched or the server doesn't send ETag */ {
+            return null;
+        }
+        lastHash = hash;
+        return content;
+    }
+
+    private byte[] fetchHttp() throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(HTTP_TIMEOUT).GET();
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient().send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + location);
+        }
+        if (response.statusCode() == 304) /* not modified */ {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Unexpected response " + response.statusCode() + " from " + location);
+        }
+        etag = response.headers().firstValue("ETag").orElse(null);
+        lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        return response.body();
+    }
+
+    private byte[] fetchFile() throws IOException {
+        Path file = directory.resolve(SHARED_CONFIG);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+        if (modified == fileModified && size == fileSize) {
+            return null;
+        }
+        byte[] content = Files.readAllBytes(file);
+        fileModified = modified;
+        fileSize = size;
+        return content;
+    }
+
+    /**
+     * Save the content which was parsed successfully as the last-known-good copy. The file is replaced atomically,
+     * so a crash during the write doesn't leave a broken copy
+     *
+     * @param content content of the published snapshot
+     * @throws IOException if the copy cannot be written
+     */
+    public synchronized void saveLastKnownGood(byte[] content) throws IOException {
+        loaded = true;
+        Path temporary = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        Files.write(temporary, content);
+        Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the last-known-good copy. The source remembers its hash, so the same content isn't parsed again when the source is back
+     *
+     * @return content or null if there is no copy
+     * @throws IOException if the copy cannot be read
+     */
+    public synchronized byte[] readLastKnownGood() throws IOException {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        byte[] content = Files.readAllBytes(cacheFile);
+        lastHash = sha256(content);
+        return content;
+    }
+
+    /**
+     * Remember that a snapshot of this source was published, e.g. the one of the last-known-good copy
+     */
+    public synchronized void markLoaded() {
+        this.loaded = true;
+    }
+
+    /**
+     * @return true if a snapshot of this source was published
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return short hex prefix of the hash of the last fetched content, for the logs
+     */
+    public synchronized String getVersion() {
+        return lastHash != null ? HexFormat.of().formatHex(lastHash, 0, VERSION_BYTES) : "none";
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public int getPollInterval() {
+        return pollInterval;
+    }
+
+    public int getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * Check if the source has the same settings, so it can be kept with its state on reload
+     *
+     * @return true if settings are equal
+     */
+    boolean hasSettings(String location, int pollInterval, int maxBackoff) {
+        return this.location.equals(location) && this.pollInterval == Math.max(1, pollInterval)
+                && this.maxBackoff == Math.max(this.pollInterval, maxBackoff);
+    }
+
+    private HttpClient httpClient() {
+        if (httpClient == null) {
+            httpClient = HttpClient.newBuilder()
+                    .connectTimeout(HTTP_TIMEOUT)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+        }
+        return httpClient;
+    }
+
+    static boolean isHttp(String location) {
+        return location.startsWith("http://") || location.startsWith("https://");
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException ex) /* every JVM has SHA-256 */ {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.entity.Entity;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Heal multipliers per type of the attacked entity. The categories and per-entity values of the config are resolved into
+ * a flat table indexed by the entity network ID once, when the config is loaded, so the lookup on attack is one array read.
+ * Multipliers are fixed-point values, see {@link FixedPoint}: {@link FixedPoint#SCALE} heals as usual, zero disables lifesteal
+ */
+public final class TargetTable {
+
+    /**
+     * Network IDs of the vanilla hostile mobs
+     */
+    static final int[] HOSTILE_IDS = {
+            32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44, 45, 46, 47, 48, 49, 50, // zombie ... elder guardian
+            54, 55, 57, 58, 59, // shulker, endermite, vindicator, phantom, ravager
+            104, 105, 110, 114, 116, // evoker, vex, drowned, pillager, zombie villager v2
+            123, 124, 126, 127, 131 // piglin, hoglin, zoglin, piglin brute, warden
+    };
+
+    /**
+     * Network IDs of the vanilla passive and neutral mobs
+     */
+    static final int[] PASSIVE_IDS = {
+            10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, // chicken ... dolphin
+            74, 75, // turtle, cat
+            108, 109, 111, 112, 113, 115, 118, // pufferfish, salmon, tropical fish, cod, panda, villager v2, wandering trader
+            121, 122, 125, 128, 129, 130, 132, 133, 134, 138, 139 // fox, bee, strider, goat, glow squid, axolotl, frog, tadpole, allay, camel, sniffer
+    };
+
+    /**
+     * Network IDs of the vanilla bosses
+     */
+    static final int[] BOSS_IDS = {52, 53}; // wither, ender dragon
+
+    /**
+     * Size of the table which covers all vanilla entities. Grows if a larger ID is configured
+     */
+    private static final int DEFAULT_SIZE = 256;
+
+    /**
+     * Max network ID which can be configured. Keeps the table small even if the config has a typo
+     */
+    static final int MAX_NETWORK_ID = 4095;
+
+    /**
+     * Table which heals as usual on any target
+     */
+    public static final TargetTable DEFAULT = new Builder().build();
+
+    private final int players;
+
+    /**
+     * Multiplier of the entities which aren't in any category, e.g. armor stands, NPCs and the entities of other plugins
+     */
+    private final int other;
+
+    /**
+     * Index - network ID, value - multiplier
+     */
+    private final int[] byNetworkId;
+
+    private TargetTable(int players, int other, int[] byNetworkId) {
+        this.players = players;
+        this.other = other;
+        this.byNetworkId = byNetworkId;
+    }
+
+    /**
+     * Get the heal multiplier of the attacked entity
+     *
+     * @param victim attacked entity
+     * @return multiplier, zero if lifesteal is disabled against such entity
+     */
+    public int multiplierOf(Entity victim) {
+        if (victim.isPlayer) {
+            return players;
+        }
+        return multiplierOf(victim.getNetworkId());
+    }
+
+    /**
+     * Get the heal multiplier of the entity type
+     *
+     * @param networkId network ID of the entity
+     * @return multiplier, zero if lifesteal is disabled against such entity
+     */
+    public int multiplierOf(int networkId) {
+        return networkId >= 0 && networkId < byNetworkId.length ? byNetworkId[networkId] : other;
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "players=" + FixedPoint.toString(players) +
+                ", hostile=" + FixedPoint.toString(multiplierOf(HOSTILE_IDS[0])) +
+                ", passive=" + FixedPoint.toString(multiplierOf(PASSIVE_IDS[0])) +
+                ", bosses=" + FixedPoint.toString(multiplierOf(BOSS_IDS[0])) +
+                ", other=" + FixedPoint.toString(other) +
+                '}';
+    }
+
+    /**
+     * Mutable staging state, filled while the config is loading
+     */
+    static final class Builder {
+
+        private int players = FixedPoint.SCALE;
+        private int hostile = FixedPoint.SCALE;
+        private int passive = FixedPoint.SCALE;
+        private int bosses = FixedPoint.SCALE;
+        private int other = FixedPoint.SCALE;
+
+        /**
+         * Multipliers of specific entities. Key - network ID, value - multiplier
+         */
+        private final Map<Integer, Integer> entities = new LinkedHashMap<>();
+
+        Builder players(int players) {
+            this.players = Math.max(0, players);
+            return this;
+        }
+
+        Builder hostile(int hostile) {
+            this.hostile = Math.max(0, hostile);
+            return this;
+        }
+
+        Builder passive(int passive) {
+            this.passive = Math.max(0, passive);
+            return this;
+        }
+
+        Builder bosses(int bosses) {
+            this.bosses = Math.max(0, bosses);
+            return this;
+        }
+
+        Builder other(int other) {
+            this.other = Math.max(0, other);
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if network ID is out of range
+         */
+        Builder entity(int networkId, int multiplier) {
+            if (networkId < 0 || networkId > MAX_NETWORK_ID) {
+                throw new IllegalArgumentException("Entity network ID " + networkId + " must be between 0 and " + MAX_NETWORK_ID);
+            }
+            this.entities.put(networkId, Math.max(0, multiplier));
+            return this;
+        }
+
+        TargetTable build() {
+            int size = DEFAULT_SIZE;
+            for (int networkId : entities.keySet()) {
+                size = Math.max(size, networkId + 1);
+            }
+            int[] byNetworkId = new int[size];
+            Arrays.fill(byNetworkId, other);
+            fill(byNetworkId, HOSTILE_IDS, hostile);
+            fill(byNetworkId, PASSIVE_IDS, passive);
+            fill(byNetworkId, BOSS_IDS, bosses);
+            for (Map.Entry<Integer, Integer> entity : entities.entrySet()) /* specific entities win over their category */ {
+                byNetworkId[entity.getKey()] = entity.getValue();
+            }
+            return new TargetTable(players, other, byNetworkId);
+        }
+
+        private static void fill(int[] byNetworkId, int[] networkIds, int multiplier) {
+            for (int networkId : networkIds) {
+                byNetworkId[networkId] = multiplier;
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compiled binary form of the weapon table. The file consists of the header (magic, version, amount of records)
+ * followed by fixed-width records of item ID, lifesteal in basis points, flags and heal limit. Records of the weapons with
+ * a heal clamp are followed by its bounds, records of the weapons with conditions by the variable-width condition, and
+ * records of the named weapons by the name. It is read in one go into a heap buffer, so loading a large catalog doesn't involve
+ * any JSON parsing, and the file isn't held open or mapped, so it can be replaced by the next compilation on any platform
+ */
+public final class WeaponCatalogFile {
+
+    /**
+     * Name of the compiled weapons file in the plugin data folder
+     */
+    public static final String COMPILED_WEAPONS = "weapons.bin";
+
+    /**
+     * Record flag which means that the weapon was already validated against the Minecraft items while compiling
+     */
+    static final int FLAG_VALIDATED = 1;
+
+    /**
+     * Record flag which means that the weapon has its own heal limit
+     */
+    static final int FLAG_HEAL_LIMIT = 2;
+
+    /**
+     * Record flag which means that the record is followed by the weapon condition
+     */
+    static final int FLAG_CONDITION = 4;
+
+    /**
+     * Record flag which means that the record is followed by the min and max heal
+     */
+    static final int FLAG_HEAL_CLAMP = 8;
+
+    /**
+     * Record flag which means that the record is followed by the weapon name
+     */
+    static final int FLAG_NAME = 16;
+
+    /**
+     * "LSWT" - lifesteal weapon table
+     */
+    private static final int MAGIC = 0x4C535754;
+
+    private static final int VERSION = 5;
+
+    /**
+     * Version without the weapon names, still readable
+     */
+    private static final int VERSION_WITHOUT_NAME = 4;
+
+    /**
+     * Version with lifesteal in integer percents and without the heal clamps, still readable
+     */
+    private static final int VERSION_WITH_PERCENTS = 3;
+
+    /**
+     * Version without the weapon conditions, still readable
+     */
+    private static final int VERSION_WITHOUT_CONDITION = 2;
+
+    /**
+     * Version without the heal limits and the weapon conditions, still readable
+     */
+    private static final int VERSION_WITHOUT_HEAL_LIMIT = 1;
+
+    /**
+     * Length of the custom name which means that the condition has no custom name
+     */
+    private static final int NO_CUSTOM_NAME = -1;
+
+    /**
+     * Magic, version and amount of records
+     */
+    private static final int HEADER_SIZE = Integer.BYTES * 3;
+
+    /**
+     * Item ID, lifesteal, flags, heal cooldown, heals per second and heal burst
+     */
+    private static final int RECORD_SIZE = Integer.BYTES * 6;
+
+    /**
+     * Item ID, lifesteal and flags
+     */
+    private static final int RECORD_SIZE_WITHOUT_HEAL_LIMIT = Integer.BYTES * 3;
+
+    /**
+     * Min and max heal in hundredths of HP
+     */
+    private static final int HEAL_CLAMP_SIZE = Integer.BYTES * 2;
+
+    /**
+     * Meta, scale enchantment, lifesteal per level in basis points and amount of enchantments. Followed by enchantment ID and level pairs,
+     * length of the custom name and its UTF-8 bytes
+     */
+    private static final int CONDITION_HEADER_SIZE = Integer.BYTES * 4;
+
+    private WeaponCatalogFile() {
+    }
+
+    /**
+     * Write the weapons into the compiled file. The file is written next to the target and moved over it, so the readers never see a partial file
+     *
+     * @param file    target file
+     * @param weapons weapons to write
+     * @param flags   flags of every record
+     * @throws IOException if file cannot be written
+     */
+    public static void write(Path file, Collection<LifestealWeapon> weapons, int flags) throws IOException {
+        int size = HEADER_SIZE + RECORD_SIZE * weapons.size();
+        for (LifestealWeapon weapon : weapons) {
+            if (weapon.getHealClamp().isEnabled()) {
+                size += HEAL_CLAMP_SIZE;
+            }
+            if (weapon.getCondition() != null) {
+                size += conditionSize(weapon.getCondition());
+            }
+            if (weapon.getName() != null) {
+                size += Integer.BYTES + weapon.getName().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(weapons.size());
+        for (LifestealWeapon weapon : weapons) {
+            HealLimit healLimit = weapon.getHealLimit();
+            HealClamp healClamp = weapon.getHealClamp();
+            WeaponCondition condition = weapon.getCondition();
+            int recordFlags = flags | (healLimit != null ? FLAG_HEAL_LIMIT : 0) | (condition != null ? FLAG_CONDITION : 0)
+                    | (healClamp.isEnabled() ? FLAG_HEAL_CLAMP : 0) | (weapon.getName() != null ? FLAG_NAME : 0);
+            buffer.putInt(weapon.getId()).putInt(weapon.getLifesteal()).putInt(recordFlags);
+            if (healLimit != null) {
+                buffer.putInt(healLimit.getCooldownMillis()).putFloat(healLimit.getHealsPerSecond()).putInt(healLimit.getBurst());
+            } else {
+                buffer.putInt(0).putFloat(0).putInt(0);
+            }
+            if (healClamp.isEnabled()) {
+                buffer.putInt(healClamp.getMin()).putInt(healClamp.getMax());
+            }
+            if (condition != null) {
+                writeCondition(buffer, condition);
+            }
+            if (weapon.getName() != null) {
+                byte[] name = weapon.getName().getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(name.length).put(name);
+            }
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, buffer.array());
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the compiled file into a heap buffer. The file is closed before the weapons are parsed
+     *
+     * @param file compiled file
+     * @return weapons read from file
+     * @throws IOException if file cannot be read or is corrupted
+     */
+    public static Contents read(Path file) throws IOException {
+        ByteBuffer buffer = readFully(file);
+        long size = buffer.remaining();
+        if (size < HEADER_SIZE) {
+            throw new IOException("Compiled weapons file is too short");
+        }
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a compiled weapons file");
+            }
+            int version = buffer.getInt();
+            if (version < VERSION_WITHOUT_HEAL_LIMIT || version > VERSION) {
+                throw new IOException("Unsupported compiled weapons file version " + version);
+            }
+            boolean withHealLimit = version != VERSION_WITHOUT_HEAL_LIMIT;
+            boolean withCondition = version >= VERSION_WITH_PERCENTS;
+            boolean withHealClamp = version >= VERSION_WITHOUT_NAME;
+            boolean withName = version == VERSION;
+            int lifestealScale = version >= VERSION_WITHOUT_NAME ? 1 : FixedPoint.SCALE; // former versions hold integer percents
+            int recordSize = withHealLimit ? RECORD_SIZE : RECORD_SIZE_WITHOUT_HEAL_LIMIT;
+            int records = buffer.getInt();
+            long fixedSize = HEADER_SIZE + (long) recordSize * records;
+            if (records < 0 || (withCondition ? size < fixedSize : size != fixedSize)) {
+                throw new IOException("Compiled weapons file is corrupted");
+            }
+
+            Contents contents = new Contents(new ArrayList<>(records), new ArrayList<>());
+            for (int i = 0; i < records; i++) {
+                int id = buffer.getInt();
+                int lifesteal = Math.multiplyExact(buffer.getInt(), lifestealScale);
+                int flags = buffer.getInt();
+                HealLimit healLimit = null;
+                if (withHealLimit) {
+                    int cooldownMillis = buffer.getInt();
+                    float healsPerSecond = buffer.getFloat();
+                    int burst = buffer.getInt();
+                    if ((flags & FLAG_HEAL_LIMIT) != 0) {
+                        healLimit = new HealLimit(cooldownMillis, healsPerSecond, burst);
+                    }
+                }
+                HealClamp healClamp = withHealClamp && (flags & FLAG_HEAL_CLAMP) != 0 ? new HealClamp(buffer.getInt(), buffer.getInt()) : null;
+                WeaponCondition condition = withCondition && (flags & FLAG_CONDITION) != 0 ? readCondition(buffer, lifestealScale) : null;
+                String name = withName && (flags & FLAG_NAME) != 0 ? readString(buffer) : null;
+                LifestealWeapon weapon = new LifestealWeapon(id, lifesteal, healLimit, condition, healClamp);
+                weapon.setName(name);
+                if ((flags & FLAG_VALIDATED) != 0) {
+                    contents.validated().add(weapon);
+                } else {
+                    contents.unvalidated().add(weapon);
+                }
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Compiled weapons file is corrupted");
+            }
+            return contents;
+        } catch (BufferUnderflowException | IllegalArgumentException | ArithmeticException ex) {
+            throw new IOException("Compiled weapons file is corrupted", ex);
+        }
+    }
+
+    /**
+     * Read the whole file into a heap buffer
+     *
+     * @param file file to read
+     * @return buffer positioned at the start of the file
+     * @throws IOException if file cannot be read or is larger than 2 GB
+     */
+    static ByteBuffer readFully(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(file + " was truncated while reading");
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    private static int conditionSize(WeaponCondition condition) {
+        int nameSize = condition.getCustomName() != null ? condition.getCustomName().getBytes(StandardCharsets.UTF_8).length : 0;
+        return CONDITION_HEADER_SIZE + Integer.BYTES * 2 * condition.getEnchantmentIds().length + Integer.BYTES + nameSize;
+    }
+
+    private static void writeCondition(ByteBuffer buffer, WeaponCondition condition) {
+        int[] enchantmentIds = condition.getEnchantmentIds();
+        int[] enchantmentLevels = condition.getEnchantmentLevels();
+        buffer.putInt(condition.getMeta()).putInt(condition.getScaleEnchantmentId()).putInt(condition.getLifestealPerLevel()).putInt(enchantmentIds.length);
+        for (int i = 0; i < enchantmentIds.length; i++) {
+            buffer.putInt(enchantmentIds[i]).putInt(enchantmentLevels[i]);
+        }
+        if (condition.getCustomName() != null) {
+            byte[] name = condition.getCustomName().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(name.length).put(name);
+        } else {
+            buffer.putInt(NO_CUSTOM_NAME);
+        }
+    }
+
+    private static WeaponCondition readCondition(ByteBuffer buffer, int lifestealScale) {
+        int meta = buffer.getInt();
+        int scaleEnchantmentId = buffer.getInt();
+        int lifestealPerLevel = Math.multiplyExact(buffer.getInt(), lifestealScale);
+        int enchantments = buffer.getInt();
+        if (enchantments < 0 || enchantments > buffer.remaining() / (Integer.BYTES * 2)) {
+            throw new IllegalArgumentException("Invalid amount of enchantments " + enchantments);
+        }
+        int[] enchantmentIds = new int[enchantments];
+        int[] enchantmentLevels = new int[enchantments];
+        for (int i = 0; i < enchantments; i++) {
+            enchantmentIds[i] = buffer.getInt();
+            enchantmentLevels[i] = buffer.getInt();
+        }
+        String customName = readString(buffer);
+        return new WeaponCondition(meta, customName, enchantmentIds, enchantmentLevels, scaleEnchantmentId, lifestealPerLevel);
+    }
+
+    /**
+     * Read the length-prefixed UTF-8 string
+     *
+     * @param buffer buffer positioned at the length
+     * @return string, or null if its length is {@link #NO_CUSTOM_NAME}
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NO_CUSTOM_NAME) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid length of string " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compile the weapons of the JSON config without validation. Used when the Nukkit item registry isn't available (e.g. at build time),
+     * so the weapons are validated once the compiled file is loaded
+     *
+     * @param jsonConfig   JSON config to compile
+     * @param compiledFile target file
+     * @return amount of compiled weapons
+     * @throws IOException if config cannot be read or file cannot be written
+     */
+    public static int compile(Path jsonConfig, Path compiledFile) throws IOException {
+        List<LifestealWeapon> weapons = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(jsonConfig, StandardCharsets.UTF_8)) {
+            JsonReader jsonReader = new JsonReader(reader);
+            jsonReader.setLenient(true);
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (LifestealConfig.MainConfigFields.WEAPONS_LIST_FIELD.equals(jsonReader.nextName())) {
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        weapons.add(LifestealConfig.readWeapon(jsonReader));
+                    }
+                    jsonReader.endArray();
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        }
+        write(compiledFile, weapons, 0);
+        return weapons.size();
+    }
+
+    /**
+     * Compile the JSON config from the command line, e.g. as a build step
+     *
+     * @param args path to JSON config and path to compiled file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: WeaponCatalogFile <config.json> <" + COMPILED_WEAPONS + ">");
+            System.exit(1);
+        }
+        int compiled = compile(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Compiled " + compiled + " weapons into " + args[1]);
+    }
+
+    /**
+     * Weapons read from the compiled file
+     *
+     * @param validated   weapons which were validated against the Minecraft items while compiling
+     * @param unvalidated weapons which still must be validated
+     */
+    public record Contents(List<LifestealWeapon> validated, List<LifestealWeapon> unvalidated) {
+    }
+}
@@ -0,0 +1,225 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.nbt.tag.CompoundTag;
+import cn.nukkit.nbt.tag.ListTag;
+import cn.nukkit.nbt.tag.Tag;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Additional conditions of the weapon entry besides the item ID: item damage (meta), custom name and required enchantments.
+ * The entry may also scale its lifesteal by the level of one enchantment, e.g. a custom "Vampiric" enchantment
+ */
+public final class WeaponCondition {
+
+    /**
+     * Value of meta which matches any item damage
+     */
+    public static final int ANY_META = -1;
+
+    /**
+     * Value of the scale enchantment ID when lifesteal isn't scaled
+     */
+    public static final int NO_ENCHANTMENT = -1;
+
+    private static final String ENCHANTMENTS_TAG = "ench";
+    private static final String ENCHANTMENT_ID_TAG = "id";
+    private static final String ENCHANTMENT_LEVEL_TAG = "lvl";
+    private static final String DISPLAY_TAG = "display";
+    private static final String NAME_TAG = "Name";
+
+    /**
+     * Required item damage or {@link #ANY_META}
+     */
+    private final int meta;
+
+    /**
+     * Required custom name or null if any name matches
+     */
+    private final String customName;
+
+    /**
+     * IDs of required enchantments, aligned with {@link #enchantmentLevels}
+     */
+    private final int[] enchantmentIds;
+
+    /**
+     * Min levels of required enchantments
+     */
+    private final int[] enchantmentLevels;
+
+    /**
+     * ID of the enchantment which scales lifesteal or {@link #NO_ENCHANTMENT}
+     */
+    private final int scaleEnchantmentId;
+
+    /**
+     * Lifesteal added per level of the scale enchantment
+     */
+    private final int lifestealPerLevel;
+
+    /**
+     * @param meta               required item damage or {@link #ANY_META}
+     * @param customName         required custom name or null
+     * @param enchantmentIds     IDs of required enchantments
+     * @param enchantmentLevels  min levels of required enchantments, aligned with IDs
+     * @param scaleEnchantmentId ID of the enchantment which scales lifesteal or {@link #NO_ENCHANTMENT}
+     * @param lifestealPerLevel  lifesteal added per level of the scale enchantment in basis points
+     */
+    public WeaponCondition(int meta, String customName, int[] enchantmentIds, int[] enchantmentLevels, int scaleEnchantmentId, int lifestealPerLevel) {
+        if (enchantmentIds.length != enchantmentLevels.length) {
+            throw new IllegalArgumentException("Enchantment IDs and levels must be aligned");
+        }
+        this.meta = meta < 0 ? ANY_META : meta;
+        this.customName = customName;
+        this.enchantmentIds = enchantmentIds.clone();
+        this.enchantmentLevels = enchantmentLevels.clone();
+        this.scaleEnchantmentId = scaleEnchantmentId < 0 ? NO_ENCHANTMENT : scaleEnchantmentId;
+        this.lifestealPerLevel = lifestealPerLevel;
+    }
+
+    /**
+     * Check the item against the condition. Reads the NBT tag in place, without creating enchantment objects
+     *
+     * @param itemMeta damage of the item
+     * @param tag      parsed NBT tag of the item. May be null if the item has no tag or the condition doesn't need it
+     * @return true if item matches
+     */
+    public boolean matches(int itemMeta, CompoundTag tag) {
+        if (meta != ANY_META && meta != itemMeta) {
+            return false;
+        }
+        if (customName != null && !customName.equals(customNameOf(tag))) {
+            return false;
+        }
+        for (int i = 0; i < enchantmentIds.length; i++) {
+            if (enchantmentLevel(tag, enchantmentIds[i]) < enchantmentLevels[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the level of the scale enchantment on the item
+     *
+     * @param tag parsed NBT tag of the item. May be null
+     * @return level or zero if lifesteal isn't scaled or the item has no such enchantment
+     */
+    public int scaleLevelOf(CompoundTag tag) {
+        return scaleEnchantmentId != NO_ENCHANTMENT ? Math.max(0, enchantmentLevel(tag, scaleEnchantmentId)) : 0;
+    }
+
+    /**
+     * @return true if the NBT tag of the item must be read to check the condition
+     */
+    public boolean needsTag() {
+        return customName != null || enchantmentIds.length > 0 || isScaled();
+    }
+
+    /**
+     * @return true if lifesteal is scaled by the enchantment level
+     */
+    public boolean isScaled() {
+        return scaleEnchantmentId != NO_ENCHANTMENT && lifestealPerLevel != 0;
+    }
+
+    /**
+     * Amount of the checked conditions. More specific entries are checked first
+     *
+     * @return specificity of the condition
+     */
+    public int specificity() {
+        return (meta != ANY_META ? 1 : 0) + (customName != null ? 1 : 0) + enchantmentIds.length;
+    }
+
+    public int getMeta() {
+        return meta;
+    }
+
+    public String getCustomName() {
+        return customName;
+    }
+
+    public int[] getEnchantmentIds() {
+        return enchantmentIds.clone();
+    }
+
+    public int[] getEnchantmentLevels() {
+        return enchantmentLevels.clone();
+    }
+
+    public int getScaleEnchantmentId() {
+        return scaleEnchantmentId;
+    }
+
+    public int getLifestealPerLevel() {
+        return lifestealPerLevel;
+    }
+
+    private static String customNameOf(CompoundTag tag) {
+        if (tag == null) {
+            return null;
+        }
+        Tag display = tag.get(DISPLAY_TAG);
+        if (display instanceof CompoundTag displayTag && displayTag.contains(NAME_TAG)) {
+            return displayTag.getString(NAME_TAG);
+        }
+        return null;
+    }
+
+    private static int enchantmentLevel(CompoundTag tag, int enchantmentId) {
+        if (tag == null) {
+            return 0;
+        }
+        Tag enchantments = tag.get(ENCHANTMENTS_TAG);
+        if (!(enchantments instanceof ListTag<?> list)) {
+            return 0;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) instanceof CompoundTag enchantment && enchantment.getShort(ENCHANTMENT_ID_TAG) == enchantmentId) {
+                return enchantment.getShort(ENCHANTMENT_LEVEL_TAG);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        WeaponCondition that = (WeaponCondition) o;
+        return meta == that.meta && scaleEnchantmentId == that.scaleEnchantmentId && lifestealPerLevel == that.lifestealPerLevel
+                && Objects.equals(customName, that.customName) && Arrays.equals(enchantmentIds, that.enchantmentIds)
+                && Arrays.equals(enchantmentLevels, that.enchantmentLevels);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(meta, customName, scaleEnchantmentId, lifestealPerLevel);
+        result = 31 * result + Arrays.hashCode(enchantmentIds);
+        return 31 * result + Arrays.hashCode(enchantmentLevels);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        if (meta != ANY_META) {
+            result.append("meta=").append(meta).append(", ");
+        }
+        if (customName != null) {
+            result.append("customName='").append(customName).append("', ");
+        }
+        for (int i = 0; i < enchantmentIds.length; i++) {
+            result.append("enchantment=").append(enchantmentIds[i]).append(':').append(enchantmentLevels[i]).append(", ");
+        }
+        if (isScaled()) {
+            result.append("scaleEnchantment=").append(scaleEnchantmentId).append(", lifestealPerLevel=").append(lifestealPerLevel).append(", ");
+        }
+        if (result.length() > 1) {
+            result.setLength(result.length() - 2);
+        }
+        return result.append('}').toString();
+    }
+}
@@ -0,0 +1,378 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.nbt.tag.CompoundTag;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frozen lookup table of registered weapons keyed by primitive item ID. It is built once at config load and never modified afterwards,
+ * so it can be safely read from any thread without boxing the ID or allocating on lookup.
+ * <p>
+ * Weapon entries with conditions (meta, custom name, enchantments) are compiled into a node per item ID: the conditional entries
+ * are ordered from the most specific one, and the entry without conditions is the fallback. So the matching is an ID lookup
+ * followed by a short list of checks, and the items of IDs without conditional entries are never inspected at all
+ */
+public final class WeaponTable {
+
+    /**
+     * Table without any weapons
+     */
+    public static final WeaponTable EMPTY = new WeaponTable(new long[0], new Node[0], null, null, 0);
+
+    /**
+     * Max item ID which is still stored in the dense array. Vanilla weapon IDs are far below this value
+     */
+    static final int MAX_DENSE_ID = 4096;
+
+    /**
+     * Max level of the scale enchantment which still increases lifesteal. Higher levels are treated as this one
+     */
+    static final int MAX_SCALED_LEVEL = 32;
+
+    /**
+     * Marker of free slot in the open-addressing keys array. Registered weapon IDs are always positive
+     */
+    private static final int FREE_KEY = 0;
+
+    /**
+     * Bitset of registered IDs up to {@link #MAX_DENSE_ID}, used for the quick membership check.
+     * It fits into a few cache lines, so rejecting an unregistered item doesn't touch the weapons at all
+     */
+    private final long[] idBits;
+
+    /**
+     * Dense storage indexed directly by item ID. Used when all IDs are below {@link #MAX_DENSE_ID}
+     */
+    private final Node[] dense;
+
+    /**
+     * Open-addressing keys (linear probing). Used for sparse IDs only, otherwise null
+     */
+    private final int[] keys;
+
+    /**
+     * Open-addressing values aligned with {@link #keys}
+     */
+    private final Node[] values;
+
+    /**
+     * Amount of stored weapon entries
+     */
+    private final int size;
+
+    private WeaponTable(long[] idBits, Node[] dense, int[] keys, Node[] values, int size) {
+        this.idBits = idBits;
+        this.dense = dense;
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Build the frozen table from the given weapons. Weapons with non-positive IDs are ignored
+     *
+     * @param weapons weapons to store. Key - id, value - weapon
+     * @return frozen weapon table
+     */
+    public static WeaponTable of(Map<Integer, LifestealWeapon> weapons) {
+        return of(weapons, List.of());
+    }
+
+    /**
+     * Build the frozen table from the given weapons and conditional weapon entries. Weapons with non-positive IDs are ignored
+     *
+     * @param weapons  weapons without conditions. Key - id, value - weapon
+     * @param variants weapons with conditions, in config order. Several entries may share the item ID
+     * @return frozen weapon table
+     */
+    public static WeaponTable of(Map<Integer, LifestealWeapon> weapons, List<LifestealWeapon> variants) {
+        Map<Integer, Node> nodes = new LinkedHashMap<>();
+        for (Map.Entry<Integer, LifestealWeapon> entry : weapons.entrySet()) {
+            if (entry.getKey() > 0 && entry.getValue() != null) {
+                nodes.computeIfAbsent(entry.getKey(), id -> new Node()).plain = entry.getValue();
+            }
+        }
+        Map<Integer, List<LifestealWeapon>> variantsById = new HashMap<>();
+        for (LifestealWeapon variant : variants) {
+            if (variant != null && variant.getId() > 0 && variant.getCondition() != null) {
+                variantsById.computeIfAbsent(variant.getId(), id -> new ArrayList<>()).add(variant);
+                nodes.computeIfAbsent(variant.getId(), id -> new Node());
+            }
+        }
+        if (nodes.isEmpty()) {
+            return EMPTY;
+        }
+
+        int maxId = 0;
+        int size = 0;
+        for (Map.Entry<Integer, Node> entry : nodes.entrySet()) {
+            Node node = entry.getValue();
+            node.compile(variantsById.getOrDefault(entry.getKey(), List.of()));
+            maxId = Math.max(maxId, entry.getKey());
+            size += (node.plain != null ? 1 : 0) + node.variants.length;
+        }
+
+        long[] idBits = new long[(Math.min(maxId, MAX_DENSE_ID) >> 6) + 1];
+        for (int id : nodes.keySet()) {
+            if (id <= MAX_DENSE_ID) {
+                idBits[id >> 6] |= 1L << id;
+            }
+        }
+
+        if (maxId <= MAX_DENSE_ID) /* small IDs, so we can index the array directly */ {
+            Node[] dense = new Node[maxId + 1];
+            for (Map.Entry<Integer, Node> entry : nodes.entrySet()) {
+                dense[entry.getKey()] = entry.getValue();
+            }
+            return new WeaponTable(idBits, dense, null, null, size);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(nodes.size() * 2, 2) - 1) << 1; // power of two with load factor <= 0.5
+        int[] keys = new int[capacity];
+        Node[] values = new Node[capacity];
+        for (Map.Entry<Integer, Node> entry : nodes.entrySet()) {
+            int id = entry.getKey();
+            int slot = mix(id) & (capacity - 1);
+            while (keys[slot] != FREE_KEY && keys[slot] != id) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            keys[slot] = id;
+            values[slot] = entry.getValue();
+        }
+        return new WeaponTable(idBits, null, keys, values, size);
+    }
+
+    /**
+     * Get the weapon without conditions by item ID without any allocation
+     *
+     * @param id item ID
+     * @return weapon or null if weapon with such ID isn't registered
+     */
+    public LifestealWeapon get(int id) {
+        Node node = node(id);
+        return node != null ? node.plain : null;
+    }
+
+    /**
+     * Match the item against the weapon entries of its ID. Conditional entries are checked from the most specific one,
+     * the entry without conditions is used if none of them matches
+     *
+     * @param id   item ID
+     * @param meta item damage
+     * @param tag  parsed NBT tag of the item. May be null if the item has no tag or {@link #needsTag(int)} is false
+     * @return matched weapon, with lifesteal of the scale enchantment level already applied, or null if nothing matches
+     */
+    public LifestealWeapon match(int id, int meta, CompoundTag tag) {
+        Node node = node(id);
+        if (node == null) {
+            return null;
+        }
+        Variant[] variants = node.variants;
+        for (int i = 0; i < variants.length; i++) {
+            Variant variant = variants[i];
+            WeaponCondition condition = variant.weapon.getCondition();
+            if (condition.matches(meta, tag)) {
+                LifestealWeapon[] byLevel = variant.byLevel;
+                return byLevel.length == 1 ? byLevel[0] : byLevel[Math.min(condition.scaleLevelOf(tag), byLevel.length - 1)];
+            }
+        }
+        return node.plain;
+    }
+
+    /**
+     * Check if the NBT tag of the item must be read to match it. False for IDs without conditional entries
+     * or with meta conditions only, so the tag of such items is never parsed
+     *
+     * @param id item ID
+     * @return true if the tag is needed
+     */
+    public boolean needsTag(int id) {
+        Node node = node(id);
+        return node != null && node.needsTag;
+    }
+
+    /**
+     * Check if the weapon with such item ID is registered. IDs up to {@link #MAX_DENSE_ID} are checked with a single bit test
+     *
+     * @param id item ID
+     * @return true if weapon is registered
+     */
+    public boolean contains(int id) {
+        if (id <= 0) {
+            return false;
+        }
+        if (id <= MAX_DENSE_ID) {
+            int word = id >> 6;
+            return word < idBits.length && (idBits[word] & (1L << id)) != 0;
+        }
+        return dense == null && node(id) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copy the weapons without conditions into a new mutable map
+     *
+     * @return map with weapons. Key - id, value - weapon
+     */
+    public Map<Integer, LifestealWeapon> toMap() {
+        Map<Integer, LifestealWeapon> result = new HashMap<>();
+        forEachNode((id, node) -> {
+            if (node.plain != null) {
+                result.put(id, node.plain);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Copy the weapons with conditions into a new list
+     *
+     * @return conditional weapons as they were registered
+     */
+    public List<LifestealWeapon> variants() {
+        List<LifestealWeapon> result = new ArrayList<>();
+        forEachNode((id, node) -> {
+            for (Variant variant : node.variants) {
+                result.add(variant.weapon);
+            }
+        });
+        return result;
+    }
+
+    private Node node(int id) {
+        if (id <= 0) {
+            return null;
+        }
+        if (dense != null) {
+            return id < dense.length ? dense[id] : null;
+        }
+
+        int mask = keys.length - 1;
+        int slot = mix(id) & mask;
+        int key;
+        while ((key = keys[slot]) != FREE_KEY) {
+            if (key == id) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private void forEachNode(NodeConsumer consumer) {
+        if (dense != null) {
+            for (int id = 1; id < dense.length; id++) {
+                if (dense[id] != null) {
+                    consumer.accept(id, dense[id]);
+                }
+            }
+        } else if (keys != null) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != FREE_KEY) {
+                    consumer.accept(keys[slot], values[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Spread the bits of the ID, so the sequential IDs don't cluster in the neighbour slots
+     */
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "WeaponTable{" +
+                "size=" + size +
+                ", storage=" + (dense != null ? "dense[" + dense.length + "]" : "hash[" + keys.length + "]") +
+                '}';
+    }
+
+    @FunctionalInterface
+    private interface NodeConsumer {
+        void accept(int id, Node node);
+    }
+
+    /**
+     * Compiled weapon entries of one item ID
+     */
+    private static final class Node {
+
+        private static final Variant[] NO_VARIANTS = new Variant[0];
+
+        /**
+         * Entry without conditions, used if no conditional entry matches. May be null
+         */
+        private LifestealWeapon plain;
+
+        /**
+         * Conditional entries ordered from the most specific one. Equally specific entries keep the config order
+         */
+        private Variant[] variants = NO_VARIANTS;
+
+        /**
+         * True if any conditional entry reads the NBT tag
+         */
+        private boolean needsTag;
+
+        private void compile(List<LifestealWeapon> weapons) {
+            if (weapons.isEmpty()) {
+                return;
+            }
+            List<LifestealWeapon> ordered = new ArrayList<>(weapons);
+            ordered.sort(Comparator.comparingInt((LifestealWeapon weapon) -> weapon.getCondition().specificity()).reversed());
+            variants = new Variant[ordered.size()];
+            for (int i = 0; i < variants.length; i++) {
+                LifestealWeapon weapon = ordered.get(i);
+                variants[i] = new Variant(weapon);
+                needsTag |= weapon.getCondition().needsTag();
+            }
+        }
+    }
+
+    /**
+     * Conditional entry with its lifesteal precomputed for every level of the scale enchantment
+     */
+    private static final class Variant {
+
+        /**
+         * Entry as it was registered
+         */
+        private final LifestealWeapon weapon;
+
+        /**
+         * Index - level of the scale enchantment, value - entry with the lifesteal of that level.
+         * Holds the registered entry only if lifesteal isn't scaled
+         */
+        private final LifestealWeapon[] byLevel;
+
+        private Variant(LifestealWeapon weapon) {
+            this.weapon = weapon;
+            WeaponCondition condition = weapon.getCondition();
+            if (!condition.isScaled()) {
+                this.byLevel = new LifestealWeapon[]{weapon};
+                return;
+            }
+            this.byLevel = new LifestealWeapon[MAX_SCALED_LEVEL + 1];
+            byLevel[0] = weapon;
+            for (int level = 1; level <= MAX_SCALED_LEVEL; level++) {
+                byLevel[level] = weapon.withLifesteal(weapon.getLifesteal() + condition.getLifestealPerLevel() * level);
+            }
+        }
+    }
+}
@@ -2,11 +2,15 @@ package net.uniloftsky.nukkit.lifesteal.listener;
 
 import cn.nukkit.Player;
 import cn.nukkit.event.EventHandler;
+import cn.nukkit.event.EventPriority;
 import cn.nukkit.event.Listener;
 import cn.nukkit.event.entity.EntityDamageByEntityEvent;
+import cn.nukkit.event.entity.EntityDamageEvent;
 import cn.nukkit.item.Item;
 import cn.nukkit.plugin.PluginLogger;
+import net.uniloftsky.nukkit.lifesteal.HealResult;
 import net.uniloftsky.nukkit.lifesteal.LifestealCore;
+import net.uniloftsky.nukkit.lifesteal.metrics.LifestealMetrics;
 
 /**
  * Listener for in-game events
@@ -15,22 +19,56 @@ public class EventListener implements Listener {
 
     private PluginLogger logger;
     private LifestealCore lifeSteal;
+    private LifestealMetrics metrics;
 
     public EventListener(PluginLogger logger, LifestealCore lifeSteal) {
+        this(logger, lifeSteal, new LifestealMetrics());
+    }
+
+    public EventListener(PluginLogger logger, LifestealCore lifeSteal, LifestealMetrics metrics) {
         this.logger = logger;
         this.lifeSteal = lifeSteal;
+        this.metrics = metrics;
     }
 
-    @EventHandler
+    /**
+     * Every entity damage on the server goes through this handler, so the attacks which cannot trigger lifesteal are rejected
+     * in the order of their cost: cancelled events are skipped by the event manager, then the damage cause and the damager are checked,
+     * the item in hand is checked against the registered weapon IDs, and the attacked entity type is looked up by its network ID
+     * before any other work.
+     * Runs at MONITOR priority, so the damage of the event is final and the heal matches the real fight
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onAttack(EntityDamageByEntityEvent event) {
-        if (event.getDamager().isPlayer) {
-            Player player = (Player) event.getDamager();
-            Item itemInHand = player.getInventory().getItemInHand();
-            try {
-                lifeSteal.healPlayer(player, itemInHand);
-            } catch (IllegalArgumentException ex) {
-                logger.error("Some exception occurred when tried to heal the player", ex);
-            }
+        if (event.getCause() != EntityDamageEvent.DamageCause.ENTITY_ATTACK) /* only melee attacks, no projectiles, thorns etc. */ {
+            return;
+        }
+        if (!event.getDamager().isPlayer) {
+            return;
+        }
+        metrics.attackSeen(); // every melee attack of a player, also the ones rejected below
+
+        Player player = (Player) event.getDamager();
+        Item itemInHand = player.getInventory().getItemInHand();
+        if (itemInHand != null && !lifeSteal.isLifestealWeapon(itemInHand.getId())) {
+            lifeSteal.recordRejected(player, itemInHand.getId(), HealResult.NOT_A_WEAPON);
+            return;
+        }
+
+        int victimMultiplier = lifeSteal.getVictimMultiplier(player, event.getEntity());
+        if (victimMultiplier == 0) /* lifesteal is disabled against such entities, e.g. armor stands */ {
+            metrics.targetRejected();
+            lifeSteal.recordRejected(player, itemInHand != null ? itemInHand.getId() : 0, HealResult.TARGET_DISABLED);
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            lifeSteal.healPlayer(player, itemInHand, lifeSteal.getDealtDamage(event), victimMultiplier);
+        } catch (IllegalArgumentException ex) {
+            logger.error("Some exception occurred when tried to heal the player", ex);
+        } finally {
+            metrics.healLatency(System.nanoTime() - startedAt);
         }
     }
 
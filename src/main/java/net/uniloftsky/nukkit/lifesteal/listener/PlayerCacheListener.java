@@ -0,0 +1,48 @@
+package net.uniloftsky.nukkit.lifesteal.listener;
+
+import cn.nukkit.Player;
+import cn.nukkit.event.EventHandler;
+import cn.nukkit.event.EventPriority;
+import cn.nukkit.event.Listener;
+import cn.nukkit.event.entity.EntityLevelChangeEvent;
+import cn.nukkit.event.player.PlayerJoinEvent;
+import cn.nukkit.event.player.PlayerQuitEvent;
+import net.uniloftsky.nukkit.lifesteal.PermissionCache;
+import net.uniloftsky.nukkit.lifesteal.PlayerRuleCache;
+
+/**
+ * Listener which keeps the per-player caches in sync with the players. Registered separately from {@link EventListener},
+ * so the attack listener can be unregistered without losing the cache invalidation
+ */
+public class PlayerCacheListener implements Listener {
+
+    private PermissionCache permissionCache;
+    private PlayerRuleCache ruleCache;
+
+    public PlayerCacheListener(PermissionCache permissionCache, PlayerRuleCache ruleCache) {
+        this.permissionCache = permissionCache;
+        this.ruleCache = ruleCache;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        permissionCache.refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        permissionCache.invalidate(event.getPlayer().getUniqueId());
+        ruleCache.invalidate(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Permissions may be defined per level, so the cached result is dropped when the player changes the level
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onLevelChange(EntityLevelChangeEvent event) {
+        if (event.getEntity() instanceof Player player) {
+            permissionCache.invalidate(player.getUniqueId());
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package net.uniloftsky.nukkit.lifesteal.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with power-of-two buckets in nanoseconds. Bucket {@code i} counts the values in {@code [2^i, 2^(i+1))},
+ * so recording is a single bit operation and a {@link LongAdder} increment
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Amount of buckets. The last one collects everything above ~1 second
+     */
+    static final int BUCKETS = 31;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        buckets[bucketOf(nanos)].increment();
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * @return counts of all buckets
+     */
+    public long[] getCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Approximate percentile. The upper bound of the bucket which contains the percentile is returned
+     *
+     * @param percentile percentile from 0 to 100
+     * @return latency in nanoseconds or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = getCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, threshold)) {
+                return (1L << (i + 1)) - 1;
+            }
+        }
+        return (1L << BUCKETS) - 1;
+    }
+}
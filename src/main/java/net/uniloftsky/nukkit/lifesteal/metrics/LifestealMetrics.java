@@ -0,0 +1,163 @@
+package net.uniloftsky.nukkit.lifesteal.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead lifesteal counters. Updated from the attack handlers, read by the stats command, JMX and the periodic dump
+ */
+public final class LifestealMetrics implements LifestealMetricsMXBean {
+
+    /**
+     * Header of the CSV rows produced by {@link #toCsvRow(long)}
+     */
+    public static final String CSV_HEADER = "timestamp,attacks_seen,chance_rolls_won,heals_applied,hp_healed,permission_denials,heal_latency_p50_ns,heal_latency_p99_ns,heals_limited,heal_batch_latency_p99_ns,targets_rejected";
+
+    private final LongAdder attacksSeen = new LongAdder();
+    private final LongAdder chanceRollsWon = new LongAdder();
+    private final LongAdder healsApplied = new LongAdder();
+    private final DoubleAdder hpHealed = new DoubleAdder();
+    private final LongAdder permissionDenials = new LongAdder();
+    private final LongAdder healsLimited = new LongAdder();
+    private final LongAdder targetsRejected = new LongAdder();
+    private final WeaponCounters healsPerWeapon = new WeaponCounters();
+    private final LatencyHistogram healLatency = new LatencyHistogram();
+    private final LongAdder healBatchPlayers = new LongAdder();
+    private final LatencyHistogram healBatchLatency = new LatencyHistogram();
+
+    public void attackSeen() {
+        attacksSeen.increment();
+    }
+
+    public void chanceRollWon() {
+        chanceRollsWon.increment();
+    }
+
+    public void permissionDenied() {
+        permissionDenials.increment();
+    }
+
+    public void healLimited() {
+        healsLimited.increment();
+    }
+
+    public void targetRejected() {
+        targetsRejected.increment();
+    }
+
+    public void healApplied(int weaponId, float amount) {
+        healsApplied.increment();
+        hpHealed.add(amount);
+        healsPerWeapon.increment(weaponId);
+    }
+
+    public void healLatency(long nanos) {
+        healLatency.record(nanos);
+    }
+
+    /**
+     * Record one application of the accumulated heals
+     *
+     * @param players amount of healed players
+     * @param nanos   time spent
+     */
+    public void healBatchApplied(int players, long nanos) {
+        healBatchPlayers.add(players);
+        healBatchLatency.record(nanos);
+    }
+
+    @Override
+    public long getAttacksSeen() {
+        return attacksSeen.sum();
+    }
+
+    @Override
+    public long getChanceRollsWon() {
+        return chanceRollsWon.sum();
+    }
+
+    @Override
+    public long getHealsApplied() {
+        return healsApplied.sum();
+    }
+
+    @Override
+    public double getHpHealed() {
+        return hpHealed.sum();
+    }
+
+    @Override
+    public long getPermissionDenials() {
+        return permissionDenials.sum();
+    }
+
+    @Override
+    public long getHealsLimited() {
+        return healsLimited.sum();
+    }
+
+    @Override
+    public long getTargetsRejected() {
+        return targetsRejected.sum();
+    }
+
+    @Override
+    public Map<Integer, Long> getHealsPerWeapon() {
+        return healsPerWeapon.snapshot();
+    }
+
+    @Override
+    public long getHealLatencyP50Nanos() {
+        return healLatency.getPercentile(50);
+    }
+
+    @Override
+    public long getHealLatencyP99Nanos() {
+        return healLatency.getPercentile(99);
+    }
+
+    @Override
+    public long getHealBatches() {
+        return healBatchLatency.getCount();
+    }
+
+    @Override
+    public long getHealBatchPlayers() {
+        return healBatchPlayers.sum();
+    }
+
+    @Override
+    public long getHealBatchLatencyP99Nanos() {
+        return healBatchLatency.getPercentile(99);
+    }
+
+    @Override
+    public long[] getHealLatencyHistogram() {
+        return healLatency.getCounts();
+    }
+
+    /**
+     * @param timestamp time of the row in milliseconds
+     * @return CSV row with the current values, columns are described by {@link #CSV_HEADER}
+     */
+    public String toCsvRow(long timestamp) {
+        return timestamp + "," + getAttacksSeen() + "," + getChanceRollsWon() + "," + getHealsApplied() + "," + String.format(Locale.ROOT, "%.2f", getHpHealed())
+                + "," + getPermissionDenials() + "," + getHealLatencyP50Nanos() + "," + getHealLatencyP99Nanos() + "," + getHealsLimited() + "," + getHealBatchLatencyP99Nanos()
+                + "," + getTargetsRejected();
+    }
+
+    @Override
+    public String toString() {
+        return "attacks seen: " + getAttacksSeen() +
+                ", chance rolls won: " + getChanceRollsWon() +
+                ", heals applied: " + getHealsApplied() +
+                ", HP healed: " + String.format(Locale.ROOT, "%.1f", getHpHealed()) +
+                ", permission denials: " + getPermissionDenials() +
+                ", heals limited: " + getHealsLimited() +
+                ", targets rejected: " + getTargetsRejected() +
+                ", heal latency p50/p99: " + getHealLatencyP50Nanos() / 1000 + "/" + getHealLatencyP99Nanos() / 1000 + " us" +
+                (getHealBatches() > 0 ? ", heal batches: " + getHealBatches() + " (" + getHealBatchPlayers() + " players, p99 " + getHealBatchLatencyP99Nanos() / 1000 + " us)" : "");
+    }
+}
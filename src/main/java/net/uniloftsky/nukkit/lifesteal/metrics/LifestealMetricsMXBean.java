@@ -0,0 +1,37 @@
+package net.uniloftsky.nukkit.lifesteal.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the lifesteal metrics
+ */
+public interface LifestealMetricsMXBean {
+
+    long getAttacksSeen();
+
+    long getChanceRollsWon();
+
+    long getHealsApplied();
+
+    double getHpHealed();
+
+    long getPermissionDenials();
+
+    long getHealsLimited();
+
+    long getTargetsRejected();
+
+    Map<Integer, Long> getHealsPerWeapon();
+
+    long getHealLatencyP50Nanos();
+
+    long getHealLatencyP99Nanos();
+
+    long getHealBatches();
+
+    long getHealBatchPlayers();
+
+    long getHealBatchLatencyP99Nanos();
+
+    long[] getHealLatencyHistogram();
+}
@@ -0,0 +1,89 @@
+package net.uniloftsky.nukkit.lifesteal.metrics;
+
+import cn.nukkit.plugin.PluginLogger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Appends the current metrics as a CSV row to the dump file. Scheduled periodically on the async worker.
+ * A dump file written with other columns, e.g. by a former version of the plugin, is rotated before the first row is appended
+ */
+public final class MetricsDumper implements Runnable {
+
+    /**
+     * Name of the dump file in the plugin data folder
+     */
+    public static final String METRICS_FILE = "metrics.csv";
+
+    private static final DateTimeFormatter ROTATION_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final LifestealMetrics metrics;
+    private final Path file;
+    private final PluginLogger logger;
+
+    /**
+     * Whether the header of the existing file was already compared with the current columns
+     */
+    private volatile boolean headerChecked;
+
+    public MetricsDumper(LifestealMetrics metrics, Path file, PluginLogger logger) {
+        this.metrics = metrics;
+        this.file = file;
+        this.logger = logger;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (!headerChecked) {
+                rotateOutdated();
+                headerChecked = true;
+            }
+            if (!Files.exists(file)) {
+                Files.write(file, List.of(LifestealMetrics.CSV_HEADER), StandardCharsets.UTF_8);
+            }
+            Files.write(file, List.of(metrics.toCsvRow(System.currentTimeMillis())), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            logger.error("Cannot dump lifesteal metrics to " + file, ex);
+        }
+    }
+
+    /**
+     * Rename the existing file to {@code metrics-<time>.csv} if its header differs from {@link LifestealMetrics#CSV_HEADER},
+     * so the rows with different columns never end up in one file
+     *
+     * @throws IOException if file cannot be read or renamed
+     */
+    private void rotateOutdated() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        String header;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            header = reader.readLine();
+        }
+        if (LifestealMetrics.CSV_HEADER.equals(header)) {
+            return;
+        }
+        if (header == null) /* empty file, written again with the header */ {
+            Files.delete(file);
+            return;
+        }
+        String fileName = file.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        String rotatedName = (extension > 0 ? fileName.substring(0, extension) : fileName) + "-"
+                + ROTATION_TIME_FORMAT.format(LocalDateTime.now()) + (extension > 0 ? fileName.substring(extension) : "");
+        Path rotated = file.resolveSibling(rotatedName);
+        Files.move(file, rotated, StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Columns of " + file.getFileName() + " changed, former metrics were moved to " + rotated.getFileName());
+    }
+}
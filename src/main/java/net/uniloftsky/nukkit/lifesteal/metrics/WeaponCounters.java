@@ -0,0 +1,101 @@
+package net.uniloftsky.nukkit.lifesteal.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters keyed by primitive weapon ID. Lookup is lock-free and allocation-free. A new weapon ID copies the table once under lock,
+ * which happens only as many times as there are distinct weapons
+ */
+final class WeaponCounters {
+
+    /**
+     * Current table. Replaced as a whole, so readers never see a partially copied one
+     */
+    private volatile Table table = new Table(16);
+
+    void increment(int weaponId) {
+        LongAdder counter = table.get(weaponId);
+        if (counter == null) {
+            counter = register(weaponId);
+        }
+        counter.increment();
+    }
+
+    private synchronized LongAdder register(int weaponId) {
+        Table current = table;
+        LongAdder counter = current.get(weaponId);
+        if (counter != null) {
+            return counter;
+        }
+
+        Table copy = new Table(current.size + 1 > current.keys.length / 2 ? current.keys.length * 2 : current.keys.length);
+        for (int slot = 0; slot < current.keys.length; slot++) {
+            if (current.counters[slot] != null) {
+                copy.put(current.keys[slot], current.counters[slot]);
+            }
+        }
+        counter = new LongAdder();
+        copy.put(weaponId, counter);
+        table = copy;
+        return counter;
+    }
+
+    /**
+     * @return counts per weapon. Key - weapon ID, value - count
+     */
+    Map<Integer, Long> snapshot() {
+        Table current = table;
+        Map<Integer, Long> result = new HashMap<>();
+        for (int slot = 0; slot < current.keys.length; slot++) {
+            if (current.counters[slot] != null) {
+                result.put(current.keys[slot], current.counters[slot].sum());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Open-addressing table with linear probing. Occupied slots are the ones with non-null counter
+     */
+    private static final class Table {
+        private final int[] keys;
+        private final LongAdder[] counters;
+        private int size;
+
+        private Table(int capacity) {
+            this.keys = new int[capacity];
+            this.counters = new LongAdder[capacity];
+        }
+
+        private LongAdder get(int key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            LongAdder counter;
+            while ((counter = counters[slot]) != null) {
+                if (keys[slot] == key) {
+                    return counter;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private void put(int key, LongAdder counter) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (counters[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            counters[slot] = counter;
+            size++;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
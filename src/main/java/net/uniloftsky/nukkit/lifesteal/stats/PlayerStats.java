@@ -0,0 +1,174 @@
+package net.uniloftsky.nukkit.lifesteal.stats;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Lifesteal statistics of one player: procs and stolen HP per weapon, with the totals kept up to date.
+ * Players rarely use more than a few weapons, so the counters are small primitive arrays scanned linearly.
+ * Used from the main server thread only
+ */
+public final class PlayerStats {
+
+    /**
+     * Weapon ID of the player who has no statistics yet
+     */
+    public static final int NO_WEAPON = -1;
+
+    private static final int INITIAL_WEAPONS = 4;
+
+    private final UUID uuid;
+
+    private int[] weaponIds = new int[INITIAL_WEAPONS];
+
+    /**
+     * Procs per weapon, aligned with {@link #weaponIds}
+     */
+    private long[] procs = new long[INITIAL_WEAPONS];
+
+    /**
+     * Stolen HP per weapon, aligned with {@link #weaponIds}
+     */
+    private double[] healed = new double[INITIAL_WEAPONS];
+
+    /**
+     * Flags of the weapons changed since the last flush, aligned with {@link #weaponIds}
+     */
+    private boolean[] dirty = new boolean[INITIAL_WEAPONS];
+
+    private int weapons;
+
+    private long totalProcs;
+
+    private double totalHealed;
+
+    /**
+     * Flag to define if the player is queued for the next flush
+     */
+    boolean queued;
+
+    PlayerStats(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    /**
+     * Add the procs and the stolen HP of the weapon
+     *
+     * @param weaponId  weapon ID
+     * @param procs     amount of procs to add
+     * @param healed    stolen HP to add
+     * @param markDirty true if the weapon must be written on the next flush
+     * @return true if the weapon is new for this player
+     */
+    boolean add(int weaponId, long procs, double healed, boolean markDirty) {
+        int index = indexOf(weaponId);
+        boolean added = index < 0;
+        if (added) {
+            if (weapons == weaponIds.length) {
+                int capacity = weapons * 2;
+                weaponIds = Arrays.copyOf(weaponIds, capacity);
+                this.procs = Arrays.copyOf(this.procs, capacity);
+                this.healed = Arrays.copyOf(this.healed, capacity);
+                dirty = Arrays.copyOf(dirty, capacity);
+            }
+            index = weapons++;
+            weaponIds[index] = weaponId;
+        }
+        this.procs[index] += procs;
+        this.healed[index] += healed;
+        dirty[index] |= markDirty;
+        totalProcs += procs;
+        totalHealed += healed;
+        return added;
+    }
+
+    /**
+     * Write the changed weapons of the player into the batch and clear their flags
+     *
+     * @param batch target batch
+     */
+    void drainDirty(StatsBatch batch) {
+        for (int i = 0; i < weapons; i++) {
+            if (dirty[i]) {
+                batch.add(uuid, weaponIds[i], procs[i], healed[i]);
+                dirty[i] = false;
+            }
+        }
+    }
+
+    /**
+     * Write all weapons of the player into the batch, e.g. for compaction
+     *
+     * @param batch target batch
+     */
+    void writeAll(StatsBatch batch) {
+        for (int i = 0; i < weapons; i++) {
+            batch.add(uuid, weaponIds[i], procs[i], healed[i]);
+        }
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public long getTotalProcs() {
+        return totalProcs;
+    }
+
+    public double getTotalHealed() {
+        return totalHealed;
+    }
+
+    /**
+     * @return amount of weapons the player has statistics for
+     */
+    public int getWeapons() {
+        return weapons;
+    }
+
+    /**
+     * Get the weapon which stole the most HP
+     *
+     * @return weapon ID or {@link #NO_WEAPON} if the player has no statistics
+     */
+    public int getBestWeaponId() {
+        int best = NO_WEAPON;
+        double bestHealed = -1;
+        for (int i = 0; i < weapons; i++) {
+            if (healed[i] > bestHealed) {
+                bestHealed = healed[i];
+                best = weaponIds[i];
+            }
+        }
+        return best;
+    }
+
+    public long getProcs(int weaponId) {
+        int index = indexOf(weaponId);
+        return index >= 0 ? procs[index] : 0;
+    }
+
+    public double getHealed(int weaponId) {
+        int index = indexOf(weaponId);
+        return index >= 0 ? healed[index] : 0;
+    }
+
+    private int indexOf(int weaponId) {
+        for (int i = 0; i < weapons; i++) {
+            if (weaponIds[i] == weaponId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "uuid=" + uuid +
+                ", totalProcs=" + totalProcs +
+                ", totalHealed=" + totalHealed +
+                ", bestWeaponId=" + getBestWeaponId() +
+                '}';
+    }
+}
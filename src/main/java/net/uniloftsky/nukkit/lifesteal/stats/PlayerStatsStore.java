@@ -0,0 +1,329 @@
+package net.uniloftsky.nukkit.lifesteal.stats;
+
+import cn.nukkit.plugin.PluginLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-player lifesteal statistics with write-behind persistence. The counters live in memory and are updated on the main thread;
+ * the changed ones are collected into batches on flush and written to the {@link StatsLog} by the single writer thread,
+ * so the main thread never touches the file. The log is compacted by the writer once it holds too many replaced records
+ */
+public final class PlayerStatsStore implements Closeable {
+
+    /**
+     * Name of the statistics log in the plugin data folder
+     */
+    public static final String STATS_FILE = "stats.log";
+
+    /**
+     * Max amount of records in one write until the config is applied
+     */
+    private static final int DEFAULT_BATCH_SIZE = 512;
+
+    /**
+     * The log is compacted when it holds this many times more records than there are live keys
+     */
+    static final int COMPACTION_FACTOR = 4;
+
+    /**
+     * Min amount of records in the log before the compaction is considered, so small logs aren't rewritten over and over
+     */
+    static final int MIN_COMPACTION_RECORDS = 4096;
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Statistics of the players. Key - player UUID, value - statistics
+     */
+    private final Map<UUID, PlayerStats> players = new HashMap<>();
+
+    /**
+     * Players changed since the last flush
+     */
+    private final ArrayDeque<PlayerStats> dirtyPlayers = new ArrayDeque<>();
+
+    /**
+     * Amount of player and weapon keys, i.e. the size of the compacted log
+     */
+    private long liveRecords;
+
+    /**
+     * Amount of changes since the last flush. The flush happens early once it reaches the batch size
+     */
+    private int pendingChanges;
+
+    private final StatsLog log;
+
+    private final ExecutorService writer;
+
+    private final PluginLogger logger;
+
+    private boolean enabled = true;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Flag to define if the log is loaded. Nothing is written before, otherwise the session counters would replace the stored ones
+     */
+    private boolean loaded;
+
+    /**
+     * Flag to define if the log couldn't be loaded. The store stays disabled for the rest of the session, so the session counters
+     * aren't shown as the stored ones
+     */
+    private boolean failed;
+
+    /**
+     * Amount of records in the log, updated by the writer
+     */
+    private volatile long logRecords;
+
+    /**
+     * Flag to define if the compaction is already queued to the writer
+     */
+    private volatile boolean compactionQueued;
+
+    public PlayerStatsStore(Path file, PluginLogger logger) {
+        this(file, logger, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Lifesteal stats writer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    PlayerStatsStore(Path file, PluginLogger logger, ExecutorService writer) {
+        this.log = new StatsLog(file);
+        this.logger = logger;
+        this.writer = writer;
+    }
+
+    /**
+     * Create the store which doesn't collect anything and has no file
+     *
+     * @return disabled store
+     */
+    public static PlayerStatsStore disabled() {
+        PlayerStatsStore store = new PlayerStatsStore(null, null, null);
+        store.enabled = false;
+        return store;
+    }
+
+    /**
+     * Apply the values from config
+     *
+     * @param enabled   false if the statistics aren't collected
+     * @param batchSize max amount of records in one write
+     */
+    public void configure(boolean enabled, int batchSize) {
+        this.enabled = enabled && writer != null && !failed;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Load the log on the writer thread and merge it into the counters on the main thread
+     *
+     * @param mainThread executor of the main server thread
+     */
+    public void loadAsync(Executor mainThread) {
+        writer.execute(() -> {
+            try {
+                StatsBatch stored = log.load();
+                logRecords = log.records();
+                mainThread.execute(() -> merge(stored));
+            } catch (IOException | RuntimeException ex) {
+                logger.error("Cannot load lifesteal statistics, they won't be collected in this session", ex);
+                mainThread.execute(this::fail);
+            }
+        });
+    }
+
+    /**
+     * Count the lifesteal proc of the player
+     *
+     * @param uuid     player UUID
+     * @param weaponId ID of the weapon which triggered lifesteal
+     * @param healed   stolen HP
+     */
+    public void record(UUID uuid, int weaponId, float healed) {
+        if (!enabled) {
+            return;
+        }
+        PlayerStats stats = players.get(uuid);
+        if (stats == null) {
+            stats = new PlayerStats(uuid);
+            players.put(uuid, stats);
+        }
+        if (stats.add(weaponId, 1, healed, true)) {
+            liveRecords++;
+        }
+        if (!stats.queued) {
+            stats.queued = true;
+            dirtyPlayers.add(stats);
+        }
+        if (++pendingChanges >= batchSize && loaded) /* don't wait for the interval, the batch is full */ {
+            flush();
+        }
+    }
+
+    /**
+     * Hand the changed counters over to the writer in batches of the configured size. Invoked on the main thread
+     */
+    public void flush() {
+        if (!loaded) {
+            return;
+        }
+        pendingChanges = 0;
+        StatsBatch batch = new StatsBatch(Math.min(batchSize, 64));
+        PlayerStats stats;
+        while ((stats = dirtyPlayers.poll()) != null) {
+            stats.queued = false;
+            stats.drainDirty(batch);
+            if (batch.size() >= batchSize) {
+                submitAppend(batch);
+                batch = new StatsBatch(Math.min(batchSize, 64));
+            }
+        }
+        submitAppend(batch);
+
+        if (!compactionQueued && logRecords > MIN_COMPACTION_RECORDS && logRecords > liveRecords * COMPACTION_FACTOR) {
+            StatsBatch all = new StatsBatch((int) Math.min(liveRecords, Integer.MAX_VALUE / 2));
+            for (PlayerStats playerStats : players.values()) {
+                playerStats.writeAll(all);
+            }
+            compactionQueued = true;
+            writer.execute(() -> {
+                try {
+                    log.rewrite(all);
+                    logRecords = log.records();
+                } catch (IOException ex) {
+                    logger.error("Cannot compact lifesteal statistics", ex);
+                } finally {
+                    compactionQueued = false;
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the statistics of the player
+     *
+     * @param uuid player UUID
+     * @return statistics or null if the player has none
+     */
+    public PlayerStats get(UUID uuid) {
+        return players.get(uuid);
+    }
+
+    /**
+     * Get the best players, e.g. for a leaderboard
+     *
+     * @param limit      max amount of players
+     * @param comparator order of the players, the best first
+     * @return best players
+     */
+    public List<PlayerStats> top(int limit, Comparator<PlayerStats> comparator) {
+        List<PlayerStats> result = new ArrayList<>(players.values());
+        result.sort(comparator);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public int size() {
+        return players.size();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return true if the log couldn't be loaded and the statistics aren't collected in this session
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Write the remaining changes and wait for the writer to finish, e.g. when the plugin is disabled
+     */
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        flush();
+        writer.execute(() -> {
+            try {
+                log.close();
+            } catch (IOException ex) {
+                logger.error("Cannot close lifesteal statistics log", ex);
+            }
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warning("Lifesteal statistics weren't written completely in " + CLOSE_TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Add the stored counters to the ones collected while the log was loading. Invoked on the main thread
+     */
+    void merge(StatsBatch stored) {
+        for (int i = 0; i < stored.size(); i++) {
+            UUID uuid = stored.uuid(i);
+            PlayerStats stats = players.get(uuid);
+            if (stats == null) {
+                stats = new PlayerStats(uuid);
+                players.put(uuid, stats);
+            }
+            if (stats.add(stored.weaponId(i), stored.procs(i), stored.healed(i), false)) {
+                liveRecords++;
+            }
+        }
+        loaded = true;
+        logger.info("Loaded lifesteal statistics of " + players.size() + " players");
+    }
+
+    /**
+     * Stop collecting after the log couldn't be loaded and drop the session counters. Invoked on the main thread
+     */
+    void fail() {
+        failed = true;
+        enabled = false;
+        players.clear();
+        dirtyPlayers.clear();
+        pendingChanges = 0;
+        liveRecords = 0;
+    }
+
+    private void submitAppend(StatsBatch batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                log.append(batch);
+                logRecords = log.records();
+            } catch (IOException ex) {
+                logger.error("Cannot write lifesteal statistics", ex);
+            }
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package net.uniloftsky.nukkit.lifesteal.stats;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Batch of statistics records in primitive arrays. Each record holds the current totals of one player and weapon,
+ * so the later record of the same key replaces the earlier one. Built on the main thread and handed over to the writer as a whole
+ */
+final class StatsBatch {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] mostSignificantBits;
+    private long[] leastSignificantBits;
+    private int[] weaponIds;
+    private long[] procs;
+    private double[] healed;
+    private int size;
+
+    StatsBatch() {
+        this(INITIAL_CAPACITY);
+    }
+
+    StatsBatch(int capacity) {
+        capacity = Math.max(capacity, 1);
+        mostSignificantBits = new long[capacity];
+        leastSignificantBits = new long[capacity];
+        weaponIds = new int[capacity];
+        procs = new long[capacity];
+        healed = new double[capacity];
+    }
+
+    void add(UUID uuid, int weaponId, long procs, double healed) {
+        add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), weaponId, procs, healed);
+    }
+
+    void add(long mostSignificantBits, long leastSignificantBits, int weaponId, long procs, double healed) {
+        if (size == weaponIds.length) {
+            int capacity = size * 2;
+            this.mostSignificantBits = Arrays.copyOf(this.mostSignificantBits, capacity);
+            this.leastSignificantBits = Arrays.copyOf(this.leastSignificantBits, capacity);
+            this.weaponIds = Arrays.copyOf(this.weaponIds, capacity);
+            this.procs = Arrays.copyOf(this.procs, capacity);
+            this.healed = Arrays.copyOf(this.healed, capacity);
+        }
+        this.mostSignificantBits[size] = mostSignificantBits;
+        this.leastSignificantBits[size] = leastSignificantBits;
+        this.weaponIds[size] = weaponId;
+        this.procs[size] = procs;
+        this.healed[size] = healed;
+        size++;
+    }
+
+    /**
+     * Replace the values of the record, e.g. by the later record of the same key
+     */
+    void set(int index, long procs, double healed) {
+        this.procs[index] = procs;
+        this.healed[index] = healed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long mostSignificantBits(int index) {
+        return mostSignificantBits[index];
+    }
+
+    long leastSignificantBits(int index) {
+        return leastSignificantBits[index];
+    }
+
+    UUID uuid(int index) {
+        return new UUID(mostSignificantBits[index], leastSignificantBits[index]);
+    }
+
+    int weaponId(int index) {
+        return weaponIds[index];
+    }
+
+    long procs(int index) {
+        return procs[index];
+    }
+
+    double healed(int index) {
+        return healed[index];
+    }
+}
@@ -0,0 +1,206 @@
+package net.uniloftsky.nukkit.lifesteal.stats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only log of the statistics records. The file consists of the header (magic and version) followed by fixed-width records
+ * of player UUID, weapon ID, procs and stolen HP. A record holds the totals, so the last record of the key wins on load,
+ * and the log is compacted by rewriting it with one record per key. A partial record at the end, e.g. after a crash, is dropped.
+ * Used from the writer thread only
+ */
+final class StatsLog implements Closeable {
+
+    /**
+     * "LSPS" - lifesteal player stats
+     */
+    private static final int MAGIC = 0x4C535053;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Magic and version
+     */
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    /**
+     * UUID, weapon ID, procs and stolen HP
+     */
+    static final int RECORD_SIZE = Long.BYTES * 2 + Integer.BYTES + Long.BYTES + Double.BYTES;
+
+    /**
+     * Amount of records read from the file at once on load
+     */
+    private static final int READ_BUFFER_RECORDS = 1024;
+
+    private final Path file;
+
+    /**
+     * Channel to append the records. Opened on the first write
+     */
+    private FileChannel channel;
+
+    /**
+     * Amount of complete records in the file
+     */
+    private long records;
+
+    StatsLog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the log. Every key is read once with its last values
+     *
+     * @return records of the log
+     * @throws IOException if file cannot be read or isn't a statistics log
+     */
+    StatsBatch load() throws IOException {
+        if (!Files.exists(file)) {
+            records = 0;
+            return new StatsBatch();
+        }
+        try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = readChannel.size();
+            if (size < HEADER_SIZE) /* file was created, but the header wasn't written completely */ {
+                records = 0;
+                return new StatsBatch();
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_RECORDS * RECORD_SIZE);
+            buffer.limit(HEADER_SIZE);
+            readFully(readChannel, buffer);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a statistics log");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported statistics log version " + version);
+            }
+
+            records = (size - HEADER_SIZE) / RECORD_SIZE;
+            StatsBatch batch = new StatsBatch((int) Math.min(records, Integer.MAX_VALUE / 2));
+            Map<Key, Integer> positions = new HashMap<>();
+            for (long i = 0; i < records; i++) {
+                if (!buffer.hasRemaining()) {
+                    buffer.clear().limit((int) Math.min(READ_BUFFER_RECORDS, records - i) * RECORD_SIZE);
+                    readFully(readChannel, buffer);
+                }
+                long mostSignificantBits = buffer.getLong();
+                long leastSignificantBits = buffer.getLong();
+                int weaponId = buffer.getInt();
+                long procs = buffer.getLong();
+                double healed = buffer.getDouble();
+                Integer position = positions.putIfAbsent(new Key(mostSignificantBits, leastSignificantBits, weaponId), batch.size());
+                if (position == null) {
+                    batch.add(mostSignificantBits, leastSignificantBits, weaponId, procs, healed);
+                } else {
+                    batch.set(position, procs, healed);
+                }
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Fill the buffer up to its limit from the current position of the channel and flip it
+     *
+     * @param channel channel to read
+     * @param buffer  buffer to fill
+     * @throws IOException if file cannot be read or ends before the buffer is full
+     */
+    private void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Statistics log was truncated while reading");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Append the records to the end of the log
+     *
+     * @param batch records to append
+     * @throws IOException if file cannot be written
+     */
+    void append(StatsBatch batch) throws IOException {
+        if (batch.size() == 0) {
+            return;
+        }
+        FileChannel channel = channel();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * batch.size());
+        writeRecords(buffer, batch);
+        buffer.flip();
+        long position = HEADER_SIZE + records * RECORD_SIZE; // overwrites a partial record left by a crash
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        records += batch.size();
+    }
+
+    /**
+     * Replace the log with the given records. The new log is written next to the current one and moved over it,
+     * so a crash during compaction leaves the previous log intact
+     *
+     * @param batch all current records
+     * @throws IOException if file cannot be written
+     */
+    void rewrite(StatsBatch batch) throws IOException {
+        close();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + RECORD_SIZE * batch.size());
+        buffer.putInt(MAGIC).putInt(VERSION);
+        writeRecords(buffer, batch);
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, buffer.array());
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = batch.size();
+    }
+
+    /**
+     * @return amount of records in the file, including the replaced ones
+     */
+    long records() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.size() < HEADER_SIZE) /* new file */ {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                channel.write(header, 0);
+                records = 0;
+            }
+        }
+        return channel;
+    }
+
+    private static void writeRecords(ByteBuffer buffer, StatsBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            buffer.putLong(batch.mostSignificantBits(i)).putLong(batch.leastSignificantBits(i)).putInt(batch.weaponId(i))
+                    .putLong(batch.procs(i)).putDouble(batch.healed(i));
+        }
+    }
+
+    private record Key(long mostSignificantBits, long leastSignificantBits, int weaponId) {
+    }
+}
@@ -0,0 +1,243 @@
+package net.uniloftsky.nukkit.lifesteal.trace;
+
+import net.uniloftsky.nukkit.lifesteal.HealResult;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size ring of the latest lifesteal decisions, kept off-heap in a direct buffer, so it neither allocates nor adds
+ * to the GC work however many attacks there are. The oldest records are overwritten.
+ * <p>
+ * There is a single writer, the main server thread, and any amount of readers on any thread, e.g. the dump on the async worker.
+ * Every record starts with its sequence number, which the writer invalidates before the record is rewritten and publishes
+ * after it is complete. A reader checks the sequence before and after reading the record and drops the record if it was
+ * overwritten meanwhile, so neither side ever locks or waits
+ */
+public final class CombatLog {
+
+    /**
+     * Size of a record in bytes, multiple of 8, so the sequence of every record is aligned
+     */
+    static final int RECORD_SIZE = 40;
+
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int ENTITY_ID_OFFSET = 16;
+    private static final int ITEM_ID_OFFSET = 24;
+    private static final int CHANCE_OFFSET = 28;
+    private static final int HEAL_OFFSET = 32;
+    private static final int RESULT_OFFSET = 36;
+
+    /**
+     * Sequence of the record which is being rewritten
+     */
+    private static final long IN_PROGRESS = -1;
+
+    /**
+     * Max amount of records, 640 MB off-heap
+     */
+    static final int MAX_CAPACITY = 1 << 24;
+
+    private static final VarHandle SEQUENCE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /**
+     * Log which records nothing
+     */
+    public static final CombatLog DISABLED = new CombatLog(0);
+
+    /**
+     * Null if the log is disabled
+     */
+    private final ByteBuffer buffer;
+
+    private final int capacity;
+
+    private final int mask;
+
+    /**
+     * Amount of records ever written, the sequence of the next record
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param size amount of records to keep, rounded up to a power of two. Zero disables the log
+     * @throws IllegalArgumentException if size is negative
+     */
+    public CombatLog(int size) {
+        this.capacity = capacityFor(size);
+        this.mask = capacity - 1;
+        this.buffer = capacity > 0
+                ? ByteBuffer.allocateDirect(capacity * RECORD_SIZE + Long.BYTES).alignedSlice(Long.BYTES).order(ByteOrder.nativeOrder())
+                : null;
+    }
+
+    /**
+     * Get the capacity of the log of such size
+     *
+     * @param size amount of records to keep
+     * @return power of two, or zero if the log is disabled
+     * @throws IllegalArgumentException if size is negative
+     */
+    public static int capacityFor(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size of combat log cannot be negative!");
+        }
+        if (size >= MAX_CAPACITY) {
+            return MAX_CAPACITY;
+        }
+        return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * Record the decision. Must be invoked from the main server thread only
+     *
+     * @param entityId entity ID of the attacker
+     * @param itemId   ID of item in hand
+     * @param chance   chance of the roll in basis points, zero if the chance wasn't rolled
+     * @param heal     heal in HP, zero if the player wasn't healed
+     * @param result   outcome of the decision
+     */
+    public void record(long entityId, int itemId, int chance, float heal, HealResult result) {
+        if (buffer == null) {
+            return;
+        }
+        long sequence = head.get();
+        int offset = (int) (sequence & mask) * RECORD_SIZE;
+        SEQUENCE.setOpaque(buffer, offset + SEQUENCE_OFFSET, IN_PROGRESS);
+        VarHandle.storeStoreFence(); // readers must not see the new fields with the old sequence
+        buffer.putLong(offset + TIMESTAMP_OFFSET, System.currentTimeMillis());
+        buffer.putLong(offset + ENTITY_ID_OFFSET, entityId);
+        buffer.putInt(offset + ITEM_ID_OFFSET, itemId);
+        buffer.putInt(offset + CHANCE_OFFSET, chance);
+        buffer.putFloat(offset + HEAL_OFFSET, heal);
+        buffer.put(offset + RESULT_OFFSET, result.getCode());
+        SEQUENCE.setRelease(buffer, offset + SEQUENCE_OFFSET, sequence);
+        head.lazySet(sequence + 1);
+    }
+
+    /**
+     * Read the latest records of the player, newest first
+     *
+     * @param entityId entity ID of the player
+     * @param limit    max amount of records
+     * @return records, empty if there are none
+     */
+    public List<Entry> latest(long entityId, int limit) {
+        List<Entry> entries = new ArrayList<>(Math.min(limit, 16));
+        long newest = head.get() - 1;
+        long oldest = Math.max(0, newest - mask);
+        for (long sequence = newest; sequence >= oldest && entries.size() < limit; sequence--) {
+            if (!belongsTo(sequence, entityId)) {
+                continue;
+            }
+            Entry entry = read(sequence);
+            if (entry != null && entry.entityId() == entityId) /* rewritten for another player after the check */ {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Check the entity ID of the record in place, so the records of other players are skipped without building an entry.
+     * The record can be overwritten right after the check, so the entry read afterward must be checked again
+     *
+     * @param sequence sequence of the record
+     * @param entityId entity ID of the player
+     * @return true if the record with such sequence is of the player
+     */
+    private boolean belongsTo(long sequence, long entityId) {
+        if (buffer == null) {
+            return false;
+        }
+        int offset = (int) (sequence & mask) * RECORD_SIZE;
+        if ((long) SEQUENCE.getAcquire(buffer, offset + SEQUENCE_OFFSET) != sequence) {
+            return false;
+        }
+        long recordedId = buffer.getLong(offset + ENTITY_ID_OFFSET);
+        VarHandle.loadLoadFence(); // the entity ID must be read before the sequence is checked again
+        return recordedId == entityId && (long) SEQUENCE.getOpaque(buffer, offset + SEQUENCE_OFFSET) == sequence;
+    }
+
+    /**
+     * Read all records which are kept in the log, oldest first. The records overwritten by the writer while reading are skipped
+     *
+     * @return records
+     */
+    public List<Entry> entries() {
+        long end = head.get();
+        long start = Math.max(0, end - capacity);
+        List<Entry> entries = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Entry entry = read(sequence);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Read the record with such sequence
+     *
+     * @param sequence sequence of the record
+     * @return record, or null if it was overwritten or is being rewritten
+     */
+    Entry read(long sequence) {
+        if (buffer == null) {
+            return null;
+        }
+        int offset = (int) (sequence & mask) * RECORD_SIZE;
+        if ((long) SEQUENCE.getAcquire(buffer, offset + SEQUENCE_OFFSET) != sequence) {
+            return null;
+        }
+        long timestamp = buffer.getLong(offset + TIMESTAMP_OFFSET);
+        long entityId = buffer.getLong(offset + ENTITY_ID_OFFSET);
+        int itemId = buffer.getInt(offset + ITEM_ID_OFFSET);
+        int chance = buffer.getInt(offset + CHANCE_OFFSET);
+        float heal = buffer.getFloat(offset + HEAL_OFFSET);
+        byte code = buffer.get(offset + RESULT_OFFSET);
+        VarHandle.loadLoadFence(); // the fields must be read before the sequence is checked again
+        if ((long) SEQUENCE.getOpaque(buffer, offset + SEQUENCE_OFFSET) != sequence) /* overwritten while reading */ {
+            return null;
+        }
+        return new Entry(timestamp, entityId, itemId, chance, heal, HealResult.fromCode(code));
+    }
+
+    /**
+     * @return max amount of records, zero if the log is disabled
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return amount of records ever written
+     */
+    public long getWritten() {
+        return head.get();
+    }
+
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    /**
+     * Decision of the combat log
+     *
+     * @param timestamp time of the decision in milliseconds since epoch
+     * @param entityId  entity ID of the attacker
+     * @param itemId    ID of item in hand
+     * @param chance    chance of the roll in basis points, zero if the chance wasn't rolled
+     * @param heal      heal in HP, zero if the player wasn't healed
+     * @param result    outcome of the decision, null if its code is unknown
+     */
+    public record Entry(long timestamp, long entityId, int itemId, int chance, float heal, HealResult result) {
+    }
+}
@@ -0,0 +1,134 @@
+package net.uniloftsky.nukkit.lifesteal.trace;
+
+import net.uniloftsky.nukkit.lifesteal.HealResult;
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Binary dump of the combat log. Layout: magic, version, amount of records, then the records oldest first:
+ * timestamp, entity ID, item ID, chance, heal and result code. Doesn't depend on the server classes,
+ * so the dump can be read offline with {@link #main(String[])}:
+ * {@code java -cp lifesteal.jar net.uniloftsky.nukkit.lifesteal.trace.CombatLogFile <dump> [entityId]}
+ */
+public final class CombatLogFile {
+
+    /**
+     * Prefix of the dump files in the plugin folder
+     */
+    public static final String DUMP_PREFIX = "trace-";
+
+    public static final String DUMP_EXTENSION = ".bin";
+
+    /**
+     * "LSTR"
+     */
+    static final int MAGIC = 0x4C535452;
+
+    static final int VERSION = 1;
+
+    static final String CSV_HEADER = "timestamp,entity_id,item_id,chance,result,heal";
+
+    private CombatLogFile() {
+    }
+
+    /**
+     * Write the records to the dump
+     *
+     * @param file    dump file
+     * @param entries records, oldest first
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, List<CombatLog.Entry> entries) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(entries.size());
+            for (CombatLog.Entry entry : entries) {
+                output.writeLong(entry.timestamp());
+                output.writeLong(entry.entityId());
+                output.writeInt(entry.itemId());
+                output.writeInt(entry.chance());
+                output.writeFloat(entry.heal());
+                output.writeByte(entry.result() != null ? entry.result().getCode() : 0);
+            }
+        }
+    }
+
+    /**
+     * Read the records of the dump
+     *
+     * @param file dump file
+     * @return records, oldest first
+     * @throws IOException if the file cannot be read or isn't a combat log dump
+     */
+    public static List<CombatLog.Entry> read(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not a combat log dump");
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported combat log dump version " + version);
+            }
+            int count = input.readInt();
+            if (count < 0) {
+                throw new IOException("Malformed combat log dump, amount of records is " + count);
+            }
+            List<CombatLog.Entry> entries = new ArrayList<>(Math.min(count, CombatLog.MAX_CAPACITY));
+            for (int i = 0; i < count; i++) {
+                entries.add(new CombatLog.Entry(input.readLong(), input.readLong(), input.readInt(), input.readInt(),
+                        input.readFloat(), HealResult.fromCode(input.readByte())));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Format the record as a CSV row, see {@link #CSV_HEADER}
+     *
+     * @param entry record
+     * @return row without line separator
+     */
+    static String toCsvRow(CombatLog.Entry entry) {
+        return Instant.ofEpochMilli(entry.timestamp()) + "," + entry.entityId() + "," + entry.itemId() + ","
+                + String.format(Locale.ROOT, "%.2f", (double) entry.chance() / FixedPoint.SCALE) + ","
+                + (entry.result() != null ? entry.result().name() : "UNKNOWN") + ","
+                + String.format(Locale.ROOT, "%.2f", entry.heal());
+    }
+
+    /**
+     * Print the dump as CSV, optionally only the records of one entity ID
+     *
+     * @param args path of the dump and optional entity ID
+     * @throws IOException if the dump cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CombatLogFile <dump> [entityId]");
+            System.exit(1);
+        }
+        Long entityId = args.length > 1 ? Long.parseLong(args[1]) : null;
+        print(read(Path.of(args[0])), entityId, System.out);
+    }
+
+    static void print(List<CombatLog.Entry> entries, Long entityId, PrintStream output) {
+        output.println(CSV_HEADER);
+        for (CombatLog.Entry entry : entries) {
+            if (entityId == null || entry.entityId() == entityId) {
+                output.println(toCsvRow(entry));
+            }
+        }
+    }
+}
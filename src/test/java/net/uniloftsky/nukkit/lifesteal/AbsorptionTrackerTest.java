@@ -0,0 +1,143 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.Player;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class AbsorptionTrackerTest {
+
+    private static final float MAX_ABSORPTION = 4f;
+
+    private final AbsorptionTracker tracker = new AbsorptionTracker();
+
+    @Test
+    public void testAddCapsAbsorption() {
+
+        // given
+        Player player = player(1, 0);
+
+        // when
+        boolean first = tracker.add(player, 3f, MAX_ABSORPTION);
+        boolean second = tracker.add(player, 3f, MAX_ABSORPTION);
+        boolean third = tracker.add(player, 3f, MAX_ABSORPTION);
+
+        // then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(4f, player.getAbsorption());
+        assertEquals(4f, tracker.amountOf(1));
+        assertEquals(1, tracker.size());
+    }
+
+    @Test
+    public void testOtherAbsorptionIsKept() {
+
+        // given
+        Player player = player(1, 6f); // e.g. golden apple
+
+        // when
+        boolean result = tracker.add(player, 2f, MAX_ABSORPTION);
+        tracker.sweep(1f);
+
+        // then
+        assertFalse(result);
+        assertEquals(6f, player.getAbsorption());
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void testSweepDecaysAndDrops() {
+
+        // given
+        Player first = player(1, 0);
+        Player second = player(2, 0);
+        tracker.add(first, 1f, MAX_ABSORPTION);
+        tracker.add(second, 3f, MAX_ABSORPTION);
+
+        // when
+        int afterFirstSweep = tracker.sweep(1f);
+        int afterSecondSweep = tracker.sweep(1f);
+
+        // then
+        assertEquals(1, afterFirstSweep);
+        assertEquals(1, afterSecondSweep);
+        assertEquals(0f, first.getAbsorption());
+        assertEquals(1f, second.getAbsorption());
+        assertEquals(0, tracker.amountOf(1));
+        assertEquals(1f, tracker.amountOf(2));
+    }
+
+    @Test
+    public void testSweepDropsDamagedAndOffline() {
+
+        // given
+        Player damaged = player(1, 0);
+        Player offline = player(2, 0);
+        tracker.add(damaged, 2f, MAX_ABSORPTION);
+        tracker.add(offline, 2f, MAX_ABSORPTION);
+        damaged.setAbsorption(0); // absorbed by damage
+        given(offline.isOnline()).willReturn(false);
+
+        // when
+        int result = tracker.sweep(0.5f);
+
+        // then
+        assertEquals(0, result);
+        assertEquals(0f, damaged.getAbsorption());
+    }
+
+    @Test
+    public void testManyPlayers() {
+
+        // given
+        Player[] players = new Player[100];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = player(i, 0);
+            tracker.add(players[i], 1f + (i % 2), MAX_ABSORPTION);
+        }
+
+        // when
+        int result = tracker.sweep(1f); // players with 1 HP of absorption are dropped, the rest are compacted
+        tracker.add(players[1], 1f, MAX_ABSORPTION);
+
+        // then
+        assertEquals(50, result);
+        assertEquals(50, tracker.size());
+        assertEquals(2f, tracker.amountOf(1));
+        assertEquals(1f, tracker.amountOf(99));
+        assertEquals(0, tracker.amountOf(0));
+    }
+
+    @Test
+    public void testClearTakesBackAbsorption() {
+
+        // given
+        Player player = player(1, 1f);
+        tracker.add(player, 2f, MAX_ABSORPTION);
+
+        // when
+        tracker.clear();
+
+        // then
+        assertEquals(1f, player.getAbsorption());
+        assertEquals(0, tracker.size());
+    }
+
+    /**
+     * Mock of the player which keeps the absorption like the real one
+     */
+    private static Player player(long id, float absorption) {
+        Player player = mock(Player.class);
+        float[] value = {absorption};
+        given(player.getId()).willReturn(id);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.getAbsorption()).willAnswer(invocation -> value[0]);
+        doAnswer(invocation -> value[0] = invocation.getArgument(0)).when(player).setAbsorption(anyFloat());
+        return player;
+    }
+}
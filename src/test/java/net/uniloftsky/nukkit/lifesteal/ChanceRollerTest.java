@@ -0,0 +1,182 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.ChanceMode;
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class ChanceRollerTest {
+
+    private static final int ROLLS = 200_000;
+
+    /**
+     * Chances in basis points, incl. the fractional percents
+     */
+    private static final int[] CHANCES = {100, 250, 500, 2500, 5000, 9000};
+
+    /**
+     * Allowed difference between the observed and configured proc rate. It is more than 5 standard deviations of the
+     * independent rolls for any chance, so the test with the unseeded random doesn't fail by accident
+     */
+    private static final double TOLERANCE = 0.006;
+
+    private static final long SEED = 42;
+
+    @Test
+    public void testRandomRollBoundary() {
+
+        // given
+        ThreadLocalRandom random = mock(ThreadLocalRandom.class);
+        try (MockedStatic<ThreadLocalRandom> mockedThreadLocal = mockStatic(ThreadLocalRandom.class)) {
+            mockedThreadLocal.when(ThreadLocalRandom::current).thenReturn(random);
+            ChanceRoller roller = ChanceRoller.of(ChanceMode.RANDOM, SEED);
+
+            // when
+            given(random.nextInt(FixedPoint.HUNDRED_PERCENT)).willReturn(2499);
+            boolean below = roller.roll(1, 2500);
+            given(random.nextInt(FixedPoint.HUNDRED_PERCENT)).willReturn(2500);
+            boolean equal = roller.roll(1, 2500);
+
+            // then
+            assertTrue(below);
+            assertFalse(equal); // 2500 of 10000 values [0, 2499] proc, not 2501
+        }
+    }
+
+    @Test
+    public void testProcRateMatchesChance() {
+        for (ChanceMode mode : ChanceMode.values()) {
+            for (int chance : CHANCES) {
+
+                // given
+                ChanceRoller roller = ChanceRoller.of(mode, SEED);
+
+                // when
+                int procs = 0;
+                for (int i = 0; i < ROLLS; i++) {
+                    if (roller.roll(i % 8, chance)) {
+                        procs++;
+                    }
+                }
+
+                // then
+                double rate = (double) procs / ROLLS;
+                assertEquals((double) chance / FixedPoint.HUNDRED_PERCENT, rate, TOLERANCE, mode.getConfigName() + " mode, chance " + chance);
+            }
+        }
+    }
+
+    @Test
+    public void testZeroAndFullChance() {
+        for (ChanceMode mode : ChanceMode.values()) {
+
+            // given
+            ChanceRoller roller = ChanceRoller.of(mode, SEED);
+
+            // when
+            boolean procced = false;
+            boolean missed = false;
+            for (int i = 0; i < 1000; i++) {
+                procced |= roller.roll(1, 0);
+                missed |= !roller.roll(1, FixedPoint.HUNDRED_PERCENT);
+            }
+
+            // then
+            assertFalse(procced, mode.getConfigName());
+            assertFalse(missed, mode.getConfigName());
+        }
+    }
+
+    @Test
+    public void testSeededRollsAreReproducible() {
+
+        // given
+        ChanceRoller first = ChanceRoller.of(ChanceMode.SEEDED, SEED);
+        ChanceRoller second = ChanceRoller.of(ChanceMode.SEEDED, SEED);
+        ChanceRoller other = ChanceRoller.of(ChanceMode.SEEDED, SEED + 1);
+
+        // when
+        boolean[] firstRolls = new boolean[1000];
+        boolean[] secondRolls = new boolean[1000];
+        boolean[] otherRolls = new boolean[1000];
+        for (int i = 0; i < firstRolls.length; i++) {
+            firstRolls[i] = first.roll(i, 2500);
+            secondRolls[i] = second.roll(i, 2500);
+            otherRolls[i] = other.roll(i, 2500);
+        }
+
+        // then
+        assertArrayEquals(firstRolls, secondRolls);
+        assertFalse(Arrays.equals(firstRolls, otherRolls));
+    }
+
+    @Test
+    public void testPrdLimitsStreaks() {
+
+        // given
+        int chance = 2500;
+        ChanceRoller roller = ChanceRoller.of(ChanceMode.PRD, SEED);
+        int maxRolls = (int) Math.ceil(1 / PrdChanceRoller.constantOf(chance));
+
+        // when
+        int missStreak = 0;
+        int longestMissStreak = 0;
+        for (int i = 0; i < ROLLS; i++) {
+            if (roller.roll(1, chance)) {
+                missStreak = 0;
+            } else {
+                longestMissStreak = Math.max(longestMissStreak, ++missStreak);
+            }
+        }
+
+        // then
+        assertTrue(longestMissStreak < maxRolls, "longest miss streak " + longestMissStreak);
+    }
+
+    @Test
+    public void testPrdForgetsPlayersBeyondLimit() {
+
+        // given
+        PrdChanceRoller roller = new PrdChanceRoller(SEED);
+
+        // when
+        for (int i = 0; i <= PrdChanceRoller.MAX_ENTRIES; i++) {
+            roller.roll(i, 2500);
+        }
+
+        // then
+        assertEquals(1, roller.size());
+    }
+
+    @Test
+    public void testPrdConstant() {
+
+        // when
+        double constant = PrdChanceRoller.constantOf(2500);
+        double smallConstant = PrdChanceRoller.constantOf(1); // 0.01%
+
+        // then
+        assertEquals(0.0847, constant, 0.0001);
+        assertEquals(0.25, PrdChanceRoller.rateOf(constant), 1e-9);
+        assertEquals(0.0001, PrdChanceRoller.rateOf(smallConstant), 1e-9);
+    }
+
+    @Test
+    public void testPrdPrecompute() {
+
+        // when
+        PrdChanceRoller.precompute(List.of(0, 1234, 7777, FixedPoint.HUNDRED_PERCENT));
+
+        // then
+        assertEquals(PrdChanceRoller.computeConstant(0.1234), PrdChanceRoller.constantOf(1234));
+        assertEquals(PrdChanceRoller.computeConstant(0.7777), PrdChanceRoller.constantOf(7777));
+    }
+}
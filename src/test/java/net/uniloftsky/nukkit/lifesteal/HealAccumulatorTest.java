@@ -0,0 +1,107 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class HealAccumulatorTest {
+
+    private final HealAccumulator accumulator = new HealAccumulator();
+
+    @Test
+    public void testSumPerPlayer() {
+
+        // given
+        Player first = player(1);
+        Player second = player(2);
+        accumulator.add(first, 1.5f, true);
+        accumulator.add(second, 2f, true);
+        accumulator.add(first, 0.5f, true);
+
+        // when
+        Map<Player, Float> drained = new LinkedHashMap<>();
+        int result = accumulator.drain((p, amount, particles) -> drained.put(p, amount));
+
+        // then
+        assertEquals(2, result);
+        assertEquals(List.of(first, second), new ArrayList<>(drained.keySet()));
+        assertEquals(2f, drained.get(first));
+        assertEquals(2f, drained.get(second));
+        assertEquals(0, accumulator.size());
+    }
+
+    @Test
+    public void testDrainClears() {
+
+        // given
+        Player player = player(7);
+        accumulator.add(player, 1f, true);
+        accumulator.drain((p, amount, particles) -> {
+        });
+
+        // when
+        accumulator.add(player, 3f, true);
+        Map<Player, Float> drained = new LinkedHashMap<>();
+        accumulator.drain((p, amount, particles) -> drained.put(p, amount));
+
+        // then
+        assertEquals(Map.of(player, 3f), drained);
+    }
+
+    @Test
+    public void testManyPlayers() {
+
+        // given
+        List<Player> players = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            Player player = player(i);
+            players.add(player);
+            accumulator.add(player, 1f, true);
+        }
+        for (Player player : players) {
+            accumulator.add(player, 1f, true);
+        }
+
+        // when
+        Map<Player, Float> drained = new LinkedHashMap<>();
+        int result = accumulator.drain((p, amount, particles) -> drained.put(p, amount));
+
+        // then
+        assertEquals(100, result);
+        assertEquals(players, new ArrayList<>(drained.keySet()));
+        drained.values().forEach(amount -> assertEquals(2f, amount));
+    }
+
+    @Test
+    public void testParticlesOfAnyHeal() {
+
+        // given
+        Player hidden = player(1);
+        Player mixed = player(2);
+        accumulator.add(hidden, 1f, false);
+        accumulator.add(mixed, 1f, false);
+        accumulator.add(hidden, 1f, false);
+        accumulator.add(mixed, 1f, true);
+
+        // when
+        Map<Player, Boolean> drained = new LinkedHashMap<>();
+        accumulator.drain((p, amount, particles) -> drained.put(p, particles));
+
+        // then
+        assertEquals(Map.of(hidden, false, mixed, true), drained);
+    }
+
+    private static Player player(long id) {
+        Player player = mock(Player.class);
+        given(player.getId()).willReturn(id);
+        return player;
+    }
+}
@@ -0,0 +1,115 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.HealLimit;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HealLimiterTest {
+
+    private static final long PLAYER_ID = 42;
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1000));
+
+    private final HealLimiter limiter = new HealLimiter(clock::get);
+
+    @Test
+    public void testNoLimit() {
+
+        // when / then
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire(PLAYER_ID, HealLimit.NONE));
+            assertTrue(limiter.tryAcquire(PLAYER_ID, null));
+        }
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    public void testCooldown() {
+
+        // given
+        HealLimit limit = new HealLimit(500, 0, 0);
+
+        // when / then
+        assertTrue(limiter.tryAcquire(PLAYER_ID, limit));
+        assertFalse(limiter.tryAcquire(PLAYER_ID, limit));
+        assertTrue(limiter.tryAcquire(PLAYER_ID + 1, limit));
+
+        advanceMillis(499);
+        assertFalse(limiter.tryAcquire(PLAYER_ID, limit));
+
+        advanceMillis(1);
+        assertTrue(limiter.tryAcquire(PLAYER_ID, limit));
+    }
+
+    @Test
+    public void testTokenBucket() {
+
+        // given
+        HealLimit limit = new HealLimit(0, 2, 3);
+
+        // when / then
+        assertTrue(limiter.tryAcquire(PLAYER_ID, limit));
+        assertTrue(limiter.tryAcquire(PLAYER_ID, limit));
+        assertTrue(limiter.tryAcquire(PLAYER_ID, limit));
+        assertFalse(limiter.tryAcquire(PLAYER_ID, limit)); // burst is spent
+
+        advanceMillis(250);
+        assertFalse(limiter.tryAcquire(PLAYER_ID, limit)); // half of token refilled
+
+        advanceMillis(250);
+        assertTrue(limiter.tryAcquire(PLAYER_ID, limit));
+        assertFalse(limiter.tryAcquire(PLAYER_ID, limit));
+    }
+
+    @Test
+    public void testExpiration() {
+
+        // given
+        HealLimit limit = new HealLimit(1000, 1, 1);
+        for (int id = 1; id <= 1000; id++) {
+            assertTrue(limiter.tryAcquire(id, limit));
+        }
+        assertEquals(1000, limiter.size());
+
+        // when
+        advanceMillis(900);
+        limiter.tryAcquire(5000, limit);
+        int sizeBeforeExpiration = limiter.size();
+
+        advanceMillis(200);
+        limiter.tryAcquire(5000, limit); // denied, but advances the wheel
+
+        // then
+        assertEquals(1001, sizeBeforeExpiration);
+        assertEquals(1, limiter.size());
+        for (int id = 1; id <= 1000; id++) {
+            assertTrue(limiter.tryAcquire(id, limit)); // fresh state after expiration
+        }
+    }
+
+    @Test
+    public void testExpirationAfterLongIdle() {
+
+        // given
+        HealLimit limit = new HealLimit(0, 1, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(PLAYER_ID, limit));
+        }
+
+        // when
+        advanceMillis(TimeUnit.MINUTES.toMillis(10));
+        boolean result = limiter.tryAcquire(PLAYER_ID + 1, limit);
+
+        // then
+        assertTrue(result);
+        assertEquals(1, limiter.size());
+    }
+
+    private void advanceMillis(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
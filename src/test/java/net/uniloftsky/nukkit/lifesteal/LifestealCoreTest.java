@@ -1,13 +1,34 @@
 package net.uniloftsky.nukkit.lifesteal;
 
 import cn.nukkit.Player;
+import cn.nukkit.Server;
+import cn.nukkit.event.EventPriority;
+import cn.nukkit.event.HandlerList;
+import cn.nukkit.event.entity.EntityDamageEvent;
 import cn.nukkit.item.Item;
 import cn.nukkit.level.Level;
 import cn.nukkit.level.Location;
 import cn.nukkit.level.particle.GenericParticle;
 import cn.nukkit.math.Vector3;
+import cn.nukkit.network.protocol.DataPacket;
+import cn.nukkit.plugin.PluginManager;
+import cn.nukkit.plugin.RegisteredListener;
+import net.uniloftsky.nukkit.lifesteal.api.LifestealHealEvent;
+import net.uniloftsky.nukkit.lifesteal.api.LifestealProcEvent;
+import net.uniloftsky.nukkit.lifesteal.config.ConfigSnapshot;
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+import net.uniloftsky.nukkit.lifesteal.config.HealClamp;
+import net.uniloftsky.nukkit.lifesteal.config.HealDamage;
+import net.uniloftsky.nukkit.lifesteal.config.HealLimit;
 import net.uniloftsky.nukkit.lifesteal.config.LifestealConfig;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealRule;
 import net.uniloftsky.nukkit.lifesteal.config.LifestealWeapon;
+import net.uniloftsky.nukkit.lifesteal.config.OverhealMode;
+import net.uniloftsky.nukkit.lifesteal.config.OverhealSettings;
+import net.uniloftsky.nukkit.lifesteal.config.ParticleSettings;
+import net.uniloftsky.nukkit.lifesteal.config.RegionIndex;
+import net.uniloftsky.nukkit.lifesteal.config.WeaponTable;
+import net.uniloftsky.nukkit.lifesteal.trace.CombatLog;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,7 +39,8 @@ import org.mockito.MockedStatic;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,13 +51,16 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 public class LifestealCoreTest {
 
-    private final static int LIFESTEAL_CHANCE = 25;
+    private final static int LIFESTEAL_CHANCE = FixedPoint.of(25);
     private MockedStatic<ThreadLocalRandom> mockedThreadLocal;
     private ThreadLocalRandom random;
 
     @Mock
     private LifestealConfig config;
 
+    @Mock
+    private ChanceRoller chanceRoller;
+
     @Spy
     @InjectMocks
     private LifestealCore core = new LifestealCore(config);
@@ -68,10 +93,10 @@ public class LifestealCoreTest {
         given(itemInHand.getAttackDamage()).willReturn(dealtDamage);
 
         given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
-        given(random.nextInt(100)).willReturn(LIFESTEAL_CHANCE);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(true);
 
-        LifestealWeapon weapon = new LifestealWeapon(mockedId, 10);
-        given(config.getWeapon(mockedId)).willReturn(Optional.of(weapon));
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(10));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
 
         doNothing().when(core).spawnHealingParticles(player);
 
@@ -86,6 +111,197 @@ public class LifestealCoreTest {
         then(core).should().spawnHealingParticles(player);
     }
 
+    @Test
+    public void testHealPlayerWithDealtDamage() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+
+        float dealtDamage = 13.5f;
+        int mockedId = 666;
+        Item itemInHand = mock(Item.class);
+        given(itemInHand.getId()).willReturn(mockedId);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(true);
+
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(10));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        doNothing().when(core).spawnHealingParticles(player);
+
+        // when
+        boolean result = core.healPlayer(player, itemInHand, dealtDamage);
+
+        // then
+        assertTrue(result);
+        then(player).should().heal(core.calculateHealAmount(dealtDamage, weapon.getLifesteal()));
+        then(itemInHand).should(never()).getAttackDamage();
+    }
+
+    @Test
+    public void testHealPlayerCooldown() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+
+        int mockedId = 666;
+        Item itemInHand = mock(Item.class);
+        given(itemInHand.getId()).willReturn(mockedId);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(true);
+
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(10), new HealLimit(60_000, 0, 0));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        doNothing().when(core).spawnHealingParticles(player);
+
+        // when
+        boolean first = core.healPlayer(player, itemInHand, 10);
+        boolean second = core.healPlayer(player, itemInHand, 10);
+
+        // then
+        assertTrue(first);
+        assertFalse(second);
+        then(player).should(times(1)).heal(anyFloat());
+    }
+
+    @Test
+    public void testHealPlayerBatched() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+
+        int mockedId = 666;
+        Item itemInHand = mock(Item.class);
+        given(itemInHand.getId()).willReturn(mockedId);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        given(config.isHealsBatched()).willReturn(true);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(true);
+
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(10));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        doNothing().when(core).spawnHealingParticles(player);
+
+        // when
+        boolean first = core.healPlayer(player, itemInHand, 10);
+        boolean second = core.healPlayer(player, itemInHand, 20);
+
+        // then
+        assertTrue(first);
+        assertTrue(second);
+        then(player).should(never()).heal(anyFloat());
+
+        // when
+        core.applyPendingHeals();
+
+        // then
+        then(player).should().heal(core.calculateHealAmount(30, weapon.getLifesteal()));
+        then(core).should(times(1)).spawnHealingParticles(player);
+    }
+
+    @Test
+    public void testHealPlayerBatchedWithoutParticles() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+        PluginManager pluginManager = mockPluginManager(player);
+        doAnswer(invocation -> {
+            LifestealHealEvent event = invocation.getArgument(0);
+            event.setParticles(false);
+            return null;
+        }).when(pluginManager).callEvent(any(LifestealHealEvent.class));
+
+        int mockedId = 666;
+        Item itemInHand = mock(Item.class);
+        given(itemInHand.getId()).willReturn(mockedId);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        given(config.isHealsBatched()).willReturn(true);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(true);
+
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(10));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        RegisteredListener listener = registerListener(LifestealHealEvent.getHandlers());
+
+        // when
+        try {
+            core.healPlayer(player, itemInHand, 10);
+            core.healPlayer(player, itemInHand, 20);
+        } finally {
+            LifestealHealEvent.getHandlers().unregister(listener);
+        }
+        core.applyPendingHeals();
+
+        // then
+        then(player).should().heal(core.calculateHealAmount(30, weapon.getLifesteal()));
+        then(core).should(never()).spawnHealingParticles(any());
+    }
+
+    @Test
+    public void testHealPlayerDisabledInWorld() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        Level level = mock(Level.class);
+        given(player.getLevel()).willReturn(level);
+        given(level.getFolderName()).willReturn("lobby");
+
+        LifestealRule disabled = mock(LifestealRule.class);
+        given(disabled.isEnabled()).willReturn(false);
+        ConfigSnapshot snapshot = mock(ConfigSnapshot.class);
+        given(snapshot.getWorldRule("lobby")).willReturn(disabled);
+        given(snapshot.getRegions()).willReturn(RegionIndex.EMPTY);
+        given(config.hasLocationRules()).willReturn(true);
+        given(config.getSnapshot()).willReturn(snapshot);
+
+        // when
+        boolean result = core.healPlayer(player, mock(Item.class), 10);
+
+        // then
+        assertFalse(result);
+        then(player).should(never()).hasPermission(anyString());
+        then(player).should(never()).heal(anyFloat());
+    }
+
+    @Test
+    public void testGetDealtDamage() {
+
+        // given
+        EntityDamageEvent event = mock(EntityDamageEvent.class);
+        given(event.getFinalDamage()).willReturn(6f);
+        given(event.getDamage(EntityDamageEvent.DamageModifier.ARMOR)).willReturn(-3f);
+        given(event.getDamage(EntityDamageEvent.DamageModifier.ARMOR_ENCHANTMENTS)).willReturn(-1f);
+
+        // when
+        given(config.getHealDamage()).willReturn(HealDamage.FINAL);
+        float finalDamage = core.getDealtDamage(event);
+        given(config.getHealDamage()).willReturn(HealDamage.PRE_ARMOR);
+        float preArmorDamage = core.getDealtDamage(event);
+
+        // then
+        assertEquals(6f, finalDamage);
+        assertEquals(10f, preArmorDamage);
+    }
+
     @Test
     public void testHealPlayerOffline() {
 
@@ -144,7 +360,7 @@ public class LifestealCoreTest {
         given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
 
         given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
-        given(random.nextInt(100)).willReturn(50); // 50%, so no lifesteal
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(false);
 
         // when
         boolean result = core.healPlayer(player, mock(Item.class));
@@ -154,6 +370,324 @@ public class LifestealCoreTest {
         then(player).should(times(0)).heal(any());
     }
 
+    @Test
+    public void testTryHealRecordsDecisions() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.getId()).willReturn(42L);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+
+        int mockedId = 666;
+        Item itemInHand = mock(Item.class);
+        given(itemInHand.getId()).willReturn(mockedId);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(false, true, true);
+
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(10));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        doNothing().when(core).spawnHealingParticles(player);
+        CombatLog combatLog = new CombatLog(16);
+        core.setCombatLog(combatLog);
+
+        // when
+        HealResult lost = core.tryHeal(player, itemInHand, 10, FixedPoint.SCALE);
+        HealResult noDamage = core.tryHeal(player, itemInHand, 0, FixedPoint.SCALE);
+        HealResult healed = core.tryHeal(player, itemInHand, 10, FixedPoint.SCALE);
+
+        // then
+        assertEquals(HealResult.CHANCE_LOST, lost);
+        assertEquals(HealResult.NO_DAMAGE, noDamage);
+        assertEquals(HealResult.HEALED, healed);
+        List<CombatLog.Entry> entries = combatLog.latest(42, 10);
+        assertEquals(3, entries.size());
+        assertEquals(HealResult.HEALED, entries.get(0).result());
+        assertEquals(2f, entries.get(0).heal());
+        assertEquals(HealResult.CHANCE_LOST, entries.get(2).result());
+        assertEquals(LIFESTEAL_CHANCE, entries.get(2).chance());
+        assertEquals(mockedId, entries.get(2).itemId());
+    }
+
+    @Test
+    public void testTryHealNoPermission() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+
+        // when
+        HealResult result = core.tryHeal(player, mock(Item.class), 10, FixedPoint.SCALE);
+
+        // then
+        assertEquals(HealResult.NO_PERMISSION, result);
+        then(chanceRoller).shouldHaveNoInteractions();
+    }
+
+    @Test
+    public void testCalculateHealAmount() {
+
+        // when
+        float whole = core.calculateHealAmount(10, FixedPoint.of(10));
+        float fractional = core.calculateHealAmount(13.5f, FixedPoint.parse("7.25"));
+        float raised = core.calculateHealAmount(1, FixedPoint.of(10), new HealClamp(FixedPoint.of(1), HealClamp.NO_MAX));
+        float capped = core.calculateHealAmount(100, FixedPoint.of(10), new HealClamp(0, FixedPoint.of(3)));
+        float halved = core.calculateHealAmount(10, FixedPoint.of(10), FixedPoint.parse("0.5"), HealClamp.NONE);
+        float cappedAfterMultiplier = core.calculateHealAmount(10, FixedPoint.of(10), FixedPoint.of(3), new HealClamp(0, FixedPoint.of(5)));
+        float bounded = core.calculateHealAmount(Float.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, HealClamp.NONE);
+
+        // then
+        assertEquals(2f, whole); // same as the former float math with integer percents
+        assertEquals(1.96f, fractional); // 13.5 * 7.25% * 2 = 1.9575, rounded half up to hundredths
+        assertEquals(1f, raised);
+        assertEquals(3f, capped);
+        assertEquals(1f, halved);
+        assertEquals(5f, cappedAfterMultiplier); // 6 HP of the multiplied heal is capped
+        assertTrue(bounded > 0); // lifesteal and multiplier are clamped, so the product doesn't overflow into a negative heal
+    }
+
+    @Test
+    public void testHealPlayerClamped() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+
+        int mockedId = 666;
+        Item itemInHand = mock(Item.class);
+        given(itemInHand.getId()).willReturn(mockedId);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(true);
+
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(50), null, null, new HealClamp(0, FixedPoint.of(4)));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        doNothing().when(core).spawnHealingParticles(player);
+
+        // when
+        boolean result = core.healPlayer(player, itemInHand, 20);
+
+        // then
+        assertTrue(result);
+        then(player).should().heal(4f); // 20 HP instead of the cap
+    }
+
+    @Test
+    public void testHealPlayerHealEventChangesHeal() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+        PluginManager pluginManager = mockPluginManager(player);
+        doAnswer(invocation -> {
+            LifestealHealEvent event = invocation.getArgument(0);
+            event.setAmount(event.getAmount() * 2);
+            event.setParticles(false);
+            return null;
+        }).when(pluginManager).callEvent(any(LifestealHealEvent.class));
+
+        int mockedId = 666;
+        Item itemInHand = mock(Item.class);
+        given(itemInHand.getId()).willReturn(mockedId);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(true);
+
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(10));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        RegisteredListener listener = registerListener(LifestealHealEvent.getHandlers());
+
+        // when
+        boolean result;
+        try {
+            result = core.healPlayer(player, itemInHand, 10);
+        } finally {
+            LifestealHealEvent.getHandlers().unregister(listener);
+        }
+
+        // then
+        assertTrue(result);
+        then(player).should().heal(4f); // 2 HP doubled by the listener
+        then(core).should(never()).spawnHealingParticles(any());
+    }
+
+    @Test
+    public void testHealPlayerProcEventCancelled() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+        PluginManager pluginManager = mockPluginManager(player);
+        doAnswer(invocation -> {
+            LifestealProcEvent event = invocation.getArgument(0);
+            assertEquals(10f, event.getLifesteal());
+            event.setCancelled();
+            return null;
+        }).when(pluginManager).callEvent(any(LifestealProcEvent.class));
+
+        int mockedId = 666;
+        Item itemInHand = mock(Item.class);
+        given(itemInHand.getId()).willReturn(mockedId);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(true);
+
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(10), new HealLimit(60_000, 0, 0));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        doNothing().when(core).spawnHealingParticles(player);
+        RegisteredListener listener = registerListener(LifestealProcEvent.getHandlers());
+
+        // when
+        boolean result;
+        try {
+            result = core.healPlayer(player, itemInHand, 10);
+        } finally {
+            LifestealProcEvent.getHandlers().unregister(listener);
+        }
+
+        // then
+        assertFalse(result);
+        then(player).should(never()).heal(anyFloat());
+
+        // when
+        boolean afterCancelled = core.healPlayer(player, itemInHand, 10);
+
+        // then
+        assertTrue(afterCancelled); // the cancelled proc didn't start the cooldown
+        then(player).should().heal(anyFloat());
+    }
+
+    @Test
+    public void testHealPlayerWithoutEventListeners() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+
+        int mockedId = 666;
+        Item itemInHand = mock(Item.class);
+        given(itemInHand.getId()).willReturn(mockedId);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        given(chanceRoller.roll(anyLong(), eq(LIFESTEAL_CHANCE))).willReturn(true);
+
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.of(10));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        doNothing().when(core).spawnHealingParticles(player);
+
+        // when
+        boolean result = core.healPlayer(player, itemInHand, 10);
+
+        // then
+        assertTrue(result);
+        then(player).should(never()).getServer(); // no events are created
+    }
+
+    @Test
+    public void testServiceValues() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+
+        int mockedId = 666;
+        Item weaponItem = mock(Item.class);
+        given(weaponItem.getId()).willReturn(mockedId);
+        Item otherItem = mock(Item.class);
+        given(otherItem.getId()).willReturn(1);
+
+        given(config.getLifestealChance()).willReturn(LIFESTEAL_CHANCE);
+        LifestealWeapon weapon = new LifestealWeapon(mockedId, FixedPoint.parse("12.5"));
+        given(config.getWeaponTable()).willReturn(WeaponTable.of(Map.of(mockedId, weapon)));
+
+        // when
+        float lifesteal = core.getLifesteal(weaponItem);
+        float playerLifesteal = core.getLifesteal(player, weaponItem);
+        float otherLifesteal = core.getLifesteal(otherItem);
+        float chance = core.getChance(player);
+
+        // then
+        assertEquals(12.5f, lifesteal);
+        assertEquals(12.5f, playerLifesteal);
+        assertEquals(0f, otherLifesteal);
+        assertEquals(25f, chance);
+    }
+
+    @Test
+    public void testHealPlayerSkipsFullHealth() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.isOnline()).willReturn(true);
+        given(player.isAlive()).willReturn(true);
+        given(player.hasPermission(Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission())).willReturn(true);
+        given(player.getHealth()).willReturn(20f);
+        given(player.getMaxHealth()).willReturn(20);
+
+        given(config.getOverhealMode()).willReturn(OverhealMode.SKIP);
+
+        // when
+        boolean result = core.healPlayer(player, mock(Item.class), 20);
+
+        // then
+        assertFalse(result);
+        then(chanceRoller).shouldHaveNoInteractions();
+        then(player).should(never()).heal(anyFloat());
+        then(core).should(never()).spawnHealingParticles(any());
+    }
+
+    @Test
+    public void testApplyHealOverhealToAbsorption() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.getId()).willReturn(1L);
+        given(player.getHealth()).willReturn(19f);
+        given(player.getMaxHealth()).willReturn(20);
+        given(config.getOverhealSettings()).willReturn(new OverhealSettings(OverhealMode.ABSORPTION, FixedPoint.of(4), FixedPoint.of(1)));
+
+        // when
+        boolean result = core.applyHeal(player, 3f, OverhealMode.ABSORPTION);
+
+        // then
+        assertTrue(result);
+        then(player).should().heal(1f);
+        then(player).should().setAbsorption(2f);
+        assertEquals(2f, core.getAbsorption().amountOf(1));
+    }
+
+    @Test
+    public void testApplyHealSkipsExcess() {
+
+        // given
+        Player player = mock(Player.class);
+        given(player.getHealth()).willReturn(20f);
+        given(player.getMaxHealth()).willReturn(20);
+
+        // when
+        boolean result = core.applyHeal(player, 3f, OverhealMode.SKIP);
+
+        // then
+        assertFalse(result);
+        then(player).should(never()).heal(anyFloat());
+    }
+
     @Test
     public void testHealPlayerInvalidParameters() {
 
@@ -187,10 +721,14 @@ public class LifestealCoreTest {
     public void testSpawnHealingParticlesAxisZ() {
 
         // given
+        given(config.getParticleSettings()).willReturn(ParticleSettings.DEFAULT);
+
         Player player = mock(Player.class);
         player.setPosition(new Vector3(0, 0, 0));
         given(player.add(anyDouble(), anyDouble(), anyDouble())).willReturn(new Location());
-        given(player.getLevel()).willReturn(mock(Level.class));
+        Level level = mock(Level.class);
+        given(player.getLevel()).willReturn(level);
+        given(level.getChunkPlayers(anyInt(), anyInt())).willReturn(Map.of(1, mock(Player.class)));
 
         // when
         core.spawnHealingParticles(player);
@@ -203,10 +741,14 @@ public class LifestealCoreTest {
     public void testSpawnHealingParticlesAxisX() {
 
         // given
+        given(config.getParticleSettings()).willReturn(ParticleSettings.DEFAULT);
+
         Player player = mock(Player.class);
         player.setPosition(new Vector3(0, 0, 0));
         given(player.add(anyDouble(), anyDouble(), anyDouble())).willReturn(new Location());
-        given(player.getLevel()).willReturn(mock(Level.class));
+        Level level = mock(Level.class);
+        given(player.getLevel()).willReturn(level);
+        given(level.getChunkPlayers(anyInt(), anyInt())).willReturn(Map.of(1, mock(Player.class)));
 
         // when
         core.spawnHealingParticles(player);
@@ -215,6 +757,69 @@ public class LifestealCoreTest {
         then(player.getLevel()).should(times(20)).addParticle(any(GenericParticle.class)) /* 20 is amount of particles */;
     }
 
+    @Test
+    public void testSpawnHealingParticlesBatched() {
+
+        // given
+        given(config.isParticlesBatched()).willReturn(true);
+        given(config.getParticleSettings()).willReturn(ParticleSettings.DEFAULT);
+
+        Player player = mock(Player.class);
+        Player viewer = mock(Player.class);
+        Level level = mock(Level.class);
+        Server server = mock(Server.class);
+        given(player.getLevel()).willReturn(level);
+        given(player.getServer()).willReturn(server);
+        given(level.getChunkPlayers(anyInt(), anyInt())).willReturn(Map.of(1, viewer));
+
+        // when
+        core.spawnHealingParticles(player);
+
+        // then
+        then(level).should(times(0)).addParticle(any(GenericParticle.class));
+        then(server).should().batchPackets(argThat((Player[] players) -> players.length == 1 && players[0] == viewer),
+                argThat((DataPacket[] packets) -> packets.length == 20)) /* 20 is amount of particles */;
+    }
+
+    @Test
+    public void testSpawnHealingParticlesBatchedNoViewers() {
+
+        // given
+        given(config.getParticleSettings()).willReturn(ParticleSettings.DEFAULT);
+
+        Player player = mock(Player.class);
+        Level level = mock(Level.class);
+        given(player.getLevel()).willReturn(level);
+        given(level.getChunkPlayers(anyInt(), anyInt())).willReturn(Map.of());
+
+        // when
+        core.spawnHealingParticles(player);
+
+        // then
+        then(player).should(times(0)).getServer();
+    }
+
+    @Test
+    public void testSpawnHealingParticlesViewerOutOfRadius() {
+
+        // given
+        given(config.getParticleSettings()).willReturn(new ParticleSettings(20, ParticleSettings.DEFAULT.getType(), 16, 400, 60));
+
+        Player player = mock(Player.class);
+        Player viewer = mock(Player.class);
+        Level level = mock(Level.class);
+        given(player.getLevel()).willReturn(level);
+        given(level.getChunkPlayers(anyInt(), anyInt())).willReturn(Map.of(1, viewer));
+        given(viewer.distanceSquared(player)).willReturn(17.0 * 17.0);
+
+        // when
+        core.spawnHealingParticles(player);
+
+        // then
+        then(level).should(times(0)).addParticle(any(GenericParticle.class));
+        then(player).should(times(0)).getServer();
+    }
+
     @Test
     public void testSpawnHealingParticlesInvalidParameter() {
         try {
@@ -227,4 +832,22 @@ public class LifestealCoreTest {
             assertInstanceOf(IllegalArgumentException.class, e);
         }
     }
+
+    private static PluginManager mockPluginManager(Player player) {
+        Server server = mock(Server.class);
+        PluginManager pluginManager = mock(PluginManager.class);
+        given(player.getServer()).willReturn(server);
+        given(server.getPluginManager()).willReturn(pluginManager);
+        return pluginManager;
+    }
+
+    /**
+     * Register the listener directly in the handler list of the event, so the event is fired without a real plugin
+     */
+    private static RegisteredListener registerListener(HandlerList handlers) {
+        RegisteredListener listener = mock(RegisteredListener.class);
+        given(listener.getPriority()).willReturn(EventPriority.NORMAL);
+        handlers.register(listener);
+        return listener;
+    }
 }
@@ -0,0 +1,48 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongIndexTest {
+
+    private final LongIndex index = new LongIndex(4);
+
+    @Test
+    public void testAddAndGrow() {
+
+        // given
+        int keys = 100;
+
+        // when
+        for (int i = 0; i < keys; i++) {
+            assertEquals(i, index.add(i * 1000L));
+        }
+
+        // then
+        assertEquals(keys, index.size());
+        assertTrue(index.capacity() >= keys);
+        for (int i = 0; i < keys; i++) {
+            assertEquals(i, index.positionOf(i * 1000L));
+            assertEquals(i * 1000L, index.keyAt(i));
+        }
+        assertEquals(LongIndex.ABSENT, index.positionOf(1));
+    }
+
+    @Test
+    public void testClear() {
+
+        // given
+        index.add(7);
+        index.add(8);
+
+        // when
+        index.clear();
+
+        // then
+        assertEquals(0, index.size());
+        assertEquals(LongIndex.ABSENT, index.positionOf(7));
+        assertEquals(LongIndex.ABSENT, index.positionOf(8));
+        assertEquals(0, index.add(8));
+    }
+}
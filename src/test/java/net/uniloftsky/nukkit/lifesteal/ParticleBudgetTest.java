@@ -0,0 +1,73 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import net.uniloftsky.nukkit.lifesteal.config.ParticleSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParticleBudgetTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final ParticleBudget budget = new ParticleBudget(clock::get);
+
+    @Test
+    public void testLevelOfDetail() {
+
+        // given
+        ParticleSettings settings = new ParticleSettings(20, ParticleSettings.DEFAULT.getType(), 32, 1000, 1000);
+
+        // when / then
+        assertEquals(20, budget.acquire(0, 0, settings));
+        assertEquals(10, budget.acquire(0, 0, settings));
+        assertEquals(5, budget.acquire(0, 0, settings));
+        assertEquals(20, budget.acquire(1, 0, settings)); // other chunk
+    }
+
+    @Test
+    public void testChunkBudget() {
+
+        // given
+        ParticleSettings settings = new ParticleSettings(20, ParticleSettings.DEFAULT.getType(), 32, 1000, 25);
+
+        // when / then
+        assertEquals(20, budget.acquire(3, -7, settings));
+        assertEquals(5, budget.acquire(3, -7, settings));
+        assertEquals(0, budget.acquire(3, -7, settings));
+        assertEquals(20, budget.acquire(-7, 3, settings));
+    }
+
+    @Test
+    public void testTickBudget() {
+
+        // given
+        ParticleSettings settings = new ParticleSettings(20, ParticleSettings.DEFAULT.getType(), 32, 50, 1000);
+
+        // when / then
+        assertEquals(20, budget.acquire(0, 0, settings));
+        assertEquals(20, budget.acquire(1, 0, settings));
+        assertEquals(10, budget.acquire(2, 0, settings));
+        assertEquals(0, budget.acquire(3, 0, settings));
+
+        clock.addAndGet(ParticleBudget.WINDOW_NANOS); // next tick
+        assertEquals(20, budget.acquire(0, 0, settings));
+        assertEquals(20, budget.acquire(3, 0, settings));
+    }
+
+    @Test
+    public void testManyChunks() {
+
+        // given
+        ParticleSettings settings = new ParticleSettings(1, ParticleSettings.DEFAULT.getType(), 32, 100_000, 1);
+
+        // when / then
+        for (int x = 0; x < 100; x++) {
+            for (int z = 0; z < 100; z++) {
+                assertEquals(1, budget.acquire(x, z, settings));
+            }
+        }
+        assertEquals(0, budget.acquire(50, 50, settings));
+    }
+}
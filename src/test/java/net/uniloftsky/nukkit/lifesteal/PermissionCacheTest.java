@@ -0,0 +1,213 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.Player;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealProfile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.*;
+
+public class PermissionCacheTest {
+
+    private static final long TTL = 1000;
+    private static final String PERMISSION = Permissions.LIFESTEAL_ABILITY_PERMISSION.getPermission();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private PermissionCache cache;
+    private Player player;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PermissionCache(TTL, clock::get);
+        player = mock(Player.class);
+        given(player.getUniqueId()).willReturn(UUID.randomUUID());
+        given(player.hasPermission(PERMISSION)).willReturn(true);
+    }
+
+    @Test
+    public void testCachedResult() {
+
+        // when
+        boolean first = cache.hasLifestealPermission(player);
+        boolean second = cache.hasLifestealPermission(player);
+
+        // then
+        assertTrue(first);
+        assertTrue(second);
+        then(player).should(times(1)).hasPermission(PERMISSION);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testCachedProfile() {
+
+        // given
+        LifestealProfile mvp = profile("mvp");
+        LifestealProfile vip = profile("vip");
+        cache.setProfiles(List.of(mvp, vip)); // the highest priority first
+        given(player.hasPermission(vip.getPermission())).willReturn(true);
+
+        // when
+        boolean permitted = cache.hasLifestealPermission(player);
+        LifestealProfile first = cache.getProfile(player);
+        LifestealProfile second = cache.getProfile(player);
+
+        // then
+        assertTrue(permitted);
+        assertSame(vip, first);
+        assertSame(vip, second);
+        then(player).should(times(1)).hasPermission(mvp.getPermission());
+        then(player).should(times(1)).hasPermission(vip.getPermission());
+    }
+
+    @Test
+    public void testProfileByPriority() {
+
+        // given
+        LifestealProfile mvp = profile("mvp");
+        LifestealProfile vip = profile("vip");
+        cache.setProfiles(List.of(mvp, vip));
+        given(player.hasPermission(mvp.getPermission())).willReturn(true);
+
+        // when
+        LifestealProfile result = cache.getProfile(player);
+
+        // then
+        assertSame(mvp, result);
+        then(player).should(never()).hasPermission(vip.getPermission());
+    }
+
+    @Test
+    public void testNoProfiles() {
+
+        // when
+        LifestealProfile result = cache.getProfile(player);
+
+        // then
+        assertNull(result);
+        then(player).shouldHaveNoInteractions();
+    }
+
+    @Test
+    public void testRefreshOnJoin() {
+
+        // given
+        cache.refresh(player);
+
+        // when
+        boolean result = cache.hasLifestealPermission(player);
+
+        // then
+        assertTrue(result);
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testExpiredResult() {
+
+        // given
+        cache.hasLifestealPermission(player);
+        given(player.hasPermission(PERMISSION)).willReturn(false);
+        clock.addAndGet(TTL);
+
+        // when
+        boolean result = cache.hasLifestealPermission(player);
+
+        // then
+        assertFalse(result);
+        then(player).should(times(2)).hasPermission(PERMISSION);
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidate() {
+
+        // given
+        cache.hasLifestealPermission(player);
+
+        // when
+        cache.invalidate(player.getUniqueId());
+        cache.hasLifestealPermission(player);
+
+        // then
+        then(player).should(times(2)).hasPermission(PERMISSION);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testDisabled() {
+
+        // given
+        PermissionCache disabled = PermissionCache.disabled();
+
+        // when
+        disabled.refresh(player);
+        disabled.hasLifestealPermission(player);
+        disabled.hasLifestealPermission(player);
+
+        // then
+        then(player).should(times(2)).hasPermission(PERMISSION);
+        assertEquals(0, disabled.size());
+        assertEquals(0, disabled.getHits());
+    }
+
+    @Test
+    public void testProfileCachedWithoutTtl() {
+
+        // given
+        PermissionCache disabled = PermissionCache.disabled();
+        LifestealProfile vip = profile("vip");
+        disabled.setProfiles(List.of(profile("mvp"), vip));
+        given(player.hasPermission(vip.getPermission())).willReturn(true);
+
+        // when
+        disabled.refresh(player);
+        LifestealProfile first = disabled.getProfile(player);
+        LifestealProfile second = disabled.getProfile(player);
+        disabled.hasLifestealPermission(player);
+        disabled.hasLifestealPermission(player);
+
+        // then
+        assertSame(vip, first);
+        assertSame(vip, second);
+        then(player).should(times(1)).hasPermission(vip.getPermission());
+        then(player).should(times(2)).hasPermission(PERMISSION); // the permission itself isn't cached without TTL
+        assertEquals(1, disabled.size());
+    }
+
+    @Test
+    public void testProfileWithoutTtlInvalidated() {
+
+        // given
+        PermissionCache disabled = PermissionCache.disabled();
+        LifestealProfile vip = profile("vip");
+        disabled.setProfiles(List.of(vip));
+        given(player.hasPermission(vip.getPermission())).willReturn(true);
+        disabled.getProfile(player);
+
+        // when
+        disabled.invalidate(player.getUniqueId()); // e.g. level change
+        given(player.hasPermission(vip.getPermission())).willReturn(false);
+        LifestealProfile result = disabled.getProfile(player);
+
+        // then
+        assertNull(result);
+        then(player).should(times(2)).hasPermission(vip.getPermission());
+    }
+
+    private static LifestealProfile profile(String name) {
+        LifestealProfile profile = mock(LifestealProfile.class);
+        given(profile.getPermission()).willReturn(Permissions.LIFESTEAL_PROFILE_PERMISSION.child(name));
+        return profile;
+    }
+}
@@ -0,0 +1,117 @@
+package net.uniloftsky.nukkit.lifesteal;
+
+import cn.nukkit.item.Item;
+import cn.nukkit.nbt.tag.CompoundTag;
+import net.uniloftsky.nukkit.lifesteal.config.LifestealWeapon;
+import net.uniloftsky.nukkit.lifesteal.config.WeaponCondition;
+import net.uniloftsky.nukkit.lifesteal.config.WeaponTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.*;
+
+public class WeaponMatcherTest {
+
+    private static final int WEAPON_ID = 268;
+
+    private final LifestealWeapon plain = new LifestealWeapon(WEAPON_ID, 10);
+    private final LifestealWeapon named = new LifestealWeapon(WEAPON_ID, 20, null,
+            new WeaponCondition(WeaponCondition.ANY_META, "Vampire Blade", new int[0], new int[0], WeaponCondition.NO_ENCHANTMENT, 0));
+
+    private final WeaponMatcher matcher = new WeaponMatcher();
+
+    @Test
+    public void testMatchWithoutConditions() {
+
+        // given
+        WeaponTable table = WeaponTable.of(Map.of(WEAPON_ID, plain));
+        Item item = mock(Item.class);
+        given(item.getId()).willReturn(WEAPON_ID);
+
+        // when
+        LifestealWeapon result = matcher.match(table, item);
+
+        // then
+        assertSame(plain, result);
+        then(item).should(never()).getNamedTag();
+    }
+
+    @Test
+    public void testCachedMatch() {
+
+        // given
+        WeaponTable table = WeaponTable.of(Map.of(WEAPON_ID, plain), List.of(named));
+        byte[] rawTag = new byte[4096];
+        rawTag[100] = 1;
+        Item first = namedItem(rawTag.clone());
+        Item second = namedItem(rawTag.clone());
+
+        // when
+        LifestealWeapon firstResult = matcher.match(table, first);
+        LifestealWeapon secondResult = matcher.match(table, second);
+
+        // then
+        assertSame(named, firstResult);
+        assertSame(named, secondResult);
+        assertEquals(1, matcher.getHits());
+        assertEquals(1, matcher.getMisses());
+        then(second).should(never()).getNamedTag();
+    }
+
+    @Test
+    public void testDifferentTagIsNotCached() {
+
+        // given
+        WeaponTable table = WeaponTable.of(Map.of(WEAPON_ID, plain), List.of(named));
+        byte[] rawTag = new byte[4096];
+        byte[] otherRawTag = rawTag.clone();
+        otherRawTag[2048] = 1; // differs in the middle, so the sampled hash collides
+        Item first = namedItem(rawTag);
+        Item second = mock(Item.class);
+        given(second.getId()).willReturn(WEAPON_ID);
+        given(second.hasCompoundTag()).willReturn(true);
+        given(second.getCompoundTag()).willReturn(otherRawTag);
+        given(second.getNamedTag()).willReturn(new CompoundTag());
+
+        // when
+        LifestealWeapon firstResult = matcher.match(table, first);
+        LifestealWeapon secondResult = matcher.match(table, second);
+
+        // then
+        assertSame(named, firstResult);
+        assertSame(plain, secondResult);
+        assertEquals(0, matcher.getHits());
+        assertEquals(2, matcher.getMisses());
+    }
+
+    @Test
+    public void testCacheDroppedOnNewTable() {
+
+        // given
+        WeaponTable table = WeaponTable.of(Map.of(WEAPON_ID, plain), List.of(named));
+        WeaponTable reloaded = WeaponTable.of(Map.of(WEAPON_ID, plain), List.of(named));
+        byte[] rawTag = new byte[16];
+
+        // when
+        matcher.match(table, namedItem(rawTag));
+        LifestealWeapon result = matcher.match(reloaded, namedItem(rawTag));
+
+        // then
+        assertSame(named, result);
+        assertEquals(0, matcher.getHits());
+    }
+
+    private static Item namedItem(byte[] rawTag) {
+        Item item = mock(Item.class);
+        given(item.getId()).willReturn(WEAPON_ID);
+        given(item.hasCompoundTag()).willReturn(true);
+        given(item.getCompoundTag()).willReturn(rawTag);
+        lenient().when(item.getNamedTag()).thenReturn(new CompoundTag().putCompound("display", new CompoundTag().putString("Name", "Vampire Blade")));
+        return item;
+    }
+}
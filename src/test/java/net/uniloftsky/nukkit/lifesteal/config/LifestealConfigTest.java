@@ -9,10 +9,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -33,9 +39,9 @@ public class LifestealConfigTest {
     private static final String MOCKED_JSON = "{\"chance\":25,\"weapons\":[{\"id\":268,\"lifesteal\":10}]}";
 
     /* These values should be defined respectively to MOCKED_JSON */
-    private static final int LIFESTEAL_CHANCE = 25;
+    private static final int LIFESTEAL_CHANCE = FixedPoint.of(25);
     private static final int WEAPON_ID = 268;
-    private static final int LIFESTEAL_POTENTIAL = 10;
+    private static final int LIFESTEAL_POTENTIAL = FixedPoint.of(10);
 
     @Mock
     private LifestealPlugin plugin;
@@ -64,16 +70,61 @@ public class LifestealConfigTest {
         // given
         mockLogger();
 
-        doNothing().when(config).registerWeapon(any(LifestealWeapon.class));
-        doReturn(MOCKED_JSON).when(config).getConfigContents(MAIN_CONFIG);
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        mockConfigContents(MOCKED_JSON);
 
         // when
         boolean result = config.init();
 
         // then
-        then(logger).should(times(2)).info(anyString());
+        then(logger).should(times(3)).info(anyString());
         then(plugin).should().saveResource(MAIN_CONFIG);
         assertTrue(result);
+        assertEquals(LIFESTEAL_CHANCE, config.getLifestealChance());
+    }
+
+    @Test
+    public void testReload() throws IOException {
+
+        // given
+        mockLogger();
+
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        mockConfigContents(MOCKED_JSON);
+        config.init();
+        ConfigSnapshot initialSnapshot = config.getSnapshot();
+
+        mockConfigContents(MOCKED_JSON.replace("\"chance\":25", "\"chance\":50"));
+
+        // when
+        boolean result = config.reload();
+
+        // then
+        assertTrue(result);
+        assertNotSame(initialSnapshot, config.getSnapshot());
+        assertEquals(FixedPoint.of(50), config.getLifestealChance());
+    }
+
+    @Test
+    public void testReloadMalformedConfig() throws IOException {
+
+        // given
+        mockLogger();
+
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        mockConfigContents(MOCKED_JSON);
+        config.init();
+        ConfigSnapshot initialSnapshot = config.getSnapshot();
+
+        mockConfigContents("{\"chance\":");
+
+        // when
+        boolean result = config.reload();
+
+        // then
+        assertFalse(result);
+        assertSame(initialSnapshot, config.getSnapshot());
+        then(logger).should().error(anyString(), any(Throwable.class));
     }
 
     @Test
@@ -82,7 +133,7 @@ public class LifestealConfigTest {
         // given
         mockLogger();
 
-        doThrow(new IOException()).when(config).getConfigContents(MAIN_CONFIG);
+        doThrow(new IOException()).when(config).openConfigReader(MAIN_CONFIG);
 
         // when
         boolean result = config.init();
@@ -95,21 +146,251 @@ public class LifestealConfigTest {
     }
 
     @Test
-    public void testGetConfigContents() throws IOException {
+    public void testOpenConfigReader() throws IOException {
         Path mockedPath = mock(Path.class);
         given(pluginDataFolder.toPath()).willReturn(mockedPath);
         given(mockedPath.resolve(MAIN_CONFIG)).willReturn(mockedPath);
 
         try (MockedStatic<Files> mockedFiles = mockStatic(Files.class)) {
-            mockedFiles.when(() -> Files.readAllBytes(mockedPath)).thenReturn(MOCKED_JSON.getBytes()); // mocked configuration JSON file
+            mockedFiles.when(() -> Files.newBufferedReader(mockedPath, StandardCharsets.UTF_8)).thenReturn(new BufferedReader(new StringReader(MOCKED_JSON))); // mocked configuration JSON file
 
             // when
-            String result = config.getConfigContents(MAIN_CONFIG);
-
-            assertEquals(MOCKED_JSON, result);
+            try (BufferedReader result = new BufferedReader(config.openConfigReader(MAIN_CONFIG))) {
+                assertEquals(MOCKED_JSON, result.readLine());
+            }
         }
     }
 
+    @Test
+    public void testParseMainConfig() throws IOException {
+
+        // given
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        String json = "{\"chance\":30,\"unknown\":{\"nested\":[1,2]},\"batchParticles\":true," +
+                "\"weapons\":[{\"id\":268,\"lifesteal\":10},{\"name\":\"skipped\",\"id\":271,\"lifesteal\":15}]}";
+
+        // when
+        ConfigSnapshot result = config.parseMainConfig(new StringReader(json));
+
+        // then
+        assertEquals(FixedPoint.of(30), result.getLifestealChance());
+        assertTrue(result.isParticlesBatched());
+        assertEquals(HealDamage.FINAL, result.getHealDamage());
+        then(config).should().registerWeapons(argThat(weapons -> weapons.size() == 2
+                && weapons.get(0).getId() == 268 && weapons.get(0).getLifesteal() == FixedPoint.of(10)
+                && weapons.get(1).getId() == 271 && weapons.get(1).getLifesteal() == FixedPoint.of(15)
+                && !weapons.get(0).getHealClamp().isEnabled()), anyMap(), anyList());
+    }
+
+    @Test
+    public void testParseMainConfigWeaponCondition() throws IOException {
+
+        // given
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        String json = "{\"weapons\":[{\"id\":268,\"lifesteal\":10,\"meta\":2,\"customName\":\"Vampire Blade\"," +
+                "\"enchantments\":{\"9\":1},\"scaleEnchantment\":40,\"lifestealPerLevel\":5},{\"id\":271,\"lifesteal\":15}]}";
+
+        // when
+        config.parseMainConfig(new StringReader(json));
+
+        // then
+        WeaponCondition expected = new WeaponCondition(2, "Vampire Blade", new int[]{9}, new int[]{1}, 40, FixedPoint.of(5));
+        then(config).should().registerWeapons(argThat(weapons -> weapons.size() == 2
+                && expected.equals(weapons.get(0).getCondition()) && weapons.get(1).getCondition() == null), anyMap(), anyList());
+    }
+
+    @Test
+    public void testParseMainConfigDecimals() throws IOException {
+
+        // given
+        mockLogger();
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        String json = "{\"chance\":2.5,\"weapons\":[{\"id\":268,\"lifesteal\":7.25,\"minHeal\":0.5,\"maxHeal\":4}]," +
+                "\"worlds\":{\"arena\":{\"chance\":0.75}}}";
+
+        // when
+        ConfigSnapshot result = config.parseMainConfig(new StringReader(json));
+
+        // then
+        assertEquals(250, result.getLifestealChance());
+        assertEquals(75, result.getWorldRule("arena").chanceOr(result.getLifestealChance()));
+        then(config).should().registerWeapons(argThat(weapons -> weapons.get(0).getLifesteal() == 725
+                && weapons.get(0).getHealClamp().equals(new HealClamp(50, 400))), anyMap(), anyList());
+        assertThrows(IOException.class, () -> config.parseMainConfig(new StringReader("{\"chance\":\"often\"}")));
+    }
+
+    @Test
+    public void testParseMainConfigOutOfBounds() {
+
+        // when & then
+        assertThrows(IOException.class, () -> config.parseMainConfig(new StringReader("{\"weapons\":[{\"id\":268,\"lifesteal\":1000.01}]}")));
+        assertThrows(IOException.class, () -> config.parseMainConfig(new StringReader("{\"weapons\":[{\"id\":268,\"lifesteal\":-1}]}")));
+        assertThrows(IOException.class, () -> config.parseMainConfig(new StringReader("{\"worlds\":{\"arena\":{\"lifesteal\":5000}}}")));
+        assertThrows(IOException.class, () -> config.parseMainConfig(new StringReader("{\"targets\":{\"bosses\":101}}")));
+    }
+
+    @Test
+    public void testParseMainConfigTargets() throws IOException {
+
+        // given
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        String json = "{\"targets\":{\"players\":1,\"hostile\":0.5,\"passive\":0,\"entities\":{\"61\":0,\"300\":2}}}";
+
+        // when
+        ConfigSnapshot defaults = config.parseMainConfig(new StringReader("{}"));
+        ConfigSnapshot result = config.parseMainConfig(new StringReader(json));
+
+        // then
+        assertEquals(FixedPoint.SCALE, defaults.getTargets().multiplierOf(61));
+        assertEquals(FixedPoint.SCALE, result.getTargets().getPlayers());
+        assertEquals(50, result.getTargets().multiplierOf(32)); // zombie
+        assertEquals(0, result.getTargets().multiplierOf(12)); // pig
+        assertEquals(FixedPoint.SCALE, result.getTargets().multiplierOf(53)); // ender dragon
+        assertEquals(0, result.getTargets().multiplierOf(61)); // armor stand
+        assertEquals(200, result.getTargets().multiplierOf(300));
+        assertThrows(IllegalArgumentException.class, () -> config.parseMainConfig(new StringReader("{\"targets\":{\"entities\":{\"-1\":0}}}")));
+    }
+
+    @Test
+    public void testParseMainConfigOverheal() throws IOException {
+
+        // given
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+
+        // when
+        ConfigSnapshot defaults = config.parseMainConfig(new StringReader("{}"));
+        ConfigSnapshot result = config.parseMainConfig(new StringReader("{\"overheal\":\"absorption\",\"maxAbsorption\":6,\"absorptionDecay\":0.5}"));
+
+        // then
+        assertEquals(OverhealMode.HEAL, defaults.getOverheal().getMode());
+        assertEquals(OverhealMode.ABSORPTION, result.getOverheal().getMode());
+        assertEquals(6f, result.getOverheal().getMaxAbsorptionHp());
+        assertEquals(0.025f, result.getOverheal().getDecayPerTick(), 1e-6);
+        assertThrows(IllegalArgumentException.class, () -> config.parseMainConfig(new StringReader("{\"overheal\":\"unknown\"}")));
+    }
+
+    @Test
+    public void testParseMainConfigSharedSource() throws IOException {
+
+        // given
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        String json = "{\"sharedSource\":\"https://config.example.com/lifesteal.json\",\"sharedPollInterval\":10,\"sharedMaxBackoff\":0}";
+
+        // when
+        ConfigSnapshot defaults = config.parseMainConfig(new StringReader("{\"sharedSource\":\" \"}"));
+        ConfigSnapshot result = config.parseMainConfig(new StringReader(json));
+
+        // then
+        assertNull(defaults.getSharedSource());
+        assertEquals(ConfigSnapshot.DEFAULT_SHARED_POLL_INTERVAL, defaults.getSharedPollInterval());
+        assertEquals(ConfigSnapshot.DEFAULT_SHARED_MAX_BACKOFF, defaults.getSharedMaxBackoff());
+        assertEquals("https://config.example.com/lifesteal.json", result.getSharedSource());
+        assertEquals(10, result.getSharedPollInterval());
+        assertEquals(1, result.getSharedMaxBackoff());
+    }
+
+    @Test
+    public void testParseMainConfigProfiles() throws IOException {
+
+        // given
+        mockLogger();
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        String json = "{\"chance\":25,\"profiles\":{" +
+                "\"vip\":{\"priority\":10,\"chance\":35,\"weapons\":{\"268\":20},\"targets\":{\"passive\":0}}," +
+                "\"mvp\":{\"priority\":20,\"lifesteal\":15}," +
+                "\"muted\":{\"enabled\":false}}}";
+
+        // when
+        ConfigSnapshot result = config.parseMainConfig(new StringReader(json));
+
+        // then
+        List<LifestealProfile> profiles = result.getProfiles();
+        assertEquals(List.of("mvp", "vip", "muted"), profiles.stream().map(LifestealProfile::getName).toList());
+        LifestealProfile vip = profiles.get(1);
+        assertEquals("uniloftsky.nukkit.lifesteal.profile.vip", vip.getPermission());
+        assertEquals(FixedPoint.of(35), vip.getRule().chanceOr(LIFESTEAL_CHANCE));
+        assertEquals(FixedPoint.of(20), vip.getRule().lifestealOf(new LifestealWeapon(WEAPON_ID, LIFESTEAL_POTENTIAL)));
+        assertEquals(0, vip.targetsOr(result.getTargets()).multiplierOf(12)); // pig
+        assertSame(result.getTargets(), profiles.get(0).targetsOr(result.getTargets()));
+        assertEquals(FixedPoint.of(15), profiles.get(0).getRule().lifestealOf(new LifestealWeapon(WEAPON_ID, LIFESTEAL_POTENTIAL)));
+        assertFalse(profiles.get(2).getRule().isEnabled());
+        assertEquals(List.of(FixedPoint.of(25), FixedPoint.of(35)), result.getChances());
+    }
+
+    @Test
+    public void testParseMainConfigHealDamage() throws IOException {
+
+        // given
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+
+        // when
+        ConfigSnapshot result = config.parseMainConfig(new StringReader("{\"healDamage\":\"preArmor\"}"));
+
+        // then
+        assertEquals(HealDamage.PRE_ARMOR, result.getHealDamage());
+        assertThrows(IllegalArgumentException.class, () -> config.parseMainConfig(new StringReader("{\"healDamage\":\"unknown\"}")));
+    }
+
+    @Test
+    public void testParseMainConfigTraceSize() throws IOException {
+
+        // given
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+
+        // when
+        ConfigSnapshot defaults = config.parseMainConfig(new StringReader("{}"));
+        ConfigSnapshot disabled = config.parseMainConfig(new StringReader("{\"traceSize\":-1}"));
+
+        // then
+        assertEquals(ConfigSnapshot.DEFAULT_TRACE_SIZE, defaults.getTraceSize());
+        assertEquals(0, disabled.getTraceSize());
+    }
+
+    @Test
+    public void testParseMainConfigChanceMode() throws IOException {
+
+        // given
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+
+        // when
+        ConfigSnapshot defaults = config.parseMainConfig(new StringReader("{}"));
+        ConfigSnapshot result = config.parseMainConfig(new StringReader("{\"chanceMode\":\"seeded\",\"chanceSeed\":1234567890123}"));
+
+        // then
+        assertEquals(ChanceMode.RANDOM, defaults.getChanceMode());
+        assertEquals(ChanceMode.SEEDED, result.getChanceMode());
+        assertEquals(1234567890123L, result.getChanceSeed());
+        assertThrows(IllegalArgumentException.class, () -> config.parseMainConfig(new StringReader("{\"chanceMode\":\"unknown\"}")));
+    }
+
+    @Test
+    public void testParseMainConfigRules() throws IOException {
+
+        // given
+        doNothing().when(config).registerWeapons(anyList(), anyMap(), anyList());
+        mockLogger();
+        String json = "{\"chance\":25,\"worlds\":{\"lobby\":{\"enabled\":false},\"arena\":{\"chance\":50,\"weapons\":{\"268\":20}}}," +
+                "\"regions\":[{\"name\":\"center\",\"world\":\"arena\",\"min\":[-10,0,-10],\"max\":[10,100,10],\"lifesteal\":40}]}";
+
+        // when
+        ConfigSnapshot result = config.parseMainConfig(new StringReader(json));
+
+        // then
+        assertTrue(result.hasLocationRules());
+        assertFalse(result.getWorldRule("lobby").isEnabled());
+        assertNull(result.getWorldRule("survival"));
+        LifestealRule arena = result.getWorldRule("arena");
+        assertEquals(FixedPoint.of(50), arena.chanceOr(LIFESTEAL_CHANCE));
+        assertEquals(FixedPoint.of(20), arena.lifestealOf(new LifestealWeapon(268, LIFESTEAL_POTENTIAL)));
+
+        LifestealRegion[] regions = result.getRegions().candidates("arena", 0, 0);
+        assertEquals(1, regions.length);
+        assertEquals("center", regions[0].getName());
+        assertEquals(FixedPoint.of(50), regions[0].getRule().chanceOr(LIFESTEAL_CHANCE)); // taken from the world rule
+        assertEquals(FixedPoint.of(40), regions[0].getRule().lifestealOf(new LifestealWeapon(268, LIFESTEAL_POTENTIAL)));
+        assertEquals(List.of(FixedPoint.of(25), FixedPoint.of(50)), result.getChances());
+    }
+
     @Test
     public void testRegisterWeapon() {
 
@@ -128,16 +409,47 @@ public class LifestealConfigTest {
             doReturn(true).when(config).isWeaponItemValid(mockedItem);
 
             // when
-            config.registerWeapon(weapon);
+            config.registerWeapons(List.of(weapon), weapons, new ArrayList<>());
         }
 
         // then
         then(weapons).should().put(WEAPON_ID, weapon);
         then(logger).should().info(anyString());
+        then(logger).should(times(0)).warning(anyString());
 
         assertEquals(itemName, weapon.getName());
     }
 
+    @Test
+    public void testRegisterWeaponsResolvesItemOnce() {
+
+        // given
+        mockLogger();
+
+        LifestealWeapon weapon = new LifestealWeapon(WEAPON_ID, LIFESTEAL_POTENTIAL);
+        LifestealWeapon duplicate = new LifestealWeapon(WEAPON_ID, LIFESTEAL_POTENTIAL * 2);
+        Map<Integer, LifestealWeapon> registry = new HashMap<>();
+
+        try (MockedStatic<Item> mockedStaticItem = mockStatic(Item.class)) {
+            Item mockedItem = mock(Item.class);
+            given(mockedItem.getName()).willReturn(VALID_WEAPON_NAME);
+            given(mockedItem.getId()).willReturn(WEAPON_ID);
+            mockedStaticItem.when(() -> Item.get(WEAPON_ID)).thenReturn(mockedItem);
+
+            doReturn(true).when(config).isWeaponItemValid(mockedItem);
+
+            // when
+            config.registerWeapons(List.of(weapon, duplicate), registry, new ArrayList<>());
+
+            // then
+            mockedStaticItem.verify(() -> Item.get(WEAPON_ID), times(1));
+        }
+
+        assertEquals(1, registry.size());
+        assertSame(duplicate, registry.get(WEAPON_ID));
+        then(logger).should().info(anyString());
+    }
+
     @Test
     public void testRegisterInvalidWeapon() {
 
@@ -151,7 +463,7 @@ public class LifestealConfigTest {
             doReturn(false).when(config).isWeaponItemValid(mockedItem);
 
             // when
-            config.registerWeapon(weapon);
+            config.registerWeapons(List.of(weapon), weapons, new ArrayList<>());
         }
 
         // then
@@ -192,7 +504,7 @@ public class LifestealConfigTest {
         doNothing().when(config).isInitialized();
 
         LifestealWeapon weapon = new LifestealWeapon(WEAPON_ID, LIFESTEAL_POTENTIAL);
-        given(weapons.get(WEAPON_ID)).willReturn(weapon);
+        publishWeapon(weapon);
 
         // when
         Optional<LifestealWeapon> result = config.getWeapon(WEAPON_ID);
@@ -211,7 +523,7 @@ public class LifestealConfigTest {
         // given
         doNothing().when(config).isInitialized();
 
-        given(weapons.get(WEAPON_ID)).willReturn(null);
+        config.publish(new ConfigSnapshot.Builder().build());
 
         // when
         Optional<LifestealWeapon> result = config.getWeapon(WEAPON_ID);
@@ -220,6 +532,23 @@ public class LifestealConfigTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    public void testGetWeaponOrNull() {
+
+        // given
+        doNothing().when(config).isInitialized();
+
+        LifestealWeapon weapon = new LifestealWeapon(WEAPON_ID, LIFESTEAL_POTENTIAL);
+        publishWeapon(weapon);
+
+        // when
+        LifestealWeapon result = config.getWeaponOrNull(WEAPON_ID);
+
+        // then
+        assertSame(weapon, result);
+        assertNull(config.getWeaponOrNull(WEAPON_ID + 1));
+    }
+
     @Test
     public void testIsWeaponItemValid() {
 
@@ -292,6 +621,17 @@ public class LifestealConfigTest {
 
     }
 
+    private void mockConfigContents(String contents) throws IOException {
+        doReturn(null).when(config).loadCompiledWeapons();
+        doAnswer(invocation -> new StringReader(contents)).when(config).openConfigReader(MAIN_CONFIG);
+    }
+
+    private void publishWeapon(LifestealWeapon weapon) {
+        ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder();
+        builder.weapons().put(weapon.getId(), weapon);
+        config.publish(builder.build());
+    }
+
     // Invoke if logger should be mocked
     private void mockLogger() {
         given(plugin.getLogger()).willReturn(logger);
@@ -0,0 +1,110 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegionIndexTest {
+
+    private static final LifestealRule DISABLED = new LifestealRule.Builder().enabled(false).build();
+    private static final LifestealRule BOOSTED = new LifestealRule.Builder().chance(80).build();
+
+    @Test
+    public void testCandidates() {
+
+        // given
+        LifestealRegion spawn = new LifestealRegion("spawn", "world", new int[]{-20, 0, -20}, new int[]{20, 255, 20}, 0, DISABLED);
+        LifestealRegion arena = new LifestealRegion("arena", "world", new int[]{100, 0, 100}, new int[]{131, 255, 131}, 0, BOOSTED);
+
+        // when
+        RegionIndex index = RegionIndex.of(List.of(spawn, arena));
+
+        // then
+        assertArrayEquals(new LifestealRegion[]{spawn}, index.candidates("world", -2, -2));
+        assertArrayEquals(new LifestealRegion[]{spawn}, index.candidates("world", 1, 1));
+        assertArrayEquals(new LifestealRegion[]{arena}, index.candidates("world", 6, 8));
+        assertEquals(0, index.candidates("world", 2, 2).length);
+        assertEquals(0, index.candidates("nether", 0, 0).length);
+        assertTrue(spawn.contains(20.9, 64, -20));
+        assertFalse(spawn.contains(21, 64, 0));
+    }
+
+    @Test
+    public void testPriority() {
+
+        // given
+        LifestealRegion low = new LifestealRegion("low", "world", new int[]{0, 0, 0}, new int[]{15, 255, 15}, 0, BOOSTED);
+        LifestealRegion high = new LifestealRegion("high", "world", new int[]{0, 0, 0}, new int[]{15, 255, 15}, 10, DISABLED);
+        LifestealRegion later = new LifestealRegion("later", "world", new int[]{0, 0, 0}, new int[]{15, 255, 15}, 0, BOOSTED);
+
+        // when
+        RegionIndex index = RegionIndex.of(List.of(low, high, later));
+
+        // then
+        assertArrayEquals(new LifestealRegion[]{high, later, low}, index.candidates("world", 0, 0));
+    }
+
+    @Test
+    public void testManyRegions() {
+
+        // given
+        List<LifestealRegion> regions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            regions.add(new LifestealRegion("region" + i, "world", new int[]{i * 32, 0, 0}, new int[]{i * 32 + 7, 255, 7}, 0, BOOSTED));
+        }
+
+        // when
+        RegionIndex index = RegionIndex.of(regions);
+
+        // then
+        assertEquals(500, index.size());
+        for (int i = 0; i < 500; i++) {
+            assertArrayEquals(new LifestealRegion[]{regions.get(i)}, index.candidates("world", i * 2, 0));
+            assertEquals(0, index.candidates("world", i * 2 + 1, 0).length);
+        }
+    }
+
+    @Test
+    public void testRuleFallback() {
+
+        // given
+        LifestealWeapon sword = new LifestealWeapon(268, 10);
+        LifestealWeapon axe = new LifestealWeapon(271, 15);
+        LifestealRule world = new LifestealRule.Builder().enabled(true).chance(40).weapon(271, 30).build();
+        LifestealRule region = new LifestealRule.Builder().lifesteal(5).build();
+
+        // when
+        LifestealRule combined = region.withFallback(world);
+
+        // then
+        assertTrue(combined.isEnabled());
+        assertEquals(40, combined.chanceOr(25));
+        assertEquals(5, combined.lifestealOf(sword));
+        assertEquals(5, combined.lifestealOf(axe)); // own lifesteal of all weapons replaces the world's per-weapon values
+        assertEquals(30, world.lifestealOf(axe));
+        assertEquals(10, world.lifestealOf(sword));
+        assertEquals(25, new LifestealRule.Builder().build().chanceOr(25));
+    }
+
+    @Test
+    public void testLargeRegionsInFallback() {
+
+        // given
+        LifestealRegion border = new LifestealRegion("border", "world", new int[]{-30000000, 0, -30000000}, new int[]{30000000, 255, 30000000}, 5, BOOSTED);
+        LifestealRegion spawn = new LifestealRegion("spawn", "world", new int[]{-20, 0, -20}, new int[]{20, 255, 20}, 10, DISABLED);
+        LifestealRegion pit = new LifestealRegion("pit", "world", new int[]{100, 0, 100}, new int[]{131, 255, 131}, 0, DISABLED);
+
+        // when
+        RegionIndex index = RegionIndex.of(List.of(border, spawn, pit));
+
+        // then
+        assertArrayEquals(new LifestealRegion[]{spawn, border}, index.candidates("world", 0, 0));
+        assertArrayEquals(new LifestealRegion[]{border, pit}, index.candidates("world", 7, 7));
+        assertArrayEquals(new LifestealRegion[]{border}, index.candidates("world", 1000000, -1000000));
+        assertEquals(0, index.candidates("nether", 0, 0).length);
+        assertEquals(3, index.size());
+    }
+}
@@ -0,0 +1,169 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedConfigSourceTest {
+
+    private static final byte[] FIRST_VERSION = "{\"chance\":50}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SECOND_VERSION = "{\"chance\":60}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testDirectorySourceReturnsOnlyNewVersions() throws IOException {
+
+        // given
+        Path sharedDir = Files.createDirectory(tempDir.resolve("shared"));
+        Path sharedConfig = sharedDir.resolve(SharedConfigSource.SHARED_CONFIG);
+        Files.write(sharedConfig, FIRST_VERSION);
+        SharedConfigSource source = new SharedConfigSource(sharedDir.toString(), tempDir.resolve(SharedConfigSource.CACHE_FILE), 30, 600);
+
+        // when
+        byte[] first = source.fetchIfChanged();
+        byte[] unchanged = source.fetchIfChanged();
+        Files.setLastModifiedTime(sharedConfig, FileTime.fromMillis(System.currentTimeMillis() + 60_000)); // touched, same content
+        byte[] touched = source.fetchIfChanged();
+        Files.write(sharedConfig, SECOND_VERSION);
+        Files.setLastModifiedTime(sharedConfig, FileTime.fromMillis(System.currentTimeMillis() + 120_000));
+        byte[] second = source.fetchIfChanged();
+
+        // then
+        assertArrayEquals(FIRST_VERSION, first);
+        assertNull(unchanged);
+        assertNull(touched);
+        assertArrayEquals(SECOND_VERSION, second);
+    }
+
+    @Test
+    public void testDirectorySourceUnreachable() {
+
+        // given
+        SharedConfigSource source = new SharedConfigSource(tempDir.resolve("missing").toString(), tempDir.resolve(SharedConfigSource.CACHE_FILE), 30, 600);
+
+        // when & then
+        assertThrows(IOException.class, source::fetchIfChanged);
+        assertEquals("none", source.getVersion());
+    }
+
+    @Test
+    public void testLastKnownGood() throws IOException {
+
+        // given
+        Path cacheFile = tempDir.resolve(SharedConfigSource.CACHE_FILE);
+        Path sharedDir = Files.createDirectory(tempDir.resolve("shared"));
+        Files.write(sharedDir.resolve(SharedConfigSource.SHARED_CONFIG), FIRST_VERSION);
+        SharedConfigSource previous = new SharedConfigSource(sharedDir.toString(), cacheFile, 30, 600);
+        SharedConfigSource restarted = new SharedConfigSource(sharedDir.toString(), cacheFile, 30, 600);
+
+        // when
+        byte[] missing = restarted.readLastKnownGood();
+        previous.saveLastKnownGood(previous.fetchIfChanged());
+        byte[] cached = restarted.readLastKnownGood();
+        byte[] sameVersion = restarted.fetchIfChanged(); // the source is back with the cached version
+
+        // then
+        assertNull(missing);
+        assertTrue(previous.isLoaded());
+        assertArrayEquals(FIRST_VERSION, cached);
+        assertEquals(previous.getVersion(), restarted.getVersion());
+        assertNull(sameVersion);
+        assertFalse(Files.exists(tempDir.resolve(SharedConfigSource.CACHE_FILE + ".tmp")));
+    }
+
+    @Test
+    public void testHttpSourceUsesConditionalRequests() throws IOException {
+
+        // given
+        AtomicInteger fullResponses = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/config.json", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                fullResponses.incrementAndGet();
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(200, FIRST_VERSION.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(FIRST_VERSION);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        String location = "http://127.0.0.1:" + server.getAddress().getPort() + "/config.json";
+        SharedConfigSource source = new SharedConfigSource(location, tempDir.resolve(SharedConfigSource.CACHE_FILE), 30, 600);
+
+        try {
+            // when
+            byte[] first = source.fetchIfChanged();
+            byte[] notModified = source.fetchIfChanged();
+
+            // then
+            assertArrayEquals(FIRST_VERSION, first);
+            assertNull(notModified);
+            assertEquals(1, fullResponses.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testHttpSourceUnexpectedStatus() throws IOException {
+
+        // given
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        SharedConfigSource source = new SharedConfigSource("http://127.0.0.1:" + server.getAddress().getPort() + "/config.json",
+                tempDir.resolve(SharedConfigSource.CACHE_FILE), 30, 600);
+
+        try {
+            // when & then
+            assertThrows(IOException.class, source::fetchIfChanged);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testSettings() {
+
+        // given
+        SharedConfigSource source = new SharedConfigSource("/mnt/shared", tempDir.resolve(SharedConfigSource.CACHE_FILE), 0, 0);
+
+        // when & then
+        assertEquals(1, source.getPollInterval());
+        assertEquals(1, source.getMaxBackoff());
+        assertTrue(source.hasSettings("/mnt/shared", 1, 1));
+        assertFalse(source.hasSettings("/mnt/shared", 30, 1));
+        assertFalse(source.hasSettings("/mnt/other", 1, 1));
+        assertTrue(SharedConfigSource.isHttp("https://config.example.com"));
+        assertFalse(SharedConfigSource.isHttp("/mnt/shared"));
+    }
+
+    @Test
+    public void testPollerBackoff() {
+        assertEquals(30_000, SharedConfigPoller.delayMillis(0, 30_000, 600_000));
+        assertEquals(60_000, SharedConfigPoller.delayMillis(1, 30_000, 600_000));
+        assertEquals(480_000, SharedConfigPoller.delayMillis(4, 30_000, 600_000));
+        assertEquals(600_000, SharedConfigPoller.delayMillis(5, 30_000, 600_000));
+        assertEquals(600_000, SharedConfigPoller.delayMillis(100, 30_000, 600_000));
+    }
+}
@@ -0,0 +1,94 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.entity.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+
+public class TargetTableTest {
+
+    @Test
+    public void testDefaultHealsAsUsual() {
+        for (int networkId = -1; networkId < 300; networkId++) {
+            assertEquals(FixedPoint.SCALE, TargetTable.DEFAULT.multiplierOf(networkId));
+        }
+    }
+
+    @Test
+    public void testCategories() {
+
+        // given
+        TargetTable.Builder builder = new TargetTable.Builder()
+                .hostile(FixedPoint.of(2))
+                .passive(0)
+                .bosses(FixedPoint.parse("0.25"))
+                .other(FixedPoint.parse("0.5"));
+
+        // when
+        TargetTable table = builder.build();
+
+        // then
+        for (int networkId : TargetTable.HOSTILE_IDS) {
+            assertEquals(200, table.multiplierOf(networkId));
+        }
+        for (int networkId : TargetTable.PASSIVE_IDS) {
+            assertEquals(0, table.multiplierOf(networkId));
+        }
+        assertEquals(25, table.multiplierOf(52)); // wither
+        assertEquals(50, table.multiplierOf(61)); // armor stand
+        assertEquals(50, table.multiplierOf(-1));
+        assertEquals(50, table.multiplierOf(100_000));
+    }
+
+    @Test
+    public void testEntitiesOverrideCategories() {
+
+        // given
+        TargetTable.Builder builder = new TargetTable.Builder()
+                .passive(0)
+                .entity(14, FixedPoint.of(1)) // wolf
+                .entity(1000, FixedPoint.of(3)); // entity of another plugin
+
+        // when
+        TargetTable table = builder.build();
+
+        // then
+        assertEquals(0, table.multiplierOf(12));
+        assertEquals(100, table.multiplierOf(14));
+        assertEquals(300, table.multiplierOf(1000));
+        assertEquals(100, table.multiplierOf(999));
+        assertThrows(IllegalArgumentException.class, () -> builder.entity(TargetTable.MAX_NETWORK_ID + 1, 0));
+    }
+
+    @Test
+    public void testMultiplierOfEntity() throws ReflectiveOperationException {
+
+        // given
+        TargetTable table = new TargetTable.Builder().players(FixedPoint.parse("0.5")).hostile(0).build();
+        Entity player = mock(Entity.class);
+        setIsPlayerField(player);
+        Entity zombie = mock(Entity.class);
+        given(zombie.getNetworkId()).willReturn(32);
+
+        // when
+        int playerMultiplier = table.multiplierOf(player);
+        int zombieMultiplier = table.multiplierOf(zombie);
+
+        // then
+        assertEquals(50, playerMultiplier);
+        assertEquals(0, zombieMultiplier);
+        then(player).should(never()).getNetworkId();
+    }
+
+    private void setIsPlayerField(Entity player) throws ReflectiveOperationException {
+        Field isPlayerField = Entity.class.getDeclaredField("isPlayer");
+        isPlayerField.setAccessible(true);
+        isPlayerField.set(player, true);
+    }
+}
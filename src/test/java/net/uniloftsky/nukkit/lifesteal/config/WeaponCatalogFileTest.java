@@ -0,0 +1,177 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeaponCatalogFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+        List<LifestealWeapon> weapons = List.of(new LifestealWeapon(268, 10), new LifestealWeapon(271, 15));
+
+        // when
+        WeaponCatalogFile.write(file, weapons, WeaponCatalogFile.FLAG_VALIDATED);
+        WeaponCatalogFile.Contents result = WeaponCatalogFile.read(file);
+
+        // then
+        assertTrue(result.unvalidated().isEmpty());
+        assertEquals(2, result.validated().size());
+        assertEquals(268, result.validated().get(0).getId());
+        assertEquals(10, result.validated().get(0).getLifesteal());
+        assertEquals(271, result.validated().get(1).getId());
+        assertEquals(15, result.validated().get(1).getLifesteal());
+    }
+
+    @Test
+    public void testWriteAndReadHealLimit() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+        List<LifestealWeapon> weapons = List.of(new LifestealWeapon(268, 10, new HealLimit(500, 2.5f, 4)), new LifestealWeapon(271, 15));
+
+        // when
+        WeaponCatalogFile.write(file, weapons, WeaponCatalogFile.FLAG_VALIDATED);
+        WeaponCatalogFile.Contents result = WeaponCatalogFile.read(file);
+
+        // then
+        HealLimit healLimit = result.validated().get(0).getHealLimit();
+        assertEquals(500, healLimit.getCooldownMillis());
+        assertEquals(2.5f, healLimit.getHealsPerSecond());
+        assertEquals(4, healLimit.getBurst());
+        assertNull(result.validated().get(1).getHealLimit());
+    }
+
+    @Test
+    public void testWriteAndReadCondition() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+        WeaponCondition condition = new WeaponCondition(2, "Vampire Blade", new int[]{9, 40}, new int[]{1, 2}, 40, 5);
+        List<LifestealWeapon> weapons = List.of(new LifestealWeapon(268, 10, null, condition), new LifestealWeapon(271, 15));
+
+        // when
+        WeaponCatalogFile.write(file, weapons, WeaponCatalogFile.FLAG_VALIDATED);
+        WeaponCatalogFile.Contents result = WeaponCatalogFile.read(file);
+
+        // then
+        assertEquals(condition, result.validated().get(0).getCondition());
+        assertNull(result.validated().get(1).getCondition());
+        assertEquals(15, result.validated().get(1).getLifesteal());
+    }
+
+    @Test
+    public void testWriteAndReadHealClamp() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+        HealClamp healClamp = new HealClamp(50, 400);
+        List<LifestealWeapon> weapons = List.of(new LifestealWeapon(268, 725, null, null, healClamp), new LifestealWeapon(271, 1500));
+
+        // when
+        WeaponCatalogFile.write(file, weapons, WeaponCatalogFile.FLAG_VALIDATED);
+        WeaponCatalogFile.Contents result = WeaponCatalogFile.read(file);
+
+        // then
+        assertEquals(725, result.validated().get(0).getLifesteal());
+        assertEquals(healClamp, result.validated().get(0).getHealClamp());
+        assertFalse(result.validated().get(1).getHealClamp().isEnabled());
+    }
+
+    @Test
+    public void testWriteAndReadName() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+        LifestealWeapon named = new LifestealWeapon(268, 10);
+        named.setName("Wooden Sword");
+        List<LifestealWeapon> weapons = List.of(named, new LifestealWeapon(271, 15));
+
+        // when
+        WeaponCatalogFile.write(file, weapons, WeaponCatalogFile.FLAG_VALIDATED);
+        WeaponCatalogFile.Contents result = WeaponCatalogFile.read(file);
+
+        // then
+        assertEquals("Wooden Sword", result.validated().get(0).getName());
+        assertNull(result.validated().get(1).getName());
+        assertEquals(15, result.validated().get(1).getLifesteal());
+    }
+
+    @Test
+    public void testRewriteAfterRead() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+        WeaponCatalogFile.write(file, List.of(new LifestealWeapon(268, 10)), WeaponCatalogFile.FLAG_VALIDATED);
+        WeaponCatalogFile.read(file);
+
+        // when
+        WeaponCatalogFile.write(file, List.of(new LifestealWeapon(271, 15)), WeaponCatalogFile.FLAG_VALIDATED);
+        WeaponCatalogFile.Contents result = WeaponCatalogFile.read(file);
+
+        // then
+        assertEquals(271, result.validated().get(0).getId());
+    }
+
+    @Test
+    public void testReadIntegerPercents() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 9)
+                .putInt(0x4C535754).putInt(3).putInt(1) // header of the version with integer percents
+                .putInt(268).putInt(10).putInt(WeaponCatalogFile.FLAG_VALIDATED).putInt(0).putFloat(0).putInt(0);
+        Files.write(file, buffer.array());
+
+        // when
+        WeaponCatalogFile.Contents result = WeaponCatalogFile.read(file);
+
+        // then
+        assertEquals(FixedPoint.of(10), result.validated().get(0).getLifesteal());
+    }
+
+    @Test
+    public void testCompile() throws IOException {
+
+        // given
+        Path jsonConfig = tempDir.resolve("config.json");
+        Files.writeString(jsonConfig, "{\"chance\":25,\"weapons\":[{\"id\":268,\"lifesteal\":10},{\"id\":271,\"lifesteal\":20,\"healCooldown\":250}]}");
+        Path file = tempDir.resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+
+        // when
+        int compiled = WeaponCatalogFile.compile(jsonConfig, file);
+        WeaponCatalogFile.Contents result = WeaponCatalogFile.read(file);
+
+        // then
+        assertEquals(2, compiled);
+        assertTrue(result.validated().isEmpty());
+        assertEquals(2, result.unvalidated().size());
+        assertEquals(FixedPoint.of(20), result.unvalidated().get(1).getLifesteal());
+        assertNull(result.unvalidated().get(0).getHealLimit());
+        assertEquals(250, result.unvalidated().get(1).getHealLimit().getCooldownMillis());
+    }
+
+    @Test
+    public void testReadCorrupted() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(WeaponCatalogFile.COMPILED_WEAPONS);
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+
+        // when / then
+        assertThrows(IOException.class, () -> WeaponCatalogFile.read(file));
+    }
+}
@@ -0,0 +1,150 @@
+package net.uniloftsky.nukkit.lifesteal.config;
+
+import cn.nukkit.nbt.tag.CompoundTag;
+import cn.nukkit.nbt.tag.ListTag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeaponTableTest {
+
+    @Test
+    public void testDenseLookup() {
+
+        // given
+        LifestealWeapon woodenSword = new LifestealWeapon(268, 10);
+        LifestealWeapon woodenAxe = new LifestealWeapon(271, 15);
+        Map<Integer, LifestealWeapon> weapons = new HashMap<>();
+        weapons.put(woodenSword.getId(), woodenSword);
+        weapons.put(woodenAxe.getId(), woodenAxe);
+
+        // when
+        WeaponTable table = WeaponTable.of(weapons);
+
+        // then
+        assertEquals(2, table.size());
+        assertSame(woodenSword, table.get(268));
+        assertSame(woodenAxe, table.get(271));
+        assertNull(table.get(269));
+        assertNull(table.get(0));
+        assertNull(table.get(-1));
+        assertNull(table.get(WeaponTable.MAX_DENSE_ID + 1));
+        assertTrue(table.contains(268));
+        assertTrue(table.contains(271));
+        assertFalse(table.contains(269));
+        assertFalse(table.contains(0));
+        assertFalse(table.contains(WeaponTable.MAX_DENSE_ID));
+    }
+
+    @Test
+    public void testContainsMixedIds() {
+
+        // given
+        int sparseId = WeaponTable.MAX_DENSE_ID + 7919;
+        Map<Integer, LifestealWeapon> weapons = new HashMap<>();
+        weapons.put(268, new LifestealWeapon(268, 10));
+        weapons.put(sparseId, new LifestealWeapon(sparseId, 20));
+
+        // when
+        WeaponTable table = WeaponTable.of(weapons);
+
+        // then
+        assertTrue(table.contains(268));
+        assertTrue(table.contains(sparseId));
+        assertFalse(table.contains(267));
+        assertFalse(table.contains(sparseId + 1));
+    }
+
+    @Test
+    public void testSparseLookup() {
+
+        // given
+        Map<Integer, LifestealWeapon> weapons = new HashMap<>();
+        for (int i = 1; i <= 1000; i++) {
+            int id = WeaponTable.MAX_DENSE_ID + i * 7919;
+            weapons.put(id, new LifestealWeapon(id, i % 100));
+        }
+
+        // when
+        WeaponTable table = WeaponTable.of(weapons);
+
+        // then
+        assertEquals(weapons.size(), table.size());
+        for (Map.Entry<Integer, LifestealWeapon> entry : weapons.entrySet()) {
+            assertSame(entry.getValue(), table.get(entry.getKey()));
+        }
+        assertNull(table.get(WeaponTable.MAX_DENSE_ID + 1));
+        assertEquals(weapons, table.toMap());
+    }
+
+    @Test
+    public void testEmpty() {
+
+        // when
+        WeaponTable table = WeaponTable.of(new HashMap<>());
+
+        // then
+        assertSame(WeaponTable.EMPTY, table);
+        assertTrue(table.isEmpty());
+        assertNull(table.get(268));
+        assertTrue(table.toMap().isEmpty());
+    }
+
+    @Test
+    public void testConditionalMatch() {
+
+        // given
+        LifestealWeapon plain = new LifestealWeapon(268, 10);
+        LifestealWeapon named = new LifestealWeapon(268, 20, null, new WeaponCondition(WeaponCondition.ANY_META, "Vampire Blade", new int[0], new int[0], -1, 0));
+        LifestealWeapon namedEnchanted = new LifestealWeapon(268, 30, null, new WeaponCondition(WeaponCondition.ANY_META, "Vampire Blade", new int[]{9}, new int[]{2}, -1, 0));
+        LifestealWeapon damaged = new LifestealWeapon(268, 5, null, new WeaponCondition(3, null, new int[0], new int[0], -1, 0));
+        CompoundTag namedTag = new CompoundTag().putCompound("display", new CompoundTag().putString("Name", "Vampire Blade"));
+        CompoundTag namedEnchantedTag = new CompoundTag().putCompound("display", new CompoundTag().putString("Name", "Vampire Blade"))
+                .putList(new ListTag<CompoundTag>("ench").add(new CompoundTag().putShort("id", 9).putShort("lvl", 3)));
+
+        // when
+        WeaponTable table = WeaponTable.of(Map.of(268, plain), List.of(named, namedEnchanted, damaged));
+
+        // then
+        assertEquals(4, table.size());
+        assertTrue(table.contains(268));
+        assertTrue(table.needsTag(268));
+        assertSame(plain, table.get(268));
+        assertSame(plain, table.match(268, 0, null));
+        assertSame(damaged, table.match(268, 3, null));
+        assertSame(named, table.match(268, 0, namedTag));
+        assertSame(namedEnchanted, table.match(268, 0, namedEnchantedTag));
+        assertNull(table.match(269, 0, namedTag));
+        assertEquals(Map.of(268, plain), table.toMap());
+        assertEquals(3, table.variants().size());
+    }
+
+    @Test
+    public void testConditionalMatchScaledByEnchantment() {
+
+        // given
+        int vampiric = 40;
+        LifestealWeapon weapon = new LifestealWeapon(280, 10, null, new WeaponCondition(WeaponCondition.ANY_META, null, new int[]{vampiric}, new int[]{1}, vampiric, 5));
+        WeaponTable table = WeaponTable.of(Map.of(), List.of(weapon));
+
+        // when
+        LifestealWeapon levelTwo = table.match(280, 0, enchanted(vampiric, 2));
+        LifestealWeapon levelMax = table.match(280, 0, enchanted(vampiric, WeaponTable.MAX_SCALED_LEVEL + 100));
+        LifestealWeapon notEnchanted = table.match(280, 0, new CompoundTag());
+
+        // then
+        assertEquals(20, levelTwo.getLifesteal());
+        assertEquals(10 + 5 * WeaponTable.MAX_SCALED_LEVEL, levelMax.getLifesteal());
+        assertNull(notEnchanted);
+        assertNull(table.get(280));
+        assertTrue(table.contains(280));
+    }
+
+    private static CompoundTag enchanted(int id, int level) {
+        return new CompoundTag().putList(new ListTag<CompoundTag>("ench").add(new CompoundTag().putShort("id", id).putShort("lvl", level)));
+    }
+}
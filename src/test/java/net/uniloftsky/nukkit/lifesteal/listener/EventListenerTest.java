@@ -3,11 +3,15 @@ package net.uniloftsky.nukkit.lifesteal.listener;
 import cn.nukkit.Player;
 import cn.nukkit.entity.Entity;
 import cn.nukkit.event.entity.EntityDamageByEntityEvent;
+import cn.nukkit.event.entity.EntityDamageEvent;
 import cn.nukkit.inventory.PlayerInventory;
 import cn.nukkit.item.Item;
 import cn.nukkit.plugin.PluginLogger;
+import net.uniloftsky.nukkit.lifesteal.HealResult;
 import net.uniloftsky.nukkit.lifesteal.LifestealCore;
 import net.uniloftsky.nukkit.lifesteal.LifestealPlugin;
+import net.uniloftsky.nukkit.lifesteal.config.FixedPoint;
+import net.uniloftsky.nukkit.lifesteal.metrics.LifestealMetrics;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -30,6 +34,9 @@ public class EventListenerTest {
     @Mock
     private static PluginLogger logger;
 
+    @Mock
+    private LifestealMetrics metrics;
+
     @InjectMocks
     private EventListener listener = new EventListener(logger, core);
 
@@ -44,6 +51,69 @@ public class EventListenerTest {
 
         // given
         EntityDamageByEntityEvent event = mock(EntityDamageByEntityEvent.class);
+        given(event.getCause()).willReturn(EntityDamageEvent.DamageCause.ENTITY_ATTACK);
+
+        Player mockedPlayer = mock(Player.class);
+        given(event.getDamager()).willReturn(mockedPlayer);
+        setIsPlayerField(mockedPlayer); // set isPlayer to true
+
+        PlayerInventory mockedInventory = mock(PlayerInventory.class);
+        given(mockedPlayer.getInventory()).willReturn(mockedInventory);
+
+        Item mockedItem = mock(Item.class);
+        given(mockedInventory.getItemInHand()).willReturn(mockedItem);
+        given(mockedItem.getId()).willReturn(268);
+        given(core.isLifestealWeapon(268)).willReturn(true);
+        given(core.getDealtDamage(event)).willReturn(7.5f);
+
+        Entity mockedVictim = mock(Entity.class);
+        given(event.getEntity()).willReturn(mockedVictim);
+        given(core.getVictimMultiplier(mockedPlayer, mockedVictim)).willReturn(FixedPoint.parse("0.5"));
+
+        // when
+        listener.onAttack(event);
+
+        // then
+        then(core).should().healPlayer(mockedPlayer, mockedItem, 7.5f, FixedPoint.parse("0.5"));
+    }
+
+    @Test
+    public void testOnAttackRejectedVictim() throws ReflectiveOperationException {
+
+        // given
+        EntityDamageByEntityEvent event = mock(EntityDamageByEntityEvent.class);
+        given(event.getCause()).willReturn(EntityDamageEvent.DamageCause.ENTITY_ATTACK);
+
+        Player mockedPlayer = mock(Player.class);
+        given(event.getDamager()).willReturn(mockedPlayer);
+        setIsPlayerField(mockedPlayer); // set isPlayer to true
+
+        PlayerInventory mockedInventory = mock(PlayerInventory.class);
+        given(mockedPlayer.getInventory()).willReturn(mockedInventory);
+
+        Item mockedItem = mock(Item.class);
+        given(mockedInventory.getItemInHand()).willReturn(mockedItem);
+        given(mockedItem.getId()).willReturn(268);
+        given(core.isLifestealWeapon(268)).willReturn(true);
+
+        Entity mockedVictim = mock(Entity.class); // e.g. armor stand
+        given(event.getEntity()).willReturn(mockedVictim);
+        given(core.getVictimMultiplier(mockedPlayer, mockedVictim)).willReturn(0);
+
+        // when
+        listener.onAttack(event);
+
+        // then
+        then(core).should(times(0)).getDealtDamage(any());
+        then(core).should(times(0)).healPlayer(any(Player.class), any(Item.class), anyFloat(), anyInt());
+    }
+
+    @Test
+    public void testOnAttackNotWeapon() throws ReflectiveOperationException {
+
+        // given
+        EntityDamageByEntityEvent event = mock(EntityDamageByEntityEvent.class);
+        given(event.getCause()).willReturn(EntityDamageEvent.DamageCause.ENTITY_ATTACK);
 
         Player mockedPlayer = mock(Player.class);
         given(event.getDamager()).willReturn(mockedPlayer);
@@ -54,12 +124,31 @@ public class EventListenerTest {
 
         Item mockedItem = mock(Item.class);
         given(mockedInventory.getItemInHand()).willReturn(mockedItem);
+        given(mockedItem.getId()).willReturn(280);
+        given(core.isLifestealWeapon(280)).willReturn(false);
+
+        // when
+        listener.onAttack(event);
+
+        // then
+        then(core).should(times(0)).healPlayer(any(Player.class), any(Item.class), anyFloat(), anyInt());
+        then(core).should().recordRejected(mockedPlayer, 280, HealResult.NOT_A_WEAPON);
+        then(metrics).should().attackSeen();
+    }
+
+    @Test
+    public void testOnAttackNotMelee() {
+
+        // given
+        EntityDamageByEntityEvent event = mock(EntityDamageByEntityEvent.class);
+        given(event.getCause()).willReturn(EntityDamageEvent.DamageCause.PROJECTILE);
 
         // when
         listener.onAttack(event);
 
         // then
-        then(core).should().healPlayer(mockedPlayer, mockedItem);
+        then(event).should(times(0)).getDamager();
+        then(core).shouldHaveNoInteractions();
     }
 
     @Test
@@ -67,6 +156,7 @@ public class EventListenerTest {
 
         // given
         EntityDamageByEntityEvent event = mock(EntityDamageByEntityEvent.class);
+        given(event.getCause()).willReturn(EntityDamageEvent.DamageCause.ENTITY_ATTACK);
 
         Entity mockedEntity = mock(Entity.class);
         given(event.getDamager()).willReturn(mockedEntity);
@@ -75,7 +165,8 @@ public class EventListenerTest {
         listener.onAttack(event);
 
         // then
-        then(core).should(times(0)).healPlayer(any(Player.class), any(Item.class));
+        then(core).should(times(0)).healPlayer(any(Player.class), any(Item.class), anyFloat(), anyInt());
+        then(metrics).shouldHaveNoInteractions();
     }
 
     @Test
@@ -83,6 +174,7 @@ public class EventListenerTest {
 
         // given
         EntityDamageByEntityEvent event = mock(EntityDamageByEntityEvent.class);
+        given(event.getCause()).willReturn(EntityDamageEvent.DamageCause.ENTITY_ATTACK);
 
         Player mockedPlayer = mock(Player.class);
         given(event.getDamager()).willReturn(mockedPlayer);
@@ -91,8 +183,10 @@ public class EventListenerTest {
         PlayerInventory mockedInventory = mock(PlayerInventory.class);
         given(mockedPlayer.getInventory()).willReturn(mockedInventory);
 
+        given(core.getVictimMultiplier(eq(mockedPlayer), any())).willReturn(FixedPoint.SCALE);
+
         try {
-            doThrow(new IllegalArgumentException()).when(core).healPlayer(mockedPlayer, null);
+            doThrow(new IllegalArgumentException()).when(core).healPlayer(eq(mockedPlayer), isNull(), anyFloat(), anyInt());
         } catch (Exception ignored) {
         }
 
@@ -101,7 +195,7 @@ public class EventListenerTest {
 
         // then
         then(logger).should().error(eq("Some exception occurred when tried to heal the player"), argThat(e -> e instanceof IllegalArgumentException));
-        then(core).should(times(0)).healPlayer(any(Player.class), any(Item.class));
+        then(core).should(times(0)).healPlayer(any(Player.class), any(Item.class), anyFloat(), anyInt());
     }
 
     private void setIsPlayerField(Entity player) throws ReflectiveOperationException {
@@ -0,0 +1,64 @@
+package net.uniloftsky.nukkit.lifesteal.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LifestealMetricsTest {
+
+    @Test
+    public void testHealApplied() {
+
+        // given
+        LifestealMetrics metrics = new LifestealMetrics();
+
+        // when
+        metrics.healApplied(268, 1.5f);
+        metrics.healApplied(268, 2f);
+        metrics.healApplied(5000, 1f);
+
+        // then
+        assertEquals(3, metrics.getHealsApplied());
+        assertEquals(4.5, metrics.getHpHealed(), 0.0001);
+        assertEquals(Map.of(268, 2L, 5000, 1L), metrics.getHealsPerWeapon());
+    }
+
+    @Test
+    public void testCsvRow() {
+
+        // given
+        LifestealMetrics metrics = new LifestealMetrics();
+        metrics.attackSeen();
+        metrics.chanceRollWon();
+        metrics.permissionDenied();
+
+        // when
+        String row = metrics.toCsvRow(42);
+
+        // then
+        assertEquals(LifestealMetrics.CSV_HEADER.split(",").length, row.split(",").length);
+        assertTrue(row.startsWith("42,1,1,0,0.00,1,"));
+    }
+
+    @Test
+    public void testLatencyPercentile() {
+
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1_000_000);
+
+        // then
+        assertEquals(100, histogram.getCount());
+        assertEquals(1023, histogram.getPercentile(50));
+        assertEquals(1023, histogram.getPercentile(99));
+        assertEquals((1L << 20) - 1, histogram.getPercentile(100));
+        assertEquals(0, new LatencyHistogram().getPercentile(99));
+    }
+}
@@ -0,0 +1,69 @@
+package net.uniloftsky.nukkit.lifesteal.metrics;
+
+import cn.nukkit.plugin.PluginLogger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class MetricsDumperTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAppendToFileWithSameHeader() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(MetricsDumper.METRICS_FILE);
+        Files.write(file, List.of(LifestealMetrics.CSV_HEADER, "former row"), StandardCharsets.UTF_8);
+        MetricsDumper dumper = new MetricsDumper(new LifestealMetrics(), file, mock(PluginLogger.class));
+
+        // when
+        dumper.run();
+
+        // then
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertEquals("former row", lines.get(1));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    public void testRotateFileWithOtherHeader() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(MetricsDumper.METRICS_FILE);
+        Files.write(file, List.of("timestamp,attacks_seen", "1,2"), StandardCharsets.UTF_8);
+        MetricsDumper dumper = new MetricsDumper(new LifestealMetrics(), file, mock(PluginLogger.class));
+
+        // when
+        dumper.run();
+        dumper.run();
+
+        // then
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertEquals(LifestealMetrics.CSV_HEADER, lines.get(0));
+        assertEquals(2, countFiles());
+        try (Stream<Path> files = Files.list(tempDir)) {
+            Path rotated = files.filter(path -> !path.equals(file)).findFirst().orElseThrow();
+            assertTrue(rotated.getFileName().toString().startsWith("metrics-"));
+            assertEquals(List.of("timestamp,attacks_seen", "1,2"), Files.readAllLines(rotated, StandardCharsets.UTF_8));
+        }
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+}
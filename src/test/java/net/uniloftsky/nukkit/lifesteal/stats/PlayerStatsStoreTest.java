@@ -0,0 +1,223 @@
+package net.uniloftsky.nukkit.lifesteal.stats;
+
+import cn.nukkit.plugin.PluginLogger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+
+public class PlayerStatsStoreTest {
+
+    private static final UUID FIRST_PLAYER = UUID.randomUUID();
+    private static final UUID SECOND_PLAYER = UUID.randomUUID();
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private PluginLogger logger;
+
+    @BeforeEach
+    void setUp() {
+        file = tempDir.resolve(PlayerStatsStore.STATS_FILE);
+        logger = mock(PluginLogger.class);
+    }
+
+    @Test
+    public void testStatsSurviveRestart() throws Exception {
+
+        // given
+        PlayerStatsStore store = loadedStore(Executors.newSingleThreadExecutor());
+        store.record(FIRST_PLAYER, 268, 2.5f);
+        store.record(FIRST_PLAYER, 268, 1.5f);
+        store.record(FIRST_PLAYER, 271, 1f);
+        store.record(SECOND_PLAYER, 271, 0.5f);
+
+        // when
+        store.close();
+        PlayerStatsStore restarted = loadedStore(Executors.newSingleThreadExecutor());
+
+        // then
+        PlayerStats first = restarted.get(FIRST_PLAYER);
+        assertEquals(3, first.getTotalProcs());
+        assertEquals(5, first.getTotalHealed(), 1e-6);
+        assertEquals(2, first.getProcs(268));
+        assertEquals(268, first.getBestWeaponId());
+        assertEquals(1, restarted.get(SECOND_PLAYER).getTotalProcs());
+        then(logger).should(never()).error(anyString(), any(Throwable.class));
+        restarted.close();
+    }
+
+    @Test
+    public void testNothingWrittenBeforeLoad() throws Exception {
+
+        // given
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        PlayerStatsStore store = new PlayerStatsStore(file, logger, writer);
+        store.record(FIRST_PLAYER, 268, 1f);
+
+        // when
+        store.flush();
+        writer.submit(() -> {
+        }).get();
+
+        // then
+        assertFalse(store.isLoaded());
+        assertFalse(Files.exists(file));
+        store.close();
+    }
+
+    @Test
+    public void testSessionCountersMergedWithStored() throws Exception {
+
+        // given
+        PlayerStatsStore store = loadedStore(Executors.newSingleThreadExecutor());
+        store.record(FIRST_PLAYER, 268, 1f);
+        store.close();
+
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        PlayerStatsStore restarted = new PlayerStatsStore(file, logger, writer);
+        restarted.record(FIRST_PLAYER, 268, 2f); // recorded while the log is loading
+
+        // when
+        restarted.loadAsync(Runnable::run);
+        writer.submit(() -> {
+        }).get();
+        restarted.close();
+        PlayerStatsStore reloaded = loadedStore(Executors.newSingleThreadExecutor());
+
+        // then
+        assertEquals(2, reloaded.get(FIRST_PLAYER).getTotalProcs());
+        assertEquals(3, reloaded.get(FIRST_PLAYER).getTotalHealed(), 1e-6);
+        reloaded.close();
+    }
+
+    @Test
+    public void testEarlyFlushOnFullBatch() throws Exception {
+
+        // given
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        PlayerStatsStore store = loadedStore(writer);
+        store.configure(true, 2);
+
+        // when
+        store.record(FIRST_PLAYER, 268, 1f);
+        store.record(SECOND_PLAYER, 268, 1f);
+        writer.submit(() -> {
+        }).get();
+
+        // then
+        assertTrue(Files.size(file) > 0);
+        store.close();
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+
+        // given
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        PlayerStatsStore store = loadedStore(writer);
+        for (int i = 0; i <= PlayerStatsStore.MIN_COMPACTION_RECORDS; i++) {
+            store.record(FIRST_PLAYER, 268, 1f);
+            store.flush();
+        }
+
+        // when
+        writer.submit(() -> {
+        }).get();
+        store.flush();
+        writer.submit(() -> {
+        }).get();
+
+        // then
+        assertEquals(Integer.BYTES * 2 + StatsLog.RECORD_SIZE, Files.size(file)); // header and the only live record
+        store.close();
+        PlayerStatsStore restarted = loadedStore(Executors.newSingleThreadExecutor());
+        assertEquals(PlayerStatsStore.MIN_COMPACTION_RECORDS + 1, restarted.get(FIRST_PLAYER).getTotalProcs());
+        restarted.close();
+    }
+
+    @Test
+    public void testTop() throws Exception {
+
+        // given
+        PlayerStatsStore store = loadedStore(Executors.newSingleThreadExecutor());
+        store.record(FIRST_PLAYER, 268, 1f);
+        store.record(FIRST_PLAYER, 268, 1f);
+        store.record(SECOND_PLAYER, 268, 5f);
+
+        // when
+        List<PlayerStats> byHealed = store.top(1, Comparator.comparingDouble(PlayerStats::getTotalHealed).reversed());
+        List<PlayerStats> byProcs = store.top(5, Comparator.comparingLong(PlayerStats::getTotalProcs).reversed());
+
+        // then
+        assertEquals(1, byHealed.size());
+        assertEquals(SECOND_PLAYER, byHealed.get(0).getUuid());
+        assertEquals(2, byProcs.size());
+        assertEquals(FIRST_PLAYER, byProcs.get(0).getUuid());
+        store.close();
+    }
+
+    @Test
+    public void testCorruptLogDisablesStore() throws Exception {
+
+        // given
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8}); // not a statistics log
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        PlayerStatsStore store = new PlayerStatsStore(file, logger, writer);
+        store.record(FIRST_PLAYER, 268, 1f); // recorded while the log is loading
+
+        // when
+        store.loadAsync(Runnable::run);
+        writer.submit(() -> {
+        }).get();
+        store.record(FIRST_PLAYER, 268, 1f);
+        store.configure(true, 1);
+        store.record(SECOND_PLAYER, 268, 1f);
+        store.close();
+
+        // then
+        assertTrue(store.isFailed());
+        assertFalse(store.isLoaded());
+        assertEquals(0, store.size());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, Files.readAllBytes(file));
+        then(logger).should().error(anyString(), any(Throwable.class));
+    }
+
+        @Test
+    public void testDisabled() {
+
+        // given
+        PlayerStatsStore store = PlayerStatsStore.disabled();
+
+        // when
+        store.record(FIRST_PLAYER, 268, 1f);
+        store.close();
+
+        // then
+        assertNull(store.get(FIRST_PLAYER));
+    }
+
+    private PlayerStatsStore loadedStore(ExecutorService writer) throws Exception {
+        PlayerStatsStore store = new PlayerStatsStore(file, logger, writer);
+        store.loadAsync(Runnable::run);
+        writer.submit(() -> {
+        }).get();
+        assertTrue(store.isLoaded());
+        return store;
+    }
+}
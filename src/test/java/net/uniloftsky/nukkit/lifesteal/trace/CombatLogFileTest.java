@@ -0,0 +1,68 @@
+package net.uniloftsky.nukkit.lifesteal.trace;
+
+import net.uniloftsky.nukkit.lifesteal.HealResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CombatLogFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+
+        // given
+        Path file = tempDir.resolve(CombatLogFile.DUMP_PREFIX + "test" + CombatLogFile.DUMP_EXTENSION);
+        CombatLog combatLog = new CombatLog(16);
+        combatLog.record(7, 268, 2500, 0, HealResult.CHANCE_LOST);
+        combatLog.record(7, 268, 2500, 2f, HealResult.HEALED);
+
+        // when
+        CombatLogFile.write(file, combatLog.entries());
+        List<CombatLog.Entry> result = CombatLogFile.read(file);
+
+        // then
+        assertEquals(combatLog.entries(), result);
+    }
+
+    @Test
+    public void testReadNotDump() throws IOException {
+
+        // given
+        Path file = tempDir.resolve("config.json");
+        Files.writeString(file, "{\"chance\": 25}");
+
+        // when & then
+        assertThrows(IOException.class, () -> CombatLogFile.read(file));
+    }
+
+    @Test
+    public void testPrintFiltersEntity() {
+
+        // given
+        List<CombatLog.Entry> entries = List.of(
+                new CombatLog.Entry(0, 7, 268, 2500, 2f, HealResult.HEALED),
+                new CombatLog.Entry(0, 8, 280, 0, 0, HealResult.NOT_A_WEAPON));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // when
+        CombatLogFile.print(entries, 7L, new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // then
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(2, lines.length);
+        assertEquals(CombatLogFile.CSV_HEADER, lines[0]);
+        assertEquals("1970-01-01T00:00:00Z,7,268,25.00,HEALED,2.00", lines[1]);
+    }
+}
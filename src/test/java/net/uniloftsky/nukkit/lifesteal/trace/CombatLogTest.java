@@ -0,0 +1,142 @@
+package net.uniloftsky.nukkit.lifesteal.trace;
+
+import net.uniloftsky.nukkit.lifesteal.HealResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CombatLogTest {
+
+    @Test
+    public void testRecordAndReadLatest() {
+
+        // given
+        CombatLog combatLog = new CombatLog(8);
+
+        // when
+        combatLog.record(1, 268, 2500, 0, HealResult.CHANCE_LOST);
+        combatLog.record(2, 280, 0, 0, HealResult.NOT_A_WEAPON);
+        combatLog.record(1, 268, 2500, 1.5f, HealResult.HEALED);
+        List<CombatLog.Entry> result = combatLog.latest(1, 10);
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals(HealResult.HEALED, result.get(0).result());
+        assertEquals(1.5f, result.get(0).heal());
+        assertEquals(HealResult.CHANCE_LOST, result.get(1).result());
+        assertEquals(2500, result.get(1).chance());
+        assertEquals(268, result.get(1).itemId());
+        assertTrue(result.get(0).timestamp() > 0);
+        assertEquals(1, combatLog.latest(1, 1).size());
+    }
+
+    @Test
+    public void testOldestRecordsAreOverwritten() {
+
+        // given
+        CombatLog combatLog = new CombatLog(4);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            combatLog.record(i, i, 0, 0, HealResult.HEALED);
+        }
+        List<CombatLog.Entry> result = combatLog.entries();
+
+        // then
+        assertEquals(10, combatLog.getWritten());
+        assertEquals(4, result.size());
+        assertEquals(6, result.get(0).entityId());
+        assertEquals(9, result.get(3).entityId());
+        assertTrue(combatLog.latest(5, 10).isEmpty());
+    }
+
+    @Test
+    public void testDisabled() {
+
+        // when
+        CombatLog.DISABLED.record(1, 268, 0, 0, HealResult.HEALED);
+
+        // then
+        assertFalse(CombatLog.DISABLED.isEnabled());
+        assertEquals(0, CombatLog.DISABLED.getWritten());
+        assertTrue(CombatLog.DISABLED.entries().isEmpty());
+        assertTrue(CombatLog.DISABLED.latest(1, 10).isEmpty());
+    }
+
+    @Test
+    public void testCapacityFor() {
+        assertEquals(0, CombatLog.capacityFor(0));
+        assertEquals(1, CombatLog.capacityFor(1));
+        assertEquals(1024, CombatLog.capacityFor(1000));
+        assertEquals(65536, CombatLog.capacityFor(65536));
+        assertEquals(CombatLog.MAX_CAPACITY, CombatLog.capacityFor(Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> CombatLog.capacityFor(-1));
+    }
+
+    @Test
+    public void testConcurrentReaderSkipsOverwrittenRecords() throws InterruptedException {
+
+        // given
+        CombatLog combatLog = new CombatLog(64);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                combatLog.record(i, i, i, i, HealResult.HEALED); // every field carries the same value
+            }
+        });
+
+        // when
+        writer.start();
+        boolean consistent = true;
+        while (writer.isAlive()) {
+            for (CombatLog.Entry entry : combatLog.entries()) {
+                consistent &= entry.itemId() == entry.entityId() && entry.chance() == entry.entityId();
+            }
+        }
+        writer.join();
+
+        // then
+        assertTrue(consistent);
+        assertEquals(64, combatLog.entries().size());
+    }
+
+    @Test
+    public void testConcurrentLatestReturnsOnlyPlayerRecords() throws InterruptedException {
+
+        // given
+        CombatLog combatLog = new CombatLog(64);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                combatLog.record(i % 3, i, 0, 0, HealResult.HEALED);
+            }
+        });
+
+        // when
+        writer.start();
+        boolean consistent = true;
+        while (writer.isAlive()) {
+            for (CombatLog.Entry entry : combatLog.latest(1, 10)) {
+                consistent &= entry.entityId() == 1 && entry.itemId() % 3 == 1;
+            }
+        }
+        writer.join();
+
+        // then
+        assertTrue(consistent);
+        assertEquals(10, combatLog.latest(1, 10).size());
+    }
+
+    @Test
+    public void testResultCodesAreUnique() {
+        Set<Byte> codes = new HashSet<>();
+        for (HealResult result : HealResult.values()) {
+            assertTrue(codes.add(result.getCode()));
+            assertEquals(result, HealResult.fromCode(result.getCode()));
+        }
+        assertNull(HealResult.fromCode(0));
+        assertNull(HealResult.fromCode(127));
+    }
+}